@@ -0,0 +1,75 @@
+import os
+import sys
+import tempfile
+
+import ortoolslpparser
+
+# Protocol (one request at a time, until end of input):
+#
+#   Request:   SOLVE <number of bytes>\n<program in LP format>
+#   Response:  OPTIMAL <objective> <number of variables>\n followed by a line "<name> <value>" for each variable,
+#              or ERROR <message>\n if the program was not solved
+
+
+def solve(program, scratch_filename):
+
+    # The parser reads programs from file, so a single scratch file is re-used for all programs
+    with open(scratch_filename, "wb") as f:
+        f.write(program)
+    parse_result = ortoolslpparser.parse_lp_file(scratch_filename)
+    solver = parse_result["solver"]
+    result = solver.Solve()
+
+    if result == solver.OPTIMAL:
+        lines = ["OPTIMAL %r %d\n" % (solver.Objective().Value(), len(parse_result["var_names"]))]
+        for var_name in parse_result["var_names"]:
+            lines.append("%s %r\n" % (var_name, solver.LookupVariable(var_name).solution_value()))
+        return "".join(lines)
+    else:
+        error_msg = "UNKNOWN"
+        if result == solver.FEASIBLE:
+            error_msg = "FEASIBLE"
+        elif result == solver.INFEASIBLE:
+            error_msg = "INFEASIBLE"
+        elif result == solver.UNBOUNDED:
+            error_msg = "UNBOUNDED"
+        elif result == solver.ABNORMAL:
+            error_msg = "ABNORMAL"
+        elif result == solver.NOT_SOLVED:
+            error_msg = "NOT SOLVED"
+        return "ERROR Linear program was not solved; result provided by OR-tools: %s (%d)\n" % (error_msg, result)
+
+
+def main():
+
+    # Responses go over the original standard output, anything else printed goes to standard error
+    requests = sys.stdin.buffer
+    responses = os.fdopen(os.dup(1), "wb")
+    os.dup2(2, 1)
+    sys.stdout = sys.stderr
+
+    fd, scratch_filename = tempfile.mkstemp(suffix=".lp")
+    os.close(fd)
+    try:
+        while True:
+            header = requests.readline()
+            if not header:
+                break
+            parts = header.split()
+            if len(parts) != 2 or parts[0] != b"SOLVE":
+                responses.write(b"ERROR Invalid request header\n")
+                responses.flush()
+                break
+            program = requests.read(int(parts[1]))
+            try:
+                response = solve(program, scratch_filename)
+            except Exception as e:
+                response = "ERROR %s\n" % str(e).replace("\n", " ")
+            responses.write(response.encode("utf-8"))
+            responses.flush()
+    finally:
+        os.remove(scratch_filename)
+
+
+if __name__ == "__main__":
+    main()
@@ -25,10 +25,15 @@
 package ch.ethz.systems.floodns.core;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * The <b>aftermath</b> is executed after all the events in a time tick have been processed.
  * To be executed, at least one of the events must have been active in that tick.
+ * An aftermath which {@link #dependsOnlyOnNetwork() depends only on the network} is additionally
+ * skipped if nothing was recorded in the {@link NetworkChangeSet network change set} since it was last performed.
+ * A {@link #isSpeculative() speculative} aftermath is told after each time tick which flows will end
+ * at the next connection update, such that it can prepare its next execution in advance.
  */
 public abstract class Aftermath {
 
@@ -55,6 +60,41 @@ public abstract class Aftermath {
         return simulator;
     }
 
+    /**
+     * Check whether the aftermath depends only on the links and the active flows (their paths and bandwidth)
+     * of the network, such that performing it again if none of these changed has no effect. The simulator then
+     * skips it in time ticks without any change, e.g. if only the progress of the connections was updated.
+     *
+     * @return  True iff the aftermath can be skipped if the network is unchanged (false by default)
+     */
+    public boolean dependsOnlyOnNetwork() {
+        return false;
+    }
+
+    /**
+     * Check whether the aftermath wants to be told which flows will end at the next connection update
+     * (see {@link #speculate(long, List)}).
+     *
+     * @return  True iff the aftermath is speculative (false by default)
+     */
+    public boolean isSpeculative() {
+        return false;
+    }
+
+    /**
+     * Called by the simulator after each time tick if the aftermath is {@link #isSpeculative() speculative},
+     * with the flows of the connections which complete at the next connection update. If no event
+     * intervenes, these flows will have ended at the next execution of the aftermath. The aftermath can
+     * prepare its next execution (e.g., in the background), but must itself verify that the prediction held.
+     * The network must not be modified.
+     *
+     * @param time          Time of the next connection update
+     * @param endingFlows   Flows which end at that time if no event intervenes
+     */
+    public void speculate(long time, List<Flow> endingFlows) {
+        // By default, no speculation is performed
+    }
+
     /**
      * <b>Goal:</b> with global knowledge enforce some state of the simulation after all events are executed.<br>
      * <br>
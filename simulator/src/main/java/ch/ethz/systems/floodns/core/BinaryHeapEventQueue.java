@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Event queue implemented as a binary heap ({@link PriorityQueue}).
+ * Insertion and removal are O(log n). This is the default event queue of the simulator.
+ */
+public class BinaryHeapEventQueue extends EventQueue {
+
+    private PriorityQueue<Event> queue;
+
+    public BinaryHeapEventQueue() {
+        this.queue = new PriorityQueue<>();
+    }
+
+    @Override
+    protected void add(Event event) {
+        queue.add(event);
+    }
+
+    @Override
+    protected Event peek() {
+        return queue.peek();
+    }
+
+    @Override
+    protected Event poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Remove all canceled events by rebuilding the heap from the active events.
+     *
+     * Runtime is O(n).
+     */
+    @Override
+    protected void removeCanceled() {
+        List<Event> active = new ArrayList<>(queue.size());
+        for (Event event : queue) {
+            if (event.isActive()) {
+                active.add(event);
+            }
+        }
+        queue = new PriorityQueue<>(active);
+    }
+
+}
@@ -0,0 +1,317 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Event queue implemented as a calendar queue, which is tuned for (mostly) monotone timestamps
+ * as is the case for a typical flow arrival schedule. Insertion and removal are O(1) amortized
+ * if the events are spread evenly enough over time.<br>
+ * <br>
+ * Time is divided into buckets ("days") of equal width, and the buckets wrap around after
+ * one "year" (the number of buckets). Each bucket is a sorted linked list of events (linked via
+ * the events themselves, such that no additional objects are allocated). Events in the same time tick
+ * always end up in the same bucket, as such the exact same ordering as {@link Event#compareTo(Event)}
+ * is maintained. The number of buckets and their width are adapted as the queue grows and shrinks.
+ *
+ * ------------
+ *
+ * CITATIONS
+ *
+ * Brown, R., 1988.
+ * Calendar queues: a fast O(1) priority queue implementation for the simulation event set problem.
+ * Communications of the ACM, 31(10), pp.1220-1227.
+ */
+public class CalendarEventQueue extends EventQueue {
+
+    // Bucket parameters
+    private static final int MIN_NUM_BUCKETS = 16;
+    private static final int NUM_WIDTH_SAMPLES = 25;
+
+    // Buckets (sorted singly linked lists)
+    private Event[] bucketHeads;
+    private Event[] bucketTails;
+    private int bucketMask;
+    private long bucketWidth;
+
+    // Virtual bucket (= time / width) from which the search for the first event starts,
+    // which is at most the virtual bucket of the first event in the queue
+    private long currentVirtualBucket;
+
+    // Number of events in the queue
+    private int size;
+
+    /**
+     * Constructor with initial bucket width of 1 time unit
+     * (the bucket width is adapted automatically once events are inserted).
+     */
+    public CalendarEventQueue() {
+        this(1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param initialBucketWidth    Initial bucket width (&gt; 0), e.g. the expected time between two events
+     */
+    public CalendarEventQueue(long initialBucketWidth) {
+        if (initialBucketWidth <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive (given: " + initialBucketWidth + ").");
+        }
+        this.bucketHeads = new Event[MIN_NUM_BUCKETS];
+        this.bucketTails = new Event[MIN_NUM_BUCKETS];
+        this.bucketMask = MIN_NUM_BUCKETS - 1;
+        this.bucketWidth = initialBucketWidth;
+        this.currentVirtualBucket = 0;
+        this.size = 0;
+    }
+
+    @Override
+    protected void add(Event event) {
+        if (size + 1 > 2 * bucketHeads.length) {
+            resize(bucketHeads.length * 2);
+        }
+        insertIntoBucket(event);
+        size++;
+    }
+
+    @Override
+    protected Event peek() {
+        int bucket = findFirstBucket();
+        return bucket == -1 ? null : bucketHeads[bucket];
+    }
+
+    @Override
+    protected Event poll() {
+        int bucket = findFirstBucket();
+        if (bucket == -1) {
+            return null;
+        }
+        Event event = removeHead(bucket);
+        size--;
+        if (size < bucketHeads.length / 2 && bucketHeads.length > MIN_NUM_BUCKETS) {
+            resize(bucketHeads.length / 2);
+        }
+        return event;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all canceled events by unlinking them from their buckets.
+     *
+     * Runtime is O(n).
+     */
+    @Override
+    protected void removeCanceled() {
+        for (int i = 0; i < bucketHeads.length; i++) {
+            Event prev = null;
+            Event cur = bucketHeads[i];
+            while (cur != null) {
+                Event next = cur.getNextInBucket();
+                if (!cur.isActive()) {
+                    if (prev == null) {
+                        bucketHeads[i] = next;
+                    } else {
+                        prev.setNextInBucket(next);
+                    }
+                    cur.setNextInBucket(null);
+                    size--;
+                } else {
+                    prev = cur;
+                }
+                cur = next;
+            }
+            bucketTails[i] = prev;
+        }
+        while (size < bucketHeads.length / 2 && bucketHeads.length > MIN_NUM_BUCKETS) {
+            resize(bucketHeads.length / 2);
+        }
+    }
+
+    /**
+     * Insert the event at its sorted position in its bucket.
+     * Runtime is O(1) if the event is later than all others in the bucket.
+     *
+     * @param event     Event instance
+     */
+    private void insertIntoBucket(Event event) {
+        long virtualBucket = event.getTime() / bucketWidth;
+        if (virtualBucket < currentVirtualBucket) {
+            currentVirtualBucket = virtualBucket;
+        }
+        int bucket = (int) (virtualBucket & bucketMask);
+        event.setNextInBucket(null);
+        Event head = bucketHeads[bucket];
+        if (head == null) {
+            bucketHeads[bucket] = event;
+            bucketTails[bucket] = event;
+        } else if (bucketTails[bucket].compareTo(event) < 0) {
+            bucketTails[bucket].setNextInBucket(event);
+            bucketTails[bucket] = event;
+        } else if (event.compareTo(head) < 0) {
+            event.setNextInBucket(head);
+            bucketHeads[bucket] = event;
+        } else {
+            Event prev = head;
+            while (prev.getNextInBucket().compareTo(event) < 0) {
+                prev = prev.getNextInBucket();
+            }
+            event.setNextInBucket(prev.getNextInBucket());
+            prev.setNextInBucket(event);
+        }
+    }
+
+    /**
+     * Remove the first event of a bucket.
+     *
+     * @param bucket    Bucket index
+     *
+     * @return  First event of the bucket
+     */
+    private Event removeHead(int bucket) {
+        Event event = bucketHeads[bucket];
+        bucketHeads[bucket] = event.getNextInBucket();
+        if (bucketHeads[bucket] == null) {
+            bucketTails[bucket] = null;
+        }
+        event.setNextInBucket(null);
+        return event;
+    }
+
+    /**
+     * Find the bucket which contains the first event, and advance the current virtual bucket to it.
+     * It first checks the buckets of the coming year, and if none of them contain an event of this year
+     * it falls back to a direct search over all bucket heads.
+     *
+     * @return  Bucket index of the first event (-1, if the queue is empty)
+     */
+    private int findFirstBucket() {
+        if (size == 0) {
+            return -1;
+        }
+
+        // Check the buckets one year ahead
+        for (int i = 0; i < bucketHeads.length; i++) {
+            long virtualBucket = currentVirtualBucket + i;
+            int bucket = (int) (virtualBucket & bucketMask);
+            Event head = bucketHeads[bucket];
+            if (head != null && head.getTime() / bucketWidth == virtualBucket) {
+                currentVirtualBucket = virtualBucket;
+                return bucket;
+            }
+        }
+
+        // Direct search for the earliest bucket head
+        int firstBucket = -1;
+        for (int i = 0; i < bucketHeads.length; i++) {
+            Event head = bucketHeads[i];
+            if (head != null && (firstBucket == -1 || head.compareTo(bucketHeads[firstBucket]) < 0)) {
+                firstBucket = i;
+            }
+        }
+        currentVirtualBucket = bucketHeads[firstBucket].getTime() / bucketWidth;
+        return firstBucket;
+
+    }
+
+    /**
+     * Change the number of buckets and re-estimate the bucket width
+     * as three times the average separation of the first events.
+     *
+     * Runtime is O(n).
+     *
+     * @param numBuckets    New number of buckets (power of two)
+     */
+    private void resize(int numBuckets) {
+
+        // Take out the first events as a sample
+        List<Event> all = new ArrayList<>(size);
+        int bucket;
+        while (all.size() < NUM_WIDTH_SAMPLES && (bucket = findFirstBucket()) != -1) {
+            all.add(removeHead(bucket));
+            size--;
+        }
+        long newWidth = estimateBucketWidth(all);
+
+        // Take out all remaining events
+        for (int i = 0; i < bucketHeads.length; i++) {
+            Event cur = bucketHeads[i];
+            while (cur != null) {
+                Event next = cur.getNextInBucket();
+                cur.setNextInBucket(null);
+                all.add(cur);
+                cur = next;
+            }
+        }
+
+        // Re-insert into the new buckets
+        bucketHeads = new Event[numBuckets];
+        bucketTails = new Event[numBuckets];
+        bucketMask = numBuckets - 1;
+        bucketWidth = newWidth;
+        currentVirtualBucket = all.isEmpty() ? 0 : all.get(0).getTime() / bucketWidth;
+        for (Event event : all) {
+            insertIntoBucket(event);
+        }
+        size = all.size();
+
+    }
+
+    /**
+     * Estimate the bucket width as three times the average separation of the sample events,
+     * which excludes separations larger than twice the average.
+     *
+     * @param sample    Sorted events
+     *
+     * @return  Bucket width (at least 1)
+     */
+    private long estimateBucketWidth(List<Event> sample) {
+        if (sample.size() < 2) {
+            return bucketWidth;
+        }
+        double averageSeparation = (double) (sample.get(sample.size() - 1).getTime() - sample.get(0).getTime())
+                                   / (sample.size() - 1);
+        double sum = 0;
+        int count = 0;
+        for (int i = 1; i < sample.size(); i++) {
+            long separation = sample.get(i).getTime() - sample.get(i - 1).getTime();
+            if (separation <= 2 * averageSeparation) {
+                sum += separation;
+                count++;
+            }
+        }
+        if (count == 0 || sum == 0) {
+            return bucketWidth;
+        }
+        return Math.max(1L, (long) Math.ceil(3.0 * sum / count));
+    }
+
+}
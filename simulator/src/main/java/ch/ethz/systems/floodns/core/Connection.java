@@ -54,9 +54,11 @@ public class Connection {
     private final int dstNodeId;
     private final double totalSize;
 
-    // State
+    // State (the remainder and its update threshold are only brought up-to-date
+    // lazily, as such they are valid at the last progression update time)
     private double remainder;
     private double remainderUpdateThreshold;
+    private long lastProgressionUpdateTime;
     private Set<Flow> flows;
     private List<Integer> pastAndPresentFlowIds;
     private double totalBandwidth;
@@ -67,6 +69,11 @@ public class Connection {
     }
     private Status status;
 
+    // Update scheduling (managed by the simulator)
+    private long nextUpdateTime;
+    private int updateQueueIndex;
+    private boolean updateTimeOutdated;
+
     // Logging
     private ConnectionLogger logger;
 
@@ -104,11 +111,17 @@ public class Connection {
         // State
         this.remainder = totalSize;
         this.remainderUpdateThreshold = totalSize;
+        this.lastProgressionUpdateTime = simulator.getCurrentTime();
         this.flows = new HashSet<>();
         this.pastAndPresentFlowIds = new ArrayList<>();
         this.totalBandwidth = 0.0;
         this.status = Status.AWAITING_ACTIVATION;
 
+        // Update scheduling
+        this.nextUpdateTime = Long.MAX_VALUE;
+        this.updateQueueIndex = -1;
+        this.updateTimeOutdated = false;
+
         // Logging
         this.metadata = null;
         this.setLoggerViaSimulator(simulator);
@@ -256,20 +269,30 @@ public class Connection {
     }
 
     /**
-     * Reduce the remainder.
+     * Bring the remainder and its update threshold up-to-date with the current time,
+     * given that the total bandwidth has not changed since the last progression update.
+     * This must be called before every change of the total bandwidth.
      *
-     * @param elapsed    Amount of time elapsed
+     * Runtime is O(1).
+     */
+    private void updateProgression() {
+        long now = simulator.getCurrentTime();
+        if (now > lastProgressionUpdateTime) {
+            long elapsed = now - lastProgressionUpdateTime;
+            remainder -= elapsed * totalBandwidth;
+            remainderUpdateThreshold -= elapsed * totalBandwidth;
+            lastProgressionUpdateTime = now;
+        }
+    }
+
+    /**
+     * Check whether the connection has been completed at the current time.
      *
      * @return  True iff the complete flow has been completed
      */
-    boolean reduceRemainder(long elapsed) {
-        assert(elapsed > 0);
-
-        // Reduce remainder, and check if complete
-        remainder -= elapsed * totalBandwidth;
-        remainderUpdateThreshold -= elapsed * totalBandwidth;
+    boolean isCompleted() {
+        updateProgression();
         return remainder <= simulator.getFlowPrecision();
-
     }
 
     /**
@@ -281,6 +304,7 @@ public class Connection {
         if (totalBandwidth == 0.0) {
             return Long.MAX_VALUE;
         }
+        updateProgression();
         if (remainderUpdateThreshold > simulator.getFlowPrecision()) {
             return (long) Math.ceil((remainderUpdateThreshold - simulator.getFlowPrecision()) / totalBandwidth);
         } else {
@@ -288,18 +312,32 @@ public class Connection {
         }
     }
 
+    /**
+     * Check whether the next update of the connection is its completion: either its update
+     * threshold has already passed, or it coincides with the remainder.
+     *
+     * @return  True iff the connection completes at its next update (if its bandwidth does not change)
+     */
+    boolean completesAtNextUpdate() {
+        updateProgression();
+        return remainderUpdateThreshold <= simulator.getFlowPrecision()
+                || remainder - remainderUpdateThreshold <= simulator.getFlowPrecision();
+    }
+
     /**
      * Set the remainder update threshold.
      *
      * @param threshold     New remainder update threshold (cannot be larger than the remainder)
      */
     public void setRemainderUpdateThreshold(double threshold) {
+        updateProgression();
         if (threshold > remainder) {
             throw new IllegalArgumentException(String.format(
                     "Illegal remainder update threshold %f (larger than remainder = %f)."
             , threshold, remainder));
         }
         remainderUpdateThreshold = threshold;
+        simulator.markConnectionUpdateTimeOutdated(this);
     }
 
     /**
@@ -308,6 +346,7 @@ public class Connection {
      * @return  Remainder update threshold
      */
     public double getRemainderUpdateThreshold() {
+        updateProgression();
         return remainderUpdateThreshold;
     }
 
@@ -317,6 +356,7 @@ public class Connection {
      * @return  True iff the remainder update threshold is passed (within precision)
      */
     public boolean isRemainderUpdateThresholdPassed() {
+        updateProgression();
         return remainderUpdateThreshold <= simulator.getFlowPrecision();
     }
 
@@ -325,11 +365,13 @@ public class Connection {
      * up the bandwidth of all encapsulated flows that belong to it.
      */
     void adaptBandwidth(double deltaBandwidth) {
+        updateProgression();
         totalBandwidth += deltaBandwidth;
         if (totalBandwidth < 0.0) {
             totalBandwidth = 0.0;
         }
         logger.logConnectionStateChange(totalBandwidth);
+        simulator.markConnectionUpdateTimeOutdated(this);
     }
 
     /**
@@ -355,9 +397,65 @@ public class Connection {
      * @return  Connection flow size remainder
      */
     public double getRemainder() {
+        updateProgression();
         return remainder;
     }
 
+    /**
+     * Retrieve the absolute time at which the connection next needs an update,
+     * as it was last calculated by the simulator.
+     *
+     * @return  Absolute next update time
+     */
+    long getNextUpdateTime() {
+        return nextUpdateTime;
+    }
+
+    /**
+     * Set the absolute time at which the connection next needs an update.
+     *
+     * @param nextUpdateTime    Absolute next update time
+     */
+    void setNextUpdateTime(long nextUpdateTime) {
+        this.nextUpdateTime = nextUpdateTime;
+    }
+
+    /**
+     * Retrieve the index of the connection in the {@link ConnectionUpdateQueue update queue}.
+     *
+     * @return  Update queue index (-1, if not in the queue)
+     */
+    int getUpdateQueueIndex() {
+        return updateQueueIndex;
+    }
+
+    /**
+     * Set the index of the connection in the {@link ConnectionUpdateQueue update queue}.
+     *
+     * @param updateQueueIndex  Update queue index (-1, if not in the queue)
+     */
+    void setUpdateQueueIndex(int updateQueueIndex) {
+        this.updateQueueIndex = updateQueueIndex;
+    }
+
+    /**
+     * Check whether the next update time must be recalculated.
+     *
+     * @return  True iff the next update time is outdated
+     */
+    boolean isUpdateTimeOutdated() {
+        return updateTimeOutdated;
+    }
+
+    /**
+     * Set whether the next update time must be recalculated.
+     *
+     * @param outdated  True iff the next update time is outdated
+     */
+    void setUpdateTimeOutdated(boolean outdated) {
+        this.updateTimeOutdated = outdated;
+    }
+
     /**
      * Set the logger for this connection.
      *
@@ -390,7 +488,7 @@ public class Connection {
 
     @Override
     public String toString() {
-        return "Connection#" + connectionId + "[ " + srcNodeId + " -> " + dstNodeId + "; size=(" + remainder + "/"
+        return "Connection#" + connectionId + "[ " + srcNodeId + " -> " + dstNodeId + "; size=(" + getRemainder() + "/"
                + totalSize + " remaining); flows=" + getPastAndPresentFlowIds() + " ]";
     }
 
@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The <b>connection update queue</b> is an indexed binary min-heap of the active
+ * {@link Connection connections}, keyed by the absolute time at which each connection
+ * next needs an update (either because it passes its remainder update threshold
+ * or because it finishes). Ties are broken by connection identifier.<br>
+ * <br>
+ * Each connection keeps track of its own position in the heap, such that its key can
+ * be changed or it can be removed in O(log C) without searching for it.
+ * Connections which do not need any update (e.g. zero bandwidth) are not in the queue.
+ *
+ * @see Connection
+ * @see Simulator
+ */
+class ConnectionUpdateQueue {
+
+    // Heap of connections, the first one has the earliest update time
+    private Connection[] heap;
+    private int size;
+
+    /**
+     * Constructor for an empty connection update queue.
+     */
+    ConnectionUpdateQueue() {
+        this.heap = new Connection[16];
+        this.size = 0;
+    }
+
+    /**
+     * Check whether there are no connections in the queue.
+     *
+     * @return  True iff the queue is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retrieve the number of connections in the queue.
+     *
+     * @return  Number of connections
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retrieve the connection with the earliest update time.
+     *
+     * @return  Connection instance (null, if the queue is empty)
+     */
+    Connection peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * Retrieve the earliest update time in the queue.
+     *
+     * @return  Earliest absolute update time (Long.MAX_VALUE, if the queue is empty)
+     */
+    long peekUpdateTime() {
+        return size == 0 ? Long.MAX_VALUE : heap[0].getNextUpdateTime();
+    }
+
+    /**
+     * Collect all connections which have the given update time. As the update time of a connection
+     * is never before that of its parent in the heap, only those subtrees are visited.
+     *
+     * Runtime is O(k) with k the number of connections with an update time at most the given time.
+     *
+     * @param updateTime    Absolute update time
+     * @param result        Collection to add the connections to
+     */
+    void collectAt(long updateTime, Collection<Connection> result) {
+        collectAt(0, updateTime, result);
+    }
+
+    private void collectAt(int index, long updateTime, Collection<Connection> result) {
+        if (index >= size || heap[index].getNextUpdateTime() > updateTime) {
+            return;
+        }
+        if (heap[index].getNextUpdateTime() == updateTime) {
+            result.add(heap[index]);
+        }
+        collectAt(2 * index + 1, updateTime, result);
+        collectAt(2 * index + 2, updateTime, result);
+    }
+
+    /**
+     * Insert the connection with the given update time, or move it
+     * to its new position if it is already present in the queue.
+     *
+     * Runtime is O(log C).
+     *
+     * @param connection    Connection instance
+     * @param updateTime    Absolute time at which the connection next needs an update
+     */
+    void update(Connection connection, long updateTime) {
+        int index = connection.getUpdateQueueIndex();
+        if (index == -1) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, heap.length * 2);
+            }
+            connection.setNextUpdateTime(updateTime);
+            heap[size] = connection;
+            connection.setUpdateQueueIndex(size);
+            size++;
+            siftUp(size - 1);
+        } else {
+            long previousUpdateTime = connection.getNextUpdateTime();
+            connection.setNextUpdateTime(updateTime);
+            if (updateTime < previousUpdateTime) {
+                siftUp(index);
+            } else if (updateTime > previousUpdateTime) {
+                siftDown(index);
+            }
+        }
+    }
+
+    /**
+     * Remove the connection from the queue (if it is present).
+     *
+     * Runtime is O(log C).
+     *
+     * @param connection    Connection instance
+     */
+    void remove(Connection connection) {
+        int index = connection.getUpdateQueueIndex();
+        if (index == -1) {
+            return;
+        }
+        size--;
+        Connection last = heap[size];
+        heap[size] = null;
+        connection.setUpdateQueueIndex(-1);
+        if (index != size) {
+            heap[index] = last;
+            last.setUpdateQueueIndex(index);
+            siftUp(index);
+            siftDown(last.getUpdateQueueIndex());
+        }
+    }
+
+    /**
+     * Check whether connection a must be before connection b in the queue.
+     *
+     * @param a     Connection a
+     * @param b     Connection b
+     *
+     * @return  True iff a has an earlier update time (or same and lower identifier)
+     */
+    private static boolean isBefore(Connection a, Connection b) {
+        return a.getNextUpdateTime() < b.getNextUpdateTime() || (
+                a.getNextUpdateTime() == b.getNextUpdateTime() && a.getConnectionId() < b.getConnectionId()
+        );
+    }
+
+    /**
+     * Move the connection at the index up until the heap property is restored.
+     *
+     * @param index     Heap index
+     */
+    private void siftUp(int index) {
+        Connection connection = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isBefore(connection, heap[parent])) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heap[index].setUpdateQueueIndex(index);
+            index = parent;
+        }
+        heap[index] = connection;
+        connection.setUpdateQueueIndex(index);
+    }
+
+    /**
+     * Move the connection at the index down until the heap property is restored.
+     *
+     * @param index     Heap index
+     */
+    private void siftDown(int index) {
+        Connection connection = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && isBefore(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!isBefore(heap[child], connection)) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].setUpdateQueueIndex(index);
+            index = child;
+        }
+        heap[index] = connection;
+        connection.setUpdateQueueIndex(index);
+    }
+
+}
@@ -43,6 +43,9 @@ public abstract class Event implements Comparable<Event> {
     // Whether the event is active
     private boolean active;
 
+    // Next event in the same bucket (only used by the calendar event queue)
+    private Event nextInBucket;
+
     /**
      * Create event which will happen the given amount of time later.
      *
@@ -119,6 +122,15 @@ public abstract class Event implements Comparable<Event> {
         return time;
     }
 
+    /**
+     * Retrieve the time tick priority.
+     *
+     * @return  Priority (higher is earlier within the same time tick)
+     */
+    int getPriority() {
+        return priority;
+    }
+
     /**
      * Set the event priority queue order for within the same time tick.
      */
@@ -126,6 +138,34 @@ public abstract class Event implements Comparable<Event> {
         this.eid = simulator.getNextEventId();
     }
 
+    /**
+     * Set the event priority queue order for within the same time tick
+     * to a specific value (e.g., shared by all events of an {@link EventStream event stream}).
+     *
+     * @param eid   Event identifier
+     */
+    void setEid(long eid) {
+        this.eid = eid;
+    }
+
+    /**
+     * Retrieve the next event in the same bucket of the {@link CalendarEventQueue calendar event queue}.
+     *
+     * @return  Next event in the bucket (null, if none)
+     */
+    Event getNextInBucket() {
+        return nextInBucket;
+    }
+
+    /**
+     * Set the next event in the same bucket of the {@link CalendarEventQueue calendar event queue}.
+     *
+     * @param nextInBucket  Next event in the bucket (null, if none)
+     */
+    void setNextInBucket(Event nextInBucket) {
+        this.nextInBucket = nextInBucket;
+    }
+
     /**
      * Check whether the event has been inserted into the event queue already.
      *
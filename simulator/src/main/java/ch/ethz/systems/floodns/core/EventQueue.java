@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+/**
+ * The <b>event queue</b> holds the {@link Event events} inserted into the {@link Simulator simulator}
+ * which are yet to be triggered. It must order events exactly as defined by {@link Event#compareTo(Event)},
+ * i.e. by (time, priority, insertion order), such that the outcome of a simulation does not depend
+ * on the queue implementation chosen.<br>
+ * <br>
+ * Canceled events are not removed from the queue immediately, as it is expensive to find them.
+ * Instead, they are skipped when they reach the front of the queue, and once the canceled events
+ * make up the majority of the queue they are removed all at once.
+ *
+ * @see BinaryHeapEventQueue
+ * @see CalendarEventQueue
+ */
+public abstract class EventQueue {
+
+    // Minimum number of canceled events before a bulk removal is considered
+    private static final int MIN_CANCELED_FOR_REMOVAL = 1024;
+
+    // Number of canceled events which are still in the queue
+    private int numCanceled = 0;
+
+    /**
+     * Insert an event into the queue.
+     *
+     * @param event     Event instance
+     */
+    protected abstract void add(Event event);
+
+    /**
+     * Retrieve the first event in the queue, without removing it.
+     *
+     * @return  First event (null, if empty)
+     */
+    protected abstract Event peek();
+
+    /**
+     * Remove and retrieve the first event in the queue.
+     *
+     * @return  First event (null, if empty)
+     */
+    protected abstract Event poll();
+
+    /**
+     * Retrieve the number of events in the queue (including the canceled ones).
+     *
+     * @return  Number of events
+     */
+    public abstract int size();
+
+    /**
+     * Remove all canceled events from the queue at once.
+     */
+    protected abstract void removeCanceled();
+
+    /**
+     * Check whether the queue is empty.
+     *
+     * @return  True iff there are no events (canceled or not) in the queue
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Remove all canceled events at the front of the queue, and retrieve the first active event.
+     *
+     * @return  First active event (null, if there is none)
+     */
+    final Event peekActive() {
+        Event event = peek();
+        while (event != null && !event.isActive()) {
+            poll();
+            numCanceled--;
+            event = peek();
+        }
+        return event;
+    }
+
+    /**
+     * Register that one of the events in the queue has been canceled.
+     * If the canceled events make up the majority of the queue, they are all removed.
+     */
+    final void registerCancellation() {
+        numCanceled++;
+        if (numCanceled >= MIN_CANCELED_FOR_REMOVAL && 2L * numCanceled > size()) {
+            removeCanceled();
+            numCanceled = 0;
+        }
+    }
+
+}
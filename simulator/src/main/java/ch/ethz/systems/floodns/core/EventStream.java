@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+/**
+ * The <b>event stream</b> is a cursor over events which are already sorted, e.g. the connection
+ * arrivals of a schedule. Instead of inserting all of these events into the {@link EventQueue event queue}
+ * up front, the simulator pulls them lazily from the stream and merges them with the event queue.
+ * As such, only the next event of the stream is ever instantiated.<br>
+ * <br>
+ * The stream must produce events in the order they are to be triggered, i.e. ascending in time and
+ * within the same time tick descending in priority. All events of a stream are ordered as if they were
+ * inserted into the event queue at the moment the stream was inserted into the simulator.
+ *
+ * @see Simulator#insertEventStream(EventStream)
+ */
+public abstract class EventStream {
+
+    // Simulator handle
+    protected final Simulator simulator;
+
+    // Event identifier shared by all events of the stream (-1, if not inserted)
+    private long eid;
+
+    // Next event of the stream (instantiated, but not yet triggered)
+    private Event next;
+    private boolean exhausted;
+
+    // Previous event time and priority to validate the order
+    private long prevTime;
+    private int prevPriority;
+
+    public EventStream(Simulator simulator) {
+        this.simulator = simulator;
+        this.eid = -1;
+        this.next = null;
+        this.exhausted = false;
+        this.prevTime = -1;
+        this.prevPriority = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Create the next event of the stream. It is called at most once for each event, and at the
+     * earliest right after the previous event of the stream has been triggered. Because events
+     * are created relative to the current time, the time from now is the absolute event time minus
+     * {@link Simulator#getCurrentTime()}.
+     *
+     * @return  Next event (null, if the stream is exhausted)
+     */
+    protected abstract Event createNextEvent();
+
+    /**
+     * Retrieve the simulator instance of this stream.
+     *
+     * @return  Simulator instance
+     */
+    Simulator getSimulator() {
+        return simulator;
+    }
+
+    /**
+     * Bind the stream to its position in the event order.
+     *
+     * @param eid   Event identifier shared by all events of the stream
+     */
+    void setEid(long eid) {
+        this.eid = eid;
+    }
+
+    /**
+     * Check whether the stream has been inserted into the simulator already.
+     *
+     * @return  True iff inserted
+     */
+    boolean wasInserted() {
+        return eid != -1;
+    }
+
+    /**
+     * Check whether the event is the next event of this stream.
+     *
+     * @param event     Event instance
+     *
+     * @return  True iff the event is the (instantiated) next event of this stream
+     */
+    boolean isNext(Event event) {
+        return next == event;
+    }
+
+    /**
+     * Skip all canceled events, and retrieve the next active event of the stream.
+     *
+     * @return  Next active event (null, if the stream is exhausted)
+     */
+    final Event peekActive() {
+        while (true) {
+            if (next == null) {
+                if (exhausted) {
+                    return null;
+                }
+                next = createNextEvent();
+                if (next == null) {
+                    exhausted = true;
+                    return null;
+                }
+                validateNext();
+                next.setEid(eid);
+            }
+            if (next.isActive()) {
+                return next;
+            }
+            next = null;
+        }
+    }
+
+    /**
+     * Remove the next event from the stream, which must have been retrieved via {@link #peekActive()}.
+     *
+     * @return  Next event
+     */
+    final Event poll() {
+        assert(next != null);
+        Event event = next;
+        next = null;
+        return event;
+    }
+
+    /**
+     * Validate that the newly created next event can be part of this stream.
+     *
+     * @throws IllegalStateException    Iff the event is not bound to the simulator, has already been inserted,
+     *                                  or is not in order
+     */
+    private void validateNext() {
+        if (next.getSimulator() != simulator) {
+            throw new IllegalStateException("Event " + next + " of stream is not bound to this simulator.");
+        } else if (next.wasInserted()) {
+            throw new IllegalStateException("Event " + next + " of stream was already inserted.");
+        } else if (next.getTime() < prevTime || (next.getTime() == prevTime && next.getPriority() > prevPriority)) {
+            throw new IllegalStateException("Event " + next + " of stream is not in order (previous: t=" + prevTime
+                                            + ", p=" + prevPriority + ").");
+        }
+        prevTime = next.getTime();
+        prevPriority = next.getPriority();
+    }
+
+}
@@ -55,6 +55,10 @@ public class Flow {
     private double currentBandwidth;
     private final AcyclicPath path;
     private final Connection parentConnection;
+    private boolean active;
+
+    // Bulk allocation scratch (index of the last entry of this flow in the bulk, -1 if none)
+    private int bulkIndex;
 
     // Logging
     private final FlowLogger logger;
@@ -82,6 +86,8 @@ public class Flow {
         this.path = path;
         this.parentConnection = connection;
         this.simulator = simulator;
+        this.active = true;
+        this.bulkIndex = -1;
         this.metadata = null;
         this.logger = simulator.getLoggerFactory().internalCreateFlowLogger(this);
         this.logger.logFlowStateChange(0);
@@ -189,6 +195,32 @@ public class Flow {
 
     }
 
+    /**
+     * Allocate the new bandwidth of the flow as part of a bulk allocation, in which the allocation on the links
+     * of the path is moved without checking their capacity (see {@link Simulator#allocateFlowBandwidths}).
+     *
+     * @param newBandwidth  New bandwidth (>= 0)
+     */
+    void allocateBandwidthInBulk(double newBandwidth) {
+        assert(currentBandwidth >= 0 && newBandwidth >= 0);
+
+        // Set the bandwidth of the flow
+        double oldBandwidth = this.currentBandwidth;
+        this.currentBandwidth = newBandwidth;
+
+        // Update logger
+        logger.logFlowStateChange(currentBandwidth);
+
+        // Move the allocation for the flow on the path's links
+        for (Link link : path) {
+            link.moveAllocationForFlow(oldBandwidth, newBandwidth);
+        }
+
+        // Update connection
+        parentConnection.adaptBandwidth(newBandwidth - oldBandwidth);
+
+    }
+
     /**
      * Check whether it is possible to allocate a certain amount of bandwidth.
      *
@@ -217,6 +249,34 @@ public class Flow {
             link.removeFlow(this);
         }
         this.currentBandwidth = 0;
+        this.active = false;
+    }
+
+    /**
+     * Check whether the flow is active, i.e. started and not yet ended.
+     *
+     * @return  True iff the flow is active
+     */
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Retrieve the index of the last entry of this flow in the bulk allocation being checked.
+     *
+     * @return  Bulk index (-1 if the flow is not part of a bulk allocation being checked)
+     */
+    int getBulkIndex() {
+        return bulkIndex;
+    }
+
+    /**
+     * Set the index of the last entry of this flow in the bulk allocation being checked.
+     *
+     * @param bulkIndex     Bulk index (-1 to reset)
+     */
+    void setBulkIndex(int bulkIndex) {
+        this.bulkIndex = bulkIndex;
     }
 
     /**
@@ -58,6 +58,11 @@ public class Link {
     // Flow management
     private final HashMap<Integer, Flow> idToFlow;
     private double remainderCapacity;
+    private boolean bulkAllocationPending;
+
+    // Bulk allocation check scratch
+    private double bulkRemainderCapacity;
+    private boolean bulkCheckPending;
 
     // Logging
     private LinkLogger logger;
@@ -86,6 +91,7 @@ public class Link {
         this.fromToPair = new ImmutablePair<>(from, to);
         this.capacity = capacity;
         this.remainderCapacity = capacity;
+        this.bulkAllocationPending = false;
         this.idToFlow = new HashMap<>();
         this.metadata = null;
         this.setLoggerViaSimulator(simulator);
@@ -140,6 +146,67 @@ public class Link {
         logger.logLinkUtilizationChange(getUtilization());
     }
 
+    /**
+     * Move the allocation of a flow on this link as part of a bulk allocation, without checking
+     * the capacity (which is done beforehand by the simulator) or logging (which is done once by
+     * {@link #finishBulkAllocation()}).
+     *
+     * @param oldBandwidth    Old flow bandwidth
+     * @param newBandwidth    New flow bandwidth
+     */
+    void moveAllocationForFlow(double oldBandwidth, double newBandwidth) {
+        remainderCapacity += oldBandwidth;
+        remainderCapacity -= newBandwidth;
+        bulkAllocationPending = true;
+    }
+
+    /**
+     * Add the change in allocation of a flow to the remainder capacity this link would have after a
+     * bulk allocation. The first change of a check starts from the current remainder capacity.
+     *
+     * @param oldBandwidth  Old bandwidth of the flow
+     * @param newBandwidth  New bandwidth of the flow
+     */
+    void addBulkCheckDelta(double oldBandwidth, double newBandwidth) {
+        if (!bulkCheckPending) {
+            bulkCheckPending = true;
+            bulkRemainderCapacity = remainderCapacity;
+        }
+        bulkRemainderCapacity += oldBandwidth - newBandwidth;
+    }
+
+    /**
+     * Check whether a bulk allocation check has accumulated a change on this link that is not yet finished.
+     *
+     * @return  True iff a bulk allocation check is pending
+     */
+    boolean isBulkCheckPending() {
+        return bulkCheckPending;
+    }
+
+    /**
+     * Finish the bulk allocation check on this link, resetting its scratch state.
+     *
+     * @return  Remainder capacity the link would have after the bulk allocation
+     */
+    double finishBulkCheck() {
+        bulkCheckPending = false;
+        return bulkRemainderCapacity;
+    }
+
+    /**
+     * Finish a bulk allocation on this link by logging the utilization, if it was not yet finished.
+     * The capacity is checked by the simulator before the bulk allocation starts.
+     */
+    void finishBulkAllocation() {
+        if (!bulkAllocationPending) {
+            return;
+        }
+        bulkAllocationPending = false;
+        assert(-remainderCapacity < 2 * simulator.getFlowPrecision());
+        logger.logLinkUtilizationChange(getUtilization());
+    }
+
     /**
      * Add a flow to the link.
      *
@@ -63,6 +63,9 @@ public class Network {
     private final Map<Integer, Flow> idToActiveFlow;
     private final Set<Link> flowActiveLinks;
 
+    // Changes since the last aftermath
+    private final NetworkChangeSet changeSet;
+
     /**
      * Constructor for network.
      *
@@ -99,6 +102,7 @@ public class Network {
         this.flowIdCounter = 0;
         this.idToActiveFlow = new HashMap<>();
         this.flowActiveLinks = new HashSet<>();
+        this.changeSet = new NetworkChangeSet();
 
     }
 
@@ -160,6 +164,7 @@ public class Network {
 
         // Add to central collection
         presentLinks.add(link);
+        changeSet.recordLinkChanged(link);
 
         // Add to mapping of pair of nodes to set of available links
         List<Link> linkSetBetweenNodes = nodeIdsToPresentLinks.get(link.getFromToPair());
@@ -194,6 +199,7 @@ public class Network {
         // Remove link from network mapping
         idToPresentLink.remove(link.getLinkId());
         presentLinks.remove(link);
+        changeSet.recordLinkChanged(link);
         List<Link> linkSetBetweenNodes = nodeIdsToPresentLinks.get(link.getFromToPair());
         linkSetBetweenNodes.remove(link);
         if (linkSetBetweenNodes.size() == 0) {
@@ -210,6 +216,15 @@ public class Network {
 
     }
 
+    /**
+     * Retrieve the changes to flows and links since the last aftermath.
+     *
+     * @return  Network change set
+     */
+    public NetworkChangeSet getChangeSet() {
+        return changeSet;
+    }
+
     /**
      * Get the full list of nodes in the network.
      * The index of a node in the list is equal to its node identifier.
@@ -366,6 +381,7 @@ public class Network {
 
         // Add path to collection of active links
         flowActiveLinks.addAll(path);
+        changeSet.recordFlowStarted(flow);
 
         // Return flow instance
         return flow;
@@ -411,6 +427,8 @@ public class Network {
             }
         }
 
+        changeSet.recordFlowEnded(flow);
+
         // The logger flushes the final state of the flow
         flow.getLogger().finalFlush(flow.getMetadata());
 
@@ -436,8 +454,9 @@ public class Network {
 
         }
 
-        // Reset the flow counter
+        // Reset the flow counter and the recorded changes
         flowIdCounter = 0;
+        changeSet.clear();
 
         // Check that everything was indeed cleared
         assert(idToActiveFlow.isEmpty());
@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The <b>network change set</b> records which flows and links changed since the last
+ * aftermath was performed. It is cleared by the simulator directly after each aftermath,
+ * such that an aftermath (e.g., an incremental allocator) can restrict its work to
+ * the part of the network which was affected by the events of the time tick.
+ *
+ * Changes made by the aftermath itself are not retained. Besides the changes themselves, a generation
+ * counter is kept which is incremented on every recorded change and never reset, such that it can be
+ * determined whether anything changed since a certain moment.
+ */
+public class NetworkChangeSet {
+
+    // Flows started since the last aftermath (and still active)
+    private final Set<Flow> startedFlows;
+
+    // Flows of which the bandwidth was allocated outside of the aftermath (and still active)
+    private final Set<Flow> reallocatedFlows;
+
+    // Links of which the set of active flows changed, or which were added or removed
+    private final Set<Link> changedLinks;
+
+    // Number of changes recorded in total
+    private long generation;
+
+    NetworkChangeSet() {
+        this.startedFlows = new HashSet<>();
+        this.reallocatedFlows = new HashSet<>();
+        this.changedLinks = new HashSet<>();
+        this.generation = 0;
+    }
+
+    /**
+     * Record the start of a flow.
+     *
+     * @param flow  Flow instance
+     */
+    void recordFlowStarted(Flow flow) {
+        startedFlows.add(flow);
+        changedLinks.addAll(flow.getPath());
+        generation++;
+    }
+
+    /**
+     * Record the end of a flow.
+     *
+     * @param flow  Flow instance
+     */
+    void recordFlowEnded(Flow flow) {
+        startedFlows.remove(flow);
+        reallocatedFlows.remove(flow);
+        changedLinks.addAll(flow.getPath());
+        generation++;
+    }
+
+    /**
+     * Record the change of the bandwidth of a flow.
+     *
+     * @param flow  Flow instance
+     */
+    void recordFlowReallocated(Flow flow) {
+        reallocatedFlows.add(flow);
+        generation++;
+    }
+
+    /**
+     * Record the addition or removal of a link.
+     *
+     * @param link  Link instance
+     */
+    void recordLinkChanged(Link link) {
+        changedLinks.add(link);
+        generation++;
+    }
+
+    /**
+     * Clear all recorded changes (the generation is retained).
+     */
+    void clear() {
+        startedFlows.clear();
+        reallocatedFlows.clear();
+        changedLinks.clear();
+    }
+
+    /**
+     * Check whether no change was recorded.
+     *
+     * @return  True iff there are no changes
+     */
+    public boolean isEmpty() {
+        return startedFlows.isEmpty() && reallocatedFlows.isEmpty() && changedLinks.isEmpty();
+    }
+
+    /**
+     * Retrieve the generation, which is the total number of changes recorded. If it is the same
+     * at two moments, nothing was recorded in between.
+     *
+     * @return  Generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Retrieve the flows which were started since the last aftermath and are still active.
+     *
+     * @return  Unmodifiable set of started flows
+     */
+    public Set<Flow> getStartedFlows() {
+        return Collections.unmodifiableSet(startedFlows);
+    }
+
+    /**
+     * Retrieve the flows of which the bandwidth was allocated (outside of the aftermath)
+     * since the last aftermath and which are still active.
+     *
+     * @return  Unmodifiable set of reallocated flows
+     */
+    public Set<Flow> getReallocatedFlows() {
+        return Collections.unmodifiableSet(reallocatedFlows);
+    }
+
+    /**
+     * Retrieve the links which were added or removed, or of which the set of active flows
+     * changed since the last aftermath. Note that removed links are no longer present in the network.
+     *
+     * @return  Unmodifiable set of changed links
+     */
+    public Set<Link> getChangedLinks() {
+        return Collections.unmodifiableSet(changedLinks);
+    }
+
+}
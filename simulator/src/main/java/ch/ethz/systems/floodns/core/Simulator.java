@@ -46,7 +46,8 @@ import static ch.ethz.systems.floodns.core.Simulator.SimulatorState.*;
  *      {@link #endFlow(Flow)}, and {@link #terminateConnection(Connection)})</li>
  *      <li>The addition of new links (via {@link #addNewLink(int, int, double)})</li>
  *      <li>The removal of existing links (via {@link #removeExistingLink(Link)})</li>
- *      <li>The insertion of new events (via {@link #insertEvents(Event...)}) or
+ *      <li>The insertion of new events (via {@link #insertEvents(Event...)} or
+ * {@link #insertEventStream(EventStream)}) or
  * canceling of events (via {@link #cancelEvent(Event)})</li>
  * </ol>
  *
@@ -69,9 +70,13 @@ public class Simulator {
     private long progressShowInterval;
 
     // Main ordered event queue (run variable)
-    private final PriorityQueue<Event> eventQueue;
+    private final EventQueue eventQueue;
     private long eventIdCounter;
 
+    // Sorted event streams merged with the event queue (run variable)
+    private final List<EventStream> eventStreams;
+    private EventStream nextEventStream;
+
     // Current time in the simulation (run variable)
     private long now;
 
@@ -87,12 +92,19 @@ public class Simulator {
     // Main components
     private Network network;
     private Aftermath aftermath;
+    private boolean performingAftermath;
+    private long lastAftermathGeneration;
+    private long numSkippedAftermaths;
 
     // Connection management
-    private ConnectionFinishEvent nextConnectionFinishEvent;
+    private long nextConnectionFinishTime;
     private HashMap<Integer, Connection> idToActiveConnection = new HashMap<>();
     private int connectionIdCounter;
 
+    // Connection update scheduling (only connections whose state changed are re-evaluated)
+    private final ConnectionUpdateQueue connectionUpdateQueue;
+    private final List<Connection> connectionsWithOutdatedUpdateTime;
+
     // Precision
     private static final double DEFAULT_FLOW_PRECISION = 1e-10;
     private final double flowPrecision;
@@ -114,13 +126,33 @@ public class Simulator {
      * @param   flowPrecision       Flow precision (recommended: 1e-10)
      */
     public Simulator(double flowPrecision) {
+        this(flowPrecision, new BinaryHeapEventQueue());
+    }
+
+    /**
+     * Instantiation of the simulator with a specific event queue implementation.
+     *
+     * After instantiation, it is possible to {@link #setup(Network, Aftermath, LoggerFactory) setup} the simulator.
+     *
+     * @param   flowPrecision       Flow precision (recommended: 1e-10)
+     * @param   eventQueue          Empty event queue (e.g., {@link BinaryHeapEventQueue} or {@link CalendarEventQueue})
+     */
+    public Simulator(double flowPrecision, EventQueue eventQueue) {
+        if (!eventQueue.isEmpty()) {
+            throw new IllegalArgumentException("The event queue of a new simulator must be empty.");
+        }
         this.flowPrecision = flowPrecision;
-        this.eventQueue = new PriorityQueue<>();
+        this.eventQueue = eventQueue;
         this.eventIdCounter = 0;
+        this.eventStreams = new ArrayList<>();
+        this.nextEventStream = null;
         this.state = INSTANTIATED;
         this.progressShowInterval = 10000000L;
         this.loggerFactory = new VoidLoggerFactory(this);
         this.connectionIdCounter = 0;
+        this.nextConnectionFinishTime = Long.MAX_VALUE;
+        this.connectionUpdateQueue = new ConnectionUpdateQueue();
+        this.connectionsWithOutdatedUpdateTime = new ArrayList<>();
         this.now = 0;
     }
 
@@ -197,6 +229,9 @@ public class Simulator {
         // Set main components
         this.network = network;
         this.aftermath = aftermath;
+        this.performingAftermath = false;
+        this.lastAftermathGeneration = -1;
+        this.numSkippedAftermaths = 0;
 
         // Logging decision
         this.loggerFactory = loggerFactory;
@@ -237,61 +272,59 @@ public class Simulator {
         // long realTime = System.currentTimeMillis();
         long nextProgressLog = progressShowInterval;
         long elapsed;
-        Event event, nextEvent;
-        while (!eventQueue.isEmpty() && now <= runtime) {
-
-            // Grab next active event
-            event = eventQueue.poll();
-            while (event != null && !event.isActive()) {
-                event = eventQueue.poll();
+        long nextTime;
+        Event event;
+        while (now <= runtime) {
+
+            // The next time tick is at either the next active event or the next connection
+            // update, whichever comes first. After the first time tick, the next connection
+            // update is guaranteed to be planned at the latest at the end of the runtime.
+            nextTime = nextConnectionFinishTime;
+            event = peekNextActiveEvent();
+            if (event != null && event.getTime() < nextTime) {
+                nextTime = event.getTime();
+            }
+            if (nextTime > runtime) {
+                break;
             }
-
-            // There is at least one active event in the queue at the start for this
-            // loop to even be called because it is not possible to cancel an event if the
-            // simulator is not running. After the first call of this loop, an active
-            // next-connection-finish-event exists guaranteed in the queue. As such, it is
-            // impossible for there to not exist an active event somewhere in the queue.
-            assert(event != null && event.isActive());
 
             // Determine amount of time elapsed
-            elapsed = now;
-            now = event.getTime();
-            elapsed = now - elapsed;
+            elapsed = nextTime - now;
+            now = nextTime;
 
             // Update progress of flows if some time has passed
             if (elapsed > 0) {
-                updateConnectionProgression(elapsed);
+                updateConnectionProgression();
             }
 
             // Execute all events of this time tick
-            nextEvent = eventQueue.peek();
-            event.trigger(); // The first event we found is guaranteed active
-            while (nextEvent != null && nextEvent.getTime() == now) {
-                event = eventQueue.poll();
-                if (event.isActive()) {
-                    event.trigger();
-                }
-                nextEvent = eventQueue.peek();
+            while ((event = peekNextActiveEvent()) != null && event.getTime() == now) {
+                pollNextActiveEvent();
+                event.trigger();
             }
 
-            // Call aftermath
-            aftermath.perform();
+            // Call aftermath (unless it only depends on the network, which did not change since it was
+            // last performed), and afterwards start recording the changes for the next one
+            if (aftermath.dependsOnlyOnNetwork() && network.getChangeSet().getGeneration() == lastAftermathGeneration) {
+                numSkippedAftermaths++;
+            } else {
+                performingAftermath = true;
+                aftermath.perform();
+                performingAftermath = false;
+                lastAftermathGeneration = network.getChangeSet().getGeneration();
+            }
+            network.getChangeSet().clear();
 
-            // Insert new flow finish event
+            // Reschedule the next connection update (which does not need
+            // to be an event, as there is nothing to trigger)
             if (now != runtime) {
+                nextConnectionFinishTime = now + Math.min(runtime - now, refreshAndGetNextConnectionUpdateTime());
 
-                // Cancel the previous flow finish event
-                if (nextConnectionFinishEvent != null) {
-                    nextConnectionFinishEvent.cancel();
+                // Let a speculative aftermath prepare for the flows ending at the next connection update
+                if (aftermath.isSpeculative() && connectionUpdateQueue.peekUpdateTime() == nextConnectionFinishTime) {
+                    aftermath.speculate(nextConnectionFinishTime, collectFlowsEndingAt(nextConnectionFinishTime));
                 }
 
-                // Insert the new next one
-                nextConnectionFinishEvent = new ConnectionFinishEvent(
-                        this,
-                        Math.min(runtime - now, refreshAndGetNextConnectionUpdateTime())
-                );
-                insertEvents(nextConnectionFinishEvent);
-
             }
 
             // Log elapsed time
@@ -318,6 +351,9 @@ public class Simulator {
 
         // Log end
         logger.info(String.format("Finished simulation."));
+        if (numSkippedAftermaths > 0) {
+            logger.info(String.format("Skipped the aftermath in %d time ticks without network change.", numSkippedAftermaths));
+        }
         logger.info(String.format(
                 "Simulation of %d time units took in wallclock time %.1f seconds.%n",
                 runtime,
@@ -363,39 +399,119 @@ public class Simulator {
 
     }
 
+    /**
+     * Retrieve the next active event, which is either at the front of the event
+     * queue or the next event of one of the event streams.
+     *
+     * @return  Next active event (null, if none)
+     */
+    private Event peekNextActiveEvent() {
+        Event first = eventQueue.peekActive();
+        nextEventStream = null;
+        for (EventStream stream : eventStreams) {
+            Event candidate = stream.peekActive();
+            if (candidate != null && (first == null || candidate.compareTo(first) < 0)) {
+                first = candidate;
+                nextEventStream = stream;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Remove the next active event found by the last call to {@link #peekNextActiveEvent()}.
+     */
+    private void pollNextActiveEvent() {
+        if (nextEventStream != null) {
+            nextEventStream.poll();
+        } else {
+            eventQueue.poll();
+        }
+    }
+
     /**
      * Determine the time at which the next first connection needs an update.
      *
-     * @return  Next flow completion time of one of the active connections
+     * Only the connections of which the bandwidth or update threshold changed, or which
+     * reached their previous update time, are re-evaluated. As such, the runtime is
+     * O(k log C) with k the number of re-evaluated connections and C the number of active connections.
+     *
+     * @return  Next flow completion time of one of the active connections (relative to now)
      */
     private long refreshAndGetNextConnectionUpdateTime() {
 
-        // Get minimum flow completion time
-        long nextConnectionUpdateTime = Long.MAX_VALUE;
-        for (Connection connection : idToActiveConnection.values()) {
-            nextConnectionUpdateTime = Math.min(connection.timeTillUpdateNeeded(), nextConnectionUpdateTime);
+        // Re-evaluate the connections of which the update time is outdated
+        for (Connection connection : connectionsWithOutdatedUpdateTime) {
+            connection.setUpdateTimeOutdated(false);
+            if (connection.getStatus() == Connection.Status.ACTIVE) {
+                long timeTillUpdate = connection.timeTillUpdateNeeded();
+                if (timeTillUpdate == Long.MAX_VALUE) {
+                    connectionUpdateQueue.remove(connection);
+                } else {
+                    connectionUpdateQueue.update(
+                            connection,
+                            timeTillUpdate > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeTillUpdate
+                    );
+                }
+            }
         }
+        connectionsWithOutdatedUpdateTime.clear();
 
-        // Return found time
-        return nextConnectionUpdateTime;
+        // Return the earliest update time
+        long nextConnectionUpdateTime = connectionUpdateQueue.peekUpdateTime();
+        return nextConnectionUpdateTime == Long.MAX_VALUE ? Long.MAX_VALUE : nextConnectionUpdateTime - now;
 
     }
 
     /**
-     * Update the progression of all active flows relative
-     * to their connections in the simulator.
+     * Collect the active flows of the connections which complete at the given update time.
+     *
+     * @param updateTime    Absolute connection update time
      *
-     * @param elapsed   Time elapsed
+     * @return  Flows ending at that time (if no event intervenes)
      */
-    private void updateConnectionProgression(long elapsed) {
+    private List<Flow> collectFlowsEndingAt(long updateTime) {
+        List<Connection> updating = new ArrayList<>();
+        connectionUpdateQueue.collectAt(updateTime, updating);
+        List<Flow> endingFlows = new ArrayList<>();
+        for (Connection connection : updating) {
+            if (connection.completesAtNextUpdate()) {
+                endingFlows.addAll(connection.getActiveFlows());
+            }
+        }
+        return endingFlows;
+    }
 
-        // Determine the progress of all flows
-        List<Integer> finishedConnections = new ArrayList<>();
-        for (Connection connection : idToActiveConnection.values()) {
-            if (connection.reduceRemainder(elapsed)) {
+    /**
+     * Mark that the next update time of a connection must be recalculated
+     * (e.g., because its bandwidth or update threshold changed).
+     *
+     * @param connection    Connection instance
+     */
+    void markConnectionUpdateTimeOutdated(Connection connection) {
+        if (!connection.isUpdateTimeOutdated()) {
+            connection.setUpdateTimeOutdated(true);
+            connectionsWithOutdatedUpdateTime.add(connection);
+        }
+    }
+
+    /**
+     * Update the progression of the active connections which reached their update time,
+     * and finish those which are completed. The progression of all other connections
+     * is only brought up-to-date lazily (e.g., when their bandwidth changes).
+     *
+     * Runtime is O(k log C) with k the number of connections which reached their update time.
+     */
+    private void updateConnectionProgression() {
+
+        // Go over all connections which reached their update time
+        while (!connectionUpdateQueue.isEmpty() && connectionUpdateQueue.peekUpdateTime() <= now) {
+            Connection connection = connectionUpdateQueue.peek();
+            connectionUpdateQueue.remove(connection);
+
+            if (connection.isCompleted()) {
 
                 // If the connection is finished
-                finishedConnections.add(connection.getConnectionId());
                 for (Flow flow : new ArrayList<>(connection.getActiveFlows())) {
                     network.endFlow(flow);
                 }
@@ -405,13 +521,16 @@ public class Simulator {
                 connection.getLogger().finalFlush(connection.getMetadata());
                 connection.cleanup();
                 connection.setTerminated();
+                idToActiveConnection.remove(connection.getConnectionId());
+
+            } else {
+
+                // Else it passed its update threshold, and its
+                // next update time must be recalculated
+                markConnectionUpdateTimeOutdated(connection);
 
             }
-        }
 
-        // Remove all finished connections from state
-        for (Integer id : finishedConnections) {
-            idToActiveConnection.remove(id);
         }
 
     }
@@ -522,6 +641,7 @@ public class Simulator {
         for (Flow flow : new ArrayList<>(connection.getActiveFlows())) {
             network.endFlow(flow);
         }
+        connectionUpdateQueue.remove(connection);
         connection.getLogger().finalFlush(connection.getMetadata());
         connection.cleanup();
         connection.setTerminated();
@@ -586,6 +706,102 @@ public class Simulator {
             throw new IllegalArgumentException("Cannot allocate flow bandwidth if the flow is not active.");
         }
         flow.allocateBandwidth(bandwidth);
+        if (!performingAftermath) {
+            network.getChangeSet().recordFlowReallocated(flow);
+        }
+    }
+
+    /**
+     * Allocate the bandwidth of many flows at once. In contrast to calling {@link #allocateFlowBandwidth(Flow, double)}
+     * for each flow, the link capacity is only checked after all flows have their new bandwidth, such that the flows
+     * need not first be reset to zero to free up capacity. Each link on the flow paths is checked and
+     * has its utilization logged only once.
+     *
+     * @param flows         Flows (first numFlows entries)
+     * @param bandwidths    Bandwidth [0, inf) of each flow (bandwidths[i] is allocated to flows[i])
+     * @param numFlows      Number of flows
+     *
+     * @throws IllegalStateException        Iff the state is not running.
+     * @throws IllegalArgumentException     Iff a flow is not active or not bound to this simulator, a bandwidth
+     *                                      is negative or NaN, or the capacity of a link would be exceeded after
+     *                                      all flows have their new bandwidth (all checked before anything is
+     *                                      allocated).
+     */
+    public void allocateFlowBandwidths(Flow[] flows, double[] bandwidths, int numFlows) {
+        if (state != RUNNING) {
+            throw new IllegalStateException("Cannot allocate flow bandwidth if the simulation is not running.");
+        }
+
+        // Check all flows and bandwidths before changing anything
+        for (int i = 0; i < numFlows; i++) {
+            Flow flow = flows[i];
+            if (flow.getSimulator() != this) {
+                throw new IllegalArgumentException("Flow " + flow + " is not bound to this simulator.");
+            } else if (!flow.isActive()) {
+                throw new IllegalArgumentException("Cannot allocate flow bandwidth if the flow is not active.");
+            } else if (Double.isNaN(bandwidths[i])) {
+                throw new IllegalArgumentException("Cannot allocate NaN flow bandwidth to flow " + flow + ".");
+            } else if (bandwidths[i] <= -flowPrecision) {
+                throw new IllegalArgumentException("Cannot allocate negative flow bandwidth (" + bandwidths[i] + ").");
+            }
+        }
+
+        // Only the last entry of a flow listed more than once determines its new bandwidth
+        for (int i = 0; i < numFlows; i++) {
+            flows[i].setBulkIndex(i);
+        }
+
+        // Accumulate on each link the remainder capacity it would have once all flows have their new bandwidth
+        for (int i = 0; i < numFlows; i++) {
+            Flow flow = flows[i];
+            if (flow.getBulkIndex() == i) {
+                double newBandwidth = Math.max(0.0, bandwidths[i]);
+                for (Link link : flow.getPath()) {
+                    link.addBulkCheckDelta(flow.getCurrentBandwidth(), newBandwidth);
+                }
+            }
+        }
+
+        // Check that the capacity of no link is exceeded, resetting the scratch state of all flows and links
+        Link exceededLink = null;
+        double exceededRemainderCapacity = 0.0;
+        for (int i = 0; i < numFlows; i++) {
+            Flow flow = flows[i];
+            if (flow.getBulkIndex() == i) {
+                flow.setBulkIndex(-1);
+                for (Link link : flow.getPath()) {
+                    if (link.isBulkCheckPending()) {
+                        double remainderCapacity = link.finishBulkCheck();
+                        if (exceededLink == null && -remainderCapacity >= flowPrecision) {
+                            exceededLink = link;
+                            exceededRemainderCapacity = remainderCapacity;
+                        }
+                    }
+                }
+            }
+        }
+        if (exceededLink != null) {
+            throw new IllegalArgumentException(
+                    "Impossible to allocate the bandwidth of the flows because it exceeds the link capacity " +
+                    "(remainder capacity: " + exceededRemainderCapacity + ") on link " + exceededLink + "."
+            );
+        }
+
+        // Move the allocation on the links from the old to the new bandwidth
+        for (int i = 0; i < numFlows; i++) {
+            flows[i].allocateBandwidthInBulk(Math.max(0.0, bandwidths[i]));
+            if (!performingAftermath) {
+                network.getChangeSet().recordFlowReallocated(flows[i]);
+            }
+        }
+
+        // Log the utilization of each link once
+        for (int i = 0; i < numFlows; i++) {
+            for (Link link : flows[i].getPath()) {
+                link.finishBulkAllocation();
+            }
+        }
+
     }
 
     /**
@@ -685,6 +901,28 @@ public class Simulator {
         }
     }
 
+    /**
+     * Insertion of a stream of sorted events (e.g., a connection arrival schedule), which is merged
+     * with the event queue during the run. Its events are only instantiated once they are next, and are
+     * ordered as if they were all inserted into the event priority queue at the moment of this call.
+     *
+     * @param stream     Event stream instance
+     *
+     * @throws IllegalStateException      Iff the state is not setup.
+     * @throws IllegalArgumentException   Iff the stream is not bound to this simulator or already inserted.
+     */
+    public void insertEventStream(EventStream stream) {
+        if (state != SETUP) {
+            throw new IllegalStateException("Cannot insert event stream if the simulation is not being setup.");
+        } else if (stream.getSimulator() != this) {
+            throw new IllegalArgumentException("Event stream is not bound to this simulator.");
+        } else if (stream.wasInserted()) {
+            throw new IllegalArgumentException("Cannot insert event stream which is already inserted.");
+        }
+        stream.setEid(getNextEventId());
+        eventStreams.add(stream);
+    }
+
     /**
      * Insert an event.
      *
@@ -707,6 +945,22 @@ public class Simulator {
         eventQueue.add(e);
     }
 
+    /**
+     * Check whether the event is the next event of one of the event streams (instead of in the event queue).
+     *
+     * @param event     Event instance
+     *
+     * @return  True iff it is the next event of an event stream
+     */
+    private boolean isNextOfEventStream(Event event) {
+        for (EventStream stream : eventStreams) {
+            if (stream.isNext(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Cancel a specific event (such that it will not be executed).
      *
@@ -731,6 +985,9 @@ public class Simulator {
             throw new IllegalArgumentException("Cannot cancel event if it is not inserted in the event queue.");
         }
         event.cancel();
+        if (!isNextOfEventStream(event)) {
+            eventQueue.registerCancellation();
+        }
     }
 
 }
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+
+/**
+ * The array max-min fair share (MMFS) allocator is a drop-in replacement of the {@link SimpleMmfAllocator}
+ * resulting in the same allocation. Instead of maps and sets of links and flows, it maps the active flows
+ * and flow-active links to dense indices and water-fills over primitive arrays with an indexed heap
+ * of link fair shares (see {@link WaterFillingEngine}). No objects are allocated per iteration, and the
+ * arrays are re-used across aftermaths.
+ *
+ * Runtime is O(|E| + |F| * |path| + (|C| * |path|) * log |E|), with C the classes of flows with the same path.
+ */
+public class ArrayMmfAllocator extends WaterFillingAllocator {
+
+    public ArrayMmfAllocator(Simulator simulator, Network network) {
+        super(simulator, network);
+    }
+
+    /**
+     * The max-min fair allocation only depends on the links and the paths of the active flows.
+     */
+    @Override
+    public boolean dependsOnlyOnNetwork() {
+        return true;
+    }
+
+    /**
+     * Water-fill each flow and link its entitled bandwidth by playing fair
+     * according to the Max-Min Fair Rate Allocation for a network with a
+     * given routing.
+     */
+    @Override
+    void fill(WaterFillingEngine engine, Flow[] flows, int numFlows) {
+        engine.build(flows, numFlows);
+        engine.waterFill();
+    }
+
+}
@@ -0,0 +1,463 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.*;
+import ch.ethz.systems.floodns.ext.lputils.LpBasis;
+import ch.ethz.systems.floodns.ext.lputils.LpModel;
+import ch.ethz.systems.floodns.ext.lputils.LpSolver;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Base of the allocators which determine the flow bandwidth by solving a linear program.
+ *
+ * The active connections, their flows and the links they traverse are partitioned into independent components:
+ * two flows are in the same component if they share a link or belong to the same connection (as the per-connection
+ * constraints couple the flows of a connection). If the objective decomposes, a linear program is built and solved
+ * for each component on its own: by default one after the other on the calling thread, or all of them concurrently
+ * on the solver workers of an executor service given to the constructor (which is up to the caller to share and
+ * shut down). The objective values of the components are then combined into the objective value of the whole
+ * (e.g., the sum or the minimum), and the resulting bandwidths are committed at once.
+ *
+ * The linear program of a component is built in memory as an {@link LpModel}, in which variable i is that of
+ * flow i of the component (as such, the bandwidth of a flow is read from the solution by index).
+ *
+ * Components without any flow are not solved and have an objective value of zero.
+ *
+ * Between two calls usually only a few flows start or finish, such that most of the linear programs hardly change.
+ * As such, the optimal basis of each call is kept as an {@link LpBasis} and the models of the next call start from
+ * it (if the solver is able to warm start). To carry it over, the variables and constraints are given a key
+ * (see {@link #key(int, int)}) from the identifier of the flow, connection, link or component they belong to.
+ */
+public abstract class ComponentLpAllocator extends Allocator {
+
+    // Types of the keys of the variables and constraints
+    protected static final int KEY_FLOW = 0;
+    protected static final int KEY_CONNECTION = 1;
+    protected static final int KEY_LINK = 2;
+    protected static final int KEY_COMPONENT = 3;
+
+    protected final LpSolver lpSolver;
+    private final ExecutorService executor;
+
+    // Optimal basis of the linear programs of the previous perform() call
+    private LpBasis basis = new LpBasis();
+
+    // Result of the previous perform() call
+    private double objectiveZ = 1.0;
+    private long solveTimeMs = -1;
+    private int numComponents = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param simulator     Simulator instance
+     * @param network       Network instance
+     * @param lpSolver      Linear program solver (must be able to solve several programs concurrently, if there is
+     *                      an executor service)
+     * @param executor      Executor service of the solver workers (shutting it down is up to the caller),
+     *                      or null to solve the components one after the other on the calling thread
+     */
+    protected ComponentLpAllocator(Simulator simulator, Network network, LpSolver lpSolver, ExecutorService executor) {
+        super(simulator, network);
+        this.lpSolver = lpSolver;
+        this.executor = executor;
+    }
+
+    /**
+     * Check whether the linear program decomposes over the independent components.
+     * If not, a single linear program over all active connections is solved.
+     *
+     * @return  True iff the components can be solved on their own (true by default)
+     */
+    protected boolean isDecomposable() {
+        return true;
+    }
+
+    /**
+     * Key of a variable or constraint, which identifies it across the linear programs of successive calls.
+     *
+     * @param type  Type of the key (e.g., {@link #KEY_LINK} for a link capacity constraint)
+     * @param id    Identifier of the flow, connection, link or component it belongs to
+     *
+     * @return  Key
+     */
+    protected static long key(int type, int id) {
+        return ((long) type << 32) | (id & 0xffffffffL);
+    }
+
+    /**
+     * Build the linear program of a component. The model already has a variable for each flow of the
+     * component (see {@link Component#getFlowVariable(Flow)}), any other variables are added after them.
+     * The variables and constraints which persist across calls should be given a key (see {@link #key(int, int)}).
+     *
+     * @param model         Linear program with the flow variables
+     * @param component     Component (with at least one flow)
+     */
+    protected abstract void buildProgram(LpModel model, Component component);
+
+    /**
+     * Combine the objective values of the components into the objective value of the whole.
+     *
+     * @param objectives    Objective value of each component (at least one)
+     *
+     * @return  Objective value
+     */
+    protected abstract double combineObjectives(double[] objectives);
+
+    /**
+     * Determine the bandwidth of a flow from the solution of its component.
+     *
+     * @param flow          Flow instance
+     * @param value         Value of the variable of the flow in the solution of its component
+     * @param objectiveZ    Combined objective value
+     *
+     * @return  Flow bandwidth
+     */
+    protected abstract double getBandwidth(Flow flow, double value, double objectiveZ);
+
+    /**
+     * Solve the linear program of each component to find the flow allocation.
+     */
+    @Override
+    public void perform() {
+
+        // Partition into independent components
+        List<Component> components;
+        if (isDecomposable()) {
+            components = partition();
+        } else {
+            Component whole = new Component(
+                    new ArrayList<>(simulator.getActiveConnections()),
+                    new ArrayList<>(network.getActiveFlows()),
+                    new ArrayList<>(network.getPresentLinks())
+            );
+            whole.sortAndIndex();
+            components = Collections.singletonList(whole);
+        }
+        numComponents = components.size();
+
+        // Solve the components with flows concurrently if there is an executor service (else, or if there is
+        // a single one, they are solved directly), starting from the basis of the previous call
+        final LpBasis previousBasis = basis;
+        final LpBasis nextBasis = new LpBasis();
+        long start = System.currentTimeMillis();
+        List<ImmutablePair<Double, double[]>> results;
+        if (executor == null || components.size() == 1) {
+            results = new ArrayList<>();
+            for (Component component : components) {
+                results.add(component.getFlows().isEmpty() ? null : solve(component, previousBasis, nextBasis));
+            }
+        } else {
+            List<Future<ImmutablePair<Double, double[]>>> futures = new ArrayList<>();
+            for (final Component component : components) {
+                if (component.getFlows().isEmpty()) {
+                    futures.add(null);
+                } else {
+                    futures.add(executor.submit(new Callable<ImmutablePair<Double, double[]>>() {
+                        @Override
+                        public ImmutablePair<Double, double[]> call() {
+                            return solve(component, previousBasis, nextBasis);
+                        }
+                    }));
+                }
+            }
+            results = awaitAll(futures);
+        }
+        solveTimeMs = System.currentTimeMillis() - start;
+        basis = nextBasis;
+
+        // Combine the objectives (zero if there are no connections)
+        double[] objectives = new double[components.size()];
+        for (int i = 0; i < components.size(); i++) {
+            objectives[i] = results.get(i) == null ? 0.0 : results.get(i).getLeft();
+        }
+        objectiveZ = objectives.length == 0 ? 0.0 : combineObjectives(objectives);
+
+        // Commit the bandwidths at once
+        int numFlows = network.getActiveFlows().size();
+        Flow[] flows = new Flow[numFlows];
+        double[] bandwidths = new double[numFlows];
+        int n = 0;
+        for (int i = 0; i < components.size(); i++) {
+            List<Flow> componentFlows = components.get(i).getFlows();
+            for (int f = 0; f < componentFlows.size(); f++) {
+                flows[n] = componentFlows.get(f);
+                bandwidths[n] = getBandwidth(componentFlows.get(f), results.get(i).getRight()[f], objectiveZ);
+                n++;
+            }
+        }
+        simulator.allocateFlowBandwidths(flows, bandwidths, n);
+
+    }
+
+    /**
+     * Wait for the solutions of all components.
+     *
+     * @param futures   Future solution of each component (null, if it has no flows)
+     *
+     * @return  Solution of each component (null, if it has no flows)
+     */
+    private List<ImmutablePair<Double, double[]>> awaitAll(List<Future<ImmutablePair<Double, double[]>>> futures) {
+        List<ImmutablePair<Double, double[]>> results = new ArrayList<>();
+        try {
+            for (Future<ImmutablePair<Double, double[]>> future : futures) {
+                results.add(future == null ? null : future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the linear program solutions.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Unable to solve linear program.", e.getCause());
+        } finally {
+            for (Future<ImmutablePair<Double, double[]>> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Build the linear program of a component and solve it.
+     *
+     * @param component         Component
+     * @param previousBasis     Basis to start from
+     * @param nextBasis         Basis in which the optimal basis is recorded
+     *
+     * @return  Solution (objective, value of each variable; the first ones are those of the flows)
+     */
+    private ImmutablePair<Double, double[]> solve(Component component, LpBasis previousBasis, LpBasis nextBasis) {
+        LpModel model = new LpModel();
+        for (Flow flow : component.getFlows()) {
+            model.setVariableKey(model.addVariable(), key(KEY_FLOW, flow.getFlowId()));
+        }
+        buildProgram(model, component);
+        previousBasis.applyTo(model);
+        ImmutablePair<Double, double[]> solution = lpSolver.solve(model);
+        nextBasis.capture(model);
+        return solution;
+    }
+
+    /**
+     * Partition the active connections, their flows and the links they traverse into independent components
+     * using union-find. The components are ordered by their lowest connection identifier, and within each
+     * component the connections, flows and links are in ascending identifier order.
+     *
+     * @return  Independent components
+     */
+    private List<Component> partition() {
+
+        // Connections in ascending identifier order
+        List<Connection> connections = new ArrayList<>(simulator.getActiveConnections());
+        Collections.sort(connections, new Comparator<Connection>() {
+            @Override
+            public int compare(Connection a, Connection b) {
+                return Integer.compare(a.getConnectionId(), b.getConnectionId());
+            }
+        });
+
+        // Union each connection with the links of its flows (links are indexed after the connections)
+        Map<Link, Integer> linkToIndex = new HashMap<>();
+        List<Link> links = new ArrayList<>();
+        int[] parent = new int[connections.size() + network.getPresentLinks().size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int c = 0; c < connections.size(); c++) {
+            for (Flow flow : connections.get(c).getActiveFlows()) {
+                for (Link link : flow.getPath()) {
+                    Integer l = linkToIndex.get(link);
+                    if (l == null) {
+                        l = connections.size() + links.size();
+                        linkToIndex.put(link, l);
+                        links.add(link);
+                    }
+                    union(parent, c, l);
+                }
+            }
+        }
+
+        // Group by root, in order of the first connection of each component
+        Map<Integer, Component> rootToComponent = new HashMap<>();
+        List<Component> components = new ArrayList<>();
+        for (int c = 0; c < connections.size(); c++) {
+            int root = find(parent, c);
+            Component component = rootToComponent.get(root);
+            if (component == null) {
+                component = new Component(new ArrayList<Connection>(), new ArrayList<Flow>(), new ArrayList<Link>());
+                rootToComponent.put(root, component);
+                components.add(component);
+            }
+            component.connections.add(connections.get(c));
+            component.flows.addAll(connections.get(c).getActiveFlows());
+        }
+        for (Link link : links) {
+            rootToComponent.get(find(parent, linkToIndex.get(link))).links.add(link);
+        }
+        for (Component component : components) {
+            component.sortAndIndex();
+        }
+        return components;
+
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    /**
+     * Get the objective (Z) value of the previous {@link #perform()} call.
+     *
+     * @return Objective (Z) value
+     */
+    public double getObjectiveZ() {
+        return objectiveZ;
+    }
+
+    /**
+     * Get the time it took to solve the linear programs in the previous ({@link #perform()} call.
+     *
+     * @return Solve time (ms)
+     */
+    public long getSolveTimeMs() {
+        return solveTimeMs;
+    }
+
+    /**
+     * Get the number of components of the previous {@link #perform()} call.
+     *
+     * @return Number of components
+     */
+    public int getNumComponents() {
+        return numComponents;
+    }
+
+    /**
+     * Independent component of connections, their active flows and the links traversed by them.
+     */
+    protected static class Component {
+
+        private final List<Connection> connections;
+        private final List<Flow> flows;
+        private final List<Link> links;
+        private final Map<Flow, Integer> flowToVariable;
+
+        private Component(List<Connection> connections, List<Flow> flows, List<Link> links) {
+            this.connections = connections;
+            this.flows = flows;
+            this.links = links;
+            this.flowToVariable = new HashMap<>();
+        }
+
+        private void sortAndIndex() {
+            Collections.sort(connections, new Comparator<Connection>() {
+                @Override
+                public int compare(Connection a, Connection b) {
+                    return Integer.compare(a.getConnectionId(), b.getConnectionId());
+                }
+            });
+            Collections.sort(flows, new Comparator<Flow>() {
+                @Override
+                public int compare(Flow a, Flow b) {
+                    return Integer.compare(a.getFlowId(), b.getFlowId());
+                }
+            });
+            Collections.sort(links, new Comparator<Link>() {
+                @Override
+                public int compare(Link a, Link b) {
+                    return Integer.compare(a.getLinkId(), b.getLinkId());
+                }
+            });
+            for (int i = 0; i < flows.size(); i++) {
+                flowToVariable.put(flows.get(i), i);
+            }
+        }
+
+        /**
+         * @return  Identifier of the component (that of its first connection, or zero if it has none)
+         */
+        public int getId() {
+            return connections.isEmpty() ? 0 : connections.get(0).getConnectionId();
+        }
+
+        /**
+         * @return  Connections (in ascending identifier order)
+         */
+        public List<Connection> getConnections() {
+            return connections;
+        }
+
+        /**
+         * @return  Active flows of the connections (in ascending identifier order)
+         */
+        public List<Flow> getFlows() {
+            return flows;
+        }
+
+        /**
+         * @return  Links traversed by the flows (in ascending identifier order)
+         */
+        public List<Link> getLinks() {
+            return links;
+        }
+
+        /**
+         * Retrieve the index of the variable of a flow in the linear program of the component.
+         *
+         * @param flow  Flow of the component
+         *
+         * @return  Variable index (equal to its position in {@link #getFlows()})
+         */
+        public int getFlowVariable(Flow flow) {
+            return flowToVariable.get(flow);
+        }
+
+    }
+
+}
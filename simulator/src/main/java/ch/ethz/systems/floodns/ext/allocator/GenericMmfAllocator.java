@@ -25,15 +25,10 @@
 package ch.ethz.systems.floodns.ext.allocator;
 
 import ch.ethz.systems.floodns.core.Flow;
-import ch.ethz.systems.floodns.core.Link;
 import ch.ethz.systems.floodns.core.Network;
 import ch.ethz.systems.floodns.core.Simulator;
-import ch.ethz.systems.floodns.ext.utils.ConstantMap;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Upper limited weighted max-min fair allocation.
@@ -42,8 +37,12 @@ import java.util.Set;
  * Each flow has a desired maximum bandwidth, its cap
  * Each flow has a certain weight assigned to it, indicating how important it is.
  *
- * Runtime is not yet determined.
- * This allocator is EXPERIMENTAL.
+ * The water-filling raises the level of all unfixed flows (each receiving its weight times the level) until
+ * either a link becomes saturated, upon which all its unfixed flows are fixed, or a flow reaches its upper
+ * limit, upon which only that flow is fixed (see {@link WaterFillingEngine}).
+ *
+ * Runtime is O(|E| + |F| * |path| + (|C| * |path|) * log |E| + |C| * log |C|), with C the classes of flows with the
+ * same path, weight and upper limit.
  *
  * ------------
  *
@@ -57,7 +56,7 @@ import java.util.Set;
  *     http://www.ece.rutgers.edu/~marsic/books/CN/book-CN_marsic.pdf : page 315 (retrieved 25 April 2018)
  *
  */
-public class GenericMmfAllocator extends Allocator {
+public class GenericMmfAllocator extends WaterFillingAllocator {
 
     private final Map<Flow, Double> flowToUpperLimit;
     private final Map<Flow, Double> flowToWeight;
@@ -73,116 +72,19 @@ public class GenericMmfAllocator extends Allocator {
     public GenericMmfAllocator(Simulator simulator, Network network, Map<Flow, Double> flowToUpperLimit, Map<Flow, Double> flowToWeight) {
         super(simulator, network);
 
-        // Upper limit
-        if (flowToUpperLimit == null) {
-            this.flowToUpperLimit = new ConstantMap<>(Double.MAX_VALUE);
-        } else {
-            this.flowToUpperLimit = flowToUpperLimit;
-        }
-
-        // Weighting
-        if (flowToWeight == null) {
-            this.flowToWeight = new ConstantMap<>(1.0);
-        } else {
-            this.flowToWeight = flowToWeight;
-        }
+        // Upper limit and weighting (null if none)
+        this.flowToUpperLimit = flowToUpperLimit;
+        this.flowToWeight = flowToWeight;
 
     }
 
     /**
-     * Perform the upper limited weighted max-min fair allocation.
+     * Water-fill the upper limited weighted max-min fair allocation.
      */
     @Override
-    public void perform() {
-
-        // Reset all flow bandwidth to zero
-        for (Flow f : network.getActiveFlows()) {
-            simulator.allocateFlowBandwidth(f, 0);
-        }
-
-        // Decide which flows are fixed
-        Set<Link> linksWithUnfixedFlows = new HashSet<>(network.getFlowActiveLinks());
-        Map<Link, Set<Flow>> linkToUnfixedFlows = new HashMap<>();
-        for (Link l : linksWithUnfixedFlows) {
-            linkToUnfixedFlows.put(l, new HashSet<>(l.getActiveFlows()));
-        }
-
-        Set<Flow> temporarilyFixedFlows = new HashSet<>();
-        while (linksWithUnfixedFlows.size() != 0) {
-
-            Flow tightestFlow = null;
-            double tightestAllocation = Double.MAX_VALUE;
-            Link tightLink = null;
-            boolean linkIsTight = false;
-
-            // Go over all the links, and calculate the fair appropriation rate
-            for (Link link : linksWithUnfixedFlows) {
-
-                // Calculate total weight on the link
-                double sumWeight = 0;
-                for (Flow f : linkToUnfixedFlows.get(link)) {
-                    if (!temporarilyFixedFlows.contains(f)) {
-                        sumWeight += flowToWeight.get(f);
-                    }
-                }
-
-                // For each flow, calculate its fair share and see if it is the tightest
-                for (Flow f : linkToUnfixedFlows.get(link)) {
-                    if (!temporarilyFixedFlows.contains(f)) {
-                        double fairAllocation = Math.min(flowToUpperLimit.get(f), link.getRemainderCapacity() * flowToWeight.get(f) / sumWeight);
-
-                        // If it is the tightest, set is as such
-                        if (fairAllocation < tightestAllocation) {
-                            tightestAllocation = fairAllocation;
-                            tightLink = link;
-                            tightestFlow = f;
-                            linkIsTight = false;
-                        }
-
-                    }
-                }
-
-                // If it was this link on which the tightest flow is present, becomes tight because of the allocation
-                // record it
-                if (link == tightLink) {
-                    if (Math.abs(tightestAllocation - link.getRemainderCapacity()) <= simulator.getFlowPrecision()) {
-                        linkIsTight = true;
-                    }
-                }
-
-            }
-
-            // There was at least one flow present
-            assert(tightestFlow != null);
-
-            // If the tightest flow found is perpetually tight at that level, either (a) because the
-            // link it was on becomes tight due to its allocation, or (b) because the flow was capped
-            // by the upper limit
-            if (linkIsTight || Math.abs(tightestAllocation - flowToUpperLimit.get(tightestFlow)) <= simulator.getFlowPrecision()) {
-
-                // Remove all temporary flow fixes
-                for (Flow f : temporarilyFixedFlows) {
-                    simulator.allocateFlowBandwidth(f, 0);
-                }
-                temporarilyFixedFlows.clear();
-
-                // Permanently fix the tightest flow
-                simulator.allocateFlowBandwidth(tightestFlow, tightestAllocation);
-                for (Link l : tightestFlow.getPath()) {
-                    linkToUnfixedFlows.get(l).remove(tightestFlow);
-                    if (linkToUnfixedFlows.get(l).size() == 0) {
-                        linksWithUnfixedFlows.remove(l);
-                    }
-                }
-
-            // If the tightest flow might not be permanently tight, only fix it temporarily
-            } else {
-                simulator.allocateFlowBandwidth(tightestFlow, tightestAllocation);
-                temporarilyFixedFlows.add(tightestFlow);
-            }
-
-        }
-
+    void fill(WaterFillingEngine engine, Flow[] flows, int numFlows) {
+        engine.build(flows, numFlows, flowToWeight, flowToUpperLimit);
+        engine.waterFill();
     }
 
 }
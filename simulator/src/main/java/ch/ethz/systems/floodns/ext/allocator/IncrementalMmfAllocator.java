@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.*;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The incremental max-min fair share (MMFS) allocator results in the same allocation as the
+ * {@link SimpleMmfAllocator}, but only recomputes the part of the network which was affected
+ * by the changes since the previous aftermath (see {@link Network#getChangeSet()}).
+ *
+ * The bottleneck of a flow can only change if it shares a link (transitively) with a flow or link
+ * which changed. As such, the affected region is the closure of links and flows reachable from the
+ * changed links and flows, alternating between the active flows on a link and the links on the
+ * path of a flow. The max-min fair allocation of disjoint regions is independent, so the flows outside
+ * of the affected region retain their bandwidth.
+ *
+ * Runtime is O(|E_r|^2 + |E_r|*|F_r|), with E_r and F_r the links and flows of the affected region.
+ */
+public class IncrementalMmfAllocator extends SimpleMmfAllocator {
+
+    public IncrementalMmfAllocator(Simulator simulator, Network network) {
+        super(simulator, network);
+    }
+
+    /**
+     * Allocate the flows in the region affected by the changes since the previous aftermath
+     * according to the Max-Min Fair Rate Allocation.
+     */
+    @Override
+    public void perform() {
+
+        // Nothing changed, so the previous allocation is still max-min fair
+        NetworkChangeSet changeSet = network.getChangeSet();
+        if (changeSet.isEmpty()) {
+            return;
+        }
+
+        // Seed the closure with the changed links and the paths of the changed flows
+        Set<Link> regionLinks = new HashSet<>();
+        Set<Flow> regionFlows = new HashSet<>();
+        ArrayDeque<Link> toVisit = new ArrayDeque<>();
+        for (Link link : changeSet.getChangedLinks()) {
+            addToRegion(link, regionLinks, toVisit);
+        }
+        for (Flow flow : changeSet.getStartedFlows()) {
+            for (Link link : flow.getPath()) {
+                addToRegion(link, regionLinks, toVisit);
+            }
+        }
+        for (Flow flow : changeSet.getReallocatedFlows()) {
+            for (Link link : flow.getPath()) {
+                addToRegion(link, regionLinks, toVisit);
+            }
+        }
+
+        // Closure: all flows on a link, and all links on the path of such a flow
+        while (!toVisit.isEmpty()) {
+            Link link = toVisit.poll();
+            for (Flow flow : link.getActiveFlows()) {
+                if (regionFlows.add(flow)) {
+                    for (Link pathLink : flow.getPath()) {
+                        addToRegion(pathLink, regionLinks, toVisit);
+                    }
+                }
+            }
+        }
+
+        // If there are no active links in the region, there is no need to do any allocation
+        if (regionFlows.isEmpty()) {
+            return;
+        }
+
+        // Reset the flow bandwidth in the region to zero
+        for (Flow f : regionFlows) {
+            simulator.allocateFlowBandwidth(f, 0);
+        }
+
+        // Fill the links of the region
+        allocate(regionLinks, regionFlows.size());
+
+    }
+
+    /**
+     * Add the link to the region if it is flow-active and not yet part of it.
+     *
+     * @param link          Link instance
+     * @param regionLinks   Links of the region
+     * @param toVisit       Links of which the flows still need to be visited
+     */
+    private void addToRegion(Link link, Set<Link> regionLinks, ArrayDeque<Link> toVisit) {
+        if (!link.getActiveFlowIds().isEmpty() && regionLinks.add(link)) {
+            toVisit.add(link);
+        }
+    }
+
+}
@@ -25,13 +25,11 @@
 package ch.ethz.systems.floodns.ext.allocator;
 
 import ch.ethz.systems.floodns.core.*;
+import ch.ethz.systems.floodns.ext.lputils.LpModel;
 import ch.ethz.systems.floodns.ext.lputils.LpSolver;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Allocator which uses the linear solver to solve a
@@ -59,152 +57,91 @@ import java.util.Map;
  *      for all e in E:
  *         SUM_{p in all_paths : e part of p} (f_p) / capacity(e)) &lt;= 1
  *
+ * The Z of the whole is the minimum of that of the components; the allocation of each
+ * component is feasible for it, and at least as good for each connection.
  */
-public class MaxMinConnBwLpAllocator extends Allocator {
+public class MaxMinConnBwLpAllocator extends ComponentLpAllocator {
 
     private final Map<Integer, Double> connectionToDemand;
-    private double objectiveZ = 1.0;
-    private long solveTimeMs = -1;
-    private final LpSolver lpSolver;
 
     public MaxMinConnBwLpAllocator(Simulator simulator, Network network, Map<Integer, Double> connectionToDemand, LpSolver lpSolver) {
-        super(simulator, network);
+        this(simulator, network, connectionToDemand, lpSolver, null);
+    }
+
+    public MaxMinConnBwLpAllocator(Simulator simulator, Network network, Map<Integer, Double> connectionToDemand, LpSolver lpSolver,
+                                   ExecutorService executor) {
+        super(simulator, network, lpSolver, executor);
         this.connectionToDemand = connectionToDemand;
-        this.lpSolver = lpSolver;
     }
 
     /**
      * Solve the linear program to find the flow allocation
-     * which minimizes the maximum link congestion respective to the
+     * which maximizes the minimum connection bandwidth respective to the
      * connection demands.
      */
     @Override
     public void perform() {
 
-        // Open file
-        File program;
-        File solution;
-        try {
-            program = File.createTempFile("program", ".lp");
-            solution = File.createTempFile("solution", ".sol");
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to create temporary file for linear program and solution.");
-        }
-
-        // Write linear program to file
-        try {
-
-            // Open writer
-            PrintWriter out = new PrintWriter(program);
-
-            // Objective
-            out.println("max: Z;");
-            out.println();
-
-            // Sum of flow belonging to connection greater than threshold
-            out.println("// Type 0: Sum of flow belonging to connection greater than or equal to threshold");
-            for (Connection connection : simulator.getActiveConnections()) {
-
-                // Demand must be specified
-                if (!connectionToDemand.containsKey(connection.getConnectionId())) {
-                    throw new IllegalArgumentException(
-                            "Connection with id " + connection.getConnectionId() + " has no demand defined for it."
-                    );
-                }
-
-                out.print("c0_" + connection.getConnectionId() + ": ");
-                boolean first = true;
-                for (Flow f : connection.getActiveFlows()) {
-                    if (!first) {
-                        out.print(" + ");
-                    }
-                    first = false;
-                    out.print("f_" + f.getFlowId());
-                }
-                out.format(" - %f Z >= 0;", connectionToDemand.get(connection.getConnectionId()));
-                out.println();
-            }
-            out.println();
-
-            // Only positive flows
-            out.println("// Type 1: only positive flows");
-            for (Flow f : network.getActiveFlows()) {
-                out.println("c1_" + f.getFlowId() + ": f_" + f.getFlowId() + " >= 0;");
+        // Demand must be specified
+        for (Connection connection : simulator.getActiveConnections()) {
+            if (!connectionToDemand.containsKey(connection.getConnectionId())) {
+                throw new IllegalArgumentException(
+                        "Connection with id " + connection.getConnectionId() + " has no demand defined for it."
+                );
             }
-            out.println();
-
-            // Utilization definition
-            out.println("// Type 2: Link capacity not exceeded");
-            for (Link link : network.getPresentLinks()) {
-                if (link.getActiveFlows().size() > 0) {
-                    out.format("c2_%d: ", link.getLinkId());
-                    boolean first = true;
-                    for (Flow f : link.getActiveFlows()) {
-                        if (!first) {
-                            out.print(" + ");
-                        }
-                        first = false;
-                        out.format("f_%d", f.getFlowId());
-                    }
-                    out.format(" <= %f;", link.getCapacity());
-                    out.println();
-                }
-            }
-
-            // Close file
-            out.close();
-
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to write to temporary file.");
-        }
-
-        // Call solver
-        long start = System.currentTimeMillis();
-        ImmutablePair<Double, Map<String, Double>> result = lpSolver.solve(program.getAbsolutePath(), solution.getAbsolutePath());
-        solveTimeMs = System.currentTimeMillis() - start;
-
-        // Reset all flow bandwidth to zero such that the full link capacity is free
-        // to be set for the flows
-        for (Flow f : network.getActiveFlows()) {
-            simulator.allocateFlowBandwidth(f, 0);
         }
 
-        // Save results
-        objectiveZ = result.getLeft();
-        for (Map.Entry<String, Double> entry : result.getRight().entrySet()) {
+        super.perform();
 
-            if (entry.getKey().startsWith("f_")) {
+    }
 
-                // Parse weight solution line
-                Integer flowId = Integer.valueOf(entry.getKey().split("_")[1]);
-                Double flowBandwidth = entry.getValue();
+    @Override
+    protected void buildProgram(LpModel model, Component component) {
+
+        // Objective
+        int z = model.addVariable("Z");
+        model.setVariableKey(z, key(KEY_COMPONENT, component.getId()));
+        model.setMaximize(true);
+        model.setObjectiveCoefficient(z, 1.0);
+
+        // Type 0: Sum of flow belonging to connection greater than or equal to threshold
+        for (Connection connection : component.getConnections()) {
+            for (Flow f : connection.getActiveFlows()) {
+                model.addTerm(component.getFlowVariable(f), 1.0);
+            }
+            model.addTerm(z, -connectionToDemand.get(connection.getConnectionId()));
+            model.setConstraintKey(
+                    model.addConstraint(LpModel.Sense.GREATER_EQUAL, 0.0), key(KEY_CONNECTION, connection.getConnectionId())
+            );
+        }
 
-                // Put into final mapping
-                Flow flow = network.getActiveFlow(flowId);
-                simulator.allocateFlowBandwidth(flow, flowBandwidth);
+        // Type 1: only positive flows (the default lower bound of the flow variables)
 
+        // Type 2: Link capacity not exceeded
+        for (Link link : component.getLinks()) {
+            for (Flow f : link.getActiveFlows()) {
+                model.addTerm(component.getFlowVariable(f), 1.0);
             }
-
+            model.setConstraintKey(model.addConstraint(LpModel.Sense.LESS_EQUAL, link.getCapacity()), key(KEY_LINK, link.getLinkId()));
         }
 
     }
 
     /**
-     * Get the objective (Z) value of the previous {@link #perform()} call.
-     *
-     * @return Objective (Z) value
+     * The minimum connection bandwidth (relative to demand) is the minimum of that of the components.
      */
-    public double getObjectiveZ() {
-        return objectiveZ;
+    @Override
+    protected double combineObjectives(double[] objectives) {
+        double min = Double.MAX_VALUE;
+        for (double objective : objectives) {
+            min = Math.min(min, objective);
+        }
+        return min;
     }
 
-    /**
-     * Get the time it took to solve the linear program in the previous ({@link #perform()} call.
-     *
-     * @return Solve time (ms)
-     */
-    public long getSolveTimeMs() {
-        return solveTimeMs;
+    @Override
+    protected double getBandwidth(Flow flow, double value, double objectiveZ) {
+        return value;
     }
 
 }
@@ -25,13 +25,11 @@
 package ch.ethz.systems.floodns.ext.allocator;
 
 import ch.ethz.systems.floodns.core.*;
+import ch.ethz.systems.floodns.ext.lputils.LpModel;
 import ch.ethz.systems.floodns.ext.lputils.LpSolver;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Allocator which uses the linear solver to solve a
@@ -62,6 +60,9 @@ import java.util.Map;
  *
  *      for all e in E: U_e &lt;= Z
  *
+ * The Z of the whole is the maximum of that of the components, by which the path weights of all
+ * components are scaled into bandwidth.
+ *
  * ------------
  *
  * CITATIONS
@@ -69,138 +70,80 @@ import java.util.Map;
  * Linear program based on the formulation in (Table 2 of the paper):
  * [1] Kumar, Praveen, et al. "Semi-Oblivious Traffic Engineering: The Road Not Taken." USENIX NSDI. 2018.
  */
-public class MinMaxLinkCapLpAllocator extends Allocator {
+public class MinMaxLinkCapLpAllocator extends ComponentLpAllocator {
+
+    // Type of the key of the constraint bounding the utilization of a link by the maximum
+    private static final int KEY_UTILIZATION = KEY_COMPONENT + 1;
 
     private final Map<Integer, Double> connectionToDemand;
-    private double objectiveZ = 1.0;
-    private long solveTimeMs = -1;
-    private final LpSolver lpSolver;
 
     public MinMaxLinkCapLpAllocator(Simulator simulator, Network network, Map<Integer, Double> connectionToDemand, LpSolver lpSolver) {
-        super(simulator, network);
+        this(simulator, network, connectionToDemand, lpSolver, null);
+    }
+
+    public MinMaxLinkCapLpAllocator(Simulator simulator, Network network, Map<Integer, Double> connectionToDemand, LpSolver lpSolver,
+                                    ExecutorService executor) {
+        super(simulator, network, lpSolver, executor);
         this.connectionToDemand = connectionToDemand;
-        this.lpSolver = lpSolver;
     }
 
     /**
-     * Solve the linear program to find the flow allocation
-     * which minimizes the maximum link congestion respective to the
-     * connection demands.
+     * Build the linear program which minimizes the maximum link
+     * congestion of the component respective to the connection demands.
      */
     @Override
-    public void perform() {
-
-        // Open file
-        File program;
-        File solution;
-        try {
-            program = File.createTempFile("mmlc", ".lp");
-            solution = File.createTempFile("mmlc", ".sol");
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to create temporary file for linear program and solution.");
-        }
-
-        // Write linear program to file
-        try {
-
-            // Open writer
-            PrintWriter out = new PrintWriter(program);
-
-            // Objective
-            out.println("min: Z;");
-            out.println();
-
-            // Sum of all path weights of the flow paths belonging to a connection must be equal to 1
-            out.println("// Type 0: sum of path weights equals 1");
-            for (Connection connection : simulator.getActiveConnections()) {
-                out.print("c0_" + connection.getConnectionId() + ": ");
-                boolean first = true;
-                for (Flow f : connection.getActiveFlows()) {
-                    if (!first) {
-                        out.print(" + ");
-                    }
-                    first = false;
-                    out.print("w_" + f.getFlowId());
-                }
-                out.println(" = 1;");
-            }
-
-            // All path weights of the flow paths are non-zero
-            out.println("// Type 1: non-zero path weights");
-            for (Flow f : network.getActiveFlows()) {
-                out.println("c1_" + f.getFlowId() + ": w_" + f.getFlowId() + " >= 0;");
-            }
-
-            // Utilization definition
-            out.println("// Type 2: utilization definition");
-            for (Link link : network.getPresentLinks()) {
-                out.print("c2_" + link.getLinkId() + ": U_" + link.getLinkId());
-                for (Flow f : link.getActiveFlows()) {
-                    out.print(" - " + (connectionToDemand.get(f.getParentConnection().getConnectionId()) / link.getCapacity()) + " w_" + f.getFlowId());
-                }
-                out.println(" = 0;");
+    protected void buildProgram(LpModel model, Component component) {
+
+        // Objective
+        int z = model.addVariable("Z");
+        model.setVariableKey(z, key(KEY_COMPONENT, component.getId()));
+        model.setMaximize(false);
+        model.setObjectiveCoefficient(z, 1.0);
+
+        // Type 0: sum of path weights equals 1
+        for (Connection connection : component.getConnections()) {
+            for (Flow f : connection.getActiveFlows()) {
+                model.addTerm(component.getFlowVariable(f), 1.0);
             }
-
-            // Utilization of each link must be lower than the minimum
-            out.println("// Type 3: utilization cannot exceed minimum");
-            for (Link link : network.getPresentLinks()) {
-                out.println("c3_" + link.getLinkId() + ": U_" + link.getLinkId() + " - Z <= 0;");
-            }
-
-            // Close file
-            out.close();
-
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to write to temporary file.");
+            model.setConstraintKey(model.addConstraint(LpModel.Sense.EQUAL, 1.0), key(KEY_CONNECTION, connection.getConnectionId()));
         }
 
-        // Call solver
-        long start = System.currentTimeMillis();
-        ImmutablePair<Double, Map<String, Double>> result = lpSolver.solve(program.getAbsolutePath(), solution.getAbsolutePath());
-        solveTimeMs = System.currentTimeMillis() - start;
-
-        // Reset all flow bandwidth to zero such that the full link capacity is free
-        // to be set for the flows
-        for (Flow f : network.getActiveFlows()) {
-            simulator.allocateFlowBandwidth(f, 0);
-        }
-
-        // Save results
-        objectiveZ = result.getLeft();
-        for (Map.Entry<String, Double> entry : result.getRight().entrySet()) {
-
-            if (entry.getKey().startsWith("w_")) {
-
-                // Parse weight solution line
-                int flowId = Integer.parseInt(entry.getKey().split("_")[1]);
-                Double weight = entry.getValue();
-
-                // Put into final mapping
-                Flow flow = network.getActiveFlow(flowId);
-                simulator.allocateFlowBandwidth(flow, weight * connectionToDemand.get(flow.getParentConnection().getConnectionId()) / objectiveZ);
-
+        // Type 1: non-zero path weights (the default lower bound of the weight variables)
+
+        // Type 2 and 3: utilization definition, and utilization cannot exceed minimum
+        for (Link link : component.getLinks()) {
+            int u = model.addVariable();
+            model.setVariableKey(u, key(KEY_LINK, link.getLinkId()));
+            model.addTerm(u, 1.0);
+            for (Flow f : link.getActiveFlows()) {
+                model.addTerm(
+                        component.getFlowVariable(f),
+                        -connectionToDemand.get(f.getParentConnection().getConnectionId()) / link.getCapacity()
+                );
             }
-
+            model.setConstraintKey(model.addConstraint(LpModel.Sense.EQUAL, 0.0), key(KEY_LINK, link.getLinkId()));
+            model.addTerm(u, 1.0);
+            model.addTerm(z, -1.0);
+            model.setConstraintKey(model.addConstraint(LpModel.Sense.LESS_EQUAL, 0.0), key(KEY_UTILIZATION, link.getLinkId()));
         }
 
     }
 
     /**
-     * Get the objective (Z) value of the previous {@link #perform()} call.
-     *
-     * @return Objective (Z) value
+     * The maximum link utilization is the maximum of that of the components.
      */
-    public double getObjectiveZ() {
-        return objectiveZ;
+    @Override
+    protected double combineObjectives(double[] objectives) {
+        double max = 0.0;
+        for (double objective : objectives) {
+            max = Math.max(max, objective);
+        }
+        return max;
     }
 
-    /**
-     * Get the time it took to solve the linear program in the previous ({@link #perform()} call.
-     *
-     * @return Solve time (ms)
-     */
-    public long getSolveTimeMs() {
-        return solveTimeMs;
+    @Override
+    protected double getBandwidth(Flow flow, double value, double objectiveZ) {
+        return value * connectionToDemand.get(flow.getParentConnection().getConnectionId()) / objectiveZ;
     }
 
 }
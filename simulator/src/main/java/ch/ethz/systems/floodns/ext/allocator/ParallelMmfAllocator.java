@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The parallel max-min fair share (MMFS) allocator results in the same allocation as the
+ * {@link SimpleMmfAllocator}, but water-fills the independent components of the bipartite
+ * graph of active flows and flow-active links in parallel.
+ *
+ * The components are determined each aftermath using union-find over the links of the flow paths.
+ * Each component is water-filled on its own (thread-confined) part of the state arrays of the
+ * {@link WaterFillingEngine}, after which the bandwidth is committed back to the flows sequentially
+ * in ascending flow identifier order.
+ * As such, the result (and thus the logs) do not depend on the number of threads or their scheduling.
+ *
+ * Runtime is O(|E| + |F| * |path| + (|C| * |path|) * log |E|) in total, with C the classes of flows with the same
+ * path, of which the water-filling is divided over the components.
+ */
+public class ParallelMmfAllocator extends Allocator {
+
+    // Group of components with fewer flows than this are water-filled within a single task
+    private static final int DEFAULT_SEQUENTIAL_THRESHOLD = 1024;
+
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+    private final WaterFillingEngine engine;
+
+    /**
+     * Create parallel max-min fair allocator.
+     *
+     * @param simulator     Simulator instance
+     * @param network       Network instance
+     * @param pool          Pool in which the components are water-filled (owned by the caller, which shuts it
+     *                      down; it can be shared among allocators)
+     */
+    public ParallelMmfAllocator(Simulator simulator, Network network, ForkJoinPool pool) {
+        this(simulator, network, pool, DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    ParallelMmfAllocator(Simulator simulator, Network network, ForkJoinPool pool, int sequentialThreshold) {
+        super(simulator, network);
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+        this.engine = new WaterFillingEngine();
+    }
+
+    /**
+     * The max-min fair allocation only depends on the links and the paths of the active flows.
+     */
+    @Override
+    public boolean dependsOnlyOnNetwork() {
+        return true;
+    }
+
+    /**
+     * Allocate each flow and link its entitled bandwidth by playing fair
+     * according to the Max-Min Fair Rate Allocation for a network with a
+     * given routing, solving the independent components in parallel.
+     */
+    @Override
+    public void perform() {
+
+        // Active flows in ascending identifier order
+        Flow[] flows = network.getActiveFlows().toArray(new Flow[network.getActiveFlows().size()]);
+        if (flows.length == 0) {
+            return;
+        }
+        Arrays.sort(flows, new Comparator<Flow>() {
+            @Override
+            public int compare(Flow a, Flow b) {
+                return Integer.compare(a.getFlowId(), b.getFlowId());
+            }
+        });
+
+        // Index the flows and links, and partition them into components
+        engine.build(flows, flows.length);
+        int numComponents = engine.partitionIntoComponents();
+
+        // Water-fill the components in parallel
+        if (numComponents == 1) {
+            engine.waterFill(0);
+        } else {
+            pool.invoke(new WaterFillTask(0, numComponents));
+        }
+
+        // Commit the fair rates at once (in flow order, such that it is deterministic)
+        simulator.allocateFlowBandwidths(flows, engine.getRates(), flows.length);
+
+    }
+
+    /**
+     * Water-fills a range of components, split in halves as long as they are large enough.
+     */
+    private class WaterFillTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        WaterFillTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1 || engine.getNumClasses(from, to) < sequentialThreshold) {
+                for (int c = from; c < to; c++) {
+                    engine.waterFill(c);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new WaterFillTask(from, mid), new WaterFillTask(mid, to));
+            }
+        }
+
+    }
+
+}
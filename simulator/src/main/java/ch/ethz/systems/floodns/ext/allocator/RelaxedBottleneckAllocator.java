@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+
+/**
+ * The relaxed bottleneck allocator raises the water level in geometric steps of factor (1 + epsilon) instead of
+ * to the fair share of each next bottleneck link, such that its cost does not grow with the number of distinct
+ * bottleneck levels (see {@link WaterFillingEngine#waterFillGeometrically(double)}).
+ *
+ * The allocation satisfies the epsilon-relaxed bottleneck condition: each flow has a link on its path which is
+ * utilized for at least a fraction 1 / (1 + epsilon) of its capacity, and on which no other flow has a
+ * higher rate. With epsilon going to zero this becomes the bottleneck condition of max-min fairness, but for
+ * any positive epsilon the allocation is <b>not</b> an approximation of the max-min fair allocation: a flow
+ * rate is not bounded relative to its exact max-min fair rate, as capacity left unused by one flow can go to
+ * another flow, which in turn takes it from a third flow. The realized shortfall against the exact allocation
+ * can be computed on demand ({@link #computeRealizedError()}).
+ *
+ * Runtime is O(|E| + |F| * |path| + log_{1 + epsilon}(max. capacity / min. fair share)).
+ */
+public class RelaxedBottleneckAllocator extends WaterFillingAllocator {
+
+    private final double epsilon;
+
+    /**
+     * Create relaxed bottleneck allocator.
+     *
+     * @param simulator     Simulator instance
+     * @param network       Network instance
+     * @param epsilon       Level factor minus one (&gt; 0, e.g. 0.05 for water levels 5% apart)
+     */
+    public RelaxedBottleneckAllocator(Simulator simulator, Network network, double epsilon) {
+        super(simulator, network);
+        if (!(epsilon > 0)) {
+            throw new IllegalArgumentException("Epsilon must be strictly positive (" + epsilon + ").");
+        }
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * The relaxed bottleneck allocation only depends on the links and the paths of the active flows.
+     */
+    @Override
+    public boolean dependsOnlyOnNetwork() {
+        return true;
+    }
+
+    /**
+     * Water-fill each flow its bandwidth at the geometric water level of the link it is bottlenecked by.
+     */
+    @Override
+    void fill(WaterFillingEngine engine, Flow[] flows, int numFlows) {
+        engine.build(flows, numFlows);
+        engine.waterFillGeometrically(epsilon);
+    }
+
+    /**
+     * Compute the realized error of the current allocation against the exact max-min fair allocation.
+     * The exact allocation is water-filled anew, which costs as much as an exact allocator does.
+     *
+     * @return  Largest relative shortfall (exact - current) / exact of any active flow (0 if none falls short)
+     */
+    public double computeRealizedError() {
+
+        // Water-fill exactly
+        int numFlows = indexActiveFlows();
+        Flow[] flows = getFlows();
+        WaterFillingEngine engine = getEngine();
+        engine.build(flows, numFlows);
+        engine.waterFill();
+
+        // Compare to the current bandwidth
+        double error = 0.0;
+        for (int i = 0; i < numFlows; i++) {
+            double exact = engine.getRate(i);
+            if (exact > 0) {
+                error = Math.max(error, (exact - flows[i].getCurrentBandwidth()) / exact);
+            }
+        }
+
+        // Do not retain the flows
+        releaseFlows(numFlows);
+
+        return error;
+
+    }
+
+    /**
+     * Retrieve the level factor minus one.
+     *
+     * @return  Epsilon
+     */
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+}
@@ -55,6 +55,14 @@ public class SimpleMmfAllocator extends Allocator {
         super(simulator, network);
     }
 
+    /**
+     * The max-min fair allocation only depends on the links and the paths of the active flows.
+     */
+    @Override
+    public boolean dependsOnlyOnNetwork() {
+        return true;
+    }
+
     /**
      * Allocate each flow and link its entitled bandwidth by playing fair
      * according to the Max-Min Fair Rate Allocation for a network with a
@@ -70,6 +78,21 @@ public class SimpleMmfAllocator extends Allocator {
             simulator.allocateFlowBandwidth(f, 0);
         }
 
+        // Fill all flow-active links
+        allocate(network.getFlowActiveLinks(), network.getActiveFlows().size());
+
+    }
+
+    /**
+     * Perform the water-filling over the given links, of which all active flows must have been reset to zero.
+     * The links must be closed under the flows, i.e., every link on the path of a flow on one of
+     * the links must also be given.
+     *
+     * @param links     Flow-active links to fill
+     * @param numFlows  Total number of active flows on the links
+     */
+    protected void allocate(Collection<Link> links, int numFlows) {
+
         // Mapping of the tightness to the links experiencing that tightness
         TreeMap<Double, Set<Link>> tightnessToLink = new TreeMap<>();
 
@@ -78,7 +101,7 @@ public class SimpleMmfAllocator extends Allocator {
 
         // Save how much each link can allocate to each flow flowing through it
         // such that we can easily identify the current bottleneck, the TIGHTEST LINK.
-        for (Link link : network.getFlowActiveLinks()) {
+        for (Link link : links) {
 
             // At the beginning, none are fixed
             linkToNumFixedFlows.put(link, 0);
@@ -168,7 +191,7 @@ public class SimpleMmfAllocator extends Allocator {
             // If all of the flows have already a fixed bandwidth
             // the algorithm has terminated (all flow-active links
             // must have been assigned everything as well)
-            if (flowsFixed.size() == network.getActiveFlows().size()) {
+            if (flowsFixed.size() == numFlows) {
                 break;
             }
 
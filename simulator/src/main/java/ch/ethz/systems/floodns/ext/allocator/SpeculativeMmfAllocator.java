@@ -0,0 +1,262 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.*;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The speculative max-min fair share (MMFS) allocator results in the same allocation as the
+ * {@link ArrayMmfAllocator}, but overlaps the water-filling with the simulation. After each time tick,
+ * the simulator tells it which flows will end at the next connection update (see {@link Aftermath#speculate(long, List)}).
+ * The allocation of the active flows without those is then water-filled on a worker thread while the
+ * simulator processes the events up till then.
+ *
+ * When the aftermath is performed, the speculation is committed if its prediction held: it is the time
+ * speculated on, no flow was started or reallocated, exactly the predicted flows have ended, and only the links
+ * of the ended flows were changed. Otherwise, it is discarded and the allocation is water-filled anew.
+ *
+ * Runtime is that of the {@link ArrayMmfAllocator} if the speculation is discarded, and
+ * O(|F| + |F_e| * |path|) plus the remaining wait on the worker thread if it is committed, with F_e the ended flows.
+ */
+public class SpeculativeMmfAllocator extends ArrayMmfAllocator {
+
+    // Worker thread(s) for the speculation, and its own water-filling engine
+    private final ExecutorService executor;
+    private final WaterFillingEngine speculationEngine;
+
+    // Pending speculation
+    private long speculatedTime;
+    private List<Flow> speculatedEndingFlows;
+    private Flow[] speculatedFlows;
+    private Set<Link> speculatedChangedLinks;
+    private Future<double[]> speculatedRates;
+
+    // Statistics
+    private long numSpeculationsCommitted;
+    private long numSpeculationsDiscarded;
+
+    /**
+     * Constructor with the single daemon worker thread which is shared by all speculative allocators
+     * created this way (it is created when first needed, and never shut down).
+     *
+     * @param simulator     Simulator instance
+     * @param network       Network instance
+     */
+    public SpeculativeMmfAllocator(Simulator simulator, Network network) {
+        this(simulator, network, SharedExecutor.INSTANCE);
+    }
+
+    /**
+     * Constructor with a given executor for the speculation (shutting it down is up to the caller).
+     *
+     * @param simulator     Simulator instance
+     * @param network       Network instance
+     * @param executor      Executor service to speculate on
+     */
+    public SpeculativeMmfAllocator(Simulator simulator, Network network, ExecutorService executor) {
+        super(simulator, network);
+        this.executor = executor;
+        this.speculationEngine = new WaterFillingEngine();
+        this.speculatedTime = -1;
+        this.speculatedEndingFlows = null;
+        this.speculatedFlows = null;
+        this.speculatedChangedLinks = null;
+        this.speculatedRates = null;
+        this.numSpeculationsCommitted = 0;
+        this.numSpeculationsDiscarded = 0;
+    }
+
+    @Override
+    public boolean isSpeculative() {
+        return true;
+    }
+
+    /**
+     * Start water-filling the active flows without the ending flows on the worker thread.
+     *
+     * @param time          Time of the next connection update
+     * @param endingFlows   Flows which end at that time if no event intervenes
+     */
+    @Override
+    public void speculate(long time, List<Flow> endingFlows) {
+
+        // Only one speculation can be pending
+        discardSpeculation();
+        if (endingFlows.isEmpty()) {
+            return;
+        }
+
+        // Snapshot of the remaining flows (the worker thread must not touch the live network state)
+        Set<Flow> ending = new HashSet<>(endingFlows);
+        final Flow[] remaining = new Flow[network.getActiveFlows().size() - ending.size()];
+        int i = 0;
+        for (Flow f : network.getActiveFlows()) {
+            if (!ending.contains(f)) {
+                remaining[i++] = f;
+            }
+        }
+        assert(i == remaining.length);
+
+        // Links which will change by the ending of the flows
+        Set<Link> changedLinks = new HashSet<>();
+        for (Flow f : endingFlows) {
+            changedLinks.addAll(f.getPath());
+        }
+
+        // Water-fill in the background
+        speculatedTime = time;
+        speculatedEndingFlows = endingFlows;
+        speculatedFlows = remaining;
+        speculatedChangedLinks = changedLinks;
+        speculatedRates = executor.submit(new Callable<double[]>() {
+            @Override
+            public double[] call() {
+                // A cancelled speculation can still be running when the next one starts
+                synchronized (speculationEngine) {
+                    speculationEngine.build(remaining, remaining.length);
+                    speculationEngine.waterFill();
+                    return Arrays.copyOf(speculationEngine.getRates(), remaining.length);
+                }
+            }
+        });
+
+    }
+
+    /**
+     * Commit the speculated allocation if its prediction held, else water-fill anew.
+     */
+    @Override
+    public void perform() {
+
+        // Commit the speculation if it held
+        if (speculatedRates != null && isSpeculationValid()) {
+            double[] rates;
+            try {
+                rates = speculatedRates.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the speculated allocation.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Speculated allocation failed.", e.getCause());
+            }
+            simulator.allocateFlowBandwidths(speculatedFlows, rates, speculatedFlows.length);
+            clearSpeculation();
+            numSpeculationsCommitted++;
+            return;
+        }
+
+        // Otherwise water-fill anew
+        discardSpeculation();
+        super.perform();
+
+    }
+
+    /**
+     * Check whether the network changed exactly as predicted by the pending speculation.
+     *
+     * @return  True iff the speculated allocation is the max-min fair allocation
+     */
+    private boolean isSpeculationValid() {
+        NetworkChangeSet changeSet = network.getChangeSet();
+        if (simulator.getCurrentTime() != speculatedTime
+                || !changeSet.getStartedFlows().isEmpty()
+                || !changeSet.getReallocatedFlows().isEmpty()
+                || network.getActiveFlows().size() != speculatedFlows.length) {
+            return false;
+        }
+        for (Flow f : speculatedEndingFlows) {
+            if (network.getActiveFlow(f.getFlowId()) == f) {
+                return false;
+            }
+        }
+        return speculatedChangedLinks.containsAll(changeSet.getChangedLinks());
+    }
+
+    /**
+     * Cancel the pending speculation (if any), and count it as discarded.
+     */
+    private void discardSpeculation() {
+        if (speculatedRates != null) {
+            speculatedRates.cancel(false);
+            clearSpeculation();
+            numSpeculationsDiscarded++;
+        }
+    }
+
+    /**
+     * Drop the references of the pending speculation.
+     */
+    private void clearSpeculation() {
+        speculatedTime = -1;
+        speculatedEndingFlows = null;
+        speculatedFlows = null;
+        speculatedChangedLinks = null;
+        speculatedRates = null;
+    }
+
+    /**
+     * Retrieve the number of speculations which were committed.
+     *
+     * @return  Number of committed speculations
+     */
+    public long getNumSpeculationsCommitted() {
+        return numSpeculationsCommitted;
+    }
+
+    /**
+     * Retrieve the number of speculations which were discarded.
+     *
+     * @return  Number of discarded speculations
+     */
+    public long getNumSpeculationsDiscarded() {
+        return numSpeculationsDiscarded;
+    }
+
+    /**
+     * Holder of the shared worker thread, such that it is only created once the first allocator uses it.
+     */
+    private static class SharedExecutor {
+
+        private static final ExecutorService INSTANCE = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "speculative-mmf-allocator");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+    }
+
+}
@@ -25,13 +25,10 @@
 package ch.ethz.systems.floodns.ext.allocator;
 
 import ch.ethz.systems.floodns.core.*;
+import ch.ethz.systems.floodns.ext.lputils.LpModel;
 import ch.ethz.systems.floodns.ext.lputils.LpSolver;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Allocator which uses the linear solver to solve a
@@ -62,140 +59,62 @@ import java.util.Map;
  *         SUM_{p in all_paths : e part of p} (f_p) / capacity(e)) &lt;= 1
  *
  */
-public class SumMaxLpAllocator extends Allocator {
-
-    private double objectiveZ = 1.0;
-    private long solveTimeMs = -1;
-    private final LpSolver lpSolver;
+public class SumMaxLpAllocator extends ComponentLpAllocator {
 
     public SumMaxLpAllocator(Simulator simulator, Network network, LpSolver lpSolver) {
-        super(simulator, network);
-        this.lpSolver = lpSolver;
+        this(simulator, network, lpSolver, null);
+    }
+
+    public SumMaxLpAllocator(Simulator simulator, Network network, LpSolver lpSolver, ExecutorService executor) {
+        super(simulator, network, lpSolver, executor);
     }
 
     /**
-     * Solve the linear program to find the flow allocation
-     * which maximizes the total flow sum.
+     * Build the linear program which maximizes the total flow sum of the component.
      */
     @Override
-    public void perform() {
-
-        // Open file
-        File program;
-        File solution;
-        try {
-            program = File.createTempFile("program", ".lp");
-            solution = File.createTempFile("solution", ".sol");
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to create temporary file for linear program and solution.");
-        }
-
-        // Write linear program to file
-        try {
-
-            // Open writer
-            PrintWriter out = new PrintWriter(program);
-
-            // Objective
-            out.println("max: Z;");
-            out.println();
-
-            // Sum of flow belonging to connection greater than threshold
-            out.println("// Type 0: Sum of flow larger than or equal to threshold");
-            out.print("c0: ");
-            boolean firstGlobal = true;
-            for (Connection connection : simulator.getActiveConnections()) {
-                for (Flow f : connection.getActiveFlows()) {
-                    if (!firstGlobal) {
-                        out.print(" + ");
-                    }
-                    firstGlobal = false;
-                    out.print("f_" + f.getFlowId());
-                }
-            }
-            out.format(" - Z >= 0;");
-            out.println();
-            out.println();
-
-            // Only positive flows
-            out.println("// Type 1: only positive flows");
-            for (Flow f : network.getActiveFlows()) {
-                out.println("c1_" + f.getFlowId() + ": f_" + f.getFlowId() + " >= 0;");
-            }
-            out.println();
-
-            // Utilization definition
-            out.println("// Type 2: Link capacity not exceeded");
-            for (Link link : network.getPresentLinks()) {
-                if (link.getActiveFlows().size() > 0) {
-                    out.format("c2_%d: ", link.getLinkId());
-                    boolean first = true;
-                    for (Flow f : link.getActiveFlows()) {
-                        if (!first) {
-                            out.print(" + ");
-                        }
-                        first = false;
-                        out.format("f_%d", f.getFlowId());
-                    }
-                    out.format(" <= %f;", link.getCapacity());
-                    out.println();
-                }
-            }
-
-            // Close file
-            out.close();
-
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to write to temporary file.");
-        }
+    protected void buildProgram(LpModel model, Component component) {
 
-        // Call solver
-        long start = System.currentTimeMillis();
-        ImmutablePair<Double, Map<String, Double>> result = lpSolver.solve(program.getAbsolutePath(), solution.getAbsolutePath());
-        solveTimeMs = System.currentTimeMillis() - start;
+        // Objective
+        int z = model.addVariable("Z");
+        model.setVariableKey(z, key(KEY_COMPONENT, component.getId()));
+        model.setMaximize(true);
+        model.setObjectiveCoefficient(z, 1.0);
 
-        // Reset all flow bandwidth to zero such that the full link capacity is free
-        // to be set for the flows
-        for (Flow f : network.getActiveFlows()) {
-            simulator.allocateFlowBandwidth(f, 0);
+        // Type 0: Sum of flow larger than or equal to threshold
+        for (Flow f : component.getFlows()) {
+            model.addTerm(component.getFlowVariable(f), 1.0);
         }
+        model.addTerm(z, -1.0);
+        model.setConstraintKey(model.addConstraint(LpModel.Sense.GREATER_EQUAL, 0.0), key(KEY_COMPONENT, component.getId()));
 
-        // Save results
-        objectiveZ = result.getLeft();
-        for (Map.Entry<String, Double> entry : result.getRight().entrySet()) {
-
-            if (entry.getKey().startsWith("f_")) {
-
-                // Parse weight solution line
-                int flowId = Integer.parseInt(entry.getKey().split("_")[1]);
-                Double flowBandwidth = entry.getValue();
-
-                // Put into final mapping
-                Flow flow = network.getActiveFlow(flowId);
-                simulator.allocateFlowBandwidth(flow, flowBandwidth);
+        // Type 1: only positive flows (the default lower bound of the flow variables)
 
+        // Type 2: Link capacity not exceeded
+        for (Link link : component.getLinks()) {
+            for (Flow f : link.getActiveFlows()) {
+                model.addTerm(component.getFlowVariable(f), 1.0);
             }
-
+            model.setConstraintKey(model.addConstraint(LpModel.Sense.LESS_EQUAL, link.getCapacity()), key(KEY_LINK, link.getLinkId()));
         }
 
     }
 
     /**
-     * Get the objective (Z) value of the previous {@link #perform()} call.
-     *
-     * @return Objective (Z) value
+     * The total flow sum is the sum of that of the components.
      */
-    public double getObjectiveZ() {
-        return objectiveZ;
+    @Override
+    protected double combineObjectives(double[] objectives) {
+        double sum = 0.0;
+        for (double objective : objectives) {
+            sum += objective;
+        }
+        return sum;
     }
 
-    /**
-     * Get the time it took to solve the linear program in the previous ({@link #perform()} call.
-     *
-     * @return Solve time (ms)
-     */
-    public long getSolveTimeMs() {
-        return solveTimeMs;
+    @Override
+    protected double getBandwidth(Flow flow, double value, double objectiveZ) {
+        return value;
     }
 
 }
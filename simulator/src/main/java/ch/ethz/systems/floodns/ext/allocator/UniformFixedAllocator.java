@@ -44,6 +44,14 @@ public class UniformFixedAllocator extends Allocator {
         this.uniformFlowBandwidth = uniformFlowBandwidth;
     }
 
+    /**
+     * The uniform allocation only depends on the links and the paths of the active flows.
+     */
+    @Override
+    public boolean dependsOnlyOnNetwork() {
+        return true;
+    }
+
     @Override
     public void perform() {
 
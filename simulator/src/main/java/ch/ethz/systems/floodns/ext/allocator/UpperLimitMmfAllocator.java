@@ -25,23 +25,20 @@
 package ch.ethz.systems.floodns.ext.allocator;
 
 import ch.ethz.systems.floodns.core.Flow;
-import ch.ethz.systems.floodns.core.Link;
 import ch.ethz.systems.floodns.core.Network;
 import ch.ethz.systems.floodns.core.Simulator;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
- * The simple max-min fair share (MMFS) allocator takes the tightest link in each step and
- * separates the allocation fairly between the (unfixed) flows on the link.
- * This iterative greedy process will converge with a fair allocation per flow,
- * though not necessarily optimal in terms of total sum of throughput.
- * The simple algorithm does not include flow weights or upper limits.
+ * The upper limited max-min fair share (MMFS) allocator raises the fair share level of all unfixed flows
+ * until either a link is saturated, upon which all its unfixed flows are fixed at the level, or the
+ * upper limit of a flow is reached, upon which that flow is fixed at its upper limit. The link levels
+ * and the flow upper limits are each kept in a priority queue (see {@link WaterFillingEngine}).
+ * The algorithm does not include flow weights.
  *
- * Runtime is O(|E|^2 + |E|*|F|).
+ * Runtime is O(|F| * |path| + (|C| * |path|) * log |E| + |C| * log |C|), with C the classes of flows with the
+ * same path and upper limit.
  *
  * ------------
  *
@@ -54,7 +51,7 @@ import java.util.Set;
  * (2) Computer Networks: Performance and Quality of Service by Ivan Marsic
  *     http://www.ece.rutgers.edu/~marsic/books/CN/book-CN_marsic.pdf : page 315 (retrieved 25 April 2018)
  */
-public class UpperLimitMmfAllocator extends Allocator {
+public class UpperLimitMmfAllocator extends WaterFillingAllocator {
 
     private final Map<Flow, Double> flowToUpperLimit;
 
@@ -71,63 +68,12 @@ public class UpperLimitMmfAllocator extends Allocator {
     }
 
     /**
-     * Perform the upper limited weighted max-min fair allocation.
+     * Water-fill the upper limited max-min fair allocation.
      */
     @Override
-    public void perform() {
-
-        // Reset all flow bandwidth to zero
-        for (Flow f : network.getActiveFlows()) {
-            simulator.allocateFlowBandwidth(f, 0);
-        }
-
-        // Decide which flows are fixed
-        Set<Link> linksWithUnfixedFlows = new HashSet<>(network.getFlowActiveLinks());
-        Map<Link, Set<Flow>> linkToUnfixedFlows = new HashMap<>();
-        for (Link l : linksWithUnfixedFlows) {
-            linkToUnfixedFlows.put(l, new HashSet<>(l.getActiveFlows()));
-        }
-
-        while (linksWithUnfixedFlows.size() != 0) {
-
-            Flow tightestFlow = null;
-            double tightestAllocation = Double.MAX_VALUE;
-
-            // Go over all the links, and calculate the fair appropriation rate
-            for (Link link : linksWithUnfixedFlows) {
-
-                // For each flow, calculate its fair share and see if it is the tightest
-                for (Flow f : linkToUnfixedFlows.get(link)) {
-
-                    // Min of the fair share and its upper limit
-                    double fairAllocation = Math.min(
-                            flowToUpperLimit.get(f),
-                            link.getRemainderCapacity() / linkToUnfixedFlows.get(link).size()
-                    );
-
-                    // If it is the tightest, set is as such
-                    if (fairAllocation < tightestAllocation) {
-                        tightestAllocation = fairAllocation;
-                        tightestFlow = f;
-                    }
-                }
-
-            }
-
-            // There was at least one flow present
-            assert(tightestFlow != null);
-
-            // Fix the tightest flow
-            simulator.allocateFlowBandwidth(tightestFlow, tightestAllocation);
-            for (Link l : tightestFlow.getPath()) {
-                linkToUnfixedFlows.get(l).remove(tightestFlow);
-                if (linkToUnfixedFlows.get(l).size() == 0) {
-                    linksWithUnfixedFlows.remove(l);
-                }
-            }
-
-        }
-
+    void fill(WaterFillingEngine engine, Flow[] flows, int numFlows) {
+        engine.build(flows, numFlows, null, flowToUpperLimit);
+        engine.waterFill();
     }
 
 }
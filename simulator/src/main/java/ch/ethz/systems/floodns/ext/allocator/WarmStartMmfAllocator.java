@@ -0,0 +1,355 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.*;
+
+import java.util.*;
+
+/**
+ * The warm-start max-min fair share (MMFS) allocator results in the same allocation as the
+ * {@link SimpleMmfAllocator}, but retains the water-filling of the previous aftermath: the sequence of
+ * steps, each with its bottleneck link and level, and the flows fixed in each step. The steps up to the first
+ * step which is invalidated by the {@link NetworkChangeSet network change set} are kept, and the water-filling
+ * is resumed from there, such that only the flows fixed at or after that step are allocated anew.
+ *
+ * A step remains valid as long as (a) its bottleneck link did not change, (b) no flow fixed in it was
+ * reallocated outside of the aftermath, and (c) no changed link is tighter than its level. The fair share of an
+ * unchanged link evolves as before while the steps are the same, so only the changed links need to be re-validated,
+ * for which their fair share over the steps is determined from the steps their flows were fixed in.
+ *
+ * Runtime is O(|C| * |F_c| * log |F_c| + (|F_r| * |path|) * log |E|), with C the changed links, F_c the flows
+ * on a changed link and F_r the flows fixed at or after the first invalidated step.
+ */
+public class WarmStartMmfAllocator extends Allocator {
+
+    // Steps of the water-filling, each with its bottleneck link, level, maximum level so far and end in the fix order
+    private int numSteps;
+    private Link[] stepBottleneck;
+    private double[] stepLevel;
+    private double[] stepMaxLevel;
+    private int[] stepEnd;
+
+    // Flows in the order they were fixed, and their step
+    private final ArrayList<Flow> fixOrder;
+    private final Map<Flow, Integer> flowToStep;
+    private final Map<Link, Integer> bottleneckToStep;
+
+    // Statistics
+    private long numStepsReused;
+    private long numStepsComputed;
+
+    public WarmStartMmfAllocator(Simulator simulator, Network network) {
+        super(simulator, network);
+        this.numSteps = 0;
+        this.stepBottleneck = new Link[16];
+        this.stepLevel = new double[16];
+        this.stepMaxLevel = new double[16];
+        this.stepEnd = new int[16];
+        this.fixOrder = new ArrayList<>();
+        this.flowToStep = new HashMap<>();
+        this.bottleneckToStep = new HashMap<>();
+        this.numStepsReused = 0;
+        this.numStepsComputed = 0;
+    }
+
+    /**
+     * The max-min fair allocation only depends on the links and the paths of the active flows.
+     */
+    @Override
+    public boolean dependsOnlyOnNetwork() {
+        return true;
+    }
+
+    /**
+     * Allocate each flow fixed at or after the first invalidated step of the previous water-filling
+     * its entitled bandwidth according to the Max-Min Fair Rate Allocation.
+     */
+    @Override
+    public void perform() {
+
+        // Keep the valid steps, and take out the flows of the invalidated steps
+        int firstInvalid = findFirstInvalidStep(network.getChangeSet());
+        List<Flow> unfixed = truncate(firstInvalid);
+        for (Flow f : network.getChangeSet().getStartedFlows()) {
+            unfixed.add(f);
+        }
+
+        // Every active flow must either have been fixed in a kept step or be unfixed, which does not
+        // hold if flows were started before the first aftermath without being recorded
+        if (fixOrder.size() + unfixed.size() != network.getActiveFlows().size()) {
+            truncate(0);
+            unfixed = new ArrayList<>(network.getActiveFlows());
+            firstInvalid = 0;
+        }
+        numStepsReused += firstInvalid;
+
+        // Remaining capacity for the unfixed flows, and their number on each link
+        Map<Link, Double> linkToRemaining = new HashMap<>();
+        Map<Link, Integer> linkToNumUnfixed = new HashMap<>();
+        for (Flow f : unfixed) {
+            for (Link link : f.getPath()) {
+                Double remaining = linkToRemaining.get(link);
+                if (remaining == null) {
+                    linkToRemaining.put(link, link.getRemainderCapacity() + f.getCurrentBandwidth());
+                    linkToNumUnfixed.put(link, 1);
+                } else {
+                    linkToRemaining.put(link, remaining + f.getCurrentBandwidth());
+                    linkToNumUnfixed.put(link, linkToNumUnfixed.get(link) + 1);
+                }
+            }
+        }
+
+        // Order the links by fair share (ties broken by link identifier)
+        final Map<Link, Double> linkToShare = new HashMap<>();
+        TreeSet<Link> tightness = new TreeSet<>(new Comparator<Link>() {
+            @Override
+            public int compare(Link a, Link b) {
+                int c = Double.compare(linkToShare.get(a), linkToShare.get(b));
+                return c != 0 ? c : Integer.compare(a.getLinkId(), b.getLinkId());
+            }
+        });
+        for (Link link : linkToRemaining.keySet()) {
+            linkToShare.put(link, linkToRemaining.get(link) / linkToNumUnfixed.get(link));
+            tightness.add(link);
+        }
+
+        // Resume: each time fix the unfixed flows of the tightest link
+        int resumeStart = fixOrder.size();
+        while (!tightness.isEmpty()) {
+            Link bottleneck = tightness.pollFirst();
+            double level = Math.max(0.0, linkToShare.get(bottleneck));
+            for (Flow f : bottleneck.getActiveFlows()) {
+                if (flowToStep.containsKey(f)) {
+                    continue;
+                }
+                flowToStep.put(f, numSteps);
+                fixOrder.add(f);
+                for (Link link : f.getPath()) {
+                    if (link == bottleneck) {
+                        continue;
+                    }
+                    tightness.remove(link);
+                    int numUnfixed = linkToNumUnfixed.get(link) - 1;
+                    double remaining = linkToRemaining.get(link) - level;
+                    linkToNumUnfixed.put(link, numUnfixed);
+                    linkToRemaining.put(link, remaining);
+                    if (numUnfixed > 0) {
+                        linkToShare.put(link, remaining / numUnfixed);
+                        tightness.add(link);
+                    }
+                }
+            }
+            addStep(bottleneck, level);
+        }
+
+        // Commit the rates of the flows fixed anew
+        int numFixed = fixOrder.size() - resumeStart;
+        Flow[] flows = new Flow[numFixed];
+        double[] rates = new double[numFixed];
+        for (int i = 0; i < numFixed; i++) {
+            flows[i] = fixOrder.get(resumeStart + i);
+            rates[i] = stepLevel[flowToStep.get(flows[i])];
+        }
+        simulator.allocateFlowBandwidths(flows, rates, numFixed);
+
+    }
+
+    /**
+     * Find the first step of the previous water-filling which is invalidated by the changes.
+     *
+     * @param changeSet     Changes since the previous aftermath
+     *
+     * @return  First invalid step (the number of steps if all are valid)
+     */
+    int findFirstInvalidStep(NetworkChangeSet changeSet) {
+        int firstInvalid = numSteps;
+
+        // Steps in which a flow was fixed which was reallocated since
+        for (Flow f : changeSet.getReallocatedFlows()) {
+            Integer step = flowToStep.get(f);
+            if (step != null) {
+                firstInvalid = Math.min(firstInvalid, step);
+            }
+        }
+
+        // Steps of which the bottleneck changed, or at which a changed link is tighter than the level
+        for (Link link : changeSet.getChangedLinks()) {
+            Integer step = bottleneckToStep.get(link);
+            if (step != null) {
+                firstInvalid = Math.min(firstInvalid, step);
+            }
+            if (!link.getActiveFlowIds().isEmpty()) {
+                firstInvalid = Math.min(firstInvalid, findFirstTighterStep(link));
+            }
+        }
+
+        return firstInvalid;
+    }
+
+    /**
+     * Find the first step at which the link with its current flows would have been tighter than
+     * the level of the step, if the flows already on it were fixed in the same steps as before.
+     *
+     * @param link  Changed link
+     *
+     * @return  First step at which the link is tighter (the number of steps if none)
+     */
+    private int findFirstTighterStep(Link link) {
+
+        // Steps in which the flows on the link were fixed (new flows were not)
+        int numFlows = link.getActiveFlowIds().size();
+        int[] steps = new int[numFlows];
+        int numFixed = 0;
+        for (Flow f : link.getActiveFlows()) {
+            Integer step = flowToStep.get(f);
+            if (step != null) {
+                steps[numFixed++] = step;
+            }
+        }
+        Arrays.sort(steps, 0, numFixed);
+
+        // Between fixing steps the fair share is constant, and the link must not be tighter than the level of each step
+        double remaining = link.getCapacity();
+        int numUnfixed = numFlows;
+        int from = 0;
+        int i = 0;
+        while (i < numFixed) {
+            int step = steps[i];
+            int tighter = findFirstLevelAbove(from, step + 1, remaining / numUnfixed);
+            if (tighter != -1) {
+                return tighter;
+            }
+            while (i < numFixed && steps[i] == step) {
+                remaining -= stepLevel[step];
+                numUnfixed--;
+                i++;
+            }
+            from = step + 1;
+        }
+        if (numUnfixed > 0) {
+            int tighter = findFirstLevelAbove(from, numSteps, remaining / numUnfixed);
+            if (tighter != -1) {
+                return tighter;
+            }
+        }
+        return numSteps;
+
+    }
+
+    /**
+     * Find the first step in a range of which the level exceeds the given fair share.
+     *
+     * @param from      First step (inclusive)
+     * @param to        Last step (exclusive)
+     * @param share     Fair share
+     *
+     * @return  First step with a higher level, or -1 if none
+     */
+    private int findFirstLevelAbove(int from, int to, double share) {
+        if (from >= to || stepMaxLevel[to - 1] <= share) {
+            return -1;
+        }
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (stepMaxLevel[mid] > share) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Remove the steps from the given step onwards, and return the flows fixed in them which are still active.
+     *
+     * @param fromStep  First step to remove
+     *
+     * @return  Active flows of the removed steps
+     */
+    private List<Flow> truncate(int fromStep) {
+        int fromFix = fromStep == 0 ? 0 : stepEnd[fromStep - 1];
+        List<Flow> removed = new ArrayList<>();
+        for (int i = fromFix; i < fixOrder.size(); i++) {
+            Flow f = fixOrder.get(i);
+            flowToStep.remove(f);
+            if (network.getActiveFlow(f.getFlowId()) == f) {
+                removed.add(f);
+            }
+        }
+        fixOrder.subList(fromFix, fixOrder.size()).clear();
+        for (int s = fromStep; s < numSteps; s++) {
+            bottleneckToStep.remove(stepBottleneck[s]);
+            stepBottleneck[s] = null;
+        }
+        numSteps = fromStep;
+        return removed;
+    }
+
+    /**
+     * Append a step to the water-filling.
+     *
+     * @param bottleneck    Bottleneck link
+     * @param level         Level at which the flows were fixed
+     */
+    private void addStep(Link bottleneck, double level) {
+        if (numSteps == stepLevel.length) {
+            int length = 2 * numSteps;
+            stepBottleneck = Arrays.copyOf(stepBottleneck, length);
+            stepLevel = Arrays.copyOf(stepLevel, length);
+            stepMaxLevel = Arrays.copyOf(stepMaxLevel, length);
+            stepEnd = Arrays.copyOf(stepEnd, length);
+        }
+        stepBottleneck[numSteps] = bottleneck;
+        stepLevel[numSteps] = level;
+        stepMaxLevel[numSteps] = numSteps == 0 ? level : Math.max(level, stepMaxLevel[numSteps - 1]);
+        stepEnd[numSteps] = fixOrder.size();
+        bottleneckToStep.put(bottleneck, numSteps);
+        numSteps++;
+        numStepsComputed++;
+    }
+
+    /**
+     * Retrieve the total number of water-filling steps which were kept from the previous aftermath.
+     *
+     * @return  Number of reused steps
+     */
+    public long getNumStepsReused() {
+        return numStepsReused;
+    }
+
+    /**
+     * Retrieve the total number of water-filling steps which were computed.
+     *
+     * @return  Number of computed steps
+     */
+    public long getNumStepsComputed() {
+        return numStepsComputed;
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+
+import java.util.Arrays;
+
+/**
+ * The water-filling allocator is the base of the allocators which water-fill the active flows with a
+ * {@link WaterFillingEngine}. Each aftermath the active flows are indexed into a re-used array, the engine
+ * is built and filled by the fill step of the allocator, and the resulting rates are committed at once.
+ * An allocator only defines its fill step ({@link #fill(WaterFillingEngine, Flow[], int)}).
+ */
+public abstract class WaterFillingAllocator extends Allocator {
+
+    private final WaterFillingEngine engine;
+    private Flow[] flows;
+
+    public WaterFillingAllocator(Simulator simulator, Network network) {
+        super(simulator, network);
+        this.engine = new WaterFillingEngine();
+        this.flows = new Flow[0];
+    }
+
+    /**
+     * Allocate each flow the rate resulting from the fill step.
+     */
+    @Override
+    public void perform() {
+        fillAndCommit();
+    }
+
+    /**
+     * Index the active flows, build and fill the engine with the fill step, and commit the rates at once.
+     */
+    protected void fillAndCommit() {
+
+        // Water-fill
+        int numFlows = indexActiveFlows();
+        fill(engine, flows, numFlows);
+
+        // Commit the rates at once
+        simulator.allocateFlowBandwidths(flows, engine.getRates(), numFlows);
+
+        // Do not retain the flows
+        releaseFlows(numFlows);
+
+    }
+
+    /**
+     * Build the engine over the flows and water-fill it, such that the engine holds the rate of each flow.
+     *
+     * @param engine    Water-filling engine
+     * @param flows     Flows (first numFlows entries)
+     * @param numFlows  Number of flows
+     */
+    abstract void fill(WaterFillingEngine engine, Flow[] flows, int numFlows);
+
+    /**
+     * Retrieve the water-filling engine.
+     *
+     * @return  Water-filling engine
+     */
+    WaterFillingEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Retrieve the array the active flows are indexed into (only valid up to the number of indexed flows).
+     *
+     * @return  Flow array
+     */
+    Flow[] getFlows() {
+        return flows;
+    }
+
+    /**
+     * Put the active flows in the flow array.
+     *
+     * @return  Number of active flows
+     */
+    int indexActiveFlows() {
+        int numFlows = network.getActiveFlows().size();
+        if (flows.length < numFlows) {
+            flows = new Flow[Math.max(numFlows, 2 * flows.length)];
+        }
+        int i = 0;
+        for (Flow f : network.getActiveFlows()) {
+            flows[i++] = f;
+        }
+        return numFlows;
+    }
+
+    /**
+     * Clear the indexed flows from the flow array, such that they are not retained.
+     *
+     * @param numFlows  Number of indexed flows
+     */
+    void releaseFlows(int numFlows) {
+        Arrays.fill(flows, 0, numFlows, null);
+    }
+
+}
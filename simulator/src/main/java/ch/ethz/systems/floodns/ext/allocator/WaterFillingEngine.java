@@ -0,0 +1,877 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Link;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The <b>water-filling engine</b> performs (optionally weighted and upper limited) max-min fair water-filling
+ * over primitive arrays. Flows which traverse the same path (with the same weight and upper limit) necessarily
+ * receive the same rate, as such they are aggregated into a flow class with a multiplicity, and the water-filling
+ * is performed over the classes. The flow classes and the links on their paths are mapped to dense indices,
+ * with the class-link incidence stored in compressed (CSR) form in both directions. The tightest link is retrieved
+ * from an indexed binary min-heap of link fair share levels, such that an iteration does not allocate any objects.
+ * All arrays are retained and only grown, such that repeated use does not allocate either.
+ *
+ * The fair share level of a link is its remaining capacity divided by the (sum of the weights of the) unfixed
+ * flows on it (a class counting as often as its multiplicity), and an unfixed flow receives its weight times
+ * the level. In each step either all unfixed flows of the tightest link are fixed, or, if the upper limit of a
+ * flow is reached at a lower level (upper limit divided by weight, kept in a binary min-heap), that flow is
+ * fixed at its upper limit. The remaining capacity and weight sum of the links on the path of a fixed flow are
+ * updated incrementally.
+ *
+ * The links can be partitioned into the connected components of the flow-link graph, each of which can
+ * be water-filled independently (and concurrently), as each only reads and writes the entries of
+ * its own flows and links.
+ *
+ * Alternatively, the water can be filled in geometric levels of factor (1 + epsilon), which only satisfies
+ * a relaxed bottleneck condition (see {@link #waterFillGeometrically(double)}), for which the links are kept
+ * in bucket lists instead of the heap.
+ */
+class WaterFillingEngine {
+
+    // Dense indexing
+    private int numFlows;
+    private int numClasses;
+    private int numLinks;
+    private Link[] links;
+    private int[] linkIdToIndex;
+
+    // Flow classes (flows with the same path, weight and upper limit), in order of their first flow
+    private int[] flowClass;
+    private int[] multiplicity;
+    private int[] classTable;
+
+    // Class-to-link incidence (compressed)
+    private int[] classLinkStart;
+    private int[] classLinks;
+
+    // Link-to-class incidence (compressed)
+    private int[] linkClassStart;
+    private int[] linkClasses;
+
+    // Optional flow class weights and upper limits
+    private boolean weighted;
+    private boolean upperLimited;
+    private double[] weight;
+    private double[] upperLimit;
+
+    // Components with their flow classes and links (compressed), in order of their first flow
+    private int numComponents;
+    private int[] componentLinkStart;
+    private int[] componentLinks;
+    private int[] componentClassStart;
+    private int[] componentClasses;
+    private int[] linkComponent;
+
+    // Water-filling state (the heap of a component is located at its link range of the heap array)
+    private double[] remaining;
+    private int[] numUnfixed;
+    private double[] weightSum;
+    private double[] share;
+    private int[] heap;
+    private int[] heapPosition;
+    private int[] classHeap;
+    private double[] classRate;
+    private boolean[] fixed;
+    private double[] flowRate;
+
+    // Geometric water-filling state (doubly linked bucket lists of links, one bucket per geometric level)
+    private int[] bucketHead;
+    private int[] bucketNext;
+    private int[] bucketPrevious;
+    private int[] linkBucket;
+    private double[] bucketLevel;
+    private double bucketsPerOctave;
+
+    // Scratch space for building
+    private int[] fillPosition;
+    private int[] componentPosition;
+    private double[] flowWeight;
+    private double[] flowUpperLimit;
+
+    WaterFillingEngine() {
+        this.links = new Link[0];
+        this.linkIdToIndex = new int[0];
+        this.flowClass = new int[0];
+        this.multiplicity = new int[0];
+        this.classTable = new int[0];
+        this.classLinkStart = new int[1];
+        this.classLinks = new int[0];
+        this.linkClassStart = new int[1];
+        this.linkClasses = new int[0];
+        this.componentLinkStart = new int[2];
+        this.componentLinks = new int[0];
+        this.componentClassStart = new int[2];
+        this.componentClasses = new int[0];
+        this.linkComponent = new int[0];
+        this.weighted = false;
+        this.upperLimited = false;
+        this.weight = new double[0];
+        this.upperLimit = new double[0];
+        this.remaining = new double[0];
+        this.numUnfixed = new int[0];
+        this.weightSum = new double[0];
+        this.share = new double[0];
+        this.heap = new int[0];
+        this.heapPosition = new int[0];
+        this.classHeap = new int[0];
+        this.classRate = new double[0];
+        this.fixed = new boolean[0];
+        this.flowRate = new double[0];
+        this.bucketHead = new int[0];
+        this.bucketNext = new int[0];
+        this.bucketPrevious = new int[0];
+        this.linkBucket = new int[0];
+        this.bucketLevel = new double[0];
+        this.fillPosition = new int[0];
+        this.componentPosition = new int[0];
+        this.flowWeight = new double[0];
+        this.flowUpperLimit = new double[0];
+    }
+
+    /**
+     * Map the flows and the links on their paths to dense indices, and build the incidence arrays.
+     * All flows are considered to be in a single component.
+     *
+     * @param flows     Flows (flow index i is flows[i])
+     * @param numFlows  Number of flows
+     */
+    void build(Flow[] flows, int numFlows) {
+        build(flows, numFlows, null, null);
+    }
+
+    /**
+     * Map the flows and the links on their paths to dense indices, and build the incidence arrays.
+     * All flows are considered to be in a single component.
+     *
+     * @param flows             Flows (flow index i is flows[i])
+     * @param numFlows          Number of flows
+     * @param flowToWeight      Flow-to-weight mapping (null, if all have weight 1)
+     * @param flowToUpperLimit  Flow-to-upper-limit mapping (null, if none have an upper limit)
+     */
+    void build(Flow[] flows, int numFlows, Map<Flow, Double> flowToWeight, Map<Flow, Double> flowToUpperLimit) {
+        this.numFlows = numFlows;
+
+        // Weights and upper limits
+        weighted = flowToWeight != null;
+        upperLimited = flowToUpperLimit != null;
+        flowWeight = grow(flowWeight, numFlows);
+        flowUpperLimit = grow(flowUpperLimit, numFlows);
+        for (int i = 0; i < numFlows; i++) {
+            flowWeight[i] = weighted ? flowToWeight.get(flows[i]) : 1.0;
+            flowUpperLimit[i] = upperLimited ? flowToUpperLimit.get(flows[i]) : Double.MAX_VALUE;
+        }
+
+        // Flow-to-link incidence, indexing the links in order of appearance
+        int totalPathLength = 0;
+        for (int i = 0; i < numFlows; i++) {
+            totalPathLength += flows[i].getPath().size();
+        }
+        classLinkStart = grow(classLinkStart, numFlows + 1);
+        classLinks = grow(classLinks, totalPathLength);
+        if (links.length < totalPathLength) {
+            links = new Link[Math.max(totalPathLength, 2 * links.length)];
+        }
+        numLinks = 0;
+        int k = 0;
+        for (int i = 0; i < numFlows; i++) {
+            classLinkStart[i] = k;
+            for (Link link : flows[i].getPath()) {
+                int linkId = link.getLinkId();
+                if (linkId >= linkIdToIndex.length) {
+                    int oldLength = linkIdToIndex.length;
+                    linkIdToIndex = Arrays.copyOf(linkIdToIndex, Math.max(linkId + 1, 2 * oldLength));
+                    Arrays.fill(linkIdToIndex, oldLength, linkIdToIndex.length, -1);
+                }
+                int index = linkIdToIndex[linkId];
+                if (index == -1) {
+                    index = numLinks++;
+                    linkIdToIndex[linkId] = index;
+                    links[index] = link;
+                }
+                classLinks[k++] = index;
+            }
+        }
+        classLinkStart[numFlows] = k;
+
+        // Reset the link identifier mapping for the next build
+        for (int l = 0; l < numLinks; l++) {
+            linkIdToIndex[links[l].getLinkId()] = -1;
+        }
+
+        // Aggregate the flows into classes, compacting the incidence to that of the classes (the first flow
+        // of a class is never before the class position, as such the compaction does not overwrite unread entries)
+        aggregateIntoClasses();
+
+        // Link-to-class incidence
+        totalPathLength = classLinkStart[numClasses];
+        linkClassStart = grow(linkClassStart, numLinks + 1);
+        Arrays.fill(linkClassStart, 0, numLinks + 1, 0);
+        for (int j = 0; j < totalPathLength; j++) {
+            linkClassStart[classLinks[j] + 1]++;
+        }
+        for (int l = 0; l < numLinks; l++) {
+            linkClassStart[l + 1] += linkClassStart[l];
+        }
+        linkClasses = grow(linkClasses, totalPathLength);
+        fillPosition = grow(fillPosition, numLinks + 1);
+        System.arraycopy(linkClassStart, 0, fillPosition, 0, numLinks);
+        for (int c = 0; c < numClasses; c++) {
+            for (int j = classLinkStart[c]; j < classLinkStart[c + 1]; j++) {
+                linkClasses[fillPosition[classLinks[j]]++] = c;
+            }
+        }
+
+        // State
+        linkComponent = grow(linkComponent, numLinks);
+        remaining = grow(remaining, numLinks);
+        numUnfixed = grow(numUnfixed, numLinks);
+        share = grow(share, numLinks);
+        heap = grow(heap, numLinks);
+        heapPosition = grow(heapPosition, numLinks);
+        classRate = grow(classRate, numClasses);
+        fixed = grow(fixed, numClasses);
+        classHeap = grow(classHeap, numClasses);
+        flowRate = grow(flowRate, numFlows);
+        if (weighted) {
+            weightSum = grow(weightSum, numLinks);
+        }
+
+        // All in a single component
+        numComponents = 1;
+        componentLinkStart[0] = 0;
+        componentLinkStart[1] = numLinks;
+        componentClassStart[0] = 0;
+        componentClassStart[1] = numClasses;
+        componentLinks = grow(componentLinks, numLinks);
+        for (int l = 0; l < numLinks; l++) {
+            componentLinks[l] = l;
+        }
+        componentClasses = grow(componentClasses, numClasses);
+        for (int c = 0; c < numClasses; c++) {
+            componentClasses[c] = c;
+        }
+
+    }
+
+    /**
+     * Aggregate the flows with the same link sequence, weight and upper limit into classes using an
+     * open-addressing hash table over the link sequences, and compact the incidence arrays to the classes.
+     */
+    private void aggregateIntoClasses() {
+
+        // Hash table of at most half load
+        int tableSize = Integer.highestOneBit(Math.max(1, numFlows)) << 2;
+        classTable = grow(classTable, tableSize);
+        Arrays.fill(classTable, 0, tableSize, -1);
+        int mask = tableSize - 1;
+
+        // Class of each flow (the table refers to the compacted incidence of the class)
+        flowClass = grow(flowClass, numFlows);
+        multiplicity = grow(multiplicity, numFlows);
+        weight = grow(weight, numFlows);
+        upperLimit = grow(upperLimit, numFlows);
+        numClasses = 0;
+        int k = 0;
+        for (int i = 0; i < numFlows; i++) {
+            int from = classLinkStart[i];
+            int to = classLinkStart[i + 1];
+            int hash = 17;
+            for (int j = from; j < to; j++) {
+                hash = 31 * hash + classLinks[j];
+            }
+            hash ^= hash >>> 16;
+
+            // Find the class, or otherwise the slot for a new one
+            int slot = (hash * 0x9E3779B9) & mask;
+            int c;
+            while ((c = classTable[slot]) != -1 && !isOfClass(from, to, flowWeight[i], flowUpperLimit[i], c)) {
+                slot = (slot + 1) & mask;
+            }
+
+            // New class
+            if (c == -1) {
+                c = numClasses++;
+                classTable[slot] = c;
+                multiplicity[c] = 0;
+                weight[c] = flowWeight[i];
+                upperLimit[c] = flowUpperLimit[i];
+                classLinkStart[c] = k;
+                for (int j = from; j < to; j++) {
+                    classLinks[k++] = classLinks[j];
+                }
+                classLinkStart[c + 1] = k;
+            }
+            flowClass[i] = c;
+            multiplicity[c]++;
+
+        }
+
+    }
+
+    /**
+     * Check whether the flow with the given (not yet compacted) link sequence, weight and upper limit
+     * is of the given class.
+     */
+    private boolean isOfClass(int from, int to, double w, double u, int c) {
+        if (classLinkStart[c + 1] - classLinkStart[c] != to - from || weight[c] != w || upperLimit[c] != u) {
+            return false;
+        }
+        for (int j = from, m = classLinkStart[c]; j < to; j++, m++) {
+            if (classLinks[j] != classLinks[m]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Partition the links into the connected components of the flow-link graph, using union-find
+     * over the flow paths. Must be called after {@link #build(Flow[], int)}.
+     *
+     * @return  Number of components
+     */
+    int partitionIntoComponents() {
+
+        // Union the links along each flow path (the heap array serves as parent array)
+        int[] parent = heap;
+        for (int l = 0; l < numLinks; l++) {
+            parent[l] = l;
+        }
+        for (int i = 0; i < numClasses; i++) {
+            int first = classLinks[classLinkStart[i]];
+            for (int j = classLinkStart[i] + 1; j < classLinkStart[i + 1]; j++) {
+                union(parent, first, classLinks[j]);
+            }
+        }
+
+        // Number the components in order of their first flow
+        Arrays.fill(linkComponent, 0, numLinks, -1);
+        numComponents = 0;
+        int[] classComponent = grow(fillPosition, Math.max(numClasses, numLinks + 1));
+        fillPosition = classComponent;
+        for (int i = 0; i < numClasses; i++) {
+            int root = find(parent, classLinks[classLinkStart[i]]);
+            if (linkComponent[root] == -1) {
+                linkComponent[root] = numComponents++;
+            }
+            classComponent[i] = linkComponent[root];
+        }
+
+        // Number of flows and links of each component
+        componentLinkStart = grow(componentLinkStart, numComponents + 1);
+        componentClassStart = grow(componentClassStart, numComponents + 1);
+        Arrays.fill(componentLinkStart, 0, numComponents + 1, 0);
+        Arrays.fill(componentClassStart, 0, numComponents + 1, 0);
+        for (int i = 0; i < numClasses; i++) {
+            componentClassStart[classComponent[i] + 1]++;
+        }
+        for (int l = 0; l < numLinks; l++) {
+            linkComponent[l] = linkComponent[find(parent, l)];
+            componentLinkStart[linkComponent[l] + 1]++;
+        }
+        for (int c = 0; c < numComponents; c++) {
+            componentClassStart[c + 1] += componentClassStart[c];
+            componentLinkStart[c + 1] += componentLinkStart[c];
+        }
+
+        // Links and flows of each component
+        componentPosition = grow(componentPosition, numComponents);
+        int[] position = componentPosition;
+        System.arraycopy(componentLinkStart, 0, position, 0, numComponents);
+        for (int l = 0; l < numLinks; l++) {
+            componentLinks[position[linkComponent[l]]++] = l;
+        }
+        System.arraycopy(componentClassStart, 0, position, 0, numComponents);
+        for (int i = 0; i < numClasses; i++) {
+            componentClasses[position[classComponent[i]]++] = i;
+        }
+
+        return numComponents;
+
+    }
+
+    /**
+     * Water-fill all components.
+     */
+    void waterFill() {
+        for (int c = 0; c < numComponents; c++) {
+            waterFill(c);
+        }
+    }
+
+    /**
+     * Water-fill a single component, which only reads and writes the state of its own flows and links.
+     *
+     * @param c     Component index
+     */
+    void waterFill(int c) {
+
+        // Initially all flows are unfixed
+        int classBase = componentClassStart[c];
+        int classHeapSize = 0;
+        for (int k = componentClassStart[c]; k < componentClassStart[c + 1]; k++) {
+            int f = componentClasses[k];
+            fixed[f] = false;
+            if (upperLimited) {
+                classHeap[classBase + classHeapSize++] = f;
+            }
+        }
+        for (int p = classHeapSize / 2 - 1; p >= 0; p--) {
+            siftDownClass(classBase, classHeapSize, p);
+        }
+
+        // Initially the full capacity is available for all flows
+        int base = componentLinkStart[c];
+        int size = 0;
+        for (int k = componentLinkStart[c]; k < componentLinkStart[c + 1]; k++) {
+            int l = componentLinks[k];
+            remaining[l] = links[l].getCapacity();
+            initializeUnfixed(l);
+            updateShare(l);
+            heap[base + size] = l;
+            heapPosition[l] = size;
+            size++;
+        }
+        for (int p = size / 2 - 1; p >= 0; p--) {
+            siftDown(base, size, p);
+        }
+
+        // Each time fix the unfixed flows of the tightest link, or a flow reaching its upper limit before
+        while (size > 0) {
+            int tightest = heap[base];
+            double level = Math.max(0.0, share[tightest]);
+
+            // Upper limit is reached first
+            if (upperLimited) {
+                while (classHeapSize > 0 && fixed[classHeap[classBase]]) {
+                    classHeapSize = removeClassHeapTop(classBase, classHeapSize);
+                }
+                if (classHeapSize > 0 && upperLimitLevel(classHeap[classBase]) <= level) {
+                    int f = classHeap[classBase];
+                    classHeapSize = removeClassHeapTop(classBase, classHeapSize);
+                    size = fix(f, upperLimit[f], base, size);
+                    continue;
+                }
+            }
+
+            // Fix all unfixed flows of the tightest link at the level
+            for (int k = linkClassStart[tightest]; k < linkClassStart[tightest + 1]; k++) {
+                int f = linkClasses[k];
+                if (!fixed[f]) {
+                    size = fix(f, weighted ? weight[f] * level : level, base, size);
+                }
+            }
+
+        }
+
+    }
+
+    /**
+     * Water-fill all flows in geometric levels. The links are put in buckets by their fair share:
+     * bucket 0 holds the links without any capacity left, and bucket k &gt; 0 the links with a fair share
+     * in [m * (1 + epsilon)^(k - 1), m * (1 + epsilon)^k), with m the initial smallest positive fair share.
+     * The buckets are processed in increasing order, each time fixing all unfixed flows of a link in the current
+     * bucket k at the level m * (1 + epsilon)^(k - 1) of the bucket (at most the fair share of any link).
+     * As a consequence, the fair shares never decrease and a link only moves to higher buckets.
+     *
+     * Each flow is fixed at a rate which is the highest of all flows on the link it was fixed by, and that link
+     * is utilized for at least a fraction 1 / (1 + epsilon) of its capacity. With epsilon zero, this would be
+     * the bottleneck condition of the exact max-min fair allocation.
+     *
+     * Runtime is O(|E| + |F| * |path| + B) with B = log_{1 + epsilon}(max. capacity / m) buckets,
+     * as moving a link between buckets takes constant time.
+     * Only supported if built without weights or upper limits.
+     *
+     * @param epsilon   Level factor minus one (&gt; 0)
+     */
+    void waterFillGeometrically(double epsilon) {
+        assert(!weighted && !upperLimited && epsilon > 0);
+
+        // Initially all flows are unfixed and the full capacity is available for all flows
+        Arrays.fill(fixed, 0, numClasses, false);
+        double minShare = Double.MAX_VALUE;
+        double maxCapacity = 0.0;
+        for (int l = 0; l < numLinks; l++) {
+            remaining[l] = links[l].getCapacity();
+            initializeUnfixed(l);
+            updateShare(l);
+            if (share[l] > 0) {
+                minShare = Math.min(minShare, share[l]);
+                maxCapacity = Math.max(maxCapacity, remaining[l]);
+            }
+        }
+
+        // Precompute the level of each bucket and the number of buckets per doubling of the fair share,
+        // such that a bucket is found from the binary exponent of a fair share without taking its logarithm
+        double inverseLogFactor = 1.0 / Math.log1p(epsilon);
+        bucketsPerOctave = Math.log(2.0) * inverseLogFactor;
+        int numBuckets = 1;
+        if (maxCapacity > 0) {
+            double numLevels = Math.floor(Math.log(maxCapacity / minShare) * inverseLogFactor);
+            numBuckets = 3 + (int) Math.min(Integer.MAX_VALUE - 4, numLevels);
+        }
+        bucketLevel = grow(bucketLevel, numBuckets);
+        bucketLevel[0] = 0.0;
+        for (int b = 1; b < numBuckets; b++) {
+            bucketLevel[b] = b == 1 ? minShare : bucketLevel[b - 1] * (1 + epsilon);
+        }
+
+        // Put the links in their buckets
+        bucketHead = grow(bucketHead, numBuckets);
+        Arrays.fill(bucketHead, 0, numBuckets, -1);
+        bucketNext = grow(bucketNext, numLinks);
+        bucketPrevious = grow(bucketPrevious, numLinks);
+        linkBucket = grow(linkBucket, numLinks);
+        for (int l = 0; l < numLinks; l++) {
+            addToBucket(l, bucket(share[l], numBuckets - 1));
+        }
+
+        // Each time fix the unfixed flows of a link in the lowest non-empty bucket at the level of that bucket
+        for (int b = 0; b < numBuckets; b++) {
+            while (bucketHead[b] != -1) {
+                int l = bucketHead[b];
+                removeFromBucket(l);
+                double level = Math.max(0.0, Math.min(bucketLevel[b], share[l]));
+                for (int k = linkClassStart[l]; k < linkClassStart[l + 1]; k++) {
+                    int f = linkClasses[k];
+                    if (fixed[f]) {
+                        continue;
+                    }
+                    fixed[f] = true;
+                    classRate[f] = level;
+                    for (int j = classLinkStart[f]; j < classLinkStart[f + 1]; j++) {
+                        int other = classLinks[j];
+                        remaining[other] -= multiplicity[f] * level;
+                        numUnfixed[other] -= multiplicity[f];
+                        if (linkBucket[other] == -1) {
+                            continue;
+                        }
+                        if (numUnfixed[other] == 0) {
+                            removeFromBucket(other);
+                        } else {
+                            updateShare(other);
+                            int target = Math.max(b, bucket(share[other], numBuckets - 1));
+                            if (target != linkBucket[other]) {
+                                removeFromBucket(other);
+                                addToBucket(other, target);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Determine the geometric level bucket of a fair share. The binary exponent of the fair share relative to
+     * the level of bucket 1 narrows the bucket down to the buckets of one doubling, within which the bucket
+     * is searched for among the precomputed bucket levels.
+     *
+     * @param s             Fair share
+     * @param maxBucket     Largest bucket
+     *
+     * @return  Bucket index
+     */
+    private int bucket(double s, int maxBucket) {
+        if (s <= 0) {
+            return 0;
+        } else if (maxBucket <= 1 || s < bucketLevel[1]) {
+            return Math.min(1, maxBucket);
+        }
+
+        // Bucket range of the doubling of the fair share (with a margin of one for rounding)
+        int exponent = Math.getExponent(s / bucketLevel[1]);
+        int lo = (int) Math.max(1, Math.min(maxBucket, exponent * bucketsPerOctave));
+        int hi = (int) Math.max(1, Math.min(maxBucket, 2 + (exponent + 1) * bucketsPerOctave));
+        while (lo > 1 && bucketLevel[lo] > s) {
+            lo--;
+        }
+
+        // Highest bucket in the range with a level of at most the fair share
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (bucketLevel[mid] <= s) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+
+    }
+
+    private void addToBucket(int l, int b) {
+        linkBucket[l] = b;
+        bucketPrevious[l] = -1;
+        bucketNext[l] = bucketHead[b];
+        if (bucketHead[b] != -1) {
+            bucketPrevious[bucketHead[b]] = l;
+        }
+        bucketHead[b] = l;
+    }
+
+    private void removeFromBucket(int l) {
+        if (bucketPrevious[l] == -1) {
+            bucketHead[linkBucket[l]] = bucketNext[l];
+        } else {
+            bucketNext[bucketPrevious[l]] = bucketNext[l];
+        }
+        if (bucketNext[l] != -1) {
+            bucketPrevious[bucketNext[l]] = bucketPrevious[l];
+        }
+        linkBucket[l] = -1;
+    }
+
+    /**
+     * Fix the rate of a flow class, and update the links on its path.
+     *
+     * @param f         Flow class index
+     * @param r         Rate (of each flow of the class)
+     * @param base      Base of the link heap of the component
+     * @param size      Size of the link heap
+     *
+     * @return  New size of the link heap
+     */
+    private int fix(int f, double r, int base, int size) {
+        fixed[f] = true;
+        classRate[f] = r;
+        for (int j = classLinkStart[f]; j < classLinkStart[f + 1]; j++) {
+            int l = classLinks[j];
+            remaining[l] -= multiplicity[f] * r;
+            numUnfixed[l] -= multiplicity[f];
+            if (weighted) {
+                weightSum[l] -= multiplicity[f] * weight[f];
+            }
+            if (numUnfixed[l] == 0) {
+                size = remove(base, size, heapPosition[l]);
+            } else {
+                updateShare(l);
+                siftDown(base, size, siftUp(base, heapPosition[l]));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Initialize the number of unfixed flows (and their weight sum) of a link to that of all flows on it.
+     *
+     * @param l     Link index
+     */
+    private void initializeUnfixed(int l) {
+        int count = 0;
+        double sum = 0;
+        for (int j = linkClassStart[l]; j < linkClassStart[l + 1]; j++) {
+            int f = linkClasses[j];
+            count += multiplicity[f];
+            if (weighted) {
+                sum += multiplicity[f] * weight[f];
+            }
+        }
+        numUnfixed[l] = count;
+        if (weighted) {
+            weightSum[l] = sum;
+        }
+    }
+
+    /**
+     * Update the fair share level of a link with unfixed flows.
+     *
+     * @param l     Link index
+     */
+    private void updateShare(int l) {
+        if (weighted) {
+            share[l] = weightSum[l] > 0 ? remaining[l] / weightSum[l] : Double.MAX_VALUE;
+        } else {
+            share[l] = remaining[l] / numUnfixed[l];
+        }
+    }
+
+    /**
+     * Level at which the flows of a class reach their upper limit.
+     *
+     * @param f     Flow class index
+     *
+     * @return  Upper limit level
+     */
+    private double upperLimitLevel(int f) {
+        return weight[f] > 0 ? upperLimit[f] / weight[f] : Double.MAX_VALUE;
+    }
+
+    /**
+     * Retrieve the number of flow classes in a range of components.
+     *
+     * @param from  First component (inclusive)
+     * @param to    Last component (exclusive)
+     *
+     * @return  Number of flow classes
+     */
+    int getNumClasses(int from, int to) {
+        return componentClassStart[to] - componentClassStart[from];
+    }
+
+    /**
+     * Retrieve the water-filled rate of a flow.
+     *
+     * @param flowIndex     Flow index
+     *
+     * @return  Max-min fair rate
+     */
+    double getRate(int flowIndex) {
+        return classRate[flowClass[flowIndex]];
+    }
+
+    /**
+     * Retrieve the water-filled rates of all flows, of which only the first number of flows entries
+     * are valid (the rate of flow index i is at index i). The array is overwritten by the next call.
+     *
+     * @return  Rate array
+     */
+    double[] getRates() {
+        for (int i = 0; i < numFlows; i++) {
+            flowRate[i] = classRate[flowClass[i]];
+        }
+        return flowRate;
+    }
+
+    /**
+     * Check whether link a is tighter than link b (ties are broken by index).
+     */
+    private boolean tighter(int a, int b) {
+        return share[a] < share[b] || (share[a] == share[b] && a < b);
+    }
+
+    private int siftUp(int base, int p) {
+        int l = heap[base + p];
+        while (p > 0) {
+            int parentPos = (p - 1) >>> 1;
+            int parentLink = heap[base + parentPos];
+            if (!tighter(l, parentLink)) {
+                break;
+            }
+            heap[base + p] = parentLink;
+            heapPosition[parentLink] = p;
+            p = parentPos;
+        }
+        heap[base + p] = l;
+        heapPosition[l] = p;
+        return p;
+    }
+
+    private void siftDown(int base, int size, int p) {
+        int l = heap[base + p];
+        while (true) {
+            int child = 2 * p + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && tighter(heap[base + child + 1], heap[base + child])) {
+                child++;
+            }
+            int childLink = heap[base + child];
+            if (!tighter(childLink, l)) {
+                break;
+            }
+            heap[base + p] = childLink;
+            heapPosition[childLink] = p;
+            p = child;
+        }
+        heap[base + p] = l;
+        heapPosition[l] = p;
+    }
+
+    private void siftDownClass(int base, int size, int p) {
+        int f = classHeap[base + p];
+        while (true) {
+            int child = 2 * p + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && upperLimitLevel(classHeap[base + child + 1]) < upperLimitLevel(classHeap[base + child])) {
+                child++;
+            }
+            if (upperLimitLevel(classHeap[base + child]) >= upperLimitLevel(f)) {
+                break;
+            }
+            classHeap[base + p] = classHeap[base + child];
+            p = child;
+        }
+        classHeap[base + p] = f;
+    }
+
+    private int removeClassHeapTop(int base, int size) {
+        size--;
+        if (size > 0) {
+            classHeap[base] = classHeap[base + size];
+            siftDownClass(base, size, 0);
+        }
+        return size;
+    }
+
+    private int remove(int base, int size, int p) {
+        size--;
+        if (p != size) {
+            heap[base + p] = heap[base + size];
+            heapPosition[heap[base + p]] = p;
+            siftDown(base, size, siftUp(base, p));
+        }
+        return size;
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private static int[] grow(int[] array, int length) {
+        return array.length >= length ? array : new int[Math.max(length, 2 * array.length)];
+    }
+
+    private static double[] grow(double[] array, int length) {
+        return array.length >= length ? array : new double[Math.max(length, 2 * array.length)];
+    }
+
+    private static boolean[] grow(boolean[] array, int length) {
+        return array.length >= length ? array : new boolean[Math.max(length, 2 * array.length)];
+    }
+
+}
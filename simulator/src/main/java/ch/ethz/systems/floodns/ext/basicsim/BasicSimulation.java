@@ -28,7 +28,9 @@ import ch.ethz.systems.floodns.core.Aftermath;
 import ch.ethz.systems.floodns.core.Network;
 import ch.ethz.systems.floodns.core.Simulator;
 import ch.ethz.systems.floodns.ext.allocator.SimpleMmfAllocator;
+import ch.ethz.systems.floodns.ext.basicsim.schedule.ConnectionStartEventStream;
 import ch.ethz.systems.floodns.ext.basicsim.schedule.Schedule;
+import ch.ethz.systems.floodns.ext.basicsim.schedule.StreamingSchedule;
 import ch.ethz.systems.floodns.ext.basicsim.topology.FileToTopologyConverter;
 import ch.ethz.systems.floodns.ext.basicsim.topology.Topology;
 import ch.ethz.systems.floodns.ext.logger.file.FileLoggerFactory;
@@ -66,6 +68,8 @@ public class BasicSimulation {
             config.validate(new String[]{
                     "filename_topology", "filename_schedule",
                     "simulation_end_time_ns", "simulation_seed"
+            }, new String[]{
+                    "schedule_streaming"
             });
 
             // Base simulation properties
@@ -87,11 +91,29 @@ public class BasicSimulation {
 
             // Schedule
             EcmpRoutingStrategy routingStrategy = new EcmpRoutingStrategy(simulator, topology, new Random(simulationRandom.nextLong()));
-            Schedule schedule = new Schedule(runDirectory + "/" + config.getStringOrFail("filename_schedule"), topology, simulationEndTimeNs);
-            simulator.insertEvents(schedule.getConnectionStartEvents(simulator, routingStrategy));
+            String scheduleFileName = runDirectory + "/" + config.getStringOrFail("filename_schedule");
+            if (config.getBooleanOrDefault("schedule_streaming", false)) {
 
-            // Run
-            simulator.run(simulationEndTimeNs);
+                // Streamed: an invalid entry is only detected once it is reached during the run
+                StreamingSchedule schedule = new StreamingSchedule(scheduleFileName, topology, simulationEndTimeNs);
+                try (ConnectionStartEventStream stream = schedule.getConnectionStartEventStream(simulator, routingStrategy)) {
+                    simulator.insertEventStream(stream);
+
+                    // Run
+                    simulator.run(simulationEndTimeNs);
+
+                }
+
+            } else {
+
+                // Loaded and validated entirely before the run
+                Schedule schedule = new Schedule(scheduleFileName, topology, simulationEndTimeNs);
+                simulator.insertEvents(schedule.getConnectionStartEvents(simulator, routingStrategy));
+
+                // Run
+                simulator.run(simulationEndTimeNs);
+
+            }
 
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
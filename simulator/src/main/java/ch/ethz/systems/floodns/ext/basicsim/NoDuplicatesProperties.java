@@ -37,7 +37,11 @@ public class NoDuplicatesProperties extends Properties {
     }
 
     public void validate(String[] permittedProperties) {
-        for (String key : permittedProperties) {
+        validate(permittedProperties, new String[0]);
+    }
+
+    public void validate(String[] requiredProperties, String[] optionalProperties) {
+        for (String key : requiredProperties) {
             if (get(key) == null) {
                 throw new IllegalArgumentException("Missing required property " + key + ".");
             }
@@ -45,7 +49,13 @@ public class NoDuplicatesProperties extends Properties {
         for (Object key : this.keySet()) {
             String keyString = (String) key;
             boolean found = false;
-            for (String property : permittedProperties) {
+            for (String property : requiredProperties) {
+                if (key.equals(property)) {
+                    found = true;
+                    break;
+                }
+            }
+            for (String property : optionalProperties) {
                 if (key.equals(property)) {
                     found = true;
                     break;
@@ -83,6 +93,18 @@ public class NoDuplicatesProperties extends Properties {
         return value;
     }
 
+    public boolean getBooleanOrDefault(String property, boolean defaultValue) {
+        String res = getProperty(property);
+        if (res == null) {
+            return defaultValue;
+        } else if (res.equals("true")) {
+            return true;
+        } else if (res.equals("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Boolean value must be true or false: " + res);
+    }
+
     public String getStringOrFail(String property) {
         String res = getPropertyOrFail(property);
         if (res.startsWith("\"") && res.endsWith("\"")) {
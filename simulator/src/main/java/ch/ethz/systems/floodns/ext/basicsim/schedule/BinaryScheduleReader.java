@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.basicsim.schedule;
+
+import ch.ethz.systems.floodns.ext.basicsim.topology.Topology;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The <b>binary schedule reader</b> reads a schedule in the compact fixed-width binary format
+ * through memory-mapped windows of the file. The strings of the pool are decoded once when the
+ * reader opens, such that reading a row only looks up its strings by index and does not decode
+ * or allocate anything (if the entry is re-used, see {@link ScheduleReader#setReuseEntry(boolean)}).
+ *
+ * The format (big-endian) is as follows:
+ * <ul>
+ *     <li><b>Header</b> (16 bytes): magic number (8 bytes), number of entries (8 bytes)</li>
+ *     <li><b>Rows</b> (40 bytes each): connection id (8), from node id (4), to node id (4),
+ *     size in byte (8), start time in ns (8), additional parameters string index (4)
+ *     and metadata string index (4)</li>
+ *     <li><b>String pool</b>: number of strings (4), followed by each distinct string as its
+ *     length in bytes (4) and its UTF-8 encoding</li>
+ * </ul>
+ *
+ * @see CsvToBinaryScheduleConverter
+ */
+public class BinaryScheduleReader extends ScheduleReader {
+
+    // Format
+    static final long MAGIC = 0x464c4f4f44534332L; // "FLOODSC2"
+    static final int HEADER_SIZE = 16;
+    static final int ROW_SIZE = 40;
+
+    // Mapping window size
+    private static final int ROWS_PER_WINDOW = 1 << 20;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long numEntries;
+    private final String[] strings;
+    private long index;
+    private boolean closed;
+
+    // Currently mapped window of rows
+    private MappedByteBuffer rows;
+    private long rowsWindowFirst;
+
+    // Entry re-used for each row (if permitted)
+    private final ScheduleEntry entry;
+
+    /**
+     * Constructor.
+     *
+     * @param fileName              Binary schedule file name
+     * @param topology              Topology
+     * @param simulationDurationNs  Simulation duration (ns)
+     *
+     * @throws IllegalArgumentException     Iff the file could not be opened or is not a valid binary schedule
+     */
+    public BinaryScheduleReader(String fileName, Topology topology, long simulationDurationNs) {
+        super(topology, simulationDurationNs);
+        try {
+            this.file = new RandomAccessFile(fileName, "r");
+            this.channel = file.getChannel();
+            try {
+                long fileSize = channel.size();
+                if (fileSize < HEADER_SIZE) {
+                    throw new IllegalArgumentException("Binary schedule is missing its header: " + fileName);
+                }
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                if (header.getLong() != MAGIC) {
+                    throw new IllegalArgumentException("File is not a binary schedule: " + fileName);
+                }
+                this.numEntries = header.getLong();
+                long poolStart = HEADER_SIZE + numEntries * ROW_SIZE;
+                if (numEntries < 0 || poolStart + 4 > fileSize) {
+                    throw new IllegalArgumentException("Binary schedule is truncated: " + fileName);
+                }
+                if (fileSize - poolStart > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Binary schedule string pool is too large: " + fileName);
+                }
+                this.strings = decodeStrings(channel.map(FileChannel.MapMode.READ_ONLY, poolStart, fileSize - poolStart), fileName);
+            } catch (IllegalArgumentException | IOException e) {
+                file.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read schedule", e);
+        }
+        this.index = 0;
+        this.closed = false;
+        this.rows = null;
+        this.rowsWindowFirst = 0;
+        this.entry = new ScheduleEntry(0, 0, 0, 0, 0, "", "");
+    }
+
+    /**
+     * Decode all strings of the pool.
+     *
+     * @param pool      Mapped string pool
+     * @param fileName  File name (for error messages)
+     *
+     * @return  Strings in order of their index
+     */
+    private static String[] decodeStrings(ByteBuffer pool, String fileName) {
+        int numStrings = pool.getInt();
+        if (numStrings < 0 || numStrings > pool.remaining() / 4) {
+            throw new IllegalArgumentException("Binary schedule string pool is corrupt: " + fileName);
+        }
+        String[] strings = new String[numStrings];
+        byte[] buffer = new byte[256];
+        for (int i = 0; i < numStrings; i++) {
+            int length = pool.remaining() < 4 ? -1 : pool.getInt();
+            if (length < 0 || length > pool.remaining()) {
+                throw new IllegalArgumentException("Binary schedule string pool is truncated: " + fileName);
+            }
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, 2 * buffer.length)];
+            }
+            pool.get(buffer, 0, length);
+            strings[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    /**
+     * Check whether the file starts with the binary schedule magic number.
+     *
+     * @param fileName  File name
+     *
+     * @return  True iff the file is a binary schedule
+     */
+    public static boolean isBinarySchedule(String fileName) {
+        try (RandomAccessFile f = new RandomAccessFile(fileName, "r")) {
+            return f.length() >= HEADER_SIZE && f.readLong() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieve the number of entries in the schedule.
+     *
+     * @return  Number of entries
+     */
+    public long getNumEntries() {
+        return numEntries;
+    }
+
+    @Override
+    protected ScheduleEntry readNextEntry() throws IOException {
+        if (closed || index == numEntries) {
+            return null;
+        }
+
+        // Map the window of rows containing the next entry
+        if (rows == null || index >= rowsWindowFirst + ROWS_PER_WINDOW) {
+            rowsWindowFirst = index;
+            long numRows = Math.min(ROWS_PER_WINDOW, numEntries - index);
+            rows = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + index * ROW_SIZE, numRows * ROW_SIZE);
+        }
+        int p = (int) (index - rowsWindowFirst) * ROW_SIZE;
+        index++;
+
+        // Read the row, with its strings looked up in the pool
+        long connectionId = rows.getLong(p);
+        int fromNodeId = rows.getInt(p + 8);
+        int toNodeId = rows.getInt(p + 12);
+        long sizeByte = rows.getLong(p + 16);
+        long startTimeNs = rows.getLong(p + 24);
+        String additionalParameters = getString(rows.getInt(p + 32));
+        String metadata = getString(rows.getInt(p + 36));
+        if (!isReuseEntry()) {
+            return new ScheduleEntry(connectionId, fromNodeId, toNodeId, sizeByte, startTimeNs, additionalParameters, metadata);
+        }
+        entry.set(connectionId, fromNodeId, toNodeId, sizeByte, startTimeNs, additionalParameters, metadata);
+        return entry;
+
+    }
+
+    /**
+     * Retrieve a string from the pool.
+     *
+     * @param stringIndex   String index
+     *
+     * @return  Decoded string
+     */
+    private String getString(int stringIndex) {
+        if (stringIndex < 0 || stringIndex >= strings.length) {
+            throw new IllegalArgumentException("Binary schedule string index is out of bounds: " + stringIndex);
+        }
+        return strings[stringIndex];
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            rows = null;
+            file.close();
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.basicsim.schedule;
+
+import ch.ethz.systems.floodns.core.Connection;
+import ch.ethz.systems.floodns.core.Event;
+import ch.ethz.systems.floodns.core.EventStream;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+import ch.ethz.systems.floodns.ext.metadata.SimpleStringMetadata;
+import ch.ethz.systems.floodns.ext.routing.RoutingStrategy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * The <b>connection start event stream</b> lazily creates the connection and its start event
+ * for each schedule entry, such that only the next connection to start is instantiated.
+ * The schedule entries must be weakly ascending in start time. If the entries are read from a
+ * file (e.g. by a {@link ScheduleReader}), the stream must be closed after the simulation.
+ *
+ * @see Schedule
+ */
+public class ConnectionStartEventStream extends EventStream implements Closeable {
+
+    private final Network network;
+    private final RoutingStrategy routingStrategy;
+    private final Iterator<ScheduleEntry> entries;
+
+    /**
+     * Constructor.
+     *
+     * @param simulator         Simulator instance
+     * @param network           Network instance
+     * @param routingStrategy   Routing strategy
+     * @param entries           Schedule entries (weakly ascending in start time)
+     */
+    public ConnectionStartEventStream(Simulator simulator, Network network, RoutingStrategy routingStrategy,
+                                      Iterator<ScheduleEntry> entries) {
+        super(simulator);
+        this.network = network;
+        this.routingStrategy = routingStrategy;
+        this.entries = entries;
+    }
+
+    @Override
+    protected Event createNextEvent() {
+        if (!entries.hasNext()) {
+            return null;
+        }
+        ScheduleEntry entry = entries.next();
+
+        // Create new connection
+        Connection connection = new Connection(
+                simulator,
+                network.getNode(entry.getFromNodeId()),
+                network.getNode(entry.getToNodeId()),
+                entry.getSizeByte() * 8
+        );
+        connection.setMetadata(new SimpleStringMetadata(entry.getMetadata()));
+
+        // Its start event (relative to now)
+        return new ConnectionStartEvent(
+                simulator,
+                entry.getStartTimeNs() - simulator.getCurrentTime(),
+                connection,
+                routingStrategy
+        );
+
+    }
+
+    /**
+     * Close the schedule entries, if they are read from a file.
+     *
+     * @throws IOException  Iff closing failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (entries instanceof Closeable) {
+            ((Closeable) entries).close();
+        }
+    }
+
+}
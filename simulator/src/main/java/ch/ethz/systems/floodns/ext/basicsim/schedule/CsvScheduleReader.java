@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.basicsim.schedule;
+
+import ch.ethz.systems.floodns.ext.basicsim.topology.Topology;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * The <b>CSV schedule reader</b> reads the schedule line-by-line, where each line has 7 columns:
+ * <pre>[connection_id],[from_node_id],[to_node_id],[size_byte],[start_time_ns],[additional_parameters],[metadata]</pre>
+ */
+public class CsvScheduleReader extends ScheduleReader {
+
+    // Read buffer size (characters)
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final BufferedReader reader;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param fileName              Schedule file name
+     * @param topology              Topology
+     * @param simulationDurationNs  Simulation duration (ns)
+     *
+     * @throws IllegalArgumentException     Iff the file could not be opened
+     */
+    public CsvScheduleReader(String fileName, Topology topology, long simulationDurationNs) {
+        super(topology, simulationDurationNs);
+        try {
+            this.reader = new BufferedReader(new FileReader(fileName), BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read schedule", e);
+        }
+        this.closed = false;
+    }
+
+    @Override
+    protected ScheduleEntry readNextEntry() throws IOException {
+        if (closed) {
+            return null;
+        }
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        line = line.trim();
+        String[] spl = line.split(",", -1);
+
+        // All 7 must be there
+        if (spl.length != 7) {
+            throw new IllegalArgumentException("File contains line which is not 7 columns: " + line);
+        }
+
+        // This will throw all IllegalArgumentException if any of the inputs is invalid
+        return new ScheduleEntry(
+                Long.parseLong(spl[0]),
+                Integer.parseInt(spl[1]),
+                Integer.parseInt(spl[2]),
+                Long.parseLong(spl[3]),
+                Long.parseLong(spl[4]),
+                spl[5],
+                spl[6]
+        );
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            reader.close();
+        }
+    }
+
+}
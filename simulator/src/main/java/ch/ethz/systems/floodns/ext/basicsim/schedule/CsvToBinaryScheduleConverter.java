@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.basicsim.schedule;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a 7-column CSV schedule into the binary schedule format read by {@link BinaryScheduleReader}.
+ * The entries are not validated against a topology during conversion; this happens when the
+ * binary schedule is read. Each distinct string (additional parameters or metadata) is stored only once
+ * in the string pool, which is kept in memory during conversion.
+ */
+public class CsvToBinaryScheduleConverter {
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: java CsvToBinaryScheduleConverter [schedule.csv] [schedule.bin]");
+        }
+        convert(args[0], args[1]);
+    }
+
+    /**
+     * Convert the CSV schedule file into a binary schedule file. If the conversion fails,
+     * no binary schedule file is left behind.
+     *
+     * @param csvFileName       Input CSV schedule file name
+     * @param binaryFileName    Output binary schedule file name
+     *
+     * @return  Number of entries converted
+     */
+    public static long convert(String csvFileName, String binaryFileName) {
+        File binaryFile = new File(binaryFileName);
+        boolean converted = false;
+        try (CsvScheduleReader reader = new CsvScheduleReader(csvFileName, null, Long.MAX_VALUE)) {
+
+            // The rows are written directly, the pool of distinct strings is appended afterwards
+            Map<String, Integer> stringToIndex = new HashMap<>();
+            List<String> strings = new ArrayList<>();
+            long numEntries = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFile)))) {
+                out.writeLong(0); // Magic, set at the end such that an incomplete file is never valid
+                out.writeLong(0); // Number of entries, set at the end
+
+                // Go over entries one-by-one
+                ScheduleEntry entry;
+                while ((entry = reader.readNextEntry()) != null) {
+                    out.writeLong(entry.getConnectionId());
+                    out.writeInt(entry.getFromNodeId());
+                    out.writeInt(entry.getToNodeId());
+                    out.writeLong(entry.getSizeByte());
+                    out.writeLong(entry.getStartTimeNs());
+                    out.writeInt(poolIndex(entry.getAdditionalParameters(), stringToIndex, strings));
+                    out.writeInt(poolIndex(entry.getMetadata(), stringToIndex, strings));
+                    numEntries++;
+                }
+
+                // Append string pool
+                out.writeInt(strings.size());
+                for (String s : strings) {
+                    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+            }
+
+            // Fill in the header
+            try (RandomAccessFile out = new RandomAccessFile(binaryFile, "rw")) {
+                out.writeLong(BinaryScheduleReader.MAGIC);
+                out.writeLong(numEntries);
+            }
+
+            converted = true;
+            return numEntries;
+
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not convert schedule", e);
+        } finally {
+            if (!converted && binaryFile.exists() && !binaryFile.delete()) {
+                binaryFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Retrieve the index of the string in the pool, adding it to the pool if it is not yet in it.
+     *
+     * @param s                 String
+     * @param stringToIndex     String-to-index mapping of the pool
+     * @param strings           Strings of the pool in order of their index
+     *
+     * @return  String index
+     */
+    private static int poolIndex(String s, Map<String, Integer> stringToIndex, List<String> strings) {
+        Integer index = stringToIndex.get(s);
+        if (index == null) {
+            index = strings.size();
+            stringToIndex.put(s, index);
+            strings.add(s);
+        }
+        return index;
+    }
+
+}
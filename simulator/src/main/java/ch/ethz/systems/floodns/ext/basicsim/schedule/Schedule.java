@@ -29,8 +29,6 @@ import ch.ethz.systems.floodns.core.Simulator;
 import ch.ethz.systems.floodns.ext.basicsim.topology.Topology;
 import ch.ethz.systems.floodns.ext.routing.RoutingStrategy;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -44,76 +42,18 @@ public class Schedule {
         this.entries = new ArrayList<>();
         this.topology = topology;
 
+        // Read all entries (this will throw an IllegalArgumentException if any entry is invalid)
+        ScheduleReader reader = ScheduleReader.open(fileName, topology, simulationDurationNs);
         try {
-
-            // Open file stream
-            FileReader input = new FileReader(fileName);
-            BufferedReader br = new BufferedReader(input);
-
-            // Go over lines one-by-one
-            String line;
-            int lineCounter = 0;
-            long prevStartTimeNs = 0;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                String[] spl = line.split(",",-1);
-
-                // All 7 must be there
-                if (spl.length != 7) {
-                    throw new IllegalArgumentException("File contains line which is not 7 columns: " + line);
-                }
-
-                // Add start event (this will throw all IllegalArgumentException if any of the inputs is invalid)
-                ScheduleEntry entry = new ScheduleEntry(
-                        Long.parseLong(spl[0]),
-                        Integer.parseInt(spl[1]),
-                        Integer.parseInt(spl[2]),
-                        Long.parseLong(spl[3]),
-                        Long.parseLong(spl[4]),
-                        spl[5],
-                        spl[6]
-                );
-
-                if (entry.getConnectionId() != lineCounter) {
-                    throw new IllegalArgumentException("Connection ID is not ascending by one each line (violation: " + entry.getConnectionId() + ")");
-                }
-
-                // Must be weakly ascending start time
-                if (prevStartTimeNs > entry.getStartTimeNs()) {
-                    throw new IllegalArgumentException(
-                            "Start time is not weakly ascending (on line with connection ID: %" + entry.getConnectionId() + ", violation: " + entry.getStartTimeNs() + ")"
-                    );
-                }
-                prevStartTimeNs = entry.getStartTimeNs();
-
-                // Check node IDs
-                if (!topology.getDetails().isValidEndpoint(entry.getFromNodeId())) {
-                    throw new IllegalArgumentException("Invalid from node ID: " + entry.getFromNodeId());
-                }
-                if (!topology.getDetails().isValidEndpoint(entry.getToNodeId())) {
-                    throw new IllegalArgumentException("Invalid to node ID: " + entry.getToNodeId());
-                }
-                if (entry.getFromNodeId() == entry.getToNodeId()) {
-                    throw new IllegalArgumentException("Connection to itself at node ID: " + entry.getFromNodeId());
-                }
-
-                // Check start time
-                if (entry.getStartTimeNs() >= simulationDurationNs) {
-                    throw new IllegalArgumentException("Connection " + entry.getConnectionId() + " has invalid start time " + entry.getStartTimeNs() + " >= " + simulationDurationNs);
-                }
-
-                // Put into schedule
-                entries.add(entry);
-
-                lineCounter++;
-
+            while (reader.hasNext()) {
+                entries.add(reader.next());
+            }
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not close schedule", e);
             }
-
-            // Close file stream
-            br.close();
-
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Could not read schedule", e);
         }
 
     }
@@ -136,4 +76,17 @@ public class Schedule {
         return trafficSchedule.getConnectionStartEvents();
     }
 
+    /**
+     * Retrieve a stream of the connection start events, which only instantiates
+     * a connection and its start event once it is next to start.
+     *
+     * @param simulator         Simulator instance
+     * @param routingStrategy   Routing strategy
+     *
+     * @return  Connection start event stream
+     */
+    public ConnectionStartEventStream getConnectionStartEventStream(Simulator simulator, RoutingStrategy routingStrategy) {
+        return new ConnectionStartEventStream(simulator, topology.getNetwork(), routingStrategy, entries.iterator());
+    }
+
 }
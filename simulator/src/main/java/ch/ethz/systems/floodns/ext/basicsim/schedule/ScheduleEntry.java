@@ -26,15 +26,23 @@ package ch.ethz.systems.floodns.ext.basicsim.schedule;
 
 public class ScheduleEntry {
 
-    private final long connectionId;
-    private final int fromNodeId;
-    private final int toNodeId;
-    private final long sizeByte;
-    private final long startTimeNs;
-    private final String additionalParameters;
-    private final String metadata;
+    private long connectionId;
+    private int fromNodeId;
+    private int toNodeId;
+    private long sizeByte;
+    private long startTimeNs;
+    private String additionalParameters;
+    private String metadata;
 
     public ScheduleEntry(long connectionId, int fromNodeId, int toNodeId, long sizeByte, long startTimeNs, String additionalParameters, String metadata) {
+        set(connectionId, fromNodeId, toNodeId, sizeByte, startTimeNs, additionalParameters, metadata);
+    }
+
+    /**
+     * Overwrite all fields, such that a reader can re-use the entry instance for the next entry
+     * (see {@link ScheduleReader#setReuseEntry(boolean)}).
+     */
+    void set(long connectionId, int fromNodeId, int toNodeId, long sizeByte, long startTimeNs, String additionalParameters, String metadata) {
         this.connectionId = connectionId;
         this.fromNodeId = fromNodeId;
         this.toNodeId = toNodeId;
@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.basicsim.schedule;
+
+import ch.ethz.systems.floodns.ext.basicsim.topology.Topology;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The <b>schedule reader</b> incrementally reads and validates the entries of a schedule,
+ * such that only a single entry is held in memory at a time. The file is closed
+ * automatically once the last entry has been read, or once an entry turns out to be invalid.
+ *
+ * Each entry is validated upon reading: connection IDs must be ascending by one (starting at 0),
+ * start times weakly ascending and before the simulation end time, and the from and to node
+ * must be distinct valid endpoints of the topology.
+ *
+ * If the consumer does not retain the entries, a reader can be allowed to re-use a single entry instance
+ * ({@link #setReuseEntry(boolean)}), such that reading does not allocate an entry per line.
+ *
+ * @see Schedule
+ * @see StreamingSchedule
+ */
+public abstract class ScheduleReader implements Iterator<ScheduleEntry>, Closeable {
+
+    private final Topology topology;
+    private final long simulationDurationNs;
+
+    // Look-ahead entry (null, if not yet read or the end has been reached)
+    private ScheduleEntry next;
+    private boolean finished;
+    private boolean reuseEntry;
+
+    // Validation state
+    private long expectedConnectionId;
+    private long prevStartTimeNs;
+
+    /**
+     * Constructor.
+     *
+     * @param topology              Topology
+     * @param simulationDurationNs  Simulation duration (ns), all start times must be strictly below
+     */
+    protected ScheduleReader(Topology topology, long simulationDurationNs) {
+        this.topology = topology;
+        this.simulationDurationNs = simulationDurationNs;
+        this.next = null;
+        this.finished = false;
+        this.reuseEntry = false;
+        this.expectedConnectionId = 0;
+        this.prevStartTimeNs = 0;
+    }
+
+    /**
+     * Open a reader for the schedule file, which is either in the binary schedule format
+     * (detected by its header) or else in the 7-column CSV format.
+     *
+     * @param fileName              Schedule file name
+     * @param topology              Topology
+     * @param simulationDurationNs  Simulation duration (ns)
+     *
+     * @return  Schedule reader
+     */
+    public static ScheduleReader open(String fileName, Topology topology, long simulationDurationNs) {
+        if (BinaryScheduleReader.isBinarySchedule(fileName)) {
+            return new BinaryScheduleReader(fileName, topology, simulationDurationNs);
+        } else {
+            return new CsvScheduleReader(fileName, topology, simulationDurationNs);
+        }
+    }
+
+    /**
+     * Set whether the reader may return the same entry instance each time, overwritten upon reading the next
+     * entry. An entry is then only valid until the next call to {@link #hasNext()} or {@link #next()}.
+     *
+     * @param reuseEntry    True iff the entry instance may be re-used
+     */
+    public void setReuseEntry(boolean reuseEntry) {
+        this.reuseEntry = reuseEntry;
+    }
+
+    /**
+     * Check whether the reader may return the same entry instance each time.
+     *
+     * @return  True iff the entry instance may be re-used
+     */
+    protected boolean isReuseEntry() {
+        return reuseEntry;
+    }
+
+    /**
+     * Read the next raw (not yet validated) entry.
+     *
+     * @return  Next entry (null, if the end of the schedule has been reached)
+     *
+     * @throws IOException  Iff reading failed
+     */
+    protected abstract ScheduleEntry readNextEntry() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readNextEntry();
+                if (next == null) {
+                    finished = true;
+                    close();
+                } else {
+                    validate(next);
+                }
+            } catch (IOException e) {
+                throw closeAfterFailure(new IllegalArgumentException("Could not read schedule", e));
+            } catch (IllegalArgumentException e) {
+                throw closeAfterFailure(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public ScheduleEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Schedule has no more entries.");
+        }
+        ScheduleEntry entry = next;
+        next = null;
+        return entry;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Schedule entries cannot be removed.");
+    }
+
+    /**
+     * Stop reading after an invalid or unreadable entry, and close the file.
+     *
+     * @param e     Exception which ends the reading
+     *
+     * @return  The same exception (with any exception of closing added as suppressed)
+     */
+    private IllegalArgumentException closeAfterFailure(IllegalArgumentException e) {
+        next = null;
+        finished = true;
+        try {
+            close();
+        } catch (IOException closeException) {
+            e.addSuppressed(closeException);
+        }
+        return e;
+    }
+
+    /**
+     * Validate the entry against the topology and the previous entry.
+     *
+     * @param entry     Schedule entry
+     */
+    private void validate(ScheduleEntry entry) {
+
+        if (entry.getConnectionId() != expectedConnectionId) {
+            throw new IllegalArgumentException("Connection ID is not ascending by one each line (violation: " + entry.getConnectionId() + ")");
+        }
+        expectedConnectionId++;
+
+        // Must be weakly ascending start time
+        if (prevStartTimeNs > entry.getStartTimeNs()) {
+            throw new IllegalArgumentException(
+                    "Start time is not weakly ascending (on line with connection ID: %" + entry.getConnectionId() + ", violation: " + entry.getStartTimeNs() + ")"
+            );
+        }
+        prevStartTimeNs = entry.getStartTimeNs();
+
+        // Check node IDs
+        if (!topology.getDetails().isValidEndpoint(entry.getFromNodeId())) {
+            throw new IllegalArgumentException("Invalid from node ID: " + entry.getFromNodeId());
+        }
+        if (!topology.getDetails().isValidEndpoint(entry.getToNodeId())) {
+            throw new IllegalArgumentException("Invalid to node ID: " + entry.getToNodeId());
+        }
+        if (entry.getFromNodeId() == entry.getToNodeId()) {
+            throw new IllegalArgumentException("Connection to itself at node ID: " + entry.getFromNodeId());
+        }
+
+        // Check start time
+        if (entry.getStartTimeNs() >= simulationDurationNs) {
+            throw new IllegalArgumentException("Connection " + entry.getConnectionId() + " has invalid start time " + entry.getStartTimeNs() + " >= " + simulationDurationNs);
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.basicsim.schedule;
+
+import ch.ethz.systems.floodns.core.Simulator;
+import ch.ethz.systems.floodns.ext.basicsim.topology.Topology;
+import ch.ethz.systems.floodns.ext.routing.RoutingStrategy;
+
+import java.io.File;
+
+/**
+ * The <b>streaming schedule</b> does not hold the schedule in memory, but instead parses it
+ * incrementally during the simulation run. A connection is only instantiated once it is next
+ * to start, and it is no longer referenced by the schedule thereafter. As such, the memory footprint
+ * only depends on the number of concurrently active connections and not on the schedule length.
+ *
+ * The entries are validated identically to {@link Schedule}, however only once they are read
+ * (i.e., an invalid entry causes an {@link IllegalArgumentException} during the run).
+ * The schedule file can either be in the CSV or in the binary format (see {@link ScheduleReader#open}).
+ */
+public class StreamingSchedule {
+
+    private final String fileName;
+    private final Topology topology;
+    private final long simulationDurationNs;
+
+    public StreamingSchedule(String fileName, Topology topology, long simulationDurationNs) {
+        if (!new File(fileName).isFile()) {
+            throw new IllegalArgumentException("Schedule file does not exist: " + fileName);
+        }
+        this.fileName = fileName;
+        this.topology = topology;
+        this.simulationDurationNs = simulationDurationNs;
+    }
+
+    /**
+     * Open a new reader over the schedule entries.
+     *
+     * @return  Schedule reader (must be closed if not read until the end)
+     */
+    public ScheduleReader openReader() {
+        return ScheduleReader.open(fileName, topology, simulationDurationNs);
+    }
+
+    /**
+     * Retrieve a stream of the connection start events, which reads the schedule while the simulation
+     * progresses.
+     *
+     * @param simulator         Simulator instance
+     * @param routingStrategy   Routing strategy
+     *
+     * @return  Connection start event stream
+     */
+    public ConnectionStartEventStream getConnectionStartEventStream(Simulator simulator, RoutingStrategy routingStrategy) {
+        ScheduleReader reader = openReader();
+        reader.setReuseEntry(true); // Each entry is turned into its connection before the next is read
+        return new ConnectionStartEventStream(simulator, topology.getNetwork(), routingStrategy, reader);
+    }
+
+}
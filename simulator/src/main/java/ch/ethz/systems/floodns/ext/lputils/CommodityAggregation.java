@@ -0,0 +1,46 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+/**
+ * Aggregation of the connections into commodities in the full-split multi-commodity flow linear programs
+ * (e.g., {@link FullSplitMaxMinConnBwLp}). The flow variables and conservation constraints are per commodity,
+ * as such aggregating reduces their number by the average number of connections per commodity.
+ *
+ * The aggregation does not change the optimum: each connection keeps its own throughput, which is the
+ * flow of its commodity arriving at its destination.
+ */
+public enum CommodityAggregation {
+
+    // Each connection is a commodity
+    NONE,
+
+    // The connections with the same source and destination node are a commodity
+    SOURCE_DESTINATION,
+
+    // The connections with the same source node are a commodity
+    SOURCE
+
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import ch.ethz.systems.floodns.core.Connection;
+
+import java.util.List;
+
+/**
+ * Flow of the connections through the network in a full-split linear program, which the program refers to via the
+ * throughput of each connection. Its variables are added to the model on construction, before those of the program.
+ */
+interface CommodityFlowModel {
+
+    /**
+     * @return  Connections (a connection is identified by its index in this list)
+     */
+    List<Connection> getConnections();
+
+    /**
+     * Add the terms of the throughput of a connection to the constraint under construction.
+     *
+     * @param c             Connection index
+     * @param coefficient   Coefficient of the throughput
+     */
+    void addThroughputTerms(int c, double coefficient);
+
+    /**
+     * Set the objective coefficient of the throughput of a connection.
+     *
+     * @param c             Connection index
+     * @param coefficient   Objective coefficient of the throughput
+     */
+    void setThroughputObjective(int c, double coefficient);
+
+    /**
+     * Add the constraints of the flow through the network (e.g., link capacity constraints).
+     */
+    void addNetworkConstraints();
+
+    /**
+     * Determine the throughput of a connection.
+     *
+     * @param values    Solution value of each variable
+     * @param c         Connection index
+     *
+     * @return  Throughput of the connection
+     */
+    double getThroughput(double[] values, int c);
+
+}
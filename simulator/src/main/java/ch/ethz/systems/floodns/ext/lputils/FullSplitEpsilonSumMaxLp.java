@@ -27,11 +27,10 @@ package ch.ethz.systems.floodns.ext.lputils;
 import ch.ethz.systems.floodns.core.*;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -45,15 +44,40 @@ import java.util.Map;
 public class FullSplitEpsilonSumMaxLp {
 
     private final Simulator simulator;
-    private final Network network;
     private final Map<Integer, Double> mapConnectionToThroughput;
-    private final LpSolver lpSolver;
+    private final FullSplitSolver solver;
 
     public FullSplitEpsilonSumMaxLp(Simulator simulator, LpSolver lpSolver) {
+        this(simulator, lpSolver, CommodityAggregation.NONE);
+    }
+
+    /**
+     * Constructor of the arc-based linear program.
+     *
+     * @param simulator     Simulator instance
+     * @param lpSolver      Linear program solver
+     * @param aggregation   Aggregation of the connections into commodities (the optimum is the same for each)
+     */
+    public FullSplitEpsilonSumMaxLp(Simulator simulator, LpSolver lpSolver, CommodityAggregation aggregation) {
+        this(simulator, new FullSplitSolver(simulator.getNetwork(), lpSolver, aggregation));
+    }
+
+    /**
+     * Constructor of the path-based linear program, which is solved by column generation starting from the
+     * k shortest paths of each connection (the optimum is the same as that of the arc-based one).
+     *
+     * @param simulator         Simulator instance
+     * @param lpSolver          Linear program solver (which must set the dual values, e.g., {@link SimplexLpSolver})
+     * @param numInitialPaths   Number of shortest paths of each connection to start from (at least one)
+     */
+    public FullSplitEpsilonSumMaxLp(Simulator simulator, LpSolver lpSolver, int numInitialPaths) {
+        this(simulator, new FullSplitSolver(simulator.getNetwork(), lpSolver, numInitialPaths));
+    }
+
+    private FullSplitEpsilonSumMaxLp(Simulator simulator, FullSplitSolver solver) {
         this.simulator = simulator;
-        this.network = simulator.getNetwork();
         this.mapConnectionToThroughput = new HashMap<>();
-        this.lpSolver = lpSolver;
+        this.solver = solver;
     }
 
     /**
@@ -63,7 +87,7 @@ public class FullSplitEpsilonSumMaxLp {
      *
      * @return Objective boundary (maximum throughput for any demand)
      */
-    public double calculate(double epsilon) {
+    public double calculate(final double epsilon) {
         assert(epsilon >= 0 && epsilon <= 1);
 
         // To add demand constraints:
@@ -71,186 +95,50 @@ public class FullSplitEpsilonSumMaxLp {
         // , Map<Connection, Double> connectionToDemand
         // @param connectionToDemand    Connection to its demand
 
-        // Open file
-        File program;
-        File solution;
-        try {
-            program = File.createTempFile("program", ".lp");
-            solution = File.createTempFile("solution", ".sol");
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to create temporary file for linear program and solution.");
-        }
-
-        // Write linear program to file
-        try {
-
-            // Open writer
-            PrintWriter out = new PrintWriter(program);
-
-            // Objective
-            out.println("max: Z;");
-            out.println();
-
-            // Flow constraints
-            out.println("// Type 0: commodity constraints");
-            for (Connection connection : simulator.getActiveConnections()) { // Definition of commodity flow
-                out.format("c0_%d: ", connection.getConnectionId());
-                boolean first = true;
-                for (Link link : connection.getSrcNode().getOutgoingLinks()) {
-                    if (!first) {
-                        out.format(" + ");
-                    }
-                    first = false;
-                    out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
+        // Flow of each connection through the network (arc-based or path-based)
+        final List<Connection> connections = new ArrayList<>(simulator.getActiveConnections());
+        ImmutablePair<Double, double[]> result = solver.solve(connections, new FullSplitSolver.Program() {
+
+            @Override
+            public void build(LpModel model, CommodityFlowModel flows) {
+
+                // Objective
+                int z = model.addVariable("Z");
+                model.setMaximize(true);
+                model.setObjectiveCoefficient(z, 1.0);
+
+                // Type 0: commodity constraints
+                int[] y = new int[connections.size()];
+                for (int c = 0; c < connections.size(); c++) { // Definition of commodity flow (not negative by its bounds)
+                    y[c] = model.addVariable();
+                    flows.addThroughputTerms(c, 1.0);
+                    model.addTerm(y[c], -1.0);
+                    model.addConstraint(LpModel.Sense.EQUAL, 0.0);
                 }
-                out.format(" - y_%d = 0;", connection.getConnectionId());
-                out.println();
-            }
-            for (Connection connection : simulator.getActiveConnections()) { // Not negative
-                out.format("c0_%d_0: y_%d >= 0;", connection.getConnectionId(), connection.getConnectionId());
-                out.println();
-            }
-            // Demand constraint
-            for (Connection connection : simulator.getActiveConnections()) { // Less than or equal to the barrier
-                out.format("c0_%d_2: y_%d - Z <= 0;", connection.getConnectionId(), connection.getConnectionId());
-                out.println();
-            }
-            out.format("cysum: "); // Sum of all commodity flow must be at least a percentile of it
-            boolean first1 = true;
-            for (Connection connection : simulator.getActiveConnections()) { // Less than or equal to the barrier
-                if (!first1) {
-                    out.format(" + ");
+                for (int c = 0; c < connections.size(); c++) { // Less than or equal to the barrier
+                    model.addTerm(y[c], 1.0);
+                    model.addTerm(z, -1.0);
+                    model.addConstraint(LpModel.Sense.LESS_EQUAL, 0.0);
                 }
-                first1 = false;
-                out.format("y_%d", connection.getConnectionId());
-            }
 
-            // Sum of flow must be larger than (1 - epsilon) * N * k
-            out.format(" - %f Z >= 0;", (1.0 - epsilon) * simulator.getActiveConnections().size());
-            out.println();
-
-            // Link capacity constraints
-            out.println("// Type 1: link capacity constraints");
-            for (Link link : network.getPresentLinks()) {
-                out.format("c1_%d: ", link.getLinkId());
-                boolean first = true;
-                for (Connection connection : simulator.getActiveConnections()) {
-                    if (!first) {
-                        out.format(" + ");
-                    }
-                    first = false;
-                    out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
+                // Sum of all commodity flow must be larger than (1 - epsilon) * N * k
+                for (int c = 0; c < connections.size(); c++) {
+                    model.addTerm(y[c], 1.0);
                 }
-                out.format(" <= %f;", link.getCapacity());
-                out.println();
-            }
-
-            out.println();
-
-            // Flow conservation constraints
-            out.println("// Type 2: flow conservation constraints");
-
-            for (Connection connection : simulator.getActiveConnections()) {
-                for (Node node : network.getNodes()) {
-                    if (!node.equals(connection.getSrcNode()) && !node.equals(connection.getDstNode())) {
-
-                        if (node.getIncomingLinks().size() > 0 || node.getOutgoingLinks().size() > 0) {
-
-                            out.format("c2_%d_%d: ", connection.getConnectionId(), node.getNodeId());
+                model.addTerm(z, -(1.0 - epsilon) * connections.size());
+                model.addConstraint(LpModel.Sense.GREATER_EQUAL, 0.0);
 
-                            // Flow incoming
-                            boolean first = true;
-                            for (Link link : node.getIncomingLinks()) {
-                                if (!first) {
-                                    out.format(" + ");
-                                }
-                                first = false;
-                                out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
+                // Type 1 and 2: link capacity and flow conservation constraints
+                flows.addNetworkConstraints();
 
-                            // Flow outgoing
-                            for (Link link : node.getOutgoingLinks()) {
-                                out.format(" - f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            out.println(" = 0;");
-
-                        }
-
-                    } else if (node.equals(connection.getSrcNode())) {
-
-                        if (node.getIncomingLinks().size() > 0) {
-
-                            out.format("c2_%d_%d: ", connection.getConnectionId(), node.getNodeId());
-
-                            // Flow incoming
-                            boolean first = true;
-                            for (Link link : node.getIncomingLinks()) {
-                                if (!first) {
-                                    out.format(" + ");
-                                }
-                                first = false;
-                                out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            out.println(" = 0;");
-
-                        }
-
-                    } else if (node.equals(connection.getDstNode())) {
-
-                        if (node.getOutgoingLinks().size() > 0) {
-
-                            out.format("c2_%d_%d: ", connection.getConnectionId(), node.getNodeId());
-
-                            // Flow incoming
-                            boolean first = true;
-                            for (Link link : node.getOutgoingLinks()) {
-                                if (!first) {
-                                    out.format(" + ");
-                                }
-                                first = false;
-                                out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            out.println(" = 0;");
-
-                        }
-
-                    }
-
-                }
             }
 
-            // Close file
-            out.close();
-
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to write to temporary file.");
-        }
-
-        // Call solver
-        ImmutablePair<Double, Map<String, Double>> result = lpSolver.solve(program.getAbsolutePath(), solution.getAbsolutePath());
+        });
 
         // Save results
         mapConnectionToThroughput.clear();
-        for (Connection conn : simulator.getActiveConnections()) {
-            mapConnectionToThroughput.put(conn.getConnectionId(), 0.0);
-        }
-        for (Map.Entry<String, Double> entry : result.getRight().entrySet()) {
-
-            if (entry.getKey().startsWith("f_")) {
-
-                int connId = Integer.parseInt(entry.getKey().split("_")[1]);
-                int linkId = Integer.parseInt(entry.getKey().split("_")[2]);
-                Double value = entry.getValue();
-
-                if (simulator.getActiveConnection(connId).getSrcNode().getOutgoingLinks().contains(network.getLink(linkId))) {
-                    mapConnectionToThroughput.put(connId, value + mapConnectionToThroughput.get(connId));
-                }
-
-            }
-
+        for (int c = 0; c < connections.size(); c++) {
+            mapConnectionToThroughput.put(connections.get(c).getConnectionId(), result.getRight()[c]);
         }
 
         // Return final alpha value
@@ -27,9 +27,8 @@ package ch.ethz.systems.floodns.ext.lputils;
 import ch.ethz.systems.floodns.core.*;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -46,13 +45,38 @@ import java.util.Map;
 public class FullSplitMaxMinConnBwLp {
 
     private final Simulator simulator;
-    private final Network network;
-    private final LpSolver lpSolver;
+    private final FullSplitSolver solver;
 
     public FullSplitMaxMinConnBwLp(Simulator simulator, LpSolver lpSolver) {
+        this(simulator, lpSolver, CommodityAggregation.NONE);
+    }
+
+    /**
+     * Constructor of the arc-based linear program.
+     *
+     * @param simulator     Simulator instance
+     * @param lpSolver      Linear program solver
+     * @param aggregation   Aggregation of the connections into commodities (the optimum is the same for each)
+     */
+    public FullSplitMaxMinConnBwLp(Simulator simulator, LpSolver lpSolver, CommodityAggregation aggregation) {
+        this(simulator, new FullSplitSolver(simulator.getNetwork(), lpSolver, aggregation));
+    }
+
+    /**
+     * Constructor of the path-based linear program, which is solved by column generation starting from the
+     * k shortest paths of each connection (the optimum is the same as that of the arc-based one).
+     *
+     * @param simulator         Simulator instance
+     * @param lpSolver          Linear program solver (which must set the dual values, e.g., {@link SimplexLpSolver})
+     * @param numInitialPaths   Number of shortest paths of each connection to start from (at least one)
+     */
+    public FullSplitMaxMinConnBwLp(Simulator simulator, LpSolver lpSolver, int numInitialPaths) {
+        this(simulator, new FullSplitSolver(simulator.getNetwork(), lpSolver, numInitialPaths));
+    }
+
+    private FullSplitMaxMinConnBwLp(Simulator simulator, FullSplitSolver solver) {
         this.simulator = simulator;
-        this.network = simulator.getNetwork();
-        this.lpSolver = lpSolver;
+        this.solver = solver;
     }
 
     /**
@@ -62,156 +86,35 @@ public class FullSplitMaxMinConnBwLp {
      *
      * @return  Alpha (of alpha * TM)
      */
-    public double calculateAlpha(Map<Integer, Double> connectionToDemand) {
-
-        // Open file
-        File program;
-        File solution;
-        try {
-            program = File.createTempFile("program", ".lp");
-            solution = File.createTempFile("solution", ".sol");
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to create temporary file for linear program and solution.");
-        }
-
-        // Write linear program to file
-        try {
-
-            // Open writer
-            PrintWriter out = new PrintWriter(program);
-
-            // Objective
-            out.println("max: Z;");
-            out.println();
-
-            // Sum of amount of flow belonging to a connection going out must be larger than its proportional demand
-            out.println("// Type 0: flow fairness constraints");
-            for (Connection connection : simulator.getActiveConnections()) {
-                out.format("c0_%d: ", connection.getConnectionId());
-                boolean first = true;
-                for (Link link : connection.getSrcNode().getOutgoingLinks()) {
-                    if (!first) {
-                        out.format(" + ");
-                    }
-                    first = false;
-                    out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                }
-                out.format(" - %f Z >= 0;", connectionToDemand.get(connection.getConnectionId()));
-                out.println();
-            }
-
-            out.println();
-
-            // Link capacity constraints
-            out.println("// Type 1: link capacity constraints");
-            for (Link link : network.getPresentLinks()) {
-                out.format("c1_0_%d: ", link.getLinkId());
-                boolean first = true;
-                for (Connection connection : simulator.getActiveConnections()) {
-                    if (!first) {
-                        out.format(" + ");
-                    }
-                    first = false;
-                    out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                }
-                out.format(" <= %f;", link.getCapacity());
-                out.println();
-            }
-
-            out.println();
-
-            // Link capacity constraints
-            out.println("// Type 2: positive flows only");
-            for (Link link : network.getPresentLinks()) {
-                for (Connection connection : simulator.getActiveConnections()) {
-                    out.format("c2_%d%d: f_%d_%d >= 0;\n", connection.getConnectionId(), link.getLinkId(), connection.getConnectionId(), link.getLinkId());
-                }
-            }
-
-            // Flow conservation constraints
-            out.println("// Type 3: flow conservation constraints");
-
-            for (Connection connection : simulator.getActiveConnections()) {
-                for (Node node : network.getNodes()) {
-                    if (!node.equals(connection.getSrcNode()) && !node.equals(connection.getDstNode())) {
-
-                        if (node.getIncomingLinks().size() > 0 || node.getOutgoingLinks().size() > 0) {
-
-                            out.format("c3_%d_%d: ", connection.getConnectionId(), node.getNodeId());
-
-                            // Flow incoming
-                            boolean first = true;
-                            for (Link link : node.getIncomingLinks()) {
-                                if (!first) {
-                                    out.format(" + ");
-                                }
-                                first = false;
-                                out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            // Flow outgoing
-                            for (Link link : node.getOutgoingLinks()) {
-                                out.format(" - f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            out.println(" = 0;");
-
-                        }
-
-                    } else if (node.equals(connection.getSrcNode())) {
+    public double calculateAlpha(final Map<Integer, Double> connectionToDemand) {
 
-                        if (node.getIncomingLinks().size() > 0) {
+        // Flow of each connection through the network (arc-based or path-based)
+        final List<Connection> connections = new ArrayList<>(simulator.getActiveConnections());
+        ImmutablePair<Double, double[]> result = solver.solve(connections, new FullSplitSolver.Program() {
 
-                            out.format("c3_%d_%d: ", connection.getConnectionId(), node.getNodeId());
+            @Override
+            public void build(LpModel model, CommodityFlowModel flows) {
 
-                            // Flow incoming
-                            boolean first = true;
-                            for (Link link : node.getIncomingLinks()) {
-                                if (!first) {
-                                    out.format(" + ");
-                                }
-                                first = false;
-                                out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
+                // Objective
+                int z = model.addVariable("Z");
+                model.setMaximize(true);
+                model.setObjectiveCoefficient(z, 1.0);
 
-                            out.println(" = 0;");
-
-                        }
-
-                    } else if (node.equals(connection.getDstNode())) {
-
-                        if (node.getOutgoingLinks().size() > 0) {
-
-                            out.format("c3_%d_%d: ", connection.getConnectionId(), node.getNodeId());
-
-                            // Flow outgoing
-                            boolean first = true;
-                            for (Link link : node.getOutgoingLinks()) {
-                                if (!first) {
-                                    out.format(" + ");
-                                }
-                                first = false;
-                                out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            out.println(" = 0;");
+                // Type 0: sum of amount of flow belonging to a connection going out must be larger than its proportional demand
+                for (int c = 0; c < connections.size(); c++) {
+                    flows.addThroughputTerms(c, 1.0);
+                    model.addTerm(z, -connectionToDemand.get(connections.get(c).getConnectionId()));
+                    model.addConstraint(LpModel.Sense.GREATER_EQUAL, 0.0);
+                }
 
-                        }
+                // Type 1 and 3: link capacity and flow conservation constraints
+                flows.addNetworkConstraints();
 
-                    }
+                // Type 2: positive flows only (the default lower bound of the flow variables)
 
-                }
             }
 
-            // Close file
-            out.close();
-
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to write to temporary file.");
-        }
-
-        // Call solver
-        ImmutablePair<Double, Map<String, Double>> result = lpSolver.solve(program.getAbsolutePath(), solution.getAbsolutePath());
+        });
         return result.getLeft();
 
     }
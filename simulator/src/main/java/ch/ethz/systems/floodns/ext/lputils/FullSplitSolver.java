@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import ch.ethz.systems.floodns.core.AcyclicPath;
+import ch.ethz.systems.floodns.core.Connection;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.ext.graphutils.YenTopKspAlgorithmWrapper;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Solver of the full-split linear programs, which builds the flow of the connections through the network either
+ * arc-based (see {@link MultiCommodityFlowModel}) or path-based (see {@link PathFlowModel}).
+ *
+ * The path-based program starts from the k shortest paths of each connection, and is re-solved with the improving
+ * paths added until there are none (column generation). Its size scales with the number of paths that are used
+ * instead of |connections| x |links|, at the cost of solving several (warm started) rounds.
+ */
+class FullSplitSolver {
+
+    /**
+     * Linear program on top of the flow of the connections.
+     */
+    interface Program {
+
+        /**
+         * Add the objective, the variables and the constraints of the program to the model,
+         * including the constraints of the flow model (see {@link CommodityFlowModel#addNetworkConstraints()}).
+         *
+         * @param model     Linear program with the variables of the flow model
+         * @param flows     Flow model
+         */
+        void build(LpModel model, CommodityFlowModel flows);
+
+    }
+
+    private final Network network;
+    private final LpSolver lpSolver;
+    private final CommodityAggregation aggregation;
+    private final int numInitialPaths;
+
+    /**
+     * Constructor of the arc-based solver.
+     *
+     * @param network       Network instance
+     * @param lpSolver      Linear program solver
+     * @param aggregation   Aggregation of the connections into commodities
+     */
+    FullSplitSolver(Network network, LpSolver lpSolver, CommodityAggregation aggregation) {
+        this.network = network;
+        this.lpSolver = lpSolver;
+        this.aggregation = aggregation;
+        this.numInitialPaths = 0;
+    }
+
+    /**
+     * Constructor of the path-based solver.
+     *
+     * @param network           Network instance
+     * @param lpSolver          Linear program solver (which must set the dual values, e.g., {@link SimplexLpSolver})
+     * @param numInitialPaths   Number of shortest paths of each connection to start from (at least one)
+     */
+    FullSplitSolver(Network network, LpSolver lpSolver, int numInitialPaths) {
+        if (numInitialPaths < 1) {
+            throw new IllegalArgumentException("Number of initial paths must be at least one (given: " + numInitialPaths + ").");
+        }
+        this.network = network;
+        this.lpSolver = lpSolver;
+        this.aggregation = null;
+        this.numInitialPaths = numInitialPaths;
+    }
+
+    /**
+     * Solve the program over the connections.
+     *
+     * @param connections   Connections
+     * @param program       Program
+     *
+     * @return  Solution (objective, throughput of each connection)
+     */
+    ImmutablePair<Double, double[]> solve(List<Connection> connections, Program program) {
+        if (aggregation != null) {
+            LpModel model = new LpModel();
+            MultiCommodityFlowModel flows = new MultiCommodityFlowModel(model, network, connections, aggregation);
+            program.build(model, flows);
+            return toThroughput(flows, connections, lpSolver.solve(model));
+        } else {
+            return solvePathBased(connections, program);
+        }
+    }
+
+    /**
+     * Solve the path-based program by column generation.
+     *
+     * @param connections   Connections
+     * @param program       Program
+     *
+     * @return  Solution (objective, throughput of each connection)
+     */
+    private ImmutablePair<Double, double[]> solvePathBased(List<Connection> connections, Program program) {
+
+        // Initial paths: the k shortest paths of each connection
+        YenTopKspAlgorithmWrapper ksp = new YenTopKspAlgorithmWrapper(network);
+        Map<Long, List<AcyclicPath>> pairToPaths = new HashMap<>();
+        List<List<AcyclicPath>> paths = new ArrayList<>();
+        for (Connection connection : connections) {
+            long pair = ((long) connection.getSrcNodeId() << 32) | connection.getDstNodeId();
+            List<AcyclicPath> shortest = pairToPaths.get(pair);
+            if (shortest == null) {
+                shortest = ksp.getShortestPaths(connection.getSrcNodeId(), connection.getDstNodeId(), numInitialPaths);
+                pairToPaths.put(pair, shortest);
+            }
+            paths.add(new ArrayList<>(shortest));
+        }
+
+        // Solve and add the improving paths until there are none, each round starting from the previous basis
+        LpBasis basis = new LpBasis();
+        while (true) {
+            LpModel model = new LpModel();
+            PathFlowModel flows = new PathFlowModel(model, network, connections, paths);
+            program.build(model, flows);
+            flows.assignProgramKeys();
+            basis.applyTo(model);
+            ImmutablePair<Double, double[]> result = lpSolver.solve(model);
+            if (!flows.addImprovingPaths()) {
+                return toThroughput(flows, connections, result);
+            }
+            basis = new LpBasis();
+            basis.capture(model);
+        }
+
+    }
+
+    private static ImmutablePair<Double, double[]> toThroughput(CommodityFlowModel flows, List<Connection> connections,
+                                                               ImmutablePair<Double, double[]> result) {
+        double[] throughput = new double[connections.size()];
+        for (int c = 0; c < connections.size(); c++) {
+            throughput[c] = flows.getThroughput(result.getRight(), c);
+        }
+        return new ImmutablePair<>(result.getLeft(), throughput);
+    }
+
+}
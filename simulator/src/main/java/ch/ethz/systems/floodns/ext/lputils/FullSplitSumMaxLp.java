@@ -27,11 +27,10 @@ package ch.ethz.systems.floodns.ext.lputils;
 import ch.ethz.systems.floodns.core.*;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -47,15 +46,40 @@ import java.util.Map;
 public class FullSplitSumMaxLp {
 
     private final Simulator simulator;
-    private final Network network;
     private final Map<Integer, Double> mapConnectionToThroughput;
-    private final LpSolver lpSolver;
+    private final FullSplitSolver solver;
 
     public FullSplitSumMaxLp(Simulator simulator, LpSolver lpSolver) {
+        this(simulator, lpSolver, CommodityAggregation.NONE);
+    }
+
+    /**
+     * Constructor of the arc-based linear program.
+     *
+     * @param simulator     Simulator instance
+     * @param lpSolver      Linear program solver
+     * @param aggregation   Aggregation of the connections into commodities (the optimum is the same for each)
+     */
+    public FullSplitSumMaxLp(Simulator simulator, LpSolver lpSolver, CommodityAggregation aggregation) {
+        this(simulator, new FullSplitSolver(simulator.getNetwork(), lpSolver, aggregation));
+    }
+
+    /**
+     * Constructor of the path-based linear program, which is solved by column generation starting from the
+     * k shortest paths of each connection (the optimum is the same as that of the arc-based one).
+     *
+     * @param simulator         Simulator instance
+     * @param lpSolver          Linear program solver (which must set the dual values, e.g., {@link SimplexLpSolver})
+     * @param numInitialPaths   Number of shortest paths of each connection to start from (at least one)
+     */
+    public FullSplitSumMaxLp(Simulator simulator, LpSolver lpSolver, int numInitialPaths) {
+        this(simulator, new FullSplitSolver(simulator.getNetwork(), lpSolver, numInitialPaths));
+    }
+
+    private FullSplitSumMaxLp(Simulator simulator, FullSplitSolver solver) {
         this.simulator = simulator;
-        this.network = simulator.getNetwork();
         this.mapConnectionToThroughput = new HashMap<>();
-        this.lpSolver = lpSolver;
+        this.solver = solver;
     }
 
     /**
@@ -65,201 +89,39 @@ public class FullSplitSumMaxLp {
      *
      * @return  Maximum total throughput achievable across all demands
      */
-    public double calculateMaxTotalThroughput(Map<Integer, Double> connectionToDemand) {
+    public double calculateMaxTotalThroughput(final Map<Integer, Double> connectionToDemand) {
 
-        // Open file
-        File program;
-        File solution;
-        try {
-            program = File.createTempFile("program", ".lp");
-            solution = File.createTempFile("solution", ".sol");
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to create temporary file for linear program and/or solution.");
-        }
-
-        // Write linear program to file
-        try {
+        // Flow of each connection through the network (arc-based or path-based)
+        final List<Connection> connections = new ArrayList<>(simulator.getActiveConnections());
+        ImmutablePair<Double, double[]> result = solver.solve(connections, new FullSplitSolver.Program() {
 
-            // Open writer
-            PrintWriter out = new PrintWriter(program);
+            @Override
+            public void build(LpModel model, CommodityFlowModel flows) {
 
-            // Objective
-            out.print("max: ");
-            boolean first1 = true;
-            for (Connection connection : simulator.getActiveConnections()) {
-                for (Link link : connection.getDstNode().getIncomingLinks()) {
-                    if (!first1) {
-                        out.format(" + ");
-                    }
-                    first1 = false;
-                    out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
+                // Objective: total flow arriving at the destinations
+                model.setMaximize(true);
+                for (int c = 0; c < connections.size(); c++) {
+                    flows.setThroughputObjective(c, 1.0);
                 }
-            }
-            out.println(";");
-            out.println();
 
-            // Sum of amount of flow belonging to a connection going out must be larger than 0 but not more than
-            // its proportional demand
-            out.println("// Type 0: flow fairness constraints");
-            for (Connection connection : simulator.getActiveConnections()) {
-                out.format("c0_%d_1: ", connection.getConnectionId());
-                boolean first = true;
-                for (Link link : connection.getSrcNode().getOutgoingLinks()) {
-                    if (!first) {
-                        out.format(" + ");
-                    }
-                    first = false;
-                    out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
+                // Type 0: sum of amount of flow belonging to a connection going out must be larger than 0
+                // (the default lower bound of the flow variables) but not more than its proportional demand
+                for (int c = 0; c < connections.size(); c++) {
+                    flows.addThroughputTerms(c, 1.0);
+                    model.addConstraint(LpModel.Sense.LESS_EQUAL, connectionToDemand.get(connections.get(c).getConnectionId()));
                 }
-                out.format(" >= 0;");
-                out.println();
-            }
-            for (Connection connection : simulator.getActiveConnections()) {
-                out.format("c0_%d_2: ", connection.getConnectionId());
-                boolean first = true;
-                for (Link link : connection.getSrcNode().getOutgoingLinks()) {
-                    if (!first) {
-                        out.format(" + ");
-                    }
-                    first = false;
-                    out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                }
-                out.format(" <= %f;", connectionToDemand.get(connection.getConnectionId()));
-                out.println();
-            }
-
-            out.println();
-
-            // Link capacity constraints
-            out.println("// Type 1: link capacity constraints");
-            for (Link link : network.getPresentLinks()) {
-                out.format("c1_%d: ", link.getLinkId());
-                boolean first = true;
-                for (Connection connection : simulator.getActiveConnections()) {
-                    if (!first) {
-                        out.format(" + ");
-                    }
-                    first = false;
-                    out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                }
-                out.format(" <= %f;", link.getCapacity());
-                out.println();
-            }
-
-            out.println();
-
-            // Link capacity constraints
-            out.println("// Type 1.5: link capacity lower bound");
-            for (Link link : network.getPresentLinks()) {
-                for (Connection connection : simulator.getActiveConnections()) {
-                    out.format("c1.5_%d%d: f_%d_%d >= 0;\n", connection.getConnectionId(), link.getLinkId(), connection.getConnectionId(), link.getLinkId());
-                }
-            }
-
-            // Flow conservation constraints
-            out.println("// Type 2: flow conservation constraints");
-
-            for (Connection connection : simulator.getActiveConnections()) {
-                for (Node node : network.getNodes()) {
-                    if (!node.equals(connection.getSrcNode()) && !node.equals(connection.getDstNode())) {
-
-                        if (node.getIncomingLinks().size() > 0 || node.getOutgoingLinks().size() > 0) {
 
-                            out.format("c2_%d_%d: ", connection.getConnectionId(), node.getNodeId());
+                // Type 1 and 2: link capacity and flow conservation constraints
+                flows.addNetworkConstraints();
 
-                            // Flow incoming
-                            boolean first = true;
-                            for (Link link : node.getIncomingLinks()) {
-                                if (!first) {
-                                    out.format(" + ");
-                                }
-                                first = false;
-                                out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            // Flow outgoing
-                            for (Link link : node.getOutgoingLinks()) {
-                                out.format(" - f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            out.println(" = 0;");
-
-                        }
-
-                    } else if (node.equals(connection.getSrcNode())) {
-
-                        if (node.getIncomingLinks().size() > 0) {
-
-                            out.format("c2_%d_%d: ", connection.getConnectionId(), node.getNodeId());
-
-                            // Flow incoming
-                            boolean first = true;
-                            for (Link link : node.getIncomingLinks()) {
-                                if (!first) {
-                                    out.format(" + ");
-                                }
-                                first = false;
-                                out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            out.println(" = 0;");
-
-                        }
-
-                    } else if (node.equals(connection.getDstNode())) {
-
-                        if (node.getOutgoingLinks().size() > 0) {
-
-                            out.format("c2_%d_%d: ", connection.getConnectionId(), node.getNodeId());
-
-                            // Flow incoming
-                            boolean first = true;
-                            for (Link link : node.getOutgoingLinks()) {
-                                if (!first) {
-                                    out.format(" + ");
-                                }
-                                first = false;
-                                out.format("f_%d_%d", connection.getConnectionId(), link.getLinkId());
-                            }
-
-                            out.println(" = 0;");
-
-                        }
-
-                    }
-
-                }
             }
 
-            // Close file
-            out.close();
-
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to write to temporary file.");
-        }
-
-        // Call solver
-        ImmutablePair<Double, Map<String, Double>> result = lpSolver.solve(program.getAbsolutePath(), solution.getAbsolutePath());
+        });
 
         // Save results
         mapConnectionToThroughput.clear();
-        for (Connection conn : simulator.getActiveConnections()) {
-            mapConnectionToThroughput.put(conn.getConnectionId(), 0.0);
-        }
-        for (Map.Entry<String, Double> entry : result.getRight().entrySet()) {
-
-            if (entry.getKey().startsWith("f_")) {
-
-                int connId = Integer.parseInt(entry.getKey().split("_")[1]);
-                int linkId = Integer.parseInt(entry.getKey().split("_")[2]);
-                Double value = entry.getValue();
-
-                if (simulator.getActiveConnection(connId).getSrcNode().getOutgoingLinks().contains(network.getLink(linkId))) {
-                    mapConnectionToThroughput.put(connId, value + mapConnectionToThroughput.get(connId));
-                }
-
-            }
-
+        for (int c = 0; c < connections.size(); c++) {
+            mapConnectionToThroughput.put(connections.get(c).getConnectionId(), result.getRight()[c]);
         }
 
         // Return final total throughput
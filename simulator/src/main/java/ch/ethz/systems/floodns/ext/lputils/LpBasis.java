@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Basis of solved linear programs by the key of their variables and constraints, which carries the optimal
+ * basis of one {@link LpModel} over to the model of a later solve in which only some variables and constraints
+ * were added or removed (e.g., the linear program of an allocator in the next time tick). Starting from it,
+ * the {@link SimplexLpSolver} typically needs only a few iterations to re-optimize.
+ *
+ * Variables and constraints without a key are not carried over. The methods are synchronized, such that the
+ * models of independent linear programs (with disjoint keys) can be captured concurrently.
+ */
+public class LpBasis {
+
+    private final Map<Long, LpModel.BasisStatus> variableStatus;
+    private final Map<Long, LpModel.BasisStatus> constraintStatus;
+
+    public LpBasis() {
+        this.variableStatus = new HashMap<>();
+        this.constraintStatus = new HashMap<>();
+    }
+
+    /**
+     * Record the basis status of the keyed variables and constraints of a solved model.
+     *
+     * @param model     Linear program
+     */
+    public synchronized void capture(LpModel model) {
+        if (!model.hasBasis()) {
+            return;
+        }
+        for (int j = 0; j < model.getNumVariables(); j++) {
+            if (model.getVariableKey(j) != LpModel.NO_KEY && model.getVariableStatus(j) != null) {
+                variableStatus.put(model.getVariableKey(j), model.getVariableStatus(j));
+            }
+        }
+        for (int i = 0; i < model.getNumConstraints(); i++) {
+            if (model.getConstraintKey(i) != LpModel.NO_KEY && model.getConstraintStatus(i) != null) {
+                constraintStatus.put(model.getConstraintKey(i), model.getConstraintStatus(i));
+            }
+        }
+    }
+
+    /**
+     * Set the recorded basis status of the keyed variables and constraints of a model to start from.
+     * Variables and constraints which are new have no status.
+     *
+     * @param model     Linear program
+     */
+    public synchronized void applyTo(LpModel model) {
+        if (isEmpty()) {
+            return;
+        }
+        for (int j = 0; j < model.getNumVariables(); j++) {
+            if (model.getVariableKey(j) != LpModel.NO_KEY) {
+                model.setVariableStatus(j, variableStatus.get(model.getVariableKey(j)));
+            }
+        }
+        for (int i = 0; i < model.getNumConstraints(); i++) {
+            if (model.getConstraintKey(i) != LpModel.NO_KEY) {
+                model.setConstraintStatus(i, constraintStatus.get(model.getConstraintKey(i)));
+            }
+        }
+    }
+
+    /**
+     * Check whether no status is recorded.
+     *
+     * @return  True iff empty
+     */
+    public synchronized boolean isEmpty() {
+        return variableStatus.isEmpty() && constraintStatus.isEmpty();
+    }
+
+}
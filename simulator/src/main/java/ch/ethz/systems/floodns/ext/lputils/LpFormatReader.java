@@ -0,0 +1,332 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader of linear programs in the LP format (as written by the LP-based allocators), for example:
+ *
+ * <pre>
+ * // Objective
+ * max: Z;
+ *
+ * c0_1: f_1 + f_2 - 0.5 Z &gt;= 0;
+ * c1: 3 f_1 + 2 &lt;= 10 - f_2;
+ * free Z;
+ * </pre>
+ *
+ * Supported are an objective (max: or min:), optionally named constraints (&lt;=, &gt;=, =, also as a
+ * range over two relational operators), free variable declarations, and line and block comments.
+ * Variables are non-negative unless declared free. Integer variables are not supported.
+ */
+class LpFormatReader {
+
+    private LpFormatReader() {
+        // Static class only
+    }
+
+    /**
+     * Read the linear program from a file.
+     *
+     * @param filename  LP format filename
+     *
+     * @return  Linear program
+     */
+    static LpModel read(String filename) {
+        try {
+            return parse(new String(Files.readAllBytes(Paths.get(filename)), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read linear program file: " + filename);
+        }
+    }
+
+    /**
+     * Parse the linear program.
+     *
+     * @param text  Linear program in LP format
+     *
+     * @return  Linear program
+     */
+    static LpModel parse(String text) {
+        LpModel program = new LpModel();
+        Map<String, Integer> nameToVariable = new HashMap<>();
+        for (String statement : stripComments(text).split(";")) {
+            statement = statement.trim();
+            if (!statement.isEmpty()) {
+                parseStatement(program, nameToVariable, statement);
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Retrieve the index of the variable with the given name, adding it if it does not yet exist.
+     *
+     * @param program           Linear program
+     * @param nameToVariable    Variable name to its index
+     * @param name              Variable name
+     *
+     * @return  Variable index
+     */
+    private static int variable(LpModel program, Map<String, Integer> nameToVariable, String name) {
+        Integer index = nameToVariable.get(name);
+        if (index == null) {
+            index = program.addVariable(name);
+            nameToVariable.put(name, index);
+        }
+        return index;
+    }
+
+    /**
+     * Remove all line and block comments.
+     *
+     * @param text  Text
+     *
+     * @return  Text without comments
+     */
+    private static String stripComments(String text) {
+        StringBuilder builder = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            if (text.startsWith("//", i)) {
+                while (i < text.length() && text.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (text.startsWith("/*", i)) {
+                int end = text.indexOf("*/", i + 2);
+                if (end == -1) {
+                    throw new IllegalArgumentException("Unterminated block comment in linear program.");
+                }
+                i = end + 2;
+                builder.append(' ');
+            } else {
+                builder.append(text.charAt(i));
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void parseStatement(LpModel program, Map<String, Integer> nameToVariable, String statement) {
+
+        // Objective
+        String lower = statement.toLowerCase();
+        for (String prefix : new String[]{"maximize:", "maximise:", "max:"}) {
+            if (lower.startsWith(prefix)) {
+                setObjective(program, true, parseExpression(program, nameToVariable, statement.substring(prefix.length())));
+                return;
+            }
+        }
+        for (String prefix : new String[]{"minimize:", "minimise:", "min:"}) {
+            if (lower.startsWith(prefix)) {
+                setObjective(program, false, parseExpression(program, nameToVariable, statement.substring(prefix.length())));
+                return;
+            }
+        }
+
+        // Declarations
+        if (lower.startsWith("free ")) {
+            for (String name : statement.substring(5).split("[,\\s]+")) {
+                if (!name.isEmpty()) {
+                    int variable = variable(program, nameToVariable, name);
+                    program.setBounds(variable, Double.NEGATIVE_INFINITY, program.getUpperBound(variable));
+                }
+            }
+            return;
+        }
+        if (lower.startsWith("int ") || lower.startsWith("bin ") || lower.startsWith("sec ") || lower.startsWith("sin ")) {
+            throw new IllegalArgumentException("Only continuous variables are supported: " + statement);
+        }
+
+        // Name of the constraint
+        String name = null;
+        int colon = statement.indexOf(':');
+        if (colon != -1) {
+            name = statement.substring(0, colon).trim();
+            if (!name.matches("[A-Za-z_][A-Za-z0-9_\\[\\].]*")) {
+                throw new IllegalArgumentException("Invalid constraint name: " + name);
+            }
+            statement = statement.substring(colon + 1);
+        }
+
+        // Split over the relational operators
+        List<String> parts = new ArrayList<>();
+        List<LpModel.Sense> senses = new ArrayList<>();
+        int start = 0;
+        int i = 0;
+        while (i < statement.length()) {
+            char c = statement.charAt(i);
+            if (c == '<' || c == '>' || c == '=') {
+                parts.add(statement.substring(start, i));
+                int length = 1;
+                if (i + 1 < statement.length() && "<>=".indexOf(statement.charAt(i + 1)) != -1) {
+                    length = 2;
+                }
+                String operator = statement.substring(i, i + length);
+                if (operator.equals("<") || operator.equals("<=") || operator.equals("=<")) {
+                    senses.add(LpModel.Sense.LESS_EQUAL);
+                } else if (operator.equals(">") || operator.equals(">=") || operator.equals("=>")) {
+                    senses.add(LpModel.Sense.GREATER_EQUAL);
+                } else if (operator.equals("=")) {
+                    senses.add(LpModel.Sense.EQUAL);
+                } else {
+                    throw new IllegalArgumentException("Invalid relational operator " + operator + " in: " + statement);
+                }
+                i += length;
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        parts.add(statement.substring(start));
+        if (senses.isEmpty() || senses.size() > 2) {
+            throw new IllegalArgumentException("Constraint must have one or two relational operators: " + statement);
+        }
+
+        // Each pair of consecutive parts is a constraint
+        List<Expression> expressions = new ArrayList<>();
+        for (String part : parts) {
+            expressions.add(parseExpression(program, nameToVariable, part));
+        }
+        for (int k = 0; k < senses.size(); k++) {
+            Expression left = expressions.get(k);
+            Expression right = expressions.get(k + 1);
+            Map<Integer, Double> terms = new LinkedHashMap<>(left.terms);
+            for (Map.Entry<Integer, Double> term : right.terms.entrySet()) {
+                Double value = terms.get(term.getKey());
+                terms.put(term.getKey(), (value == null ? 0.0 : value) - term.getValue());
+            }
+            String rowName = name == null || senses.size() == 1 ? name : name + "_" + k;
+            for (Map.Entry<Integer, Double> term : terms.entrySet()) {
+                program.addTerm(term.getKey(), term.getValue());
+            }
+            program.addConstraint(rowName, senses.get(k), right.constant - left.constant);
+        }
+
+    }
+
+    private static void setObjective(LpModel program, boolean maximize, Expression expression) {
+        program.setMaximize(maximize);
+        for (Map.Entry<Integer, Double> term : expression.terms.entrySet()) {
+            program.setObjectiveCoefficient(term.getKey(), term.getValue());
+        }
+        program.setObjectiveConstant(expression.constant);
+    }
+
+    /**
+     * Linear expression: SUM_i terms[i] * x_i + constant
+     */
+    private static class Expression {
+        private final Map<Integer, Double> terms = new LinkedHashMap<>();
+        private double constant = 0.0;
+    }
+
+    /**
+     * Parse a linear expression of terms such as "3 x", "- 0.5 x", "3 * x", "x" and constants.
+     *
+     * @param program           Linear program (to register the variables at)
+     * @param nameToVariable    Variable name to its index
+     * @param text              Expression text
+     *
+     * @return  Expression
+     */
+    private static Expression parseExpression(LpModel program, Map<String, Integer> nameToVariable, String text) {
+        Expression expression = new Expression();
+        double sign = 1.0;
+        Double coefficient = null;
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '*') {
+                i++;
+            } else if (c == '+' || c == '-') {
+                if (coefficient != null) {
+                    expression.constant += sign * coefficient;
+                    coefficient = null;
+                    sign = 1.0;
+                }
+                if (c == '-') {
+                    sign = -sign;
+                }
+                i++;
+            } else if (Character.isDigit(c) || c == '.') {
+                int start = i;
+                while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+                    i++;
+                }
+                if (i < text.length() && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+                    int exponent = i + 1;
+                    if (exponent < text.length() && (text.charAt(exponent) == '+' || text.charAt(exponent) == '-')) {
+                        exponent++;
+                    }
+                    if (exponent < text.length() && Character.isDigit(text.charAt(exponent))) {
+                        i = exponent;
+                        while (i < text.length() && Character.isDigit(text.charAt(i))) {
+                            i++;
+                        }
+                    }
+                }
+                double value;
+                try {
+                    value = Double.parseDouble(text.substring(start, i));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid number in expression: " + text);
+                }
+                coefficient = coefficient == null ? value : coefficient * value;
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < text.length() && isVariableCharacter(text.charAt(i))) {
+                    i++;
+                }
+                int variable = variable(program, nameToVariable, text.substring(start, i));
+                double value = sign * (coefficient == null ? 1.0 : coefficient);
+                Double existing = expression.terms.get(variable);
+                expression.terms.put(variable, existing == null ? value : existing + value);
+                coefficient = null;
+                sign = 1.0;
+            } else {
+                throw new IllegalArgumentException("Invalid character '" + c + "' in expression: " + text);
+            }
+        }
+        if (coefficient != null) {
+            expression.constant += sign * coefficient;
+        }
+        return expression;
+    }
+
+    private static boolean isVariableCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '[' || c == ']' || c == '.';
+    }
+
+}
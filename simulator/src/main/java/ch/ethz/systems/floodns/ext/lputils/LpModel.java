@@ -0,0 +1,573 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * In-memory linear program over continuous variables identified by their index, with a linear
+ * objective, variable bounds and linear constraints stored as sparse rows in primitive arrays.
+ *
+ * A constraint is built by adding its terms with {@link #addTerm(int, double)}, after which
+ * {@link #addConstraint(Sense, double)} closes it with its sense and right-hand side. Variables are
+ * non-negative by default. Names of variables and constraints are optional, and only used when
+ * the model is written in LP format for a file-based solver (unnamed ones are x&lt;index&gt; and c&lt;index&gt;).
+ *
+ * Solvers consume the model via {@link LpSolver#solve(LpModel)}, which returns the variable values by index.
+ *
+ * A solver which is able to warm start (i.e., the {@link SimplexLpSolver}) starts from the basis status of the
+ * variables and constraints if any is set, and sets the status of the optimal basis afterwards. To carry a basis
+ * over to the model of a later solve (see {@link LpBasis}), variables and constraints can be given a key which
+ * identifies them across models. Such a solver also sets the dual value of each constraint, which is the
+ * rate at which the optimal objective changes with its right-hand side.
+ */
+public class LpModel {
+
+    public enum Sense {
+        LESS_EQUAL,
+        GREATER_EQUAL,
+        EQUAL
+    }
+
+    /**
+     * Status of a variable (or the slack of a constraint) in a basis.
+     */
+    public enum BasisStatus {
+        BASIC,
+        AT_LOWER,
+        AT_UPPER
+    }
+
+    // Key of a variable or constraint without key
+    public static final long NO_KEY = -1;
+
+    // Variables
+    private int numVariables;
+    private String[] variableNames;
+    private double[] lowerBounds;
+    private double[] upperBounds;
+    private long[] variableKeys;
+    private BasisStatus[] variableStatus;
+
+    // Objective
+    private boolean maximize;
+    private double[] objective;
+    private double objectiveConstant;
+
+    // Constraints (the terms of constraint i are at [constraintStart[i], constraintStart[i + 1]))
+    private int numConstraints;
+    private String[] constraintNames;
+    private Sense[] senses;
+    private double[] rhs;
+    private int[] constraintStart;
+    private long[] constraintKeys;
+    private BasisStatus[] constraintStatus;
+    private boolean hasBasis;
+    private double[] constraintDuals;
+    private boolean hasDuals;
+
+    // Terms of all constraints, the ones after the start of the last constraint are not yet closed
+    private int numTerms;
+    private int[] termVariables;
+    private double[] termCoefficients;
+
+    public LpModel() {
+        this.numVariables = 0;
+        this.variableNames = new String[16];
+        this.lowerBounds = new double[16];
+        this.upperBounds = new double[16];
+        this.variableKeys = new long[16];
+        this.variableStatus = new BasisStatus[16];
+        this.maximize = false;
+        this.objective = new double[16];
+        this.objectiveConstant = 0.0;
+        this.numConstraints = 0;
+        this.constraintNames = new String[16];
+        this.senses = new Sense[16];
+        this.rhs = new double[16];
+        this.constraintStart = new int[17];
+        this.constraintKeys = new long[16];
+        this.constraintStatus = new BasisStatus[16];
+        this.hasBasis = false;
+        this.constraintDuals = new double[16];
+        this.hasDuals = false;
+        this.numTerms = 0;
+        this.termVariables = new int[64];
+        this.termCoefficients = new double[64];
+    }
+
+    /**
+     * Add an unnamed non-negative variable.
+     *
+     * @return  Variable index
+     */
+    public int addVariable() {
+        return addVariable(null);
+    }
+
+    /**
+     * Add a named non-negative variable.
+     *
+     * @param name  Variable name (null, if unnamed)
+     *
+     * @return  Variable index
+     */
+    public int addVariable(String name) {
+        if (numVariables == lowerBounds.length) {
+            int capacity = 2 * numVariables;
+            variableNames = Arrays.copyOf(variableNames, capacity);
+            lowerBounds = Arrays.copyOf(lowerBounds, capacity);
+            upperBounds = Arrays.copyOf(upperBounds, capacity);
+            variableKeys = Arrays.copyOf(variableKeys, capacity);
+            variableStatus = Arrays.copyOf(variableStatus, capacity);
+            objective = Arrays.copyOf(objective, capacity);
+        }
+        variableNames[numVariables] = name;
+        lowerBounds[numVariables] = 0.0;
+        upperBounds[numVariables] = Double.POSITIVE_INFINITY;
+        variableKeys[numVariables] = NO_KEY;
+        objective[numVariables] = 0.0;
+        return numVariables++;
+    }
+
+    /**
+     * Set the bounds of a variable.
+     *
+     * @param variable  Variable index
+     * @param lower     Lower bound (can be negative infinity)
+     * @param upper     Upper bound (can be positive infinity)
+     */
+    public void setBounds(int variable, double lower, double upper) {
+        checkVariable(variable);
+        if (lower > upper || lower == Double.POSITIVE_INFINITY || upper == Double.NEGATIVE_INFINITY) {
+            throw new IllegalArgumentException("Invalid bounds [" + lower + ", " + upper + "] for variable " + variable);
+        }
+        lowerBounds[variable] = lower;
+        upperBounds[variable] = upper;
+    }
+
+    /**
+     * Set whether the objective is to be maximized (else, minimized; the default).
+     *
+     * @param maximize  True iff to maximize
+     */
+    public void setMaximize(boolean maximize) {
+        this.maximize = maximize;
+    }
+
+    /**
+     * Set the objective coefficient of a variable (zero by default).
+     *
+     * @param variable      Variable index
+     * @param coefficient   Objective coefficient
+     */
+    public void setObjectiveCoefficient(int variable, double coefficient) {
+        checkVariable(variable);
+        objective[variable] = coefficient;
+    }
+
+    /**
+     * Set the constant term of the objective (zero by default).
+     *
+     * @param constant  Constant term
+     */
+    public void setObjectiveConstant(double constant) {
+        this.objectiveConstant = constant;
+    }
+
+    /**
+     * Add a term to the constraint under construction. Terms with a zero coefficient
+     * are left out, and terms of the same variable add up.
+     *
+     * @param variable      Variable index
+     * @param coefficient   Coefficient
+     */
+    public void addTerm(int variable, double coefficient) {
+        checkVariable(variable);
+        if (coefficient == 0.0) {
+            return;
+        }
+        if (numTerms == termVariables.length) {
+            termVariables = Arrays.copyOf(termVariables, 2 * numTerms);
+            termCoefficients = Arrays.copyOf(termCoefficients, 2 * numTerms);
+        }
+        termVariables[numTerms] = variable;
+        termCoefficients[numTerms] = coefficient;
+        numTerms++;
+    }
+
+    /**
+     * Close the constraint under construction as an unnamed constraint:
+     * SUM (terms added since the previous constraint) (sense) rhs.
+     *
+     * @param sense     Sense
+     * @param rhs       Right-hand side
+     *
+     * @return  Constraint index
+     */
+    public int addConstraint(Sense sense, double rhs) {
+        return addConstraint(null, sense, rhs);
+    }
+
+    /**
+     * Close the constraint under construction as a named constraint:
+     * SUM (terms added since the previous constraint) (sense) rhs.
+     *
+     * @param name      Constraint name (null, if unnamed)
+     * @param sense     Sense
+     * @param rhs       Right-hand side
+     *
+     * @return  Constraint index
+     */
+    public int addConstraint(String name, Sense sense, double rhs) {
+        if (numConstraints == senses.length) {
+            int capacity = 2 * numConstraints;
+            constraintNames = Arrays.copyOf(constraintNames, capacity);
+            senses = Arrays.copyOf(senses, capacity);
+            this.rhs = Arrays.copyOf(this.rhs, capacity);
+            constraintStart = Arrays.copyOf(constraintStart, capacity + 1);
+            constraintKeys = Arrays.copyOf(constraintKeys, capacity);
+            constraintStatus = Arrays.copyOf(constraintStatus, capacity);
+            constraintDuals = Arrays.copyOf(constraintDuals, capacity);
+        }
+        constraintNames[numConstraints] = name;
+        constraintKeys[numConstraints] = NO_KEY;
+        senses[numConstraints] = sense;
+        this.rhs[numConstraints] = rhs;
+        constraintStart[numConstraints + 1] = numTerms;
+        return numConstraints++;
+    }
+
+    /**
+     * Set the key which identifies a variable across models (e.g., of successive solves).
+     *
+     * @param variable  Variable index
+     * @param key       Non-negative key (unique among the variables of the model)
+     */
+    public void setVariableKey(int variable, long key) {
+        checkVariable(variable);
+        variableKeys[variable] = key;
+    }
+
+    /**
+     * Set the key which identifies a constraint across models (e.g., of successive solves).
+     *
+     * @param constraint    Constraint index
+     * @param key           Non-negative key (unique among the constraints of the model)
+     */
+    public void setConstraintKey(int constraint, long key) {
+        checkConstraint(constraint);
+        constraintKeys[constraint] = key;
+    }
+
+    /**
+     * Set the basis status of a variable.
+     *
+     * @param variable  Variable index
+     * @param status    Basis status (null, if unknown)
+     */
+    public void setVariableStatus(int variable, BasisStatus status) {
+        checkVariable(variable);
+        variableStatus[variable] = status;
+        hasBasis |= status != null;
+    }
+
+    /**
+     * Set the basis status of (the slack of) a constraint.
+     *
+     * @param constraint    Constraint index
+     * @param status        Basis status (null, if unknown)
+     */
+    public void setConstraintStatus(int constraint, BasisStatus status) {
+        checkConstraint(constraint);
+        constraintStatus[constraint] = status;
+        hasBasis |= status != null;
+    }
+
+    /**
+     * Set the dual value of a constraint.
+     *
+     * @param constraint    Constraint index
+     * @param dual          Dual value (rate of change of the optimal objective with the right-hand side)
+     */
+    public void setConstraintDual(int constraint, double dual) {
+        checkConstraint(constraint);
+        constraintDuals[constraint] = dual;
+        hasDuals = true;
+    }
+
+    /**
+     * Remove the basis status of all variables and constraints.
+     */
+    public void clearBasis() {
+        Arrays.fill(variableStatus, null);
+        Arrays.fill(constraintStatus, null);
+        hasBasis = false;
+    }
+
+    private void checkVariable(int variable) {
+        if (variable < 0 || variable >= numVariables) {
+            throw new IllegalArgumentException("Variable " + variable + " does not exist (number of variables: " + numVariables + ")");
+        }
+    }
+
+    private void checkConstraint(int constraint) {
+        if (constraint < 0 || constraint >= numConstraints) {
+            throw new IllegalArgumentException("Constraint " + constraint + " does not exist (number of constraints: " + numConstraints + ")");
+        }
+    }
+
+    public int getNumVariables() {
+        return numVariables;
+    }
+
+    public String getVariableName(int variable) {
+        return variableNames[variable] == null ? "x" + variable : variableNames[variable];
+    }
+
+    public double getLowerBound(int variable) {
+        return lowerBounds[variable];
+    }
+
+    public double getUpperBound(int variable) {
+        return upperBounds[variable];
+    }
+
+    public long getVariableKey(int variable) {
+        return variableKeys[variable];
+    }
+
+    public BasisStatus getVariableStatus(int variable) {
+        return variableStatus[variable];
+    }
+
+    public boolean isMaximize() {
+        return maximize;
+    }
+
+    public double getObjectiveCoefficient(int variable) {
+        return objective[variable];
+    }
+
+    public double getObjectiveConstant() {
+        return objectiveConstant;
+    }
+
+    public int getNumConstraints() {
+        return numConstraints;
+    }
+
+    public String getConstraintName(int constraint) {
+        return constraintNames[constraint] == null ? "c" + constraint : constraintNames[constraint];
+    }
+
+    public Sense getSense(int constraint) {
+        return senses[constraint];
+    }
+
+    public double getRhs(int constraint) {
+        return rhs[constraint];
+    }
+
+    public long getConstraintKey(int constraint) {
+        return constraintKeys[constraint];
+    }
+
+    public BasisStatus getConstraintStatus(int constraint) {
+        return constraintStatus[constraint];
+    }
+
+    public double getConstraintDual(int constraint) {
+        return constraintDuals[constraint];
+    }
+
+    /**
+     * Check whether the dual values of the constraints are set (by the solver).
+     *
+     * @return  True iff the dual values are set
+     */
+    public boolean hasDuals() {
+        return hasDuals;
+    }
+
+    /**
+     * Check whether the basis status of any variable or constraint is set.
+     *
+     * @return  True iff there is a (partial) basis to start from
+     */
+    public boolean hasBasis() {
+        return hasBasis;
+    }
+
+    /**
+     * Retrieve the position of the first term of a constraint.
+     *
+     * @param constraint    Constraint index
+     *
+     * @return  Term position (the terms of the constraint are at [start, end))
+     */
+    public int getTermStart(int constraint) {
+        return constraintStart[constraint];
+    }
+
+    /**
+     * Retrieve the position after the last term of a constraint.
+     *
+     * @param constraint    Constraint index
+     *
+     * @return  Term position (the terms of the constraint are at [start, end))
+     */
+    public int getTermEnd(int constraint) {
+        return constraintStart[constraint + 1];
+    }
+
+    public int getTermVariable(int term) {
+        return termVariables[term];
+    }
+
+    public double getTermCoefficient(int term) {
+        return termCoefficients[term];
+    }
+
+    /**
+     * Evaluate the objective for the given variable values.
+     *
+     * @param values    Value of each variable
+     *
+     * @return  Objective value
+     */
+    public double evaluateObjective(double[] values) {
+        double value = objectiveConstant;
+        for (int j = 0; j < numVariables; j++) {
+            value += objective[j] * values[j];
+        }
+        return value;
+    }
+
+    /**
+     * Map a solution by variable name (e.g., as retrieved from a solution file) to the variable values.
+     *
+     * @param variables     Variable name to its value (variables which are left out are zero)
+     *
+     * @return  Value of each variable
+     */
+    double[] toValues(Map<String, Double> variables) {
+        double[] values = new double[numVariables];
+        for (int j = 0; j < numVariables; j++) {
+            Double value = variables.get(getVariableName(j));
+            values[j] = value == null ? 0.0 : value;
+        }
+        return values;
+    }
+
+    /**
+     * Write the model in LP format. Bounds other than non-negativity are written as constraints on a single
+     * variable, preceded by a free declaration if the lower bound is negative.
+     *
+     * @param out   Writer
+     */
+    public void write(PrintWriter out) {
+
+        // Objective
+        out.print(maximize ? "max:" : "min:");
+        boolean empty = true;
+        for (int j = 0; j < numVariables; j++) {
+            if (objective[j] != 0.0) {
+                writeTerm(out, objective[j], getVariableName(j), empty);
+                empty = false;
+            }
+        }
+        if (objectiveConstant != 0.0 || empty) {
+            out.print(objectiveConstant < 0 ? " - " : empty ? " " : " + ");
+            out.print(format(Math.abs(objectiveConstant)));
+        }
+        out.println(";");
+        out.println();
+
+        // Constraints
+        for (int i = 0; i < numConstraints; i++) {
+            out.print(getConstraintName(i));
+            out.print(":");
+            for (int k = constraintStart[i]; k < constraintStart[i + 1]; k++) {
+                writeTerm(out, termCoefficients[k], getVariableName(termVariables[k]), k == constraintStart[i]);
+            }
+            if (constraintStart[i] == constraintStart[i + 1]) {
+                out.print(" 0");
+            }
+            out.print(senses[i] == Sense.LESS_EQUAL ? " <= " : senses[i] == Sense.GREATER_EQUAL ? " >= " : " = ");
+            out.print(format(rhs[i]));
+            out.println(";");
+        }
+
+        // Bounds
+        boolean first = true;
+        for (int j = 0; j < numVariables; j++) {
+            if (lowerBounds[j] != 0.0 || upperBounds[j] != Double.POSITIVE_INFINITY) {
+                if (first) {
+                    out.println();
+                    first = false;
+                }
+                if (lowerBounds[j] < 0.0) {
+                    out.println("free " + getVariableName(j) + ";");
+                }
+                if (lowerBounds[j] != 0.0 && lowerBounds[j] != Double.NEGATIVE_INFINITY) {
+                    out.println(getVariableName(j) + " >= " + format(lowerBounds[j]) + ";");
+                }
+                if (upperBounds[j] != Double.POSITIVE_INFINITY) {
+                    out.println(getVariableName(j) + " <= " + format(upperBounds[j]) + ";");
+                }
+            }
+        }
+
+    }
+
+    private static void writeTerm(PrintWriter out, double coefficient, String name, boolean first) {
+        if (coefficient < 0) {
+            out.print(first ? " -" : " - ");
+        } else {
+            out.print(first ? " " : " + ");
+        }
+        if (Math.abs(coefficient) != 1.0) {
+            out.print(format(Math.abs(coefficient)));
+            out.print(" ");
+        }
+        out.print(name);
+    }
+
+    /**
+     * Format a number exactly without exponent, such that any LP format parser can read it.
+     *
+     * @param value     Finite value
+     *
+     * @return  Formatted value
+     */
+    private static String format(double value) {
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+
+}
@@ -2,6 +2,9 @@ package ch.ethz.systems.floodns.ext.lputils;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.Map;
 
 public abstract class LpSolver {
@@ -16,4 +19,45 @@ public abstract class LpSolver {
      */
     public abstract ImmutablePair<Double, Map<String, Double>> solve(String cplexFilename, String solutionFilename);
 
+    /**
+     * Solve an in-memory linear program.
+     *
+     * By default, the model is written in LP format to a temporary file which is solved by
+     * {@link #solve(String, String)}, and the solution is mapped back by variable name. Solvers
+     * which do not need a file override this to consume the model directly.
+     *
+     * @param model     Linear program
+     *
+     * @return Solution (objective, value of each variable by index)
+     */
+    public ImmutablePair<Double, double[]> solve(LpModel model) {
+
+        // Open file
+        File program;
+        File solution;
+        try {
+            program = File.createTempFile("program", ".lp");
+            solution = File.createTempFile("solution", ".sol");
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create temporary file for linear program and solution.");
+        }
+
+        // Write linear program to file
+        try {
+            PrintWriter out = new PrintWriter(program);
+            model.write(out);
+            out.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write to temporary file.");
+        }
+
+        // Call solver (the files are retained if it fails, such that they can be inspected)
+        ImmutablePair<Double, Map<String, Double>> result = solve(program.getAbsolutePath(), solution.getAbsolutePath());
+        if (!program.delete() || !solution.delete()) {
+            throw new IllegalStateException("Unable to delete temporary file of linear program and solution.");
+        }
+        return new ImmutablePair<>(result.getLeft(), model.toValues(result.getRight()));
+
+    }
+
 }
@@ -0,0 +1,300 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import ch.ethz.systems.floodns.core.Connection;
+import ch.ethz.systems.floodns.core.Link;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arc-based flow of the splittable multi-commodity flow problem in the full-split linear programs: a flow variable
+ * f_{k,e} for each commodity k and present link e, link capacity constraints and flow conservation constraints.
+ *
+ * Without aggregation, each connection is a commodity, which has conservation constraints at every node except its
+ * source and destination (no flow goes into its source or out of its destination). Its throughput is the flow going
+ * out of its source. With aggregation (see {@link CommodityAggregation}), each connection gets a throughput variable
+ * t_c instead, and at every node except the source of commodity k the flow of k going in minus going out equals the
+ * throughput of the connections of k with it as destination.
+ *
+ * The flow variables are added to the model first, as such f_{k,e} has index k * |E| + index of e. The throughput
+ * variables (if any) follow them in order of the connections.
+ */
+class MultiCommodityFlowModel implements CommodityFlowModel {
+
+    private final LpModel model;
+    private final Network network;
+    private final CommodityAggregation aggregation;
+    private final List<Connection> connections;
+    private final List<Link> links;
+    private final Map<Link, Integer> linkToIndex;
+
+    // Commodities: source node and connections of each
+    private final List<Node> commoditySources;
+    private final List<List<Integer>> commodityConnections;
+
+    // Index of the first throughput variable
+    private final int firstThroughputVariable;
+
+    /**
+     * Add the flow variables of the commodities (and the throughput variables, if aggregated) to the model.
+     *
+     * @param model         Linear program (without variables)
+     * @param network       Network instance
+     * @param connections   Connections
+     * @param aggregation   Aggregation of the connections into commodities
+     */
+    MultiCommodityFlowModel(LpModel model, Network network, Collection<Connection> connections,
+                            CommodityAggregation aggregation) {
+        this.model = model;
+        this.network = network;
+        this.aggregation = aggregation;
+        this.connections = new ArrayList<>(connections);
+        this.links = new ArrayList<>(network.getPresentLinks());
+        this.linkToIndex = new HashMap<>();
+        for (int i = 0; i < links.size(); i++) {
+            linkToIndex.put(links.get(i), i);
+        }
+
+        // Group the connections into commodities
+        this.commoditySources = new ArrayList<>();
+        this.commodityConnections = new ArrayList<>();
+        Map<Long, Integer> groupToCommodity = new HashMap<>();
+        for (int c = 0; c < this.connections.size(); c++) {
+            Connection connection = this.connections.get(c);
+            long group;
+            switch (aggregation) {
+                case SOURCE:
+                    group = connection.getSrcNodeId();
+                    break;
+                case SOURCE_DESTINATION:
+                    group = ((long) connection.getSrcNodeId() << 32) | connection.getDstNodeId();
+                    break;
+                default:
+                    group = -1 - c;
+            }
+            Integer k = groupToCommodity.get(group);
+            if (k == null) {
+                k = commoditySources.size();
+                groupToCommodity.put(group, k);
+                commoditySources.add(connection.getSrcNode());
+                commodityConnections.add(new ArrayList<Integer>());
+            }
+            commodityConnections.get(k).add(c);
+        }
+
+        // Variables
+        for (int i = 0; i < commoditySources.size() * links.size(); i++) {
+            model.addVariable();
+        }
+        this.firstThroughputVariable = model.getNumVariables();
+        if (aggregation != CommodityAggregation.NONE) {
+            for (int c = 0; c < this.connections.size(); c++) {
+                model.addVariable();
+            }
+        }
+
+    }
+
+    @Override
+    public List<Connection> getConnections() {
+        return connections;
+    }
+
+    /**
+     * @return  Number of commodities
+     */
+    int getNumCommodities() {
+        return commoditySources.size();
+    }
+
+    /**
+     * Retrieve the index of flow variable f_{k,e}.
+     *
+     * @param k     Commodity index
+     * @param link  Link e
+     *
+     * @return  Variable index
+     */
+    int getFlowVariable(int k, Link link) {
+        return k * links.size() + linkToIndex.get(link);
+    }
+
+    @Override
+    public void addThroughputTerms(int c, double coefficient) {
+        if (aggregation == CommodityAggregation.NONE) {
+            for (Link link : connections.get(c).getSrcNode().getOutgoingLinks()) {
+                model.addTerm(getFlowVariable(c, link), coefficient);
+            }
+        } else {
+            model.addTerm(firstThroughputVariable + c, coefficient);
+        }
+    }
+
+    @Override
+    public void setThroughputObjective(int c, double coefficient) {
+        if (aggregation == CommodityAggregation.NONE) {
+            // The flow going into the destination (which equals the flow going out of the source)
+            for (Link link : connections.get(c).getDstNode().getIncomingLinks()) {
+                model.setObjectiveCoefficient(getFlowVariable(c, link), coefficient);
+            }
+        } else {
+            model.setObjectiveCoefficient(firstThroughputVariable + c, coefficient);
+        }
+    }
+
+    @Override
+    public double getThroughput(double[] values, int c) {
+        if (aggregation != CommodityAggregation.NONE) {
+            return values[firstThroughputVariable + c];
+        }
+        double flow = 0.0;
+        for (Link link : connections.get(c).getSrcNode().getOutgoingLinks()) {
+            flow += values[getFlowVariable(c, link)];
+        }
+        return flow;
+    }
+
+    @Override
+    public void addNetworkConstraints() {
+        addLinkCapacityConstraints();
+        addFlowConservationConstraints();
+    }
+
+    /**
+     * Add the link capacity constraints: the sum of the flow of all commodities over a link is at most its capacity.
+     */
+    private void addLinkCapacityConstraints() {
+        for (Link link : links) {
+            for (int k = 0; k < commoditySources.size(); k++) {
+                model.addTerm(getFlowVariable(k, link), 1.0);
+            }
+            model.addConstraint(LpModel.Sense.LESS_EQUAL, link.getCapacity());
+        }
+    }
+
+    /**
+     * Add the flow conservation constraints of each commodity.
+     */
+    private void addFlowConservationConstraints() {
+        if (aggregation == CommodityAggregation.NONE) {
+            addConnectionConservationConstraints();
+        } else {
+            addCommodityConservationConstraints();
+        }
+    }
+
+    /**
+     * Add the flow conservation constraints without aggregation: for each connection the flow into a node equals
+     * the flow out of it, no flow goes into its source, and no flow goes out of its destination.
+     */
+    private void addConnectionConservationConstraints() {
+        for (int c = 0; c < connections.size(); c++) {
+            Connection connection = connections.get(c);
+            for (Node node : network.getNodes()) {
+                if (!node.equals(connection.getSrcNode()) && !node.equals(connection.getDstNode())) {
+                    if (node.getIncomingLinks().size() > 0 || node.getOutgoingLinks().size() > 0) {
+                        for (Link link : node.getIncomingLinks()) {
+                            model.addTerm(getFlowVariable(c, link), 1.0);
+                        }
+                        for (Link link : node.getOutgoingLinks()) {
+                            model.addTerm(getFlowVariable(c, link), -1.0);
+                        }
+                        model.addConstraint(LpModel.Sense.EQUAL, 0.0);
+                    }
+                } else if (node.equals(connection.getSrcNode())) {
+                    if (node.getIncomingLinks().size() > 0) {
+                        for (Link link : node.getIncomingLinks()) {
+                            model.addTerm(getFlowVariable(c, link), 1.0);
+                        }
+                        model.addConstraint(LpModel.Sense.EQUAL, 0.0);
+                    }
+                } else if (node.getOutgoingLinks().size() > 0) {
+                    for (Link link : node.getOutgoingLinks()) {
+                        model.addTerm(getFlowVariable(c, link), 1.0);
+                    }
+                    model.addConstraint(LpModel.Sense.EQUAL, 0.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the flow conservation constraints with aggregation: for each commodity no flow goes into its source, and
+     * at any other node the flow in minus the flow out equals the throughput of the connections ending there.
+     */
+    private void addCommodityConservationConstraints() {
+        for (int k = 0; k < commoditySources.size(); k++) {
+            Node source = commoditySources.get(k);
+
+            // Connections of the commodity by destination
+            Map<Node, List<Integer>> destinationToConnections = new HashMap<>();
+            for (int c : commodityConnections.get(k)) {
+                Node destination = connections.get(c).getDstNode();
+                List<Integer> ending = destinationToConnections.get(destination);
+                if (ending == null) {
+                    ending = new ArrayList<>();
+                    destinationToConnections.put(destination, ending);
+                }
+                ending.add(c);
+            }
+
+            for (Node node : network.getNodes()) {
+                if (node.equals(source)) {
+                    if (node.getIncomingLinks().size() > 0) {
+                        for (Link link : node.getIncomingLinks()) {
+                            model.addTerm(getFlowVariable(k, link), 1.0);
+                        }
+                        model.addConstraint(LpModel.Sense.EQUAL, 0.0);
+                    }
+                } else {
+                    List<Integer> ending = destinationToConnections.get(node);
+                    if (node.getIncomingLinks().size() > 0 || node.getOutgoingLinks().size() > 0 || ending != null) {
+                        for (Link link : node.getIncomingLinks()) {
+                            model.addTerm(getFlowVariable(k, link), 1.0);
+                        }
+                        for (Link link : node.getOutgoingLinks()) {
+                            model.addTerm(getFlowVariable(k, link), -1.0);
+                        }
+                        if (ending != null) {
+                            for (int c : ending) {
+                                model.addTerm(firstThroughputVariable + c, -1.0);
+                            }
+                        }
+                        model.addConstraint(LpModel.Sense.EQUAL, 0.0);
+                    }
+                }
+            }
+
+        }
+    }
+
+}
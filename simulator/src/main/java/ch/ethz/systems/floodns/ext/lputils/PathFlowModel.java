@@ -0,0 +1,300 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import ch.ethz.systems.floodns.core.AcyclicPath;
+import ch.ethz.systems.floodns.core.Connection;
+import ch.ethz.systems.floodns.core.Link;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Node;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.util.*;
+
+/**
+ * Path-based flow of the splittable multi-commodity flow problem in the full-split linear programs, restricted to a
+ * set of paths for each connection: a flow variable x_p for each path p of each connection c, a throughput variable
+ * t_c with the definition constraint sum_p x_p - t_c = 0, and a capacity constraint for each link on any path.
+ *
+ * The restricted program is extended by column generation (see {@link #addImprovingPaths()}): after it is solved,
+ * a path which is not yet in it improves the objective iff its reduced cost -y_c - sum_{e in p} y_e is positive,
+ * with y_c the dual value of the definition constraint of its connection and y_e those of the link capacity
+ * constraints (zero for a link without constraint). As such, the improving paths are found as shortest paths
+ * with the dual values of the links as length. If there is none, the solution is optimal for all paths.
+ *
+ * The variables and constraints are keyed (see {@link LpModel#setVariableKey(int, long)}) to warm start the program
+ * of the next round from the basis of the previous one, including those added by the program (which are assumed to
+ * be the same in every round).
+ */
+class PathFlowModel implements CommodityFlowModel {
+
+    // Reduced cost above which a path is improving
+    private static final double PRICING_TOLERANCE = 1e-9;
+
+    // Types of the keys of the variables and constraints
+    private static final int KEY_PATH = 0;
+    private static final int KEY_THROUGHPUT = 1;
+    private static final int KEY_DEFINITION = 0;
+    private static final int KEY_LINK = 1;
+    private static final int KEY_PROGRAM = 2;
+
+    private final LpModel model;
+    private final Network network;
+    private final List<Connection> connections;
+    private final List<List<AcyclicPath>> paths;
+
+    // Variables: the paths of each connection, followed by the throughput of each connection
+    private final int[] firstPathVariable;
+    private final int firstThroughputVariable;
+    private final int numFlowVariables;
+
+    // Constraints: the definition of the throughput of each connection, followed by the capacity of the links on paths
+    private int firstDefinitionConstraint = -1;
+    private final Map<Link, Integer> linkToConstraint;
+
+    /**
+     * Add the path and throughput variables of the connections to the model.
+     *
+     * @param model         Linear program (without variables)
+     * @param network       Network instance
+     * @param connections   Connections
+     * @param paths         Paths of each connection (in order of the connections)
+     */
+    PathFlowModel(LpModel model, Network network, List<Connection> connections, List<List<AcyclicPath>> paths) {
+        this.model = model;
+        this.network = network;
+        this.connections = connections;
+        this.paths = paths;
+        this.firstPathVariable = new int[connections.size()];
+        for (int c = 0; c < connections.size(); c++) {
+            firstPathVariable[c] = model.getNumVariables();
+            for (int p = 0; p < paths.get(c).size(); p++) {
+                model.setVariableKey(model.addVariable(), key(KEY_PATH, c, p));
+            }
+        }
+        this.firstThroughputVariable = model.getNumVariables();
+        for (int c = 0; c < connections.size(); c++) {
+            model.setVariableKey(model.addVariable(), key(KEY_THROUGHPUT, c, 0));
+        }
+        this.numFlowVariables = model.getNumVariables();
+        this.linkToConstraint = new HashMap<>();
+    }
+
+    /**
+     * Key of a variable or constraint.
+     *
+     * @param type  Type of the key
+     * @param c     Connection index (or zero)
+     * @param i     Index within the type (e.g., the path of the connection)
+     *
+     * @return  Key
+     */
+    private static long key(int type, int c, int i) {
+        return ((long) type << 56) | ((long) c << 28) | i;
+    }
+
+    @Override
+    public List<Connection> getConnections() {
+        return connections;
+    }
+
+    @Override
+    public void addThroughputTerms(int c, double coefficient) {
+        model.addTerm(firstThroughputVariable + c, coefficient);
+    }
+
+    @Override
+    public void setThroughputObjective(int c, double coefficient) {
+        model.setObjectiveCoefficient(firstThroughputVariable + c, coefficient);
+    }
+
+    @Override
+    public double getThroughput(double[] values, int c) {
+        return values[firstThroughputVariable + c];
+    }
+
+    @Override
+    public void addNetworkConstraints() {
+
+        // Definition of the throughput of each connection
+        firstDefinitionConstraint = model.getNumConstraints();
+        for (int c = 0; c < connections.size(); c++) {
+            for (int p = 0; p < paths.get(c).size(); p++) {
+                model.addTerm(firstPathVariable[c] + p, 1.0);
+            }
+            model.addTerm(firstThroughputVariable + c, -1.0);
+            model.setConstraintKey(model.addConstraint(LpModel.Sense.EQUAL, 0.0), key(KEY_DEFINITION, c, 0));
+        }
+
+        // Capacity of each link on any path
+        Map<Link, List<Integer>> linkToPathVariables = new HashMap<>();
+        List<Link> links = new ArrayList<>();
+        for (int c = 0; c < connections.size(); c++) {
+            for (int p = 0; p < paths.get(c).size(); p++) {
+                for (Link link : paths.get(c).get(p)) {
+                    List<Integer> variables = linkToPathVariables.get(link);
+                    if (variables == null) {
+                        variables = new ArrayList<>();
+                        linkToPathVariables.put(link, variables);
+                        links.add(link);
+                    }
+                    variables.add(firstPathVariable[c] + p);
+                }
+            }
+        }
+        for (Link link : links) {
+            for (int variable : linkToPathVariables.get(link)) {
+                model.addTerm(variable, 1.0);
+            }
+            int constraint = model.addConstraint(LpModel.Sense.LESS_EQUAL, link.getCapacity());
+            model.setConstraintKey(constraint, key(KEY_LINK, 0, link.getLinkId()));
+            linkToConstraint.put(link, constraint);
+        }
+
+    }
+
+    /**
+     * Key the variables and constraints added by the program (i.e., those without a key) by their position.
+     */
+    void assignProgramKeys() {
+        for (int j = numFlowVariables; j < model.getNumVariables(); j++) {
+            if (model.getVariableKey(j) == LpModel.NO_KEY) {
+                model.setVariableKey(j, key(KEY_PROGRAM, 0, j - numFlowVariables));
+            }
+        }
+        for (int i = 0; i < model.getNumConstraints(); i++) {
+            if (model.getConstraintKey(i) == LpModel.NO_KEY) {
+                model.setConstraintKey(i, key(KEY_PROGRAM, 0, i));
+            }
+        }
+    }
+
+    /**
+     * Price the paths using the dual values of the solved model, and add the shortest path of each connection
+     * to its paths if it is improving.
+     *
+     * @return  True iff any path was added
+     *
+     * @throws IllegalStateException    If the solver did not set the dual values of the model
+     */
+    boolean addImprovingPaths() {
+        if (!model.hasDuals()) {
+            throw new IllegalStateException(
+                    "Path-based linear program requires a solver which sets the dual values (e.g., SimplexLpSolver)."
+            );
+        }
+
+        // Length of each link: its dual value (non-negative for a capacity constraint at the optimum)
+        Map<Link, Double> linkToLength = new HashMap<>();
+        for (Map.Entry<Link, Integer> entry : linkToConstraint.entrySet()) {
+            linkToLength.put(entry.getKey(), Math.max(0.0, model.getConstraintDual(entry.getValue())));
+        }
+
+        // One shortest path tree per source node
+        Map<Node, Link[]> sourceToTree = new HashMap<>();
+        boolean added = false;
+        for (int c = 0; c < connections.size(); c++) {
+            Connection connection = connections.get(c);
+            Link[] tree = sourceToTree.get(connection.getSrcNode());
+            if (tree == null) {
+                tree = shortestPathTree(connection.getSrcNode(), linkToLength);
+                sourceToTree.put(connection.getSrcNode(), tree);
+            }
+
+            // Shortest path to the destination (if reachable)
+            List<Link> reversed = new ArrayList<>();
+            double length = 0.0;
+            int node = connection.getDstNodeId();
+            while (node != connection.getSrcNodeId() && tree[node] != null) {
+                reversed.add(tree[node]);
+                Double linkLength = linkToLength.get(tree[node]);
+                length += linkLength == null ? 0.0 : linkLength;
+                node = tree[node].getFrom();
+            }
+            if (node != connection.getSrcNodeId() || reversed.isEmpty()) {
+                continue;
+            }
+
+            // Added if its reduced cost is positive
+            double dual = model.getConstraintDual(firstDefinitionConstraint + c);
+            if (-dual - length > PRICING_TOLERANCE * Math.max(1.0, Math.abs(dual))) {
+                AcyclicPath path = new AcyclicPath();
+                for (int i = reversed.size() - 1; i >= 0; i--) {
+                    path.add(reversed.get(i));
+                }
+                if (!paths.get(c).contains(path)) {
+                    paths.get(c).add(path);
+                    added = true;
+                }
+            }
+
+        }
+        return added;
+
+    }
+
+    /**
+     * Determine the shortest path tree from a source node using Dijkstra's algorithm.
+     *
+     * @param source            Source node
+     * @param linkToLength      Non-negative length of each link (zero if absent)
+     *
+     * @return  Link into each node in the tree (null for the source and the nodes which are not reachable)
+     */
+    private Link[] shortestPathTree(Node source, Map<Link, Double> linkToLength) {
+        double[] distance = new double[network.getNumNodes()];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Link[] tree = new Link[network.getNumNodes()];
+        boolean[] settled = new boolean[network.getNumNodes()];
+        PriorityQueue<ImmutablePair<Double, Integer>> queue = new PriorityQueue<>(
+                16, new Comparator<ImmutablePair<Double, Integer>>() {
+                    @Override
+                    public int compare(ImmutablePair<Double, Integer> a, ImmutablePair<Double, Integer> b) {
+                        return Double.compare(a.getLeft(), b.getLeft());
+                    }
+                }
+        );
+        distance[source.getNodeId()] = 0.0;
+        queue.add(new ImmutablePair<>(0.0, source.getNodeId()));
+        while (!queue.isEmpty()) {
+            int from = queue.poll().getRight();
+            if (settled[from]) {
+                continue;
+            }
+            settled[from] = true;
+            for (Link link : network.getNode(from).getOutgoingLinks()) {
+                Double length = linkToLength.get(link);
+                double candidate = distance[from] + (length == null ? 0.0 : length);
+                if (candidate < distance[link.getTo()]) {
+                    distance[link.getTo()] = candidate;
+                    tree[link.getTo()] = link;
+                    queue.add(new ImmutablePair<>(candidate, link.getTo()));
+                }
+            }
+        }
+        return tree;
+    }
+
+}
@@ -0,0 +1,363 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Linear program solver which keeps one or more Google OR-tools GLOP worker processes
+ * (external/glop_solver_worker.py) alive for its entire lifetime. In contrast to the {@link GlopLpSolver},
+ * which starts a Python process per solve and exchanges the program and solution via files, each solve is
+ * a single request/response exchange over the standard input/output of an idle worker:
+ *
+ * <pre>
+ *   Request:   SOLVE &lt;number of bytes&gt;\n&lt;program in LP format&gt;
+ *   Response:  OPTIMAL &lt;objective&gt; &lt;number of variables&gt;\n followed by "&lt;name&gt; &lt;value&gt;\n" per variable,
+ *              or ERROR &lt;message&gt;\n
+ * </pre>
+ *
+ * With several workers, programs can be solved concurrently (e.g. by a {@link ch.ethz.systems.floodns.ext.allocator.ComponentLpAllocator}).
+ * A program which is not solved leaves the worker in the pool; a worker which fails (e.g. it crashes or
+ * its response cannot be read) is replaced by a new one. The solution file is not written. The solver
+ * must be {@link #close() closed} after use to end the worker processes.
+ */
+public class PersistentGlopLpSolver extends LpSolver implements AutoCloseable {
+
+    // Class logger
+    private static final Logger logger = LogManager.getLogger(PersistentGlopLpSolver.class);
+
+    // Worker processes
+    private final List<String> workerCommand;
+    private final boolean enableLogInfo;
+    private final List<Worker> workers;
+    private final BlockingQueue<Worker> idleWorkers;
+
+    /**
+     * Constructor.
+     *
+     * @param glopWorkerScript  GLOP worker script (i.e. path to external/glop_solver_worker.py)
+     * @param numWorkers        Number of worker processes (i.e. maximum number of concurrent solves)
+     * @param enableLogInfo     True iff to enable log info
+     */
+    public PersistentGlopLpSolver(String glopWorkerScript, int numWorkers, boolean enableLogInfo) {
+        this(Arrays.asList("python", glopWorkerScript), numWorkers, enableLogInfo);
+    }
+
+    /**
+     * Constructor with the command which starts a worker process.
+     *
+     * @param workerCommand     Worker command (program and its arguments)
+     * @param numWorkers        Number of worker processes (i.e. maximum number of concurrent solves)
+     * @param enableLogInfo     True iff to enable log info
+     */
+    PersistentGlopLpSolver(List<String> workerCommand, int numWorkers, boolean enableLogInfo) {
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("Number of workers must be at least 1 (given: " + numWorkers + ")");
+        }
+        this.workerCommand = new ArrayList<>(workerCommand);
+        this.enableLogInfo = enableLogInfo;
+        this.workers = new ArrayList<>();
+        this.idleWorkers = new LinkedBlockingQueue<>();
+        for (int i = 0; i < numWorkers; i++) {
+            idleWorkers.add(startWorker());
+        }
+    }
+
+    @Override
+    public ImmutablePair<Double, Map<String, Double>> solve(String cplexFilename, String solutionFilename) {
+        try {
+            return solve(Files.readAllBytes(Paths.get(cplexFilename)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to read linear program file: " + cplexFilename, e);
+        }
+    }
+
+    /**
+     * Solve a linear program given in LP format.
+     *
+     * @param program   Linear program text
+     *
+     * @return Solution (objective, map of variable values)
+     */
+    public ImmutablePair<Double, Map<String, Double>> solveProgram(String program) {
+        return solve(program.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Solve an in-memory linear program, which is sent to the worker in LP format without any file.
+     *
+     * @param model     Linear program
+     *
+     * @return Solution (objective, value of each variable by index)
+     */
+    @Override
+    public ImmutablePair<Double, double[]> solve(LpModel model) {
+        StringWriter program = new StringWriter();
+        PrintWriter out = new PrintWriter(program);
+        model.write(out);
+        out.flush();
+        ImmutablePair<Double, Map<String, Double>> result = solveProgram(program.toString());
+        return new ImmutablePair<>(result.getLeft(), model.toValues(result.getRight()));
+    }
+
+    /**
+     * Solve the program on the next idle worker, and return the worker to the pool afterwards.
+     * A worker is only returned as is if its response was read completely (i.e. a solution or
+     * an error reply). On any other failure it is destroyed, and a new worker is started
+     * in its place by the next solve which takes it from the pool.
+     *
+     * @param program   Linear program (LP format, UTF-8)
+     *
+     * @return Solution (objective, map of variable values)
+     */
+    private ImmutablePair<Double, Map<String, Double>> solve(byte[] program) {
+
+        Worker worker;
+        try {
+            worker = idleWorkers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an idle solver worker", e);
+        }
+
+        // Replace a worker which failed before
+        if (worker.isDestroyed()) {
+            try {
+                worker = startWorker();
+            } catch (IllegalStateException e) {
+                idleWorkers.add(worker);
+                throw e;
+            }
+        }
+
+        boolean usable = false;
+        try {
+            ImmutablePair<Double, Map<String, Double>> result = worker.solve(program);
+            usable = true;
+            return result;
+        } catch (WorkerErrorReply e) {
+            usable = true;
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Solver worker failed; it will be replaced by a new worker", e);
+        } finally {
+            if (!usable) {
+                worker.destroy();
+                synchronized (workers) {
+                    workers.remove(worker);
+                }
+            }
+            idleWorkers.add(worker);
+        }
+
+    }
+
+    /**
+     * Start a new worker process.
+     *
+     * @return Worker
+     */
+    private Worker startWorker() {
+        if (enableLogInfo) {
+            logger.info("Starting solver worker " + workerCommand + "...");
+        }
+        try {
+            Worker worker = new Worker(new ProcessBuilder(workerCommand).start());
+            synchronized (workers) {
+                workers.add(worker);
+            }
+            return worker;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to start solver worker: " + workerCommand, e);
+        }
+    }
+
+    /**
+     * End all worker processes. Solves must no longer be in progress, nor can be started afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (workers) {
+            for (Worker worker : workers) {
+                worker.close();
+            }
+            workers.clear();
+        }
+        idleWorkers.clear();
+    }
+
+    /**
+     * Error reply of a worker to a request; the worker remains usable.
+     */
+    private static class WorkerErrorReply extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        WorkerErrorReply(String message) {
+            super(message);
+        }
+
+    }
+
+    /**
+     * Single worker process, which solves one program at a time.
+     */
+    private static class Worker {
+
+        private final Process process;
+        private final OutputStream requests;
+        private final BufferedReader responses;
+        private volatile boolean destroyed;
+
+        Worker(Process process) {
+            this.process = process;
+            this.requests = new BufferedOutputStream(process.getOutputStream());
+            this.responses = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+            // Any error output of the worker is shown
+            final BufferedReader errors = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+            Thread errorLogger = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        String line;
+                        while ((line = errors.readLine()) != null) {
+                            logger.error(line);
+                        }
+                    } catch (IOException e) {
+                        // Worker has ended
+                    }
+                }
+            });
+            errorLogger.setDaemon(true);
+            errorLogger.start();
+        }
+
+        /**
+         * Exchange a single request and response with the worker.
+         *
+         * @param program   Linear program (LP format, UTF-8)
+         *
+         * @return Solution (objective, map of variable values)
+         *
+         * @throws IOException          If the exchange with the worker failed (the worker is no longer usable)
+         * @throws WorkerErrorReply     If the worker replied with an error (the worker remains usable)
+         */
+        ImmutablePair<Double, Map<String, Double>> solve(byte[] program) throws IOException {
+
+            // Request
+            requests.write(("SOLVE " + program.length + "\n").getBytes(StandardCharsets.US_ASCII));
+            requests.write(program);
+            requests.flush();
+
+            // Response header
+            String header = readResponseLine();
+            if (header.startsWith("ERROR")) {
+                throw new WorkerErrorReply(header.substring(5).trim());
+            }
+            String[] spl = header.split(" ");
+            if (spl.length != 3 || !spl[0].equals("OPTIMAL")) {
+                throw new IOException("Invalid response header from solver worker: " + header);
+            }
+            double objective = Double.parseDouble(spl[1]);
+            int numVariables = Integer.parseInt(spl[2]);
+
+            // Variables
+            Map<String, Double> variables = new HashMap<>();
+            for (int i = 0; i < numVariables; i++) {
+                String line = readResponseLine();
+                int space = line.lastIndexOf(' ');
+                if (space == -1) {
+                    throw new IOException("Invalid variable line from solver worker: " + line);
+                }
+                variables.put(line.substring(0, space), Double.valueOf(line.substring(space + 1)));
+            }
+            return new ImmutablePair<>(objective, variables);
+
+        }
+
+        private String readResponseLine() throws IOException {
+            String line = responses.readLine();
+            if (line == null) {
+                throw new IOException("Solver worker ended unexpectedly");
+            }
+            return line;
+        }
+
+        /**
+         * Let the worker end by closing its input, and wait for it.
+         */
+        void close() {
+            try {
+                requests.close();
+                process.waitFor();
+            } catch (IOException e) {
+                process.destroy();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Forcibly end the worker.
+         */
+        void destroy() {
+            destroyed = true;
+            process.destroy();
+        }
+
+        /**
+         * Check whether the worker was forcibly ended.
+         *
+         * @return True iff destroyed
+         */
+        boolean isDestroyed() {
+            return destroyed;
+        }
+
+    }
+
+}
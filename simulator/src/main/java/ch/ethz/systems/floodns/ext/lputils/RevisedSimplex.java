@@ -0,0 +1,961 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounded-variable primal revised simplex method for a {@link LpModel}.
+ *
+ * Constraints on a single variable are applied as bounds of that variable, all other constraints become rows
+ * of A in min c^T x subject to A x + s = b and l &le; (x, s) &le; u, in which the bounds of the slack s
+ * encode the sense of the row. The inverse of the basis is kept in product form as a file of sparse eta
+ * vectors, which is reinverted from the slack basis periodically. Phase 1 minimizes the sum of artificial
+ * variables added for the rows which the initial slack basis cannot satisfy, after which phase 2 minimizes the
+ * objective from the feasible basis.
+ *
+ * If the model has a basis status (e.g., carried over from a previous solve by {@link LpBasis}), it is instead
+ * warm started from that basis: the columns which are not independent are left out, and if the basis is not
+ * primal feasible the sum of infeasibilities is minimized first (composite phase 1, without artificial variables).
+ * If the warm start fails, it is solved from the slack basis. Afterwards, the status of the optimal basis and
+ * the dual value of each constraint are set in the model.
+ *
+ * Pricing is by the most negative reduced cost, the ratio test is the two-pass one of Harris, and after a long
+ * sequence of degenerate pivots Bland's rule is used until progress is made again to prevent cycling.
+ *
+ * Runtime is O(|A| + |eta|) per iteration, with |A| the non-zeros of the constraint matrix and |eta| the non-zeros
+ * of the eta file, and memory O(|A| + |eta|).
+ */
+class RevisedSimplex {
+
+    // Tolerances
+    private static final double PRIMAL_TOLERANCE = 1e-9;
+    private static final double DUAL_TOLERANCE = 1e-9;
+    private static final double PIVOT_TOLERANCE = 1e-9;
+    private static final double DROP_TOLERANCE = 1e-14;
+    private static final double INFEASIBILITY_TOLERANCE = 1e-7;
+
+    // Number of pivots after which the basis is reinverted
+    private static final int REINVERSION_INTERVAL = 100;
+
+    // Number of consecutive degenerate pivots after which Bland's rule is used
+    private static final int MAX_DEGENERATE_PIVOTS = 50;
+
+    private final LpModel program;
+
+    // Dimensions: structural variables, then a slack for each row, then the artificial variables
+    private final int numStructural;
+    private int numRows;
+    private int numArtificial;
+    private int numColumns;
+
+    // Bounds of the structural variables (including the constraints on a single variable), and
+    // the constraint which sets each bound (-1, if it is the bound of the model)
+    private double[] structuralLower;
+    private double[] structuralUpper;
+    private int[] lowerConstraint;
+    private int[] upperConstraint;
+
+    // Rows (b, and the constraint of each) and structural columns of A in compressed sparse column format
+    private double[] rhs;
+    private int[] rowConstraint;
+    private int[] columnStart;
+    private int[] columnRow;
+    private double[] columnValue;
+
+    // Artificial columns (sign times the unit vector of a row)
+    private int[] artificialRow;
+    private double[] artificialSign;
+
+    // Bounds and current values of all columns
+    private double[] lower;
+    private double[] upper;
+    private double[] x;
+
+    // Basis (column of each basis position, and position of each column or -1 if nonbasic)
+    private int[] basis;
+    private int[] basisPosition;
+
+    // Eta file of the basis inverse
+    private int numEtas;
+    private int numEtasAtReinversion;
+    private int[] etaRow;
+    private double[] etaPivot;
+    private int[] etaStart;
+    private int[] etaIndex;
+    private double[] etaValue;
+
+    // Work vectors
+    private double[] column;
+    private double[] duals;
+
+    // State of the iterations
+    private int numIterations;
+    private int numDegeneratePivots;
+    private boolean compositePhase;
+
+    RevisedSimplex(LpModel program) {
+        this.program = program;
+        this.numStructural = program.getNumVariables();
+    }
+
+    /**
+     * Solve the linear program.
+     *
+     * @return  Optimal value of each variable
+     *
+     * @throws IllegalStateException    If the linear program is infeasible or unbounded
+     */
+    double[] solve() {
+
+        // Bounds and rows
+        setUp();
+
+        // Warm start from the basis of the model, or if there is none or it fails, from the slack basis
+        boolean solved = false;
+        if (program.hasBasis()) {
+            try {
+                startFromModelBasis();
+                compositePhase = true;
+                iterate(new double[numColumns]);
+                compositePhase = false;
+                iterate(objectiveCost());
+                solved = true;
+            } catch (IllegalStateException e) {
+                compositePhase = false;
+            }
+        }
+        if (!solved) {
+            startFromSlackBasis();
+            solveFromSlackBasis();
+        }
+
+        // Status of the optimal basis
+        for (int j = 0; j < numStructural; j++) {
+            program.setVariableStatus(j, getStatus(j));
+        }
+        for (int i = 0; i < numRows; i++) {
+            program.setConstraintStatus(rowConstraint[i], getStatus(numStructural + i));
+        }
+        setDuals();
+
+        return Arrays.copyOf(x, numStructural);
+
+    }
+
+    /**
+     * Phase 1 with the artificial variables, followed by phase 2.
+     */
+    private void solveFromSlackBasis() {
+
+        // Phase 1: minimize the sum of the artificial variables
+        if (numArtificial > 0) {
+            double[] cost = new double[numColumns];
+            for (int j = numStructural + numRows; j < numColumns; j++) {
+                cost[j] = 1.0;
+            }
+            iterate(cost);
+
+            // Infeasible if the artificial variables cannot all be zero
+            double maxRhs = 1.0;
+            for (int i = 0; i < numRows; i++) {
+                maxRhs = Math.max(maxRhs, Math.abs(rhs[i]));
+            }
+            double infeasibility = 0.0;
+            for (int j = numStructural + numRows; j < numColumns; j++) {
+                infeasibility += x[j];
+            }
+            if (infeasibility > INFEASIBILITY_TOLERANCE * maxRhs) {
+                throw new IllegalStateException("Linear program was not solved; it is infeasible.");
+            }
+
+            // Artificial variables are fixed at zero from now on
+            for (int j = numStructural + numRows; j < numColumns; j++) {
+                lower[j] = 0.0;
+                upper[j] = 0.0;
+                if (basisPosition[j] == -1) {
+                    x[j] = 0.0;
+                }
+            }
+        }
+
+        // Phase 2: minimize the objective
+        iterate(objectiveCost());
+
+    }
+
+    /**
+     * Cost of each column to minimize the objective.
+     *
+     * @return  Cost of each column
+     */
+    private double[] objectiveCost() {
+        double[] cost = new double[numColumns];
+        for (int j = 0; j < numStructural; j++) {
+            cost[j] = program.isMaximize() ? -program.getObjectiveCoefficient(j) : program.getObjectiveCoefficient(j);
+        }
+        return cost;
+    }
+
+    /**
+     * Set the dual value of each constraint in the model. That of a row is its entry of y^T = c_B^T B^-1, and that
+     * of a constraint on a single variable is the reduced cost of the variable (divided by its coefficient) if it
+     * sets the bound which the variable is at in the direction of the reduced cost, else zero.
+     */
+    private void setDuals() {
+        double sign = program.isMaximize() ? -1.0 : 1.0;
+        double[] cost = objectiveCost();
+        for (int c = 0; c < program.getNumConstraints(); c++) {
+            program.setConstraintDual(c, 0.0);
+        }
+        for (int i = 0; i < numRows; i++) {
+            program.setConstraintDual(rowConstraint[i], sign * duals[i]);
+        }
+        for (int j = 0; j < numStructural; j++) {
+            if (basisPosition[j] == -1) {
+                double reducedCost = cost[j] - dot(j, duals);
+                int c = reducedCost > 0 ? lowerConstraint[j] : upperConstraint[j];
+                if (reducedCost != 0.0 && c != -1) {
+                    program.setConstraintDual(c, sign * reducedCost / program.getTermCoefficient(program.getTermStart(c)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Basis status of a column.
+     *
+     * @param j     Column index
+     *
+     * @return  Basis status
+     */
+    private LpModel.BasisStatus getStatus(int j) {
+        if (basisPosition[j] != -1) {
+            return LpModel.BasisStatus.BASIC;
+        } else if (x[j] == upper[j] && x[j] != lower[j]) {
+            return LpModel.BasisStatus.AT_UPPER;
+        } else {
+            return LpModel.BasisStatus.AT_LOWER;
+        }
+    }
+
+    /**
+     * Retrieve the number of simplex iterations of the last solve.
+     *
+     * @return  Number of iterations
+     */
+    int getNumIterations() {
+        return numIterations;
+    }
+
+    /**
+     * Apply the single variable constraints as bounds, and build the columns of the other rows.
+     */
+    private void setUp() {
+
+        // Bounds of the model
+        structuralLower = new double[numStructural];
+        structuralUpper = new double[numStructural];
+        lowerConstraint = new int[numStructural];
+        upperConstraint = new int[numStructural];
+        Arrays.fill(lowerConstraint, -1);
+        Arrays.fill(upperConstraint, -1);
+        for (int j = 0; j < numStructural; j++) {
+            structuralLower[j] = program.getLowerBound(j);
+            structuralUpper[j] = program.getUpperBound(j);
+        }
+
+        // Constraints on at most one variable are bounds, the others are rows
+        List<Integer> rows = new ArrayList<>();
+        for (int c = 0; c < program.getNumConstraints(); c++) {
+            int start = program.getTermStart(c);
+            int numTerms = program.getTermEnd(c) - start;
+            if (numTerms == 0) {
+                if (!isSatisfied(0.0, program.getSense(c), program.getRhs(c))) {
+                    throw new IllegalStateException(
+                            "Linear program was not solved; it is infeasible due to constraint " + program.getConstraintName(c) + "."
+                    );
+                }
+            } else if (numTerms == 1) {
+                int j = program.getTermVariable(start);
+                double a = program.getTermCoefficient(start);
+                double bound = program.getRhs(c) / a;
+                LpModel.Sense sense = program.getSense(c);
+                if ((sense == LpModel.Sense.EQUAL || (sense == LpModel.Sense.GREATER_EQUAL) == (a > 0))
+                        && bound >= structuralLower[j]) {
+                    structuralLower[j] = bound;
+                    lowerConstraint[j] = c;
+                }
+                if ((sense == LpModel.Sense.EQUAL || (sense == LpModel.Sense.LESS_EQUAL) == (a > 0))
+                        && bound <= structuralUpper[j]) {
+                    structuralUpper[j] = bound;
+                    upperConstraint[j] = c;
+                }
+            } else {
+                rows.add(c);
+            }
+        }
+        for (int j = 0; j < numStructural; j++) {
+            if (structuralLower[j] > structuralUpper[j] + PRIMAL_TOLERANCE) {
+                throw new IllegalStateException(
+                        "Linear program was not solved; it is infeasible due to the bounds of " + program.getVariableName(j) + "."
+                );
+            }
+            structuralUpper[j] = Math.max(structuralLower[j], structuralUpper[j]);
+        }
+
+        // Columns of the rows
+        numRows = rows.size();
+        rhs = new double[numRows];
+        rowConstraint = new int[numRows];
+        columnStart = new int[numStructural + 1];
+        for (int row : rows) {
+            for (int k = program.getTermStart(row); k < program.getTermEnd(row); k++) {
+                columnStart[program.getTermVariable(k) + 1]++;
+            }
+        }
+        for (int j = 0; j < numStructural; j++) {
+            columnStart[j + 1] += columnStart[j];
+        }
+        columnRow = new int[columnStart[numStructural]];
+        columnValue = new double[columnStart[numStructural]];
+        int[] fill = Arrays.copyOf(columnStart, numStructural);
+        for (int i = 0; i < numRows; i++) {
+            int row = rows.get(i);
+            rhs[i] = program.getRhs(row);
+            rowConstraint[i] = row;
+            for (int k = program.getTermStart(row); k < program.getTermEnd(row); k++) {
+                int j = program.getTermVariable(k);
+                columnRow[fill[j]] = i;
+                columnValue[fill[j]] = program.getTermCoefficient(k);
+                fill[j]++;
+            }
+        }
+        numIterations = 0;
+
+    }
+
+    /**
+     * Start from the slack basis with an artificial variable for each row it cannot satisfy.
+     */
+    private void startFromSlackBasis() {
+
+        // Structural variables start at a bound (or zero if free)
+        double[] structuralX = new double[numStructural];
+        double[] residual = Arrays.copyOf(rhs, numRows);
+        for (int j = 0; j < numStructural; j++) {
+            structuralX[j] = startValue(structuralLower[j], structuralUpper[j]);
+            for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+                residual[columnRow[k]] -= columnValue[k] * structuralX[j];
+            }
+        }
+
+        // Slack bounds encode the sense: a x + s = b
+        double[] slackLower = new double[numRows];
+        double[] slackUpper = new double[numRows];
+        double[] slackX = new double[numRows];
+        numArtificial = 0;
+        for (int i = 0; i < numRows; i++) {
+            LpModel.Sense sense = program.getSense(rowConstraint[i]);
+            slackLower[i] = sense == LpModel.Sense.GREATER_EQUAL ? Double.NEGATIVE_INFINITY : 0.0;
+            slackUpper[i] = sense == LpModel.Sense.LESS_EQUAL ? Double.POSITIVE_INFINITY : 0.0;
+            slackX[i] = Math.min(Math.max(residual[i], slackLower[i]), slackUpper[i]);
+            if (Math.abs(residual[i] - slackX[i]) > PRIMAL_TOLERANCE) {
+                numArtificial++;
+            }
+        }
+
+        // All columns
+        numColumns = numStructural + numRows + numArtificial;
+        lower = new double[numColumns];
+        upper = new double[numColumns];
+        x = new double[numColumns];
+        System.arraycopy(structuralLower, 0, lower, 0, numStructural);
+        System.arraycopy(structuralUpper, 0, upper, 0, numStructural);
+        System.arraycopy(structuralX, 0, x, 0, numStructural);
+        System.arraycopy(slackLower, 0, lower, numStructural, numRows);
+        System.arraycopy(slackUpper, 0, upper, numStructural, numRows);
+        System.arraycopy(slackX, 0, x, numStructural, numRows);
+
+        // Initial basis: the slack of each row, or an artificial variable taking up the rest of the residual
+        basis = new int[numRows];
+        basisPosition = new int[numColumns];
+        Arrays.fill(basisPosition, -1);
+        artificialRow = new int[numArtificial];
+        artificialSign = new double[numArtificial];
+        initializeEtaFile();
+        int a = 0;
+        for (int i = 0; i < numRows; i++) {
+            int slack = numStructural + i;
+            double rest = residual[i] - slackX[i];
+            if (Math.abs(rest) > PRIMAL_TOLERANCE) {
+                int artificial = numStructural + numRows + a;
+                artificialRow[a] = i;
+                artificialSign[a] = rest > 0 ? 1.0 : -1.0;
+                lower[artificial] = 0.0;
+                upper[artificial] = Double.POSITIVE_INFINITY;
+                x[artificial] = Math.abs(rest);
+                basis[i] = artificial;
+                basisPosition[artificial] = i;
+                if (artificialSign[a] < 0) {
+                    Arrays.fill(column, 0.0);
+                    column[i] = -1.0;
+                    addEta(i, column);
+                }
+                a++;
+            } else {
+                x[slack] = residual[i];
+                basis[i] = slack;
+                basisPosition[slack] = i;
+            }
+        }
+        numEtasAtReinversion = numEtas;
+        numDegeneratePivots = 0;
+
+    }
+
+    /**
+     * Start from the basis status of the model: nonbasic variables are at the bound of their status, and the
+     * basic columns which are independent form the basis together with the slack of any row left. Rows without
+     * status (e.g., new ones) have their slack in the basis, variables without status are nonbasic.
+     */
+    private void startFromModelBasis() {
+
+        // All columns, without artificial variables
+        numArtificial = 0;
+        numColumns = numStructural + numRows;
+        lower = new double[numColumns];
+        upper = new double[numColumns];
+        x = new double[numColumns];
+        System.arraycopy(structuralLower, 0, lower, 0, numStructural);
+        System.arraycopy(structuralUpper, 0, upper, 0, numStructural);
+        for (int i = 0; i < numRows; i++) {
+            LpModel.Sense sense = program.getSense(rowConstraint[i]);
+            lower[numStructural + i] = sense == LpModel.Sense.GREATER_EQUAL ? Double.NEGATIVE_INFINITY : 0.0;
+            upper[numStructural + i] = sense == LpModel.Sense.LESS_EQUAL ? Double.POSITIVE_INFINITY : 0.0;
+        }
+
+        // Values of the nonbasic columns, and the columns to make basic (the slacks first)
+        int[] basic = new int[numColumns];
+        int numBasic = 0;
+        for (int i = 0; i < numRows; i++) {
+            LpModel.BasisStatus status = program.getConstraintStatus(rowConstraint[i]);
+            int slack = numStructural + i;
+            x[slack] = nonbasicValue(slack, status);
+            if (status == null || status == LpModel.BasisStatus.BASIC) {
+                basic[numBasic++] = slack;
+            }
+        }
+        for (int j = 0; j < numStructural; j++) {
+            LpModel.BasisStatus status = program.getVariableStatus(j);
+            x[j] = nonbasicValue(j, status);
+            if (status == LpModel.BasisStatus.BASIC) {
+                basic[numBasic++] = j;
+            }
+        }
+
+        // Basis
+        basis = new int[numRows];
+        basisPosition = new int[numColumns];
+        Arrays.fill(basisPosition, -1);
+        artificialRow = new int[0];
+        artificialSign = new double[0];
+        initializeEtaFile();
+        factorize(basic, numBasic, false);
+        numDegeneratePivots = 0;
+
+    }
+
+    /**
+     * Value of a column which is nonbasic with the given status.
+     *
+     * @param j         Column index
+     * @param status    Basis status (null, if unknown)
+     *
+     * @return  Value at the bound of the status if it is finite, else the start value
+     */
+    private double nonbasicValue(int j, LpModel.BasisStatus status) {
+        if (status == LpModel.BasisStatus.AT_UPPER && upper[j] != Double.POSITIVE_INFINITY) {
+            return upper[j];
+        } else if (status == LpModel.BasisStatus.AT_LOWER && lower[j] != Double.NEGATIVE_INFINITY) {
+            return lower[j];
+        } else {
+            return startValue(lower[j], upper[j]);
+        }
+    }
+
+    /**
+     * Value at which a variable starts: its lower bound, else its upper bound, or zero if free.
+     *
+     * @param lower     Lower bound
+     * @param upper     Upper bound
+     *
+     * @return  Start value
+     */
+    private static double startValue(double lower, double upper) {
+        if (lower != Double.NEGATIVE_INFINITY) {
+            return lower;
+        } else if (upper != Double.POSITIVE_INFINITY) {
+            return upper;
+        } else {
+            return 0.0;
+        }
+    }
+
+    /**
+     * Empty eta file and work vectors.
+     */
+    private void initializeEtaFile() {
+        numEtas = 0;
+        etaRow = new int[16];
+        etaPivot = new double[16];
+        etaStart = new int[17];
+        etaIndex = new int[64];
+        etaValue = new double[64];
+        column = new double[numRows];
+        duals = new double[numRows];
+    }
+
+    private static boolean isSatisfied(double value, LpModel.Sense sense, double rhs) {
+        switch (sense) {
+            case LESS_EQUAL:
+                return value <= rhs + PRIMAL_TOLERANCE;
+            case GREATER_EQUAL:
+                return value >= rhs - PRIMAL_TOLERANCE;
+            default:
+                return Math.abs(value - rhs) <= PRIMAL_TOLERANCE;
+        }
+    }
+
+    /**
+     * Perform simplex iterations until the cost is minimal. In the composite phase, the cost of each basic
+     * variable is instead its direction of infeasibility (the given cost is that of the nonbasic columns),
+     * and the iterations end as soon as the basis is feasible.
+     *
+     * @param cost  Cost of each column
+     *
+     * @throws IllegalStateException    If the cost is unbounded, the iteration limit is reached, or
+     *                                  in the composite phase the infeasibility cannot be reduced
+     */
+    private void iterate(double[] cost) {
+        int maxIterations = numIterations + 1000 + 50 * (numRows + numColumns);
+        while (true) {
+
+            // Reinvert the basis to bound the eta file and the numerical error
+            if (numEtas - numEtasAtReinversion >= REINVERSION_INTERVAL) {
+                reinvert();
+            }
+
+            // Duals: y^T = c_B^T B^-1
+            boolean feasible = true;
+            for (int i = 0; i < numRows; i++) {
+                if (compositePhase) {
+                    duals[i] = infeasibilityCost(basis[i]);
+                    feasible &= duals[i] == 0.0;
+                } else {
+                    duals[i] = cost[basis[i]];
+                }
+            }
+            if (compositePhase && feasible) {
+                return;
+            }
+            btran(duals);
+
+            // Pricing: the nonbasic column with the largest improving reduced cost enters
+            // (or the first one with Bland's rule when stalling)
+            boolean bland = numDegeneratePivots >= MAX_DEGENERATE_PIVOTS;
+            int entering = -1;
+            double direction = 0.0;
+            double best = 0.0;
+            for (int j = 0; j < numColumns; j++) {
+                if (basisPosition[j] != -1 || lower[j] == upper[j]) {
+                    continue;
+                }
+                double reducedCost = cost[j] - dot(j, duals);
+                double score;
+                double dir;
+                if (reducedCost < -DUAL_TOLERANCE && x[j] < upper[j]) {
+                    score = -reducedCost;
+                    dir = 1.0;
+                } else if (reducedCost > DUAL_TOLERANCE && x[j] > lower[j]) {
+                    score = reducedCost;
+                    dir = -1.0;
+                } else {
+                    continue;
+                }
+                if (score > best) {
+                    best = score;
+                    entering = j;
+                    direction = dir;
+                    if (bland) {
+                        break;
+                    }
+                }
+            }
+            if (entering == -1) {
+                if (compositePhase) {
+                    throw new IllegalStateException("Linear program was not solved; the basis cannot be made feasible.");
+                }
+                return;
+            }
+            if (++numIterations > maxIterations) {
+                throw new IllegalStateException("Linear program was not solved; iteration limit reached.");
+            }
+
+            // Column of the entering variable in terms of the basis: B^-1 a_q
+            Arrays.fill(column, 0.0);
+            addColumn(entering, 1.0, column);
+            ftran(column);
+
+            // Ratio test (pass 1): maximum step with the bounds relaxed by the tolerance
+            double maxStep = upper[entering] - lower[entering];
+            for (int i = 0; i < numRows; i++) {
+                maxStep = Math.min(maxStep, ratio(i, direction, PRIMAL_TOLERANCE));
+            }
+            if (maxStep == Double.POSITIVE_INFINITY) {
+                throw new IllegalStateException("Linear program was not solved; it is unbounded.");
+            }
+
+            // Ratio test (pass 2): unless the entering variable flips bound, of the basic variables blocking
+            // within the maximum step the one with the largest rate leaves, or with Bland's rule the lowest
+            // column of those blocking first
+            int leaving = -1;
+            double step = upper[entering] - lower[entering];
+            if (step > maxStep) {
+                if (bland) {
+                    double minRatio = Double.POSITIVE_INFINITY;
+                    for (int i = 0; i < numRows; i++) {
+                        minRatio = Math.min(minRatio, ratio(i, direction, 0.0));
+                    }
+                    for (int i = 0; i < numRows; i++) {
+                        if (ratio(i, direction, 0.0) <= minRatio + PRIMAL_TOLERANCE
+                                && (leaving == -1 || basis[i] < basis[leaving])) {
+                            leaving = i;
+                        }
+                    }
+                } else {
+                    double bestRate = 0.0;
+                    for (int i = 0; i < numRows; i++) {
+                        if (ratio(i, direction, 0.0) <= maxStep && Math.abs(column[i]) > bestRate) {
+                            leaving = i;
+                            bestRate = Math.abs(column[i]);
+                        }
+                    }
+                }
+                step = Math.max(0.0, ratio(leaving, direction, 0.0));
+            }
+            double leavingValue = leaving == -1 ? 0.0 : blockingBound(leaving, direction);
+
+            // Move along the edge
+            if (step > PRIMAL_TOLERANCE) {
+                numDegeneratePivots = 0;
+            } else {
+                numDegeneratePivots++;
+            }
+            x[entering] += direction * step;
+            for (int i = 0; i < numRows; i++) {
+                if (column[i] != 0.0) {
+                    x[basis[i]] -= direction * column[i] * step;
+                }
+            }
+
+            // Bound flip: the entering variable is put exactly at its opposite bound, as rounding can stop it
+            // just short of it, upon which it would be priced (and flipped) again
+            if (leaving == -1) {
+                x[entering] = direction > 0 ? upper[entering] : lower[entering];
+            }
+
+            // Basis change (the leaving variable is put exactly at the bound it reached)
+            if (leaving != -1) {
+                int b = basis[leaving];
+                x[b] = leavingValue;
+                basisPosition[b] = -1;
+                basis[leaving] = entering;
+                basisPosition[entering] = leaving;
+                addEta(leaving, column);
+            }
+
+        }
+    }
+
+    /**
+     * Step of the entering variable (in the given direction) at which the basic variable at the
+     * position reaches a bound, which is relaxed by the tolerance.
+     *
+     * @param i             Basis position
+     * @param direction     Direction of the entering variable (1 or -1)
+     * @param tolerance     Bound relaxation
+     *
+     * @return  Step (infinite, if the basic variable does not block)
+     */
+    private double ratio(int i, double direction, double tolerance) {
+        double rate = -direction * column[i];
+        int b = basis[i];
+
+        // In the composite phase, an infeasible basic variable only blocks at the bound it violates
+        if (compositePhase && x[b] < lower[b] - PRIMAL_TOLERANCE) {
+            return rate > PIVOT_TOLERANCE ? (lower[b] - x[b] + tolerance) / rate : Double.POSITIVE_INFINITY;
+        }
+        if (compositePhase && x[b] > upper[b] + PRIMAL_TOLERANCE) {
+            return rate < -PIVOT_TOLERANCE ? (x[b] - upper[b] + tolerance) / -rate : Double.POSITIVE_INFINITY;
+        }
+
+        if (rate < -PIVOT_TOLERANCE && lower[b] != Double.NEGATIVE_INFINITY) {
+            return (x[b] - lower[b] + tolerance) / -rate;
+        } else if (rate > PIVOT_TOLERANCE && upper[b] != Double.POSITIVE_INFINITY) {
+            return (upper[b] - x[b] + tolerance) / rate;
+        } else {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Bound at which the basic variable at the position blocks (see {@link #ratio(int, double, double)}).
+     *
+     * @param i             Basis position
+     * @param direction     Direction of the entering variable (1 or -1)
+     *
+     * @return  Bound value
+     */
+    private double blockingBound(int i, double direction) {
+        int b = basis[i];
+        if (compositePhase && x[b] < lower[b] - PRIMAL_TOLERANCE) {
+            return lower[b];
+        } else if (compositePhase && x[b] > upper[b] + PRIMAL_TOLERANCE) {
+            return upper[b];
+        } else {
+            return -direction * column[i] < 0 ? lower[b] : upper[b];
+        }
+    }
+
+    /**
+     * Cost of a basic variable in the composite phase: -1 below its lower bound, 1 above its upper bound.
+     *
+     * @param j     Column index
+     *
+     * @return  Cost
+     */
+    private double infeasibilityCost(int j) {
+        if (x[j] < lower[j] - PRIMAL_TOLERANCE) {
+            return -1.0;
+        } else if (x[j] > upper[j] + PRIMAL_TOLERANCE) {
+            return 1.0;
+        } else {
+            return 0.0;
+        }
+    }
+
+    /**
+     * Reinvert the current basis.
+     */
+    private void reinvert() {
+        factorize(Arrays.copyOf(basis, numRows), numRows, true);
+    }
+
+    /**
+     * Factorize the basis of the given columns: the slacks among them take their own row, after which the
+     * others are pivoted in one by one on the free row with the largest absolute value, and the slack of each
+     * row left is basic. Afterwards, the basic values are recomputed.
+     *
+     * @param columns   Columns to make basic
+     * @param count     Number of columns to make basic
+     * @param exact     True iff the columns form a basis, else the columns which depend on the ones
+     *                  before them remain nonbasic
+     *
+     * @throws IllegalStateException    If exact and the columns do not form a basis
+     */
+    private void factorize(int[] columns, int count, boolean exact) {
+        numEtas = 0;
+        boolean[] rowTaken = new boolean[numRows];
+        for (int k = 0; k < count; k++) {
+            basisPosition[columns[k]] = -1;
+        }
+        for (int k = 0; k < count; k++) {
+            int j = columns[k];
+            if (j >= numStructural && j < numStructural + numRows) {
+                rowTaken[j - numStructural] = true;
+                basis[j - numStructural] = j;
+                basisPosition[j] = j - numStructural;
+            }
+        }
+        for (int k = 0; k < count; k++) {
+            int j = columns[k];
+            if (j >= numStructural && j < numStructural + numRows) {
+                continue;
+            }
+            Arrays.fill(column, 0.0);
+            addColumn(j, 1.0, column);
+            ftran(column);
+            int pivotRow = -1;
+            double best = PIVOT_TOLERANCE;
+            for (int i = 0; i < numRows; i++) {
+                if (!rowTaken[i] && Math.abs(column[i]) > best) {
+                    best = Math.abs(column[i]);
+                    pivotRow = i;
+                }
+            }
+            if (pivotRow == -1) {
+                if (exact) {
+                    throw new IllegalStateException("Linear program was not solved; the basis became singular.");
+                }
+                continue;
+            }
+            addEta(pivotRow, column);
+            rowTaken[pivotRow] = true;
+            basis[pivotRow] = j;
+            basisPosition[j] = pivotRow;
+        }
+        for (int i = 0; i < numRows; i++) {
+            if (!rowTaken[i]) {
+                basis[i] = numStructural + i;
+                basisPosition[numStructural + i] = i;
+            }
+        }
+        numEtasAtReinversion = numEtas;
+
+        // Basic values: x_B = B^-1 (b - A_N x_N)
+        double[] values = Arrays.copyOf(rhs, numRows);
+        for (int j = 0; j < numColumns; j++) {
+            if (basisPosition[j] == -1 && x[j] != 0.0) {
+                addColumn(j, -x[j], values);
+            }
+        }
+        ftran(values);
+        for (int i = 0; i < numRows; i++) {
+            x[basis[i]] = values[i];
+        }
+    }
+
+    /**
+     * Add an eta vector for the pivot on the given row of the given column (in terms of the current basis).
+     *
+     * @param row       Pivot row
+     * @param vector    Dense column
+     */
+    private void addEta(int row, double[] vector) {
+        if (numEtas == etaRow.length) {
+            etaRow = Arrays.copyOf(etaRow, 2 * numEtas);
+            etaPivot = Arrays.copyOf(etaPivot, 2 * numEtas);
+            etaStart = Arrays.copyOf(etaStart, 2 * numEtas + 1);
+        }
+        int size = etaStart[numEtas];
+        for (int i = 0; i < numRows; i++) {
+            if (i != row && Math.abs(vector[i]) > DROP_TOLERANCE) {
+                if (size == etaIndex.length) {
+                    etaIndex = Arrays.copyOf(etaIndex, 2 * size);
+                    etaValue = Arrays.copyOf(etaValue, 2 * size);
+                }
+                etaIndex[size] = i;
+                etaValue[size] = vector[i];
+                size++;
+            }
+        }
+        etaRow[numEtas] = row;
+        etaPivot[numEtas] = vector[row];
+        numEtas++;
+        etaStart[numEtas] = size;
+    }
+
+    /**
+     * Solve B v' = v in place.
+     *
+     * @param v     Dense vector
+     */
+    private void ftran(double[] v) {
+        for (int e = 0; e < numEtas; e++) {
+            int r = etaRow[e];
+            double vr = v[r];
+            if (vr != 0.0) {
+                vr /= etaPivot[e];
+                v[r] = vr;
+                for (int k = etaStart[e]; k < etaStart[e + 1]; k++) {
+                    v[etaIndex[k]] -= etaValue[k] * vr;
+                }
+            }
+        }
+    }
+
+    /**
+     * Solve y'^T B = y^T in place.
+     *
+     * @param y     Dense vector
+     */
+    private void btran(double[] y) {
+        for (int e = numEtas - 1; e >= 0; e--) {
+            int r = etaRow[e];
+            double sum = y[r];
+            for (int k = etaStart[e]; k < etaStart[e + 1]; k++) {
+                sum -= etaValue[k] * y[etaIndex[k]];
+            }
+            y[r] = sum / etaPivot[e];
+        }
+    }
+
+    /**
+     * Add a multiple of the column to the dense vector.
+     *
+     * @param j         Column index
+     * @param factor    Multiple
+     * @param vector    Dense vector
+     */
+    private void addColumn(int j, double factor, double[] vector) {
+        if (j < numStructural) {
+            for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+                vector[columnRow[k]] += factor * columnValue[k];
+            }
+        } else if (j < numStructural + numRows) {
+            vector[j - numStructural] += factor;
+        } else {
+            int a = j - numStructural - numRows;
+            vector[artificialRow[a]] += factor * artificialSign[a];
+        }
+    }
+
+    /**
+     * Inner product of the column with the dense vector.
+     *
+     * @param j         Column index
+     * @param vector    Dense vector
+     *
+     * @return  Inner product
+     */
+    private double dot(int j, double[] vector) {
+        if (j < numStructural) {
+            double sum = 0.0;
+            for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+                sum += columnValue[k] * vector[columnRow[k]];
+            }
+            return sum;
+        } else if (j < numStructural + numRows) {
+            return vector[j - numStructural];
+        } else {
+            int a = j - numStructural - numRows;
+            return artificialSign[a] * vector[artificialRow[a]];
+        }
+    }
+
+}
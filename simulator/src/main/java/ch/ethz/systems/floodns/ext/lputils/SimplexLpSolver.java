@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process linear program solver: an {@link LpModel} (or a program file parsed into one, see {@link LpFormatReader})
+ * is solved by a bounded-variable primal {@link RevisedSimplex revised simplex method}. In contrast to the
+ * {@link GlopLpSolver}, no external process is started and the solution file is not written.
+ *
+ * If the model has a (partial) basis status, e.g., applied from an {@link LpBasis}, the solve starts from it, which
+ * falls back to the slack basis if it cannot be made feasible. Afterwards, the status of the optimal basis is set in
+ * the model.
+ *
+ * The solver holds no state between calls apart from the iteration count, as such it can solve several programs
+ * concurrently.
+ */
+public class SimplexLpSolver extends LpSolver {
+
+    // Total number of simplex iterations of all solves
+    private final AtomicLong numIterations = new AtomicLong(0);
+
+    @Override
+    public ImmutablePair<Double, Map<String, Double>> solve(String cplexFilename, String solutionFilename) {
+        return toNamedSolution(LpFormatReader.read(cplexFilename));
+    }
+
+    /**
+     * Solve a linear program given in LP format.
+     *
+     * @param program   Linear program text
+     *
+     * @return Solution (objective, map of variable values)
+     */
+    public ImmutablePair<Double, Map<String, Double>> solveProgram(String program) {
+        return toNamedSolution(LpFormatReader.parse(program));
+    }
+
+    @Override
+    public ImmutablePair<Double, double[]> solve(LpModel model) {
+        RevisedSimplex simplex = new RevisedSimplex(model);
+        double[] values = simplex.solve();
+        numIterations.addAndGet(simplex.getNumIterations());
+        return new ImmutablePair<>(model.evaluateObjective(values), values);
+    }
+
+    /**
+     * Retrieve the total number of simplex iterations of all solves so far.
+     *
+     * @return  Number of iterations
+     */
+    public long getNumIterations() {
+        return numIterations.get();
+    }
+
+    /**
+     * Solve the model and map the solution to the variable names.
+     *
+     * @param model     Linear program
+     *
+     * @return Solution (objective, map of variable values)
+     */
+    private ImmutablePair<Double, Map<String, Double>> toNamedSolution(LpModel model) {
+        ImmutablePair<Double, double[]> result = solve(model);
+        Map<String, Double> variables = new HashMap<>();
+        for (int j = 0; j < model.getNumVariables(); j++) {
+            variables.put(model.getVariableName(j), result.getRight()[j]);
+        }
+        return new ImmutablePair<>(result.getLeft(), variables);
+    }
+
+}
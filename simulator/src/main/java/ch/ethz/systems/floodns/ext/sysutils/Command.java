@@ -65,9 +65,10 @@ public class Command {
             BufferedWriter writer = new BufferedWriter(new FileWriter(outputFilename));
 
             // Write the output from the attempted command to file
-            int s;
-            while ((s = stdInput.read()) != -1) {
-                writer.write(s);
+            char[] buffer = new char[8192];
+            int n;
+            while ((n = stdInput.read(buffer)) != -1) {
+                writer.write(buffer, 0, n);
             }
 
             // Show any errors from the attempted command
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+import ch.ethz.systems.floodns.ext.logger.empty.VoidLoggerFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AftermathSkipTest {
+
+    private static class CountingAftermath extends Aftermath {
+
+        private final boolean onlyNetwork;
+        private int numPerformed;
+
+        CountingAftermath(Simulator simulator, Network network, boolean onlyNetwork) {
+            super(simulator, network);
+            this.onlyNetwork = onlyNetwork;
+            this.numPerformed = 0;
+        }
+
+        @Override
+        public boolean dependsOnlyOnNetwork() {
+            return onlyNetwork;
+        }
+
+        @Override
+        public void perform() {
+            numPerformed++;
+        }
+
+    }
+
+    private static class NoOpEvent extends Event {
+
+        NoOpEvent(Simulator simulator, long timeFromNow) {
+            super(simulator, 0, timeFromNow);
+        }
+
+        @Override
+        protected void trigger() {
+            // Left intentionally empty
+        }
+
+    }
+
+    private static class AddLinkEvent extends Event {
+
+        AddLinkEvent(Simulator simulator, long timeFromNow) {
+            super(simulator, 0, timeFromNow);
+        }
+
+        @Override
+        protected void trigger() {
+            simulator.addNewLink(1, 0, 5.0);
+        }
+
+    }
+
+    private int run(boolean onlyNetwork) {
+        Simulator simulator = new Simulator();
+        Network network = new Network(2);
+        network.addLink(0, 1, 10.0);
+        CountingAftermath aftermath = new CountingAftermath(simulator, network, onlyNetwork);
+        simulator.setup(network, aftermath, new VoidLoggerFactory(simulator));
+        simulator.insertEvents(
+                new NoOpEvent(simulator, 10),
+                new NoOpEvent(simulator, 20),
+                new AddLinkEvent(simulator, 30),
+                new NoOpEvent(simulator, 40)
+        );
+        simulator.run(50);
+        return aftermath.numPerformed;
+    }
+
+    @Test
+    public void testPerformedEveryTick() {
+        // Four event ticks and the final connection update tick (50)
+        assertEquals(5, run(false));
+    }
+
+    @Test
+    public void testSkippedWithoutNetworkChange() {
+        // Performed at the first tick (10) and after the link addition (30), but not at 20, 40 and 50
+        assertEquals(2, run(true));
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+import ch.ethz.systems.floodns.ext.allocator.SimpleMmfAllocator;
+import ch.ethz.systems.floodns.ext.logger.empty.VoidLoggerFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static ch.ethz.systems.floodns.PathTestUtility.createAcyclicPath;
+import static org.junit.Assert.assertEquals;
+
+public class ConnectionProgressionTest {
+
+    /**
+     * Start a connection over the single link 0-1 of the network.
+     */
+    private static class StartEvent extends Event {
+
+        private final Network network;
+        private final Connection[] connections;
+        private final int index;
+        private final double size;
+
+        StartEvent(Simulator simulator, Network network, long timeFromNow, Connection[] connections, int index, double size) {
+            super(simulator, 0, timeFromNow);
+            this.network = network;
+            this.connections = connections;
+            this.index = index;
+            this.size = size;
+        }
+
+        @Override
+        protected void trigger() {
+            connections[index] = new Connection(simulator, network.getNode(0), network.getNode(1), size);
+            simulator.activateConnection(connections[index]);
+            simulator.addFlowToConnection(connections[index], createAcyclicPath(network, "0-1"));
+        }
+
+    }
+
+    /**
+     * Read the remainder of all started connections.
+     */
+    private static class ReadRemainderEvent extends Event {
+
+        private final Connection[] connections;
+        private final List<double[]> remainders;
+
+        ReadRemainderEvent(Simulator simulator, long timeFromNow, Connection[] connections, List<double[]> remainders) {
+            super(simulator, 0, timeFromNow);
+            this.connections = connections;
+            this.remainders = remainders;
+        }
+
+        @Override
+        protected void trigger() {
+            double[] remainder = new double[connections.length];
+            for (int i = 0; i < connections.length; i++) {
+                remainder[i] = connections[i] == null ? Double.NaN : connections[i].getRemainder();
+            }
+            remainders.add(remainder);
+        }
+
+    }
+
+    /**
+     * Perform the max-min fair allocation, recording the time of each tick and the size of the event queue.
+     */
+    private static class RecordingAftermath extends Aftermath {
+
+        private final SimpleMmfAllocator allocator;
+        private final EventQueue eventQueue;
+        private final List<Long> tickTimes;
+        private final List<Integer> queueSizes;
+
+        RecordingAftermath(Simulator simulator, Network network, EventQueue eventQueue) {
+            super(simulator, network);
+            this.allocator = new SimpleMmfAllocator(simulator, network);
+            this.eventQueue = eventQueue;
+            this.tickTimes = new ArrayList<>();
+            this.queueSizes = new ArrayList<>();
+        }
+
+        @Override
+        public void perform() {
+            tickTimes.add(simulator.getCurrentTime());
+            queueSizes.add(eventQueue.size());
+            allocator.perform();
+        }
+
+    }
+
+    @Test
+    public void testLazyRemainderMatchesEagerBaseline() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(2);
+        network.addLink(0, 1, 12.0);
+        simulator.setup(network, new SimpleMmfAllocator(simulator, network), new VoidLoggerFactory(simulator));
+
+        // A (1200) starts at 0, B (2400) at 20 and C (120) at 100, sharing the link fairly
+        Connection[] connections = new Connection[3];
+        List<double[]> remainders = new ArrayList<>();
+        simulator.insertEvents(
+                new StartEvent(simulator, network, 0, connections, 0, 1200),
+                new StartEvent(simulator, network, 20, connections, 1, 2400),
+                new StartEvent(simulator, network, 100, connections, 2, 120),
+                new ReadRemainderEvent(simulator, 10, connections, remainders),
+                new ReadRemainderEvent(simulator, 60, connections, remainders),
+                new ReadRemainderEvent(simulator, 115, connections, remainders),
+                new ReadRemainderEvent(simulator, 150, connections, remainders),
+                new ReadRemainderEvent(simulator, 250, connections, remainders)
+        );
+        simulator.run(400);
+
+        // Eager baseline, reducing each remainder by its bandwidth over every interval:
+        // [0, 20) A at 12; [20, 100) A and B at 6; [100, 130) A, B and C at 4 (C finishes at 130);
+        // [130, 190) A and B at 6 (A finishes at 190); [190, 310) B at 12 (B finishes at 310)
+        double precision = 1e-6;
+        assertEquals(5, remainders.size());
+        assertEquals(1080.0, remainders.get(0)[0], precision);
+        assertEquals(720.0, remainders.get(1)[0], precision);
+        assertEquals(2160.0, remainders.get(1)[1], precision);
+        assertEquals(420.0, remainders.get(2)[0], precision);
+        assertEquals(1860.0, remainders.get(2)[1], precision);
+        assertEquals(60.0, remainders.get(2)[2], precision);
+        assertEquals(240.0, remainders.get(3)[0], precision);
+        assertEquals(1680.0, remainders.get(3)[1], precision);
+        assertEquals(0.0, remainders.get(3)[2], precision);
+        assertEquals(0.0, remainders.get(4)[0], precision);
+        assertEquals(720.0, remainders.get(4)[1], precision);
+        assertEquals(0.0, connections[1].getRemainder(), precision);
+
+    }
+
+    @Test
+    public void testFinishTimeMovesWithoutQueuedFinishEvents() {
+        EventQueue eventQueue = new BinaryHeapEventQueue();
+        Simulator simulator = new Simulator(1e-10, eventQueue);
+        Network network = new Network(2);
+        network.addLink(0, 1, 12.0);
+        RecordingAftermath aftermath = new RecordingAftermath(simulator, network, eventQueue);
+        simulator.setup(network, aftermath, new VoidLoggerFactory(simulator));
+
+        // A (1200) alone would finish at 100, after B (2400) starts at 20 at 180,
+        // and after C (120) starts at 100 and finishes at 130 it finishes at 190
+        Connection[] connections = new Connection[3];
+        simulator.insertEvents(
+                new StartEvent(simulator, network, 0, connections, 0, 1200),
+                new StartEvent(simulator, network, 20, connections, 1, 2400),
+                new StartEvent(simulator, network, 100, connections, 2, 120)
+        );
+        simulator.run(400);
+
+        // Ticks only at the events and the moved finish times (none at the outdated 100 and 180 of A),
+        // followed by the end of the run
+        assertEquals(Arrays.asList(0L, 20L, 100L, 130L, 190L, 310L, 400L), aftermath.tickTimes);
+        assertEquals(Connection.Status.TERMINATED, connections[0].getStatus());
+        assertEquals(Connection.Status.TERMINATED, connections[1].getStatus());
+        assertEquals(Connection.Status.TERMINATED, connections[2].getStatus());
+
+        // The event queue only ever holds the start events still to come, no finish events
+        assertEquals(Arrays.asList(2, 1, 0, 0, 0, 0, 0), aftermath.queueSizes);
+        assertEquals(0, eventQueue.size());
+
+    }
+
+}
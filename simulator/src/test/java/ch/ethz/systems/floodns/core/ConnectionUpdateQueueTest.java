@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ConnectionUpdateQueueTest {
+
+    private List<Connection> createConnections(Simulator simulator, int num) {
+        Network network = new Network(2);
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < num; i++) {
+            connections.add(new Connection(simulator, network.getNode(0), network.getNode(1), 100));
+        }
+        return connections;
+    }
+
+    @Test
+    public void testInsertUpdateRemove() {
+        Simulator simulator = new Simulator();
+        List<Connection> connections = createConnections(simulator, 4);
+        ConnectionUpdateQueue queue = new ConnectionUpdateQueue();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+        assertEquals(Long.MAX_VALUE, queue.peekUpdateTime());
+
+        queue.update(connections.get(0), 50);
+        queue.update(connections.get(1), 20);
+        queue.update(connections.get(2), 80);
+        queue.update(connections.get(3), 20);
+        assertEquals(4, queue.size());
+        assertEquals(connections.get(1), queue.peek());
+        assertEquals(20, queue.peekUpdateTime());
+
+        // Increase key of the first
+        queue.update(connections.get(1), 90);
+        assertEquals(connections.get(3), queue.peek());
+
+        // Decrease key of the last
+        queue.update(connections.get(2), 10);
+        assertEquals(connections.get(2), queue.peek());
+        assertEquals(10, queue.peekUpdateTime());
+
+        // Remove
+        queue.remove(connections.get(2));
+        assertEquals(-1, connections.get(2).getUpdateQueueIndex());
+        queue.remove(connections.get(2));
+        assertEquals(3, queue.size());
+        assertEquals(connections.get(3), queue.peek());
+        queue.remove(connections.get(3));
+        assertEquals(connections.get(0), queue.peek());
+        queue.remove(connections.get(0));
+        assertEquals(connections.get(1), queue.peek());
+        assertEquals(90, queue.peekUpdateTime());
+        queue.remove(connections.get(1));
+        assertTrue(queue.isEmpty());
+
+    }
+
+    @Test
+    public void testRandomOrder() {
+        Simulator simulator = new Simulator();
+        List<Connection> connections = createConnections(simulator, 300);
+        ConnectionUpdateQueue queue = new ConnectionUpdateQueue();
+        Random random = new Random(12345);
+        for (int i = 0; i < 3000; i++) {
+            Connection connection = connections.get(random.nextInt(connections.size()));
+            if (random.nextInt(4) == 0) {
+                queue.remove(connection);
+            } else {
+                queue.update(connection, random.nextInt(1000));
+            }
+        }
+
+        // Must come out ordered by (time, connection identifier)
+        long prevTime = -1;
+        int prevId = -1;
+        while (!queue.isEmpty()) {
+            Connection connection = queue.peek();
+            assertTrue(connection.getNextUpdateTime() > prevTime
+                    || (connection.getNextUpdateTime() == prevTime && connection.getConnectionId() > prevId));
+            prevTime = connection.getNextUpdateTime();
+            prevId = connection.getConnectionId();
+            queue.remove(connection);
+        }
+
+    }
+
+}
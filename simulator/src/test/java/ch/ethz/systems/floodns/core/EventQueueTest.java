@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+import ch.ethz.systems.floodns.ext.logger.empty.VoidLoggerFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EventQueueTest {
+
+    private static class EmptyEvent extends Event {
+
+        EmptyEvent(Simulator simulator, int priority, long timeFromNow) {
+            super(simulator, priority, timeFromNow);
+            setEid();
+        }
+
+        @Override
+        protected void trigger() {
+            // Left intentionally empty
+        }
+
+    }
+
+    /**
+     * Perform the same random sequence of insertions, cancellations and removals
+     * on the event queue and on a reference binary heap, and check that the order is identical.
+     *
+     * @param queue     Event queue under test
+     * @param seed      Random seed
+     * @param monotone  True iff inserted times must be non-decreasing
+     */
+    private void testAgainstReference(EventQueue queue, long seed, boolean monotone) {
+        Simulator simulator = new Simulator();
+        EventQueue reference = new BinaryHeapEventQueue();
+        Random random = new Random(seed);
+        List<Event> inserted = new ArrayList<>();
+        long lastPolled = 0;
+        for (int i = 0; i < 20000; i++) {
+            int action = random.nextInt(10);
+            if (action < 5) {
+                long time = (monotone ? lastPolled : 0) + random.nextInt(random.nextBoolean() ? 50 : 5000);
+                Event event = new EmptyEvent(simulator, random.nextInt(3), time);
+                queue.add(event);
+                reference.add(event);
+                inserted.add(event);
+            } else if (action < 7) {
+                if (!inserted.isEmpty()) {
+                    Event event = inserted.get(random.nextInt(inserted.size()));
+                    if (event.isActive()) {
+                        event.cancel();
+                        queue.registerCancellation();
+                        reference.registerCancellation();
+                    }
+                }
+            } else {
+                Event expected = reference.peekActive();
+                assertSame(expected, queue.peekActive());
+                if (expected != null) {
+                    assertSame(expected, queue.poll());
+                    assertSame(expected, reference.poll());
+                    lastPolled = expected.getTime();
+                }
+            }
+        }
+
+        // Drain both
+        Event expected;
+        while ((expected = reference.peekActive()) != null) {
+            assertSame(expected, queue.peekActive());
+            assertSame(expected, queue.poll());
+            reference.poll();
+        }
+        assertNull(queue.peekActive());
+        assertTrue(queue.isEmpty());
+
+    }
+
+    @Test
+    public void testBinaryHeapEventQueue() {
+        testAgainstReference(new BinaryHeapEventQueue(), 1234, false);
+    }
+
+    @Test
+    public void testCalendarEventQueue() {
+        for (long seed = 0; seed < 5; seed++) {
+            testAgainstReference(new CalendarEventQueue(), seed, false);
+            testAgainstReference(new CalendarEventQueue(), seed, true);
+            testAgainstReference(new CalendarEventQueue(1000000), seed, true);
+        }
+    }
+
+    @Test
+    public void testCalendarEventQueueSameTime() {
+        Simulator simulator = new Simulator();
+        CalendarEventQueue queue = new CalendarEventQueue();
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Event event = new EmptyEvent(simulator, i % 2, 77);
+            events.add(event);
+            queue.add(event);
+        }
+        assertEquals(1000, queue.size());
+
+        // First the higher priority, then by insertion order
+        for (int i = 1; i < 1000; i += 2) {
+            assertSame(events.get(i), queue.poll());
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertSame(events.get(i), queue.poll());
+        }
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+    }
+
+    @Test
+    public void testBulkRemovalOfCanceled() {
+        for (EventQueue queue : new EventQueue[]{new BinaryHeapEventQueue(), new CalendarEventQueue()}) {
+            Simulator simulator = new Simulator();
+            List<Event> events = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                Event event = new EmptyEvent(simulator, 0, i);
+                events.add(event);
+                queue.add(event);
+            }
+            for (int i = 0; i < 2500; i++) {
+                events.get(i).cancel();
+                queue.registerCancellation();
+            }
+            assertEquals(5000, queue.size());
+            events.get(2500).cancel();
+            queue.registerCancellation();
+            assertEquals(2499, queue.size());
+            assertSame(events.get(2501), queue.peekActive());
+        }
+    }
+
+    @Test
+    public void testSimulatorWithCalendarEventQueue() {
+        Simulator simulator = new Simulator(1e-10, new CalendarEventQueue());
+        Network network = new Network(2);
+        network.addLink(0, 1, 10.0);
+        final List<Long> triggerTimes = new ArrayList<>();
+        simulator.setup(network, new Aftermath(simulator, network) {
+            @Override
+            public void perform() {
+                triggerTimes.add(simulator.getCurrentTime());
+            }
+        }, new VoidLoggerFactory(simulator));
+        simulator.insertEvents(new EmptyEventUnset(simulator, 0, 300), new EmptyEventUnset(simulator, 0, 100));
+        simulator.run(1000);
+        assertEquals(3, triggerTimes.size());
+        assertEquals(100, (long) triggerTimes.get(0));
+        assertEquals(300, (long) triggerTimes.get(1));
+        assertEquals(1000, (long) triggerTimes.get(2));
+    }
+
+    private static class EmptyEventUnset extends Event {
+
+        EmptyEventUnset(Simulator simulator, int priority, long timeFromNow) {
+            super(simulator, priority, timeFromNow);
+        }
+
+        @Override
+        protected void trigger() {
+            // Left intentionally empty
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.core;
+
+import ch.ethz.systems.floodns.ext.logger.empty.VoidLoggerFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventStreamTest {
+
+    private static class RecordEvent extends Event {
+
+        private final List<String> record;
+        private final String name;
+
+        RecordEvent(Simulator simulator, int priority, long timeFromNow, List<String> record, String name) {
+            super(simulator, priority, timeFromNow);
+            this.record = record;
+            this.name = name;
+        }
+
+        @Override
+        protected void trigger() {
+            record.add(name + "@" + simulator.getCurrentTime());
+        }
+
+    }
+
+    private static class RecordEventStream extends EventStream {
+
+        private final long[] times;
+        private final int[] priorities;
+        private final List<String> record;
+        private int index;
+        private int numCreated;
+
+        RecordEventStream(Simulator simulator, long[] times, List<String> record) {
+            this(simulator, times, new int[times.length], record);
+        }
+
+        RecordEventStream(Simulator simulator, long[] times, int[] priorities, List<String> record) {
+            super(simulator);
+            this.times = times;
+            this.priorities = priorities;
+            this.record = record;
+            this.index = 0;
+            this.numCreated = 0;
+        }
+
+        @Override
+        protected Event createNextEvent() {
+            if (index == times.length) {
+                return null;
+            }
+            numCreated++;
+            long timeFromNow = times[index] - simulator.getCurrentTime();
+            Event event = new RecordEvent(simulator, priorities[index], timeFromNow, record, "s" + index);
+            index++;
+            return event;
+        }
+
+    }
+
+    private Simulator createSimulator() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(2);
+        network.addLink(0, 1, 10.0);
+        simulator.setup(network, new Aftermath(simulator, network) {
+            @Override
+            public void perform() {
+                // Left intentionally empty
+            }
+        }, new VoidLoggerFactory(simulator));
+        return simulator;
+    }
+
+    @Test
+    public void testMergeWithQueue() {
+        Simulator simulator = createSimulator();
+        List<String> record = new ArrayList<>();
+        simulator.insertEvents(new RecordEvent(simulator, 0, 100, record, "a"));
+        RecordEventStream stream = new RecordEventStream(simulator, new long[]{50, 100, 100, 200}, record);
+        simulator.insertEventStream(stream);
+        simulator.insertEvents(new RecordEvent(simulator, 0, 100, record, "b"));
+        simulator.run(1000);
+
+        // Same time: ordered by insertion, with the stream taking the place at which it was inserted
+        List<String> expected = new ArrayList<>();
+        expected.add("s0@50");
+        expected.add("a@100");
+        expected.add("s1@100");
+        expected.add("s2@100");
+        expected.add("b@100");
+        expected.add("s3@200");
+        assertEquals(expected, record);
+        assertEquals(4, stream.numCreated);
+    }
+
+    @Test
+    public void testLazyCreation() {
+        Simulator simulator = createSimulator();
+        List<String> record = new ArrayList<>();
+        RecordEventStream stream = new RecordEventStream(simulator, new long[]{10, 20, 3000, 4000}, record);
+        simulator.insertEventStream(stream);
+        simulator.run(1000);
+        assertEquals(2, record.size());
+        assertEquals(3, stream.numCreated);
+    }
+
+    @Test
+    public void testCancelNextOfStream() {
+        final Simulator simulator = createSimulator();
+        final List<String> record = new ArrayList<>();
+        final RecordEventStream stream = new RecordEventStream(simulator, new long[]{10, 20, 30}, record);
+        simulator.insertEventStream(stream);
+        simulator.insertEvents(new Event(simulator, 0, 15) {
+            @Override
+            protected void trigger() {
+                Event next = stream.peekActive();
+                assertTrue(stream.isNext(next));
+                simulator.cancelEvent(next);
+            }
+        });
+        simulator.run(1000);
+        List<String> expected = new ArrayList<>();
+        expected.add("s0@10");
+        expected.add("s2@30");
+        assertEquals(expected, record);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOutOfOrder() {
+        Simulator simulator = createSimulator();
+        simulator.insertEventStream(new RecordEventStream(simulator, new long[]{10, 10}, new int[]{0, 1}, new ArrayList<String>()));
+        simulator.run(1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInsertTwice() {
+        Simulator simulator = createSimulator();
+        RecordEventStream stream = new RecordEventStream(simulator, new long[]{10}, new ArrayList<String>());
+        simulator.insertEventStream(stream);
+        simulator.insertEventStream(stream);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherSimulator() {
+        Simulator simulator = createSimulator();
+        simulator.insertEventStream(new RecordEventStream(new Simulator(), new long[]{10}, new ArrayList<String>()));
+    }
+
+}
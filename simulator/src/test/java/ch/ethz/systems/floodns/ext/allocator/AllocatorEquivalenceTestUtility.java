@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.*;
+import ch.ethz.systems.floodns.ext.basicsim.schedule.TrafficSchedule;
+import ch.ethz.systems.floodns.ext.logger.empty.VoidLoggerFactory;
+import ch.ethz.systems.floodns.ext.routing.RoutingStrategy;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs a random simulation of connections over two disjoint leaf-spine pods, in which after each
+ * time tick the allocation of a candidate allocator is compared to that of a reference allocator.
+ * Besides connections starting and finishing, events end single flows and reset the bandwidth of flows.
+ */
+public class AllocatorEquivalenceTestUtility {
+
+    private static final int NUM_LEAVES_PER_POD = 3;
+    private static final int NUM_SPINES_PER_POD = 2;
+    private static final int NUM_NODES_PER_POD = NUM_LEAVES_PER_POD + NUM_SPINES_PER_POD;
+
+    public static abstract class AllocatorFactory {
+        public abstract Allocator create(Simulator simulator, Network network);
+    }
+
+    // Reference max-min fair allocator
+    public static final AllocatorFactory SIMPLE_MMF = new AllocatorFactory() {
+        @Override
+        public Allocator create(Simulator simulator, Network network) {
+            return new SimpleMmfAllocator(simulator, network);
+        }
+    };
+
+    /**
+     * Run the random simulation with the simple max-min fair allocator as reference.
+     *
+     * @param candidate         Candidate allocator factory
+     * @param seed              Random seed
+     * @param numConnections    Number of connections
+     * @param precision         Maximum absolute difference in flow bandwidth
+     *
+     * @return  Number of allocation comparisons performed
+     */
+    public static int runAgainstSimpleMmf(AllocatorFactory candidate, long seed, int numConnections,
+                                          double precision) {
+        return run(candidate, SIMPLE_MMF, seed, numConnections, precision);
+    }
+
+    /**
+     * Run the random simulation.
+     *
+     * @param candidate         Candidate allocator factory
+     * @param reference         Reference allocator factory (null to only perform the candidate,
+     *                          e.g. if it checks its own allocation)
+     * @param seed              Random seed
+     * @param numConnections    Number of connections
+     * @param precision         Maximum absolute difference in flow bandwidth
+     *
+     * @return  Number of allocation comparisons (or candidate allocations, if there is no reference) performed
+     */
+    public static int run(AllocatorFactory candidate, AllocatorFactory reference, long seed, int numConnections,
+                          final double precision) {
+        final Random random = new Random(seed);
+        final Simulator simulator = new Simulator();
+
+        // Two pods of leaves, each connected to all spines of the pod
+        final Network network = new Network(2 * NUM_NODES_PER_POD);
+        for (int pod = 0; pod < 2; pod++) {
+            for (int l = 0; l < NUM_LEAVES_PER_POD; l++) {
+                for (int s = 0; s < NUM_SPINES_PER_POD; s++) {
+                    int leaf = pod * NUM_NODES_PER_POD + l;
+                    int spine = pod * NUM_NODES_PER_POD + NUM_LEAVES_PER_POD + s;
+                    network.addLink(leaf, spine, 5 + random.nextInt(16));
+                    network.addLink(spine, leaf, 5 + random.nextInt(16));
+                }
+            }
+        }
+
+        // Compare after each time tick
+        final Allocator candidateAllocator = candidate.create(simulator, network);
+        final Allocator referenceAllocator = reference == null ? null : reference.create(simulator, network);
+        final int[] numComparisons = new int[1];
+        Aftermath aftermath = new Aftermath(simulator, network) {
+
+            @Override
+            public void perform() {
+                candidateAllocator.perform();
+                if (referenceAllocator != null) {
+                    Map<Flow, Double> candidateBandwidth = new HashMap<>();
+                    for (Flow flow : network.getActiveFlows()) {
+                        candidateBandwidth.put(flow, flow.getCurrentBandwidth());
+                    }
+                    referenceAllocator.perform();
+                    for (Flow flow : network.getActiveFlows()) {
+                        assertEquals(flow.getCurrentBandwidth(), candidateBandwidth.get(flow), precision);
+                    }
+                }
+                numComparisons[0]++;
+            }
+
+            @Override
+            public boolean isSpeculative() {
+                return candidateAllocator.isSpeculative();
+            }
+
+            @Override
+            public void speculate(long time, List<Flow> endingFlows) {
+                candidateAllocator.speculate(time, endingFlows);
+            }
+
+        };
+        simulator.setup(network, aftermath, new VoidLoggerFactory(simulator));
+
+        // Each connection gets one to two flows via spines in its pod
+        RoutingStrategy routingStrategy = new RoutingStrategy(simulator) {
+
+            @Override
+            public void assignStartFlows(Connection connection) {
+                int numFlows = 1 + random.nextInt(2);
+                for (int i = 0; i < numFlows; i++) {
+                    int podBase = connection.getSrcNodeId() - connection.getSrcNodeId() % NUM_NODES_PER_POD;
+                    int spine = podBase + NUM_LEAVES_PER_POD + random.nextInt(NUM_SPINES_PER_POD);
+                    AcyclicPath path = new AcyclicPath();
+                    path.add(network.getPresentLinksBetween(connection.getSrcNodeId(), spine).get(0));
+                    path.add(network.getPresentLinksBetween(spine, connection.getDstNodeId()).get(0));
+                    simulator.addFlowToConnection(connection, path);
+                }
+            }
+
+        };
+
+        // Random connections
+        TrafficSchedule schedule = new TrafficSchedule(simulator, network, routingStrategy);
+        for (int i = 0; i < numConnections; i++) {
+            int pod = random.nextInt(2);
+            int src = random.nextInt(NUM_LEAVES_PER_POD);
+            int dst = (src + 1 + random.nextInt(NUM_LEAVES_PER_POD - 1)) % NUM_LEAVES_PER_POD;
+            schedule.addConnectionStartEvent(
+                    pod * NUM_NODES_PER_POD + src,
+                    pod * NUM_NODES_PER_POD + dst,
+                    100 + random.nextInt(2000),
+                    random.nextInt(1000)
+            );
+        }
+        simulator.insertEvents(schedule.getConnectionStartEvents());
+
+        // Random disturbances of flows outside of the aftermath
+        for (int i = 0; i < numConnections / 4; i++) {
+            final boolean endFlow = random.nextBoolean();
+            simulator.insertEvents(new Event(simulator, 0, random.nextInt(1000)) {
+
+                @Override
+                protected void trigger() {
+                    List<Flow> flows = new ArrayList<>(network.getActiveFlows());
+                    if (flows.isEmpty()) {
+                        return;
+                    }
+                    Collections.sort(flows, new Comparator<Flow>() {
+                        @Override
+                        public int compare(Flow a, Flow b) {
+                            return Integer.compare(a.getFlowId(), b.getFlowId());
+                        }
+                    });
+                    Flow flow = flows.get(random.nextInt(flows.size()));
+                    if (endFlow && flow.getParentConnection().getActiveFlows().size() > 1) {
+                        simulator.endFlow(flow);
+                    } else {
+                        simulator.allocateFlowBandwidth(flow, 0);
+                    }
+                }
+
+            });
+        }
+
+        simulator.run(100000);
+        return numComparisons[0];
+    }
+
+}
@@ -22,25 +22,27 @@
  * SOFTWARE.
  */
 
-package ch.ethz.systems.floodns.core;
+package ch.ethz.systems.floodns.ext.allocator;
 
-class ConnectionFinishEvent extends Event {
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+import org.junit.Test;
 
-    /**
-     * Create connection finish event which will happen the given amount of time later.
-     *
-     * @param simulator       Simulator to which this event belongs to
-     * @param timeFromNow     Time it will take before happening from now
-     */
-    ConnectionFinishEvent(Simulator simulator, long timeFromNow) {
-        super(simulator, 0, timeFromNow);
-    }
+import static org.junit.Assert.assertTrue;
+
+public class ArrayMmfAllocatorTest {
 
-    @Override
-    protected void trigger() {
-        // Does not trigger anything, because before every active event, the
-        // amount of data a flow transmitted is updated. The insertion of this
-        // event has that purpose.
+    @Test
+    public void testSameAsSimpleMmf() {
+        AllocatorEquivalenceTestUtility.AllocatorFactory array = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+            @Override
+            public Allocator create(Simulator simulator, Network network) {
+                return new ArrayMmfAllocator(simulator, network);
+            }
+        };
+        for (long seed = 0; seed < 10; seed++) {
+            assertTrue(AllocatorEquivalenceTestUtility.runAgainstSimpleMmf(array, seed, 200, 1e-8) > 100);
+        }
     }
 
 }
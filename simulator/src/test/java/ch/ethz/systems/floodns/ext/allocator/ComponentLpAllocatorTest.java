@@ -0,0 +1,323 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.PathTestUtility;
+import ch.ethz.systems.floodns.core.AcyclicPath;
+import ch.ethz.systems.floodns.core.Connection;
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+import ch.ethz.systems.floodns.ext.lputils.LpModel;
+import ch.ethz.systems.floodns.ext.lputils.LpSolver;
+import ch.ethz.systems.floodns.ext.lputils.SimplexLpSolver;
+import ch.ethz.systems.floodns.user.network.NetworkTestHelper;
+import ch.ethz.systems.floodns.user.network.TestBody;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ComponentLpAllocatorTest {
+
+    /**
+     * Solver which sets the flow variables (those not in the objective) to their position plus one and the
+     * objective to the number of flow variables, and records the number of flow variables of each program it solves.
+     */
+    private static class CountingLpSolver extends LpSolver {
+
+        private final List<Integer> programs = Collections.synchronizedList(new ArrayList<Integer>());
+
+        @Override
+        public ImmutablePair<Double, Map<String, Double>> solve(String cplexFilename, String solutionFilename) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ImmutablePair<Double, double[]> solve(LpModel model) {
+            double[] values = new double[model.getNumVariables()];
+            int numFlowVariables = 0;
+            for (int j = 0; j < values.length; j++) {
+                if (model.getObjectiveCoefficient(j) == 0.0) {
+                    numFlowVariables++;
+                    values[j] = numFlowVariables;
+                }
+            }
+            programs.add(numFlowVariables);
+            return new ImmutablePair<>((double) numFlowVariables, values);
+        }
+
+        List<Integer> getPrograms() {
+            List<Integer> sorted = new ArrayList<>(programs);
+            Collections.sort(sorted);
+            return sorted;
+        }
+
+    }
+
+    /**
+     * Solver which solves each program both from scratch and from the basis applied to it, of which it checks
+     * that the objectives are equal, and returns the warm started solution.
+     */
+    private static class WarmColdLpSolver extends LpSolver {
+
+        private final SimplexLpSolver cold = new SimplexLpSolver();
+        private final SimplexLpSolver warm = new SimplexLpSolver();
+        private final AtomicInteger numWarmStarts = new AtomicInteger(0);
+
+        @Override
+        public ImmutablePair<Double, Map<String, Double>> solve(String cplexFilename, String solutionFilename) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ImmutablePair<Double, double[]> solve(LpModel model) {
+            LpModel.BasisStatus[] variableStatus = new LpModel.BasisStatus[model.getNumVariables()];
+            for (int j = 0; j < variableStatus.length; j++) {
+                variableStatus[j] = model.getVariableStatus(j);
+            }
+            LpModel.BasisStatus[] constraintStatus = new LpModel.BasisStatus[model.getNumConstraints()];
+            for (int i = 0; i < constraintStatus.length; i++) {
+                constraintStatus[i] = model.getConstraintStatus(i);
+            }
+            if (model.hasBasis()) {
+                numWarmStarts.incrementAndGet();
+            }
+
+            // From scratch
+            model.clearBasis();
+            ImmutablePair<Double, double[]> coldResult = cold.solve(model);
+
+            // From the applied basis
+            model.clearBasis();
+            for (int j = 0; j < variableStatus.length; j++) {
+                model.setVariableStatus(j, variableStatus[j]);
+            }
+            for (int i = 0; i < constraintStatus.length; i++) {
+                model.setConstraintStatus(i, constraintStatus[i]);
+            }
+            ImmutablePair<Double, double[]> warmResult = warm.solve(model);
+            assertEquals(coldResult.getLeft(), warmResult.getLeft(), 1e-6);
+            return warmResult;
+        }
+
+    }
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Three components: 0-1 and 0-1-2 sharing link 0-&gt;1, 3-4 on its own, and a connection
+     * from 5 to 6 with two flows over disjoint links.
+     */
+    private static Network createNetwork() {
+        Network network = new Network(8);
+        network.addLink(0, 1, 10.0);
+        network.addLink(1, 2, 10.0);
+        network.addLink(3, 4, 10.0);
+        network.addLink(5, 6, 10.0);
+        network.addLink(5, 7, 10.0);
+        network.addLink(7, 6, 10.0);
+        return network;
+    }
+
+    private static void startFlows(Simulator simulator, Network network) {
+        PathTestUtility.startSimpleFlow(simulator, network, "0-1");
+        PathTestUtility.startSimpleFlow(simulator, network, "0-1-2");
+        PathTestUtility.startSimpleFlow(simulator, network, "3-4");
+        AcyclicPath direct = PathTestUtility.createAcyclicPath(network, "5-6");
+        AcyclicPath indirect = PathTestUtility.createAcyclicPath(network, "5-7-6");
+        Connection conn = new Connection(simulator, direct.getSrcNode(), direct.getDstNode(), 1000);
+        simulator.activateConnection(conn);
+        simulator.addFlowToConnection(conn, direct);
+        simulator.addFlowToConnection(conn, indirect);
+    }
+
+    private static List<Integer> expectedComponentPrograms() {
+        return Arrays.asList(1, 2, 2);
+    }
+
+    @Test
+    public void testSumMaxPerComponent() {
+        Simulator simulator = new Simulator();
+        Network network = createNetwork();
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                startFlows(simulator, network);
+                CountingLpSolver solver = new CountingLpSolver();
+                SumMaxLpAllocator allocator = new SumMaxLpAllocator(simulator, network, solver, executor);
+                allocator.perform();
+
+                // One program per component, of which the objectives are summed
+                assertEquals(3, allocator.getNumComponents());
+                assertEquals(expectedComponentPrograms(), solver.getPrograms());
+                assertEquals(5.0, allocator.getObjectiveZ(), simulator.getFlowPrecision());
+
+                // Flows {0, 1}, {2} and {3, 4} are the variables of their component in identifier order
+                double[] expected = new double[]{1.0, 2.0, 1.0, 1.0, 2.0};
+                for (Flow flow : network.getActiveFlows()) {
+                    assertEquals(expected[flow.getFlowId()], flow.getCurrentBandwidth(), simulator.getFlowPrecision());
+                }
+            }
+
+        });
+    }
+
+    @Test
+    public void testSumMaxPerComponentOnCallingThread() {
+        Simulator simulator = new Simulator();
+        Network network = createNetwork();
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                startFlows(simulator, network);
+                CountingLpSolver solver = new CountingLpSolver();
+                SumMaxLpAllocator allocator = new SumMaxLpAllocator(simulator, network, solver);
+                allocator.perform();
+
+                // Without executor service, the components are solved one after the other
+                assertEquals(3, allocator.getNumComponents());
+                assertEquals(expectedComponentPrograms(), solver.getPrograms());
+                assertEquals(5.0, allocator.getObjectiveZ(), simulator.getFlowPrecision());
+            }
+
+        });
+    }
+
+    @Test
+    public void testMaxMinConnBwPerComponent() {
+        Simulator simulator = new Simulator();
+        Network network = createNetwork();
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                startFlows(simulator, network);
+                Map<Integer, Double> connectionToDemand = new HashMap<>();
+                for (Connection connection : simulator.getActiveConnections()) {
+                    connectionToDemand.put(connection.getConnectionId(), 1.0);
+                }
+                CountingLpSolver solver = new CountingLpSolver();
+                MaxMinConnBwLpAllocator allocator = new MaxMinConnBwLpAllocator(
+                        simulator, network, connectionToDemand, solver, executor
+                );
+                allocator.perform();
+
+                // One program per component, of which the minimum is the objective
+                assertEquals(3, allocator.getNumComponents());
+                assertEquals(expectedComponentPrograms(), solver.getPrograms());
+                assertEquals(1.0, allocator.getObjectiveZ(), simulator.getFlowPrecision());
+            }
+
+        });
+    }
+
+    @Test
+    public void testEpsilonSumMaxAsWhole() {
+        Simulator simulator = new Simulator();
+        Network network = createNetwork();
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                startFlows(simulator, network);
+                CountingLpSolver solver = new CountingLpSolver();
+                EpsilonSumMaxLpAllocator allocator = new EpsilonSumMaxLpAllocator(
+                        simulator, network, 0.9, solver, executor
+                );
+                allocator.perform();
+
+                // The super sum couples all components
+                assertEquals(1, allocator.getNumComponents());
+                assertEquals(Collections.singletonList(5), solver.getPrograms());
+                assertEquals(5.0, allocator.getObjectiveZ(), simulator.getFlowPrecision());
+            }
+
+        });
+    }
+
+    @Test
+    public void testWarmStartFromPreviousBasis() {
+        for (long seed = 0; seed < 3; seed++) {
+            final WarmColdLpSolver solver = new WarmColdLpSolver();
+            AllocatorEquivalenceTestUtility.AllocatorFactory sumMax = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+                @Override
+                public Allocator create(Simulator simulator, Network network) {
+                    return new SumMaxLpAllocator(simulator, network, solver, executor);
+                }
+            };
+            AllocatorEquivalenceTestUtility.AllocatorFactory none = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+                @Override
+                public Allocator create(Simulator simulator, Network network) {
+                    return new VoidAllocator(simulator, network);
+                }
+            };
+            assertTrue(AllocatorEquivalenceTestUtility.run(sumMax, none, seed, 100, 1e-8) > 50);
+
+            // Most programs start from the previous basis, and need fewer iterations overall
+            assertTrue(solver.numWarmStarts.get() > 50);
+            assertTrue(solver.warm.getNumIterations() < solver.cold.getNumIterations());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxMinConnBwMissingDemand() {
+        Simulator simulator = new Simulator();
+        Network network = createNetwork();
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                startFlows(simulator, network);
+                new MaxMinConnBwLpAllocator(
+                        simulator, network, new HashMap<Integer, Double>(), new CountingLpSolver(), executor
+                ).perform();
+            }
+
+        });
+    }
+
+}
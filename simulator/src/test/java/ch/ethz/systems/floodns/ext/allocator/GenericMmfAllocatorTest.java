@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+import ch.ethz.systems.floodns.user.network.NetworkTestHelper;
+import ch.ethz.systems.floodns.user.network.TestBody;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static ch.ethz.systems.floodns.PathTestUtility.startSimpleFlow;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GenericMmfAllocatorTest {
+
+    /**
+     * Weight or upper limit which is determined by the flow identifier.
+     */
+    private static class FlowIdMap extends HashMap<Flow, Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean weights;
+
+        FlowIdMap(boolean weights) {
+            this.weights = weights;
+        }
+
+        @Override
+        public Double get(Object key) {
+            int flowId = ((Flow) key).getFlowId();
+            if (weights) {
+                return 0.5 + ((flowId * 7) % 5) * 0.25;
+            } else {
+                return flowId % 3 == 0 ? 1.0 + flowId % 4 : Double.MAX_VALUE;
+            }
+        }
+
+    }
+
+    @Test
+    public void testSameAsSimpleMmfWithoutWeightsAndLimits() {
+        AllocatorEquivalenceTestUtility.AllocatorFactory generic = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+            @Override
+            public Allocator create(Simulator simulator, Network network) {
+                return new GenericMmfAllocator(simulator, network, null, null);
+            }
+        };
+        for (long seed = 0; seed < 5; seed++) {
+            assertTrue(AllocatorEquivalenceTestUtility.runAgainstSimpleMmf(generic, seed, 200, 1e-8) > 100);
+        }
+    }
+
+    @Test
+    public void testWeightedMaxMinFair() {
+        final Map<Flow, Double> flowToUpperLimit = new FlowIdMap(false);
+        final Map<Flow, Double> flowToWeight = new FlowIdMap(true);
+        AllocatorEquivalenceTestUtility.AllocatorFactory generic = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+            @Override
+            public Allocator create(Simulator simulator, Network network) {
+                return new GenericMmfAllocator(simulator, network, flowToUpperLimit, flowToWeight);
+            }
+        };
+        AllocatorEquivalenceTestUtility.AllocatorFactory checker = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+            @Override
+            public Allocator create(Simulator simulator, Network network) {
+                return new WeightedMmfChecker(simulator, network, flowToUpperLimit, flowToWeight);
+            }
+        };
+        for (long seed = 0; seed < 5; seed++) {
+            assertTrue(AllocatorEquivalenceTestUtility.run(generic, checker, seed, 200, 1e-8) > 100);
+        }
+    }
+
+    @Test
+    public void testWeightedBottleneckOnMultiLinkPaths() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(4);
+        network.addLink(0, 1, 10.0);
+        network.addLink(1, 2, 12.0);
+        network.addLink(2, 3, 6.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1-2");
+                Flow b = startSimpleFlow(simulator, network, "1-2-3");
+                Flow c = startSimpleFlow(simulator, network, "0-1");
+                Map<Flow, Double> flowToWeight = new HashMap<>();
+                flowToWeight.put(a, 1.0);
+                flowToWeight.put(b, 2.0);
+                flowToWeight.put(c, 1.0);
+                new GenericMmfAllocator(simulator, network, null, flowToWeight).perform();
+
+                // Link 2-3 saturates first at level 6 / 2 = 3 (b gets 6), after which link 0-1 at level
+                // 10 / 2 = 5 is tighter than link 1-2 at level (12 - 6) / 1 = 6, such that a and c (of equal
+                // weight on the same saturated link) both get 5 (previously a got 4 and c got 6)
+                assertEquals(5.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(6.0, b.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(5.0, c.getCurrentBandwidth(), simulator.getFlowPrecision());
+            }
+
+        });
+
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Link;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+import ch.ethz.systems.floodns.user.network.NetworkTestHelper;
+import ch.ethz.systems.floodns.user.network.TestBody;
+import org.junit.Test;
+
+import static ch.ethz.systems.floodns.PathTestUtility.startSimpleFlow;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RelaxedBottleneckAllocatorTest {
+
+    @Test
+    public void testRelaxedBottleneck() {
+        for (final double epsilon : new double[]{0.01, 0.1, 0.5}) {
+            AllocatorEquivalenceTestUtility.AllocatorFactory checked = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+                @Override
+                public Allocator create(Simulator simulator, final Network network) {
+                    final RelaxedBottleneckAllocator relaxed = new RelaxedBottleneckAllocator(simulator, network, epsilon);
+                    return new Allocator(simulator, network) {
+                        @Override
+                        public void perform() {
+                            relaxed.perform();
+                            assertRelaxedBottleneck(network, epsilon);
+                        }
+                    };
+                }
+            };
+            for (long seed = 0; seed < 5; seed++) {
+                assertTrue(AllocatorEquivalenceTestUtility.run(checked, null, seed, 200, 0.0) > 100);
+            }
+        }
+    }
+
+    @Test
+    public void testBucketLevel() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(6);
+        network.addLink(0, 1, 10.0);
+        network.addLink(2, 3, 14.0);
+        network.addLink(4, 5, 16.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1");
+                Flow b = startSimpleFlow(simulator, network, "2-3");
+                Flow c = startSimpleFlow(simulator, network, "4-5");
+                RelaxedBottleneckAllocator allocator = new RelaxedBottleneckAllocator(simulator, network, 0.5);
+                allocator.perform();
+
+                // Buckets with levels 10 * 1.5^(k - 1): share 14 is in [10, 15) and gets 10, share 16 is in [15, 22.5)
+                // and gets 15, each at least the share divided by 1.5
+                assertEquals(10.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(10.0, b.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(15.0, c.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertTrue(b.getCurrentBandwidth() >= 14.0 / 1.5);
+                assertTrue(c.getCurrentBandwidth() >= 16.0 / 1.5);
+
+                // Largest shortfall is that of b: (14 - 10) / 14
+                assertEquals(4.0 / 14.0, allocator.computeRealizedError(), 1e-12);
+                assertRelaxedBottleneck(network, 0.5);
+            }
+
+        });
+
+    }
+
+    @Test
+    public void testSharedLinkRealizedError() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(3);
+        network.addLink(0, 1, 10.0);
+        network.addLink(1, 2, 30.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1");
+                Flow b = startSimpleFlow(simulator, network, "0-1-2");
+                Flow c = startSimpleFlow(simulator, network, "1-2");
+                RelaxedBottleneckAllocator allocator = new RelaxedBottleneckAllocator(simulator, network, 1.0);
+                allocator.perform();
+
+                // Levels 5 * 2^(k - 1): link 0-1 (share 5) fixes a and b at 5, after which link 1-2 has a share
+                // of 25, which is in [20, 40) and gets 20 (exact max-min fair: 5, 5 and 25)
+                assertEquals(5.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(5.0, b.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(20.0, c.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(5.0 / 25.0, allocator.computeRealizedError(), 1e-12);
+                assertRelaxedBottleneck(network, 1.0);
+
+                // The realized error is computed without changing the allocation
+                assertEquals(20.0, c.getCurrentBandwidth(), simulator.getFlowPrecision());
+            }
+
+        });
+
+    }
+
+    @Test
+    public void testBucketLevelOverManyDoublings() {
+        final double[] capacities = new double[]{1.0, 3.0, 7.0, 100.0, 1000.5, 65537.0, 1234567.0};
+        Simulator simulator = new Simulator();
+        Network network = new Network(2 * capacities.length);
+        for (int i = 0; i < capacities.length; i++) {
+            network.addLink(2 * i, 2 * i + 1, capacities[i]);
+        }
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow[] flows = new Flow[capacities.length];
+                for (int i = 0; i < capacities.length; i++) {
+                    flows[i] = startSimpleFlow(simulator, network, (2 * i) + "-" + (2 * i + 1));
+                }
+                new RelaxedBottleneckAllocator(simulator, network, 0.01).perform();
+
+                // Each flow gets the highest level 1.01^k (the smallest share being 1) which fits its link
+                for (int i = 0; i < capacities.length; i++) {
+                    double expected = Math.pow(1.01, Math.floor(Math.log(capacities[i]) / Math.log(1.01)));
+                    assertEquals(expected, flows[i].getCurrentBandwidth(), 1e-9 * expected);
+                }
+            }
+
+        });
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveEpsilon() {
+        Simulator simulator = new Simulator();
+        new RelaxedBottleneckAllocator(simulator, new Network(1), 0.0);
+    }
+
+    /**
+     * Check that each flow has a link on its path which is utilized for at least 1 / (1 + epsilon)
+     * and on which no other flow has a higher rate.
+     *
+     * @param network   Network
+     * @param epsilon   Level factor minus one
+     */
+    private static void assertRelaxedBottleneck(Network network, double epsilon) {
+        for (Flow f : network.getActiveFlows()) {
+            boolean bottlenecked = false;
+            for (Link link : f.getPath()) {
+                if (link.getCapacity() - link.getRemainderCapacity() >= link.getCapacity() / (1 + epsilon) - 1e-8) {
+                    boolean highest = true;
+                    for (Flow other : link.getActiveFlows()) {
+                        if (other.getCurrentBandwidth() > f.getCurrentBandwidth() + 1e-8) {
+                            highest = false;
+                        }
+                    }
+                    bottlenecked |= highest;
+                }
+            }
+            assertTrue("Flow " + f + " is not bottlenecked", bottlenecked);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertTrue;
+
+public class SpeculativeMmfAllocatorTest {
+
+    @Test
+    public void testSameAsSimpleMmf() {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final SpeculativeMmfAllocator[] speculative = new SpeculativeMmfAllocator[1];
+        AllocatorEquivalenceTestUtility.AllocatorFactory spec = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+            @Override
+            public Allocator create(Simulator simulator, Network network) {
+                speculative[0] = new SpeculativeMmfAllocator(simulator, network, executor);
+                return speculative[0];
+            }
+        };
+        try {
+            for (long seed = 0; seed < 10; seed++) {
+                assertTrue(AllocatorEquivalenceTestUtility.runAgainstSimpleMmf(spec, seed, 200, 1e-8) > 100);
+
+                // Speculations must have been both committed (flow completions) and discarded (other events)
+                assertTrue(speculative[0].getNumSpeculationsCommitted() > 0);
+                assertTrue(speculative[0].getNumSpeculationsDiscarded() > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSharedWorkerThread() {
+        AllocatorEquivalenceTestUtility.AllocatorFactory spec = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+            @Override
+            public Allocator create(Simulator simulator, Network network) {
+                return new SpeculativeMmfAllocator(simulator, network);
+            }
+        };
+        for (long seed = 0; seed < 3; seed++) {
+            assertTrue(AllocatorEquivalenceTestUtility.runAgainstSimpleMmf(spec, seed, 200, 1e-8) > 100);
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+import ch.ethz.systems.floodns.ext.utils.ConstantMap;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+public class UpperLimitMmfAllocatorTest {
+
+    @Test
+    public void testUpperLimitedMaxMinFair() {
+
+        // A third of the flows is rate-limited strictly, a third loosely, and a third not at all
+        final Map<Flow, Double> flowToUpperLimit = new HashMap<Flow, Double>() {
+            @Override
+            public Double get(Object key) {
+                int flowId = ((Flow) key).getFlowId();
+                return flowId % 3 == 0 ? 1.0 + flowId % 4 : (flowId % 3 == 1 ? 0.5 + flowId % 7 : Double.MAX_VALUE);
+            }
+        };
+
+        AllocatorEquivalenceTestUtility.AllocatorFactory upperLimit = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+            @Override
+            public Allocator create(Simulator simulator, Network network) {
+                return new UpperLimitMmfAllocator(simulator, network, flowToUpperLimit);
+            }
+        };
+        AllocatorEquivalenceTestUtility.AllocatorFactory checker = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+            @Override
+            public Allocator create(Simulator simulator, Network network) {
+                return new WeightedMmfChecker(simulator, network, flowToUpperLimit, new ConstantMap<Flow, Double>(1.0));
+            }
+        };
+        for (long seed = 0; seed < 5; seed++) {
+            assertTrue(AllocatorEquivalenceTestUtility.run(upperLimit, checker, seed, 200, 1e-8) > 100);
+        }
+
+    }
+
+}
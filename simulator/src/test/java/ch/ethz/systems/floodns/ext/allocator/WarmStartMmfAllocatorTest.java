@@ -0,0 +1,239 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.*;
+import ch.ethz.systems.floodns.ext.logger.empty.VoidLoggerFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ch.ethz.systems.floodns.PathTestUtility.startSimpleFlow;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WarmStartMmfAllocatorTest {
+
+    @Test
+    public void testSameAsSimpleMmf() {
+        final WarmStartMmfAllocator[] warmStart = new WarmStartMmfAllocator[1];
+        AllocatorEquivalenceTestUtility.AllocatorFactory warm = new AllocatorEquivalenceTestUtility.AllocatorFactory() {
+            @Override
+            public Allocator create(Simulator simulator, Network network) {
+                warmStart[0] = new WarmStartMmfAllocator(simulator, network);
+                return warmStart[0];
+            }
+        };
+        for (long seed = 0; seed < 10; seed++) {
+            assertTrue(AllocatorEquivalenceTestUtility.runAgainstSimpleMmf(warm, seed, 200, 1e-8) > 100);
+
+            // Part of the water-filling must have been kept across aftermaths
+            assertTrue(warmStart[0].getNumStepsReused() > 0);
+            assertTrue(warmStart[0].getNumStepsComputed() > 0);
+        }
+    }
+
+    /**
+     * Aftermath which records the step from which the water-filling is resumed, before performing it,
+     * and the resulting bandwidth of the flows (as they are reset when the simulation ends).
+     */
+    private static class ResumeRecorder extends Aftermath {
+
+        private final WarmStartMmfAllocator allocator;
+        private final List<Integer> resumeSteps;
+        private final Map<Flow, Double> flowToBandwidth;
+
+        ResumeRecorder(Simulator simulator, Network network) {
+            super(simulator, network);
+            this.allocator = new WarmStartMmfAllocator(simulator, network);
+            this.resumeSteps = new ArrayList<>();
+            this.flowToBandwidth = new HashMap<>();
+        }
+
+        @Override
+        public void perform() {
+            resumeSteps.add(allocator.findFirstInvalidStep(network.getChangeSet()));
+            allocator.perform();
+            flowToBandwidth.clear();
+            for (Flow flow : network.getActiveFlows()) {
+                flowToBandwidth.put(flow, flow.getCurrentBandwidth());
+            }
+        }
+
+        @Override
+        public boolean dependsOnlyOnNetwork() {
+            return true;
+        }
+
+    }
+
+    private static final double LARGE_SIZE = 1e9;
+
+    /**
+     * Topology 0 -(4)-> 1 -(10)-> 2 -(cap)-> 3, and its initial water-filling at time 0:
+     * step 0 with bottleneck 0-1 at level 4 fixes flow 0-1-2, step 1 with bottleneck 1-2 at
+     * level 6 fixes flow 1-2-3 (link 2-3 is no bottleneck).
+     */
+    private Network createLine(double lastCapacity) {
+        Network network = new Network(4);
+        network.addLink(0, 1, 4.0);
+        network.addLink(1, 2, 10.0);
+        network.addLink(2, 3, lastCapacity);
+        return network;
+    }
+
+    @Test
+    public void testArrivalTighterThanEarlierLevel() {
+        final Simulator simulator = new Simulator();
+        final Network network = createLine(10.0);
+        ResumeRecorder recorder = new ResumeRecorder(simulator, network);
+        simulator.setup(network, recorder, new VoidLoggerFactory(simulator));
+        final Flow[] flows = new Flow[3];
+        simulator.insertEvents(new Event(simulator, 0, 0) {
+            @Override
+            protected void trigger() {
+                flows[0] = startSimpleFlow(simulator, network, "0-1-2", LARGE_SIZE);
+                flows[1] = startSimpleFlow(simulator, network, "1-2-3", LARGE_SIZE);
+            }
+        });
+
+        // The arrival on 2-3 has a share of 10 / 2 = 5, which is below the level 6 of step 1
+        simulator.insertEvents(new Event(simulator, 0, 1) {
+            @Override
+            protected void trigger() {
+                flows[2] = startSimpleFlow(simulator, network, "2-3", LARGE_SIZE);
+            }
+        });
+        simulator.run(2);
+
+        assertEquals(2, recorder.resumeSteps.size());
+        assertEquals(0, (int) recorder.resumeSteps.get(0));
+        assertEquals(1, (int) recorder.resumeSteps.get(1));
+        assertEquals(1, recorder.allocator.getNumStepsReused());
+        assertEquals(4.0, recorder.flowToBandwidth.get(flows[0]), simulator.getFlowPrecision());
+        assertEquals(5.0, recorder.flowToBandwidth.get(flows[1]), simulator.getFlowPrecision());
+        assertEquals(5.0, recorder.flowToBandwidth.get(flows[2]), simulator.getFlowPrecision());
+    }
+
+    @Test
+    public void testArrivalNotTighter() {
+        final Simulator simulator = new Simulator();
+        final Network network = createLine(20.0);
+        ResumeRecorder recorder = new ResumeRecorder(simulator, network);
+        simulator.setup(network, recorder, new VoidLoggerFactory(simulator));
+        final Flow[] flows = new Flow[3];
+        simulator.insertEvents(new Event(simulator, 0, 0) {
+            @Override
+            protected void trigger() {
+                flows[0] = startSimpleFlow(simulator, network, "0-1-2", LARGE_SIZE);
+                flows[1] = startSimpleFlow(simulator, network, "1-2-3", LARGE_SIZE);
+            }
+        });
+
+        // The arrival on 2-3 has a share of 20 / 2 = 10, which is above all levels
+        simulator.insertEvents(new Event(simulator, 0, 1) {
+            @Override
+            protected void trigger() {
+                flows[2] = startSimpleFlow(simulator, network, "2-3", LARGE_SIZE);
+            }
+        });
+        simulator.run(2);
+
+        assertEquals(2, (int) recorder.resumeSteps.get(1));
+        assertEquals(2, recorder.allocator.getNumStepsReused());
+        assertEquals(4.0, recorder.flowToBandwidth.get(flows[0]), simulator.getFlowPrecision());
+        assertEquals(6.0, recorder.flowToBandwidth.get(flows[1]), simulator.getFlowPrecision());
+        assertEquals(14.0, recorder.flowToBandwidth.get(flows[2]), simulator.getFlowPrecision());
+    }
+
+    @Test
+    public void testEndOfFlowFixedAtStep() {
+        final Simulator simulator = new Simulator();
+        final Network network = createLine(20.0);
+        ResumeRecorder recorder = new ResumeRecorder(simulator, network);
+        simulator.setup(network, recorder, new VoidLoggerFactory(simulator));
+        final Flow[] flows = new Flow[4];
+        simulator.insertEvents(new Event(simulator, 0, 0) {
+            @Override
+            protected void trigger() {
+                flows[0] = startSimpleFlow(simulator, network, "0-1-2", LARGE_SIZE);
+                flows[1] = startSimpleFlow(simulator, network, "1-2", LARGE_SIZE);
+                flows[2] = startSimpleFlow(simulator, network, "2-3", LARGE_SIZE);
+                flows[3] = startSimpleFlow(simulator, network, "2-3", LARGE_SIZE);
+            }
+        });
+
+        // Steps: 0-1 at level 4, 1-2 at level 6, and 2-3 at level 10 fixing the last two flows
+        simulator.insertEvents(new Event(simulator, 0, 1) {
+            @Override
+            protected void trigger() {
+                simulator.endFlow(flows[3]);
+            }
+        });
+        simulator.run(2);
+
+        assertEquals(2, (int) recorder.resumeSteps.get(1));
+        assertEquals(2, recorder.allocator.getNumStepsReused());
+        assertEquals(4.0, recorder.flowToBandwidth.get(flows[0]), simulator.getFlowPrecision());
+        assertEquals(6.0, recorder.flowToBandwidth.get(flows[1]), simulator.getFlowPrecision());
+        assertEquals(20.0, recorder.flowToBandwidth.get(flows[2]), simulator.getFlowPrecision());
+    }
+
+    @Test
+    public void testReallocationOutsideAftermath() {
+        final Simulator simulator = new Simulator();
+        final Network network = createLine(20.0);
+        ResumeRecorder recorder = new ResumeRecorder(simulator, network);
+        simulator.setup(network, recorder, new VoidLoggerFactory(simulator));
+        final Flow[] flows = new Flow[3];
+        simulator.insertEvents(new Event(simulator, 0, 0) {
+            @Override
+            protected void trigger() {
+                flows[0] = startSimpleFlow(simulator, network, "0-1-2", LARGE_SIZE);
+                flows[1] = startSimpleFlow(simulator, network, "1-2", LARGE_SIZE);
+                flows[2] = startSimpleFlow(simulator, network, "2-3", LARGE_SIZE);
+            }
+        });
+
+        // Resetting the flow fixed in step 1 (by an event) invalidates it, although no link changed
+        simulator.insertEvents(new Event(simulator, 0, 1) {
+            @Override
+            protected void trigger() {
+                simulator.allocateFlowBandwidth(flows[1], 0.0);
+            }
+        });
+        simulator.run(2);
+
+        assertEquals(1, (int) recorder.resumeSteps.get(1));
+        assertEquals(1, recorder.allocator.getNumStepsReused());
+        assertEquals(4.0, recorder.flowToBandwidth.get(flows[0]), simulator.getFlowPrecision());
+        assertEquals(6.0, recorder.flowToBandwidth.get(flows[1]), simulator.getFlowPrecision());
+        assertEquals(20.0, recorder.flowToBandwidth.get(flows[2]), simulator.getFlowPrecision());
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.allocator;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Link;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Does not change the allocation, but checks that it is upper limited weighted max-min fair: each flow
+ * is either at its upper limit, or has a saturated link on its path on which no other flow has a higher level.
+ */
+public class WeightedMmfChecker extends Allocator {
+
+    private final Map<Flow, Double> flowToUpperLimit;
+    private final Map<Flow, Double> flowToWeight;
+
+    public WeightedMmfChecker(Simulator simulator, Network network, Map<Flow, Double> flowToUpperLimit, Map<Flow, Double> flowToWeight) {
+        super(simulator, network);
+        this.flowToUpperLimit = flowToUpperLimit;
+        this.flowToWeight = flowToWeight;
+    }
+
+    @Override
+    public void perform() {
+        for (Flow f : network.getActiveFlows()) {
+            double level = f.getCurrentBandwidth() / flowToWeight.get(f);
+            boolean bottlenecked = Math.abs(f.getCurrentBandwidth() - flowToUpperLimit.get(f)) < 1e-8;
+            for (Link link : f.getPath()) {
+                if (link.getRemainderCapacity() < 1e-8) {
+                    boolean highest = true;
+                    for (Flow other : link.getActiveFlows()) {
+                        if (other.getCurrentBandwidth() / flowToWeight.get(other) > level + 1e-8) {
+                            highest = false;
+                        }
+                    }
+                    bottlenecked |= highest;
+                }
+            }
+            assertTrue("Flow " + f + " is not bottlenecked", bottlenecked);
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.basicsim.schedule;
+
+import ch.ethz.systems.floodns.ext.basicsim.topology.Topology;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+
+import static ch.ethz.systems.floodns.ext.basicsim.topology.TopologyTestUtility.constructTopology;
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class BinaryScheduleTest {
+
+    private Topology createTopology() throws IOException {
+        return constructTopology(
+                12,
+                16,
+                "set(6,7,8,9,10,11)",
+                "set(0, 1, 2, 3, 4, 5)",
+                "set(0, 1, 3)",
+                "set(0-1,1-3,2-3,0-2,0-4,1-4,2-4,3-4,1-5,3-5,0-6,0-7,1-8,1-9,3-10,3-11)",
+                55
+        );
+    }
+
+    private void assertEntriesEqual(List<ScheduleEntry> expected, List<ScheduleEntry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            ScheduleEntry a = expected.get(i);
+            ScheduleEntry b = actual.get(i);
+            assertEquals(a.getConnectionId(), b.getConnectionId());
+            assertEquals(a.getFromNodeId(), b.getFromNodeId());
+            assertEquals(a.getToNodeId(), b.getToNodeId());
+            assertEquals(a.getSizeByte(), b.getSizeByte());
+            assertEquals(a.getStartTimeNs(), b.getStartTimeNs());
+            assertEquals(a.getAdditionalParameters(), b.getAdditionalParameters());
+            assertEquals(a.getMetadata(), b.getMetadata());
+        }
+    }
+
+    @Test
+    public void testConvertAndRead() throws IOException {
+        String run_dir = Files.createTempDirectory("temp_run_dir").toAbsolutePath().toString();
+        Topology topology = createTopology();
+
+        PrintWriter writerConfig = new PrintWriter(new FileWriter(run_dir + "/schedule.csv"));
+        writerConfig.write("0,6,11,43626,255345,,a\n");
+        writerConfig.write("1,8,7,333,2546262,,b\n");
+        writerConfig.write("2,9,10,1000000,2546262,,cé\n");
+        writerConfig.write("3,10,9,1000000,2546262,x,a\n");
+        writerConfig.write("4,7,6,1000000,7878475836,,\n");
+        writerConfig.close();
+
+        assertEquals(5, CsvToBinaryScheduleConverter.convert(run_dir + "/schedule.csv", run_dir + "/schedule.bin"));
+        assertFalse(BinaryScheduleReader.isBinarySchedule(run_dir + "/schedule.csv"));
+        assertTrue(BinaryScheduleReader.isBinarySchedule(run_dir + "/schedule.bin"));
+
+        // Format is detected by header
+        Schedule csvSchedule = new Schedule(run_dir + "/schedule.csv", topology, 7878475837L);
+        Schedule binarySchedule = new Schedule(run_dir + "/schedule.bin", topology, 7878475837L);
+        assertEntriesEqual(csvSchedule.getEntries(), binarySchedule.getEntries());
+        assertTrue(new StreamingSchedule(run_dir + "/schedule.bin", topology, 7878475837L).openReader() instanceof BinaryScheduleReader);
+
+    }
+
+    @Test
+    public void testReuseEntry() throws IOException {
+        String run_dir = Files.createTempDirectory("temp_run_dir").toAbsolutePath().toString();
+        Topology topology = createTopology();
+
+        PrintWriter writerConfig = new PrintWriter(new FileWriter(run_dir + "/schedule.csv"));
+        writerConfig.write("0,6,11,43626,255345,,a\n");
+        writerConfig.write("1,8,7,333,2546262,x,b\n");
+        writerConfig.write("2,9,10,1000000,2546262,,a\n");
+        writerConfig.close();
+        CsvToBinaryScheduleConverter.convert(run_dir + "/schedule.csv", run_dir + "/schedule.bin");
+        List<ScheduleEntry> expected = new Schedule(run_dir + "/schedule.csv", topology, 7878475837L).getEntries();
+
+        // The same entry instance is overwritten for each row, with the pool strings shared
+        try (ScheduleReader reader = new BinaryScheduleReader(run_dir + "/schedule.bin", topology, 7878475837L)) {
+            reader.setReuseEntry(true);
+            ScheduleEntry first = reader.next();
+            String metadata = first.getMetadata();
+            for (int i = 0; i < expected.size(); i++) {
+                ScheduleEntry entry = i == 0 ? first : reader.next();
+                assertSame(first, entry);
+                assertEquals(expected.get(i).getConnectionId(), entry.getConnectionId());
+                assertEquals(expected.get(i).getFromNodeId(), entry.getFromNodeId());
+                assertEquals(expected.get(i).getToNodeId(), entry.getToNodeId());
+                assertEquals(expected.get(i).getSizeByte(), entry.getSizeByte());
+                assertEquals(expected.get(i).getStartTimeNs(), entry.getStartTimeNs());
+                assertEquals(expected.get(i).getAdditionalParameters(), entry.getAdditionalParameters());
+                assertEquals(expected.get(i).getMetadata(), entry.getMetadata());
+                if (i == 2) {
+                    assertSame(metadata, entry.getMetadata());
+                }
+            }
+            assertFalse(reader.hasNext());
+        }
+
+    }
+
+    @Test
+    public void testValidatedWhenRead() throws IOException {
+        String run_dir = Files.createTempDirectory("temp_run_dir").toAbsolutePath().toString();
+        Topology topology = createTopology();
+
+        // Invalid source, which is only detected when read
+        PrintWriter writerConfig = new PrintWriter(new FileWriter(run_dir + "/schedule.csv"));
+        writerConfig.write("0,3,11,43626,255345,,a\n");
+        writerConfig.close();
+        CsvToBinaryScheduleConverter.convert(run_dir + "/schedule.csv", run_dir + "/schedule.bin");
+        boolean thrown = false;
+        try {
+            new Schedule(run_dir + "/schedule.bin", topology, 7878475837L);
+        } catch (IllegalArgumentException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        String run_dir = Files.createTempDirectory("temp_run_dir").toAbsolutePath().toString();
+        Topology topology = createTopology();
+
+        PrintWriter writerConfig = new PrintWriter(new FileWriter(run_dir + "/schedule.csv"));
+        writerConfig.write("0,6,11,43626,255345,,a\n");
+        writerConfig.write("1,8,7,333,2546262,,b\n");
+        writerConfig.close();
+        CsvToBinaryScheduleConverter.convert(run_dir + "/schedule.csv", run_dir + "/schedule.bin");
+        RandomAccessFile file = new RandomAccessFile(run_dir + "/schedule.bin", "rw");
+        file.setLength(BinaryScheduleReader.HEADER_SIZE + BinaryScheduleReader.ROW_SIZE);
+        file.close();
+
+        boolean thrown = false;
+        try {
+            new BinaryScheduleReader(run_dir + "/schedule.bin", topology, 7878475837L);
+        } catch (IllegalArgumentException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+
+    }
+
+    @Test
+    public void testFailedConversionLeavesNoFile() throws IOException {
+        String run_dir = Files.createTempDirectory("temp_run_dir").toAbsolutePath().toString();
+
+        PrintWriter writerConfig = new PrintWriter(new FileWriter(run_dir + "/schedule.csv"));
+        writerConfig.write("0,6,11,43626,255345,,a\n");
+        writerConfig.write("1,8,7,333\n");
+        writerConfig.close();
+
+        boolean thrown = false;
+        try {
+            CsvToBinaryScheduleConverter.convert(run_dir + "/schedule.csv", run_dir + "/schedule.bin");
+        } catch (IllegalArgumentException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+        assertFalse(new File(run_dir + "/schedule.bin").exists());
+
+    }
+
+}
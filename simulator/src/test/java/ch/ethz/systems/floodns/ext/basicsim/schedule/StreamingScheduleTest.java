@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.basicsim.schedule;
+
+import ch.ethz.systems.floodns.core.Simulator;
+import ch.ethz.systems.floodns.ext.basicsim.topology.Topology;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.List;
+
+import static ch.ethz.systems.floodns.ext.basicsim.topology.TopologyTestUtility.constructTopology;
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class StreamingScheduleTest {
+
+    private Topology createTopology() throws IOException {
+        return constructTopology(
+                12,
+                16,
+                "set(6,7,8,9,10,11)",
+                "set(0, 1, 2, 3, 4, 5)",
+                "set(0, 1, 3)",
+                "set(0-1,1-3,2-3,0-2,0-4,1-4,2-4,3-4,1-5,3-5,0-6,0-7,1-8,1-9,3-10,3-11)",
+                55
+        );
+    }
+
+    @Test
+    public void testSameAsSchedule() throws IOException {
+        String run_dir = Files.createTempDirectory("temp_run_dir").toAbsolutePath().toString();
+        Topology topology = createTopology();
+
+        PrintWriter writerConfig = new PrintWriter(new FileWriter(run_dir + "/schedule.csv"));
+        writerConfig.write("0,6,11,43626,255345,,a\n");
+        writerConfig.write("1,8,7,333,2546262,,b\n");
+        writerConfig.write("2,9,10,1000000,2546262,,c\n");
+        writerConfig.write("3,10,9,1000000,2546262,x,a\n");
+        writerConfig.write("4,7,6,1000000,7878475836,,\n");
+        writerConfig.close();
+
+        List<ScheduleEntry> entries = new Schedule(run_dir + "/schedule.csv", topology, 7878475837L).getEntries();
+        StreamingSchedule schedule = new StreamingSchedule(run_dir + "/schedule.csv", topology, 7878475837L);
+        ScheduleReader reader = schedule.openReader();
+        int i = 0;
+        while (reader.hasNext()) {
+            ScheduleEntry entry = reader.next();
+            ScheduleEntry expected = entries.get(i);
+            assertEquals(expected.getConnectionId(), entry.getConnectionId());
+            assertEquals(expected.getFromNodeId(), entry.getFromNodeId());
+            assertEquals(expected.getToNodeId(), entry.getToNodeId());
+            assertEquals(expected.getSizeByte(), entry.getSizeByte());
+            assertEquals(expected.getStartTimeNs(), entry.getStartTimeNs());
+            assertEquals(expected.getAdditionalParameters(), entry.getAdditionalParameters());
+            assertEquals(expected.getMetadata(), entry.getMetadata());
+            i++;
+        }
+        assertEquals(5, i);
+        assertFalse(reader.hasNext());
+
+        // The stream can be bound to a simulator without reading anything yet
+        schedule.getConnectionStartEventStream(new Simulator(), null);
+
+    }
+
+    @Test
+    public void testInvalidDetectedWhileReading() throws IOException {
+        String run_dir = Files.createTempDirectory("temp_run_dir").toAbsolutePath().toString();
+        Topology topology = createTopology();
+
+        // Start time not weakly ascending at the third entry
+        PrintWriter writerConfig = new PrintWriter(new FileWriter(run_dir + "/schedule.csv"));
+        writerConfig.write("0,6,11,43626,255345,,a\n");
+        writerConfig.write("1,6,11,43626,255346,,a\n");
+        writerConfig.write("2,6,11,43626,255344,,a\n");
+        writerConfig.close();
+
+        ScheduleReader reader = new StreamingSchedule(run_dir + "/schedule.csv", topology, 7878475837L).openReader();
+        assertEquals(0, reader.next().getConnectionId());
+        assertEquals(1, reader.next().getConnectionId());
+        boolean thrown = false;
+        try {
+            reader.hasNext();
+        } catch (IllegalArgumentException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+        assertFalse(reader.hasNext());
+        reader.close();
+
+    }
+
+    /**
+     * Reader of entries with ascending connection IDs, of which the last is given an invalid ID.
+     */
+    private static class CountingReader extends ScheduleReader {
+
+        private final int numEntries;
+        private int numRead;
+        private int numClosed;
+
+        CountingReader(Topology topology, int numEntries) {
+            super(topology, 7878475837L);
+            this.numEntries = numEntries;
+        }
+
+        @Override
+        protected ScheduleEntry readNextEntry() {
+            if (numRead == numEntries) {
+                return null;
+            }
+            numRead++;
+            long connectionId = numRead == numEntries ? numRead : numRead - 1;
+            return new ScheduleEntry(connectionId, 6, 11, 1000, 255345, "", "");
+        }
+
+        @Override
+        public void close() {
+            numClosed++;
+        }
+
+    }
+
+    @Test
+    public void testClosedOnInvalidEntry() throws IOException {
+        CountingReader reader = new CountingReader(createTopology(), 3);
+        assertEquals(0, reader.next().getConnectionId());
+        assertEquals(1, reader.next().getConnectionId());
+        boolean thrown = false;
+        try {
+            reader.hasNext();
+        } catch (IllegalArgumentException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+        assertEquals(1, reader.numClosed);
+        assertFalse(reader.hasNext());
+        assertEquals(1, reader.numClosed);
+    }
+
+    @Test
+    public void testEventStreamClosesReader() throws IOException {
+        CountingReader reader = new CountingReader(createTopology(), 3);
+        ConnectionStartEventStream stream = new ConnectionStartEventStream(new Simulator(), null, null, reader);
+        stream.close();
+        assertEquals(1, reader.numClosed);
+    }
+
+    @Test
+    public void testFileDoesNotExist() throws IOException {
+        File tempFile = File.createTempFile("schedule", ".csv");
+        assertTrue(tempFile.delete());
+        boolean thrown = false;
+        try {
+            new StreamingSchedule(tempFile.getAbsolutePath(), createTopology(), 385298955L);
+        } catch (IllegalArgumentException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LpModelTest {
+
+    private static final double PRECISION = 1e-7;
+
+    /**
+     * Solver which only solves program files, such that a model is solved through the LP format.
+     */
+    private static class FileOnlyLpSolver extends LpSolver {
+
+        @Override
+        public ImmutablePair<Double, Map<String, Double>> solve(String cplexFilename, String solutionFilename) {
+            return new SimplexLpSolver().solve(cplexFilename, solutionFilename);
+        }
+
+    }
+
+    private static String write(LpModel model) {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        model.write(out);
+        out.flush();
+        return text.toString();
+    }
+
+    @Test
+    public void testBuildAndWrite() {
+        LpModel model = new LpModel();
+        int x = model.addVariable();
+        int y = model.addVariable("y");
+        int z = model.addVariable();
+        model.setMaximize(true);
+        model.setObjectiveCoefficient(x, 3.0);
+        model.setObjectiveCoefficient(y, 2.0);
+        model.setBounds(z, Double.NEGATIVE_INFINITY, 1.5);
+        model.addTerm(x, 1.0);
+        model.addTerm(y, 0.0);
+        model.addTerm(y, 1.0);
+        assertEquals(0, model.addConstraint(LpModel.Sense.LESS_EQUAL, 4.0));
+        model.addTerm(x, 1.0);
+        model.addTerm(y, 3.0);
+        model.addTerm(z, -1.0);
+        assertEquals(1, model.addConstraint("cap", LpModel.Sense.LESS_EQUAL, 0.000001));
+
+        // Sparse rows (zero coefficients left out)
+        assertEquals(2, model.getNumConstraints());
+        assertEquals(0, model.getTermStart(0));
+        assertEquals(2, model.getTermEnd(0));
+        assertEquals(5, model.getTermEnd(1));
+        assertEquals(z, model.getTermVariable(4));
+        assertEquals(-1.0, model.getTermCoefficient(4), 0.0);
+
+        // Numbers are written exactly and without exponent
+        assertEquals(
+                "max: 3.0 x0 + 2.0 y;\n" +
+                "\n" +
+                "c0: x0 + y <= 4.0;\n" +
+                "cap: x0 + 3.0 y - x2 <= 0.0000010;\n" +
+                "\n" +
+                "free x2;\n" +
+                "x2 <= 1.5;\n",
+                write(model).replace(System.lineSeparator(), "\n")
+        );
+    }
+
+    @Test
+    public void testDirectAndThroughFileEqual() {
+        Random random = new Random(42);
+        for (int n = 0; n < 30; n++) {
+
+            // Random bounded program with some free variables
+            LpModel model = new LpModel();
+            int numVariables = 2 + random.nextInt(6);
+            for (int j = 0; j < numVariables; j++) {
+                model.addVariable();
+                model.setObjectiveCoefficient(j, random.nextInt(7) - 2);
+                if (random.nextInt(4) == 0) {
+                    model.setBounds(j, -1.0 - random.nextInt(5), 10.0);
+                }
+            }
+            model.setMaximize(random.nextBoolean());
+            for (int i = 0; i < 2 + random.nextInt(5); i++) {
+                for (int j = 0; j < numVariables; j++) {
+                    model.addTerm(j, random.nextInt(5) - 1);
+                }
+                model.addConstraint(LpModel.Sense.LESS_EQUAL, 1 + random.nextInt(20));
+            }
+            for (int j = 0; j < numVariables; j++) {
+                model.addTerm(j, 1.0);
+                model.addConstraint(LpModel.Sense.LESS_EQUAL, 25.0);
+                model.addTerm(j, 1.0);
+                model.addConstraint(LpModel.Sense.GREATER_EQUAL, -25.0);
+            }
+
+            ImmutablePair<Double, double[]> direct = new SimplexLpSolver().solve(model);
+            ImmutablePair<Double, double[]> throughFile = new FileOnlyLpSolver().solve(model);
+            assertEquals(direct.getLeft(), throughFile.getLeft(), PRECISION);
+            assertEquals(direct.getLeft(), model.evaluateObjective(throughFile.getRight()), PRECISION);
+
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownVariable() {
+        LpModel model = new LpModel();
+        model.addVariable();
+        model.addTerm(1, 1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBounds() {
+        LpModel model = new LpModel();
+        model.setBounds(model.addVariable(), 2.0, 1.0);
+    }
+
+}
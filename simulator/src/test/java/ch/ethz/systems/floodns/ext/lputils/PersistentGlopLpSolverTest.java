@@ -0,0 +1,229 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PersistentGlopLpSolverTest {
+
+    // Stand-in for the OR-tools parser: every variable is 1/3, unless the program asks otherwise
+    private static final String FAKE_PARSER =
+            "import os\n" +
+            "import re\n" +
+            "\n" +
+            "class FakeVariable:\n" +
+            "    def __init__(self, value):\n" +
+            "        self.value = value\n" +
+            "    def solution_value(self):\n" +
+            "        return self.value\n" +
+            "\n" +
+            "class FakeObjective:\n" +
+            "    def __init__(self, value):\n" +
+            "        self.value = value\n" +
+            "    def Value(self):\n" +
+            "        return self.value\n" +
+            "\n" +
+            "class FakeSolver:\n" +
+            "    OPTIMAL, FEASIBLE, INFEASIBLE, UNBOUNDED, ABNORMAL, NOT_SOLVED = 0, 1, 2, 3, 4, 6\n" +
+            "    def __init__(self, text, var_names):\n" +
+            "        self.text = text\n" +
+            "        self.var_names = var_names\n" +
+            "    def Solve(self):\n" +
+            "        if 'crash' in self.text:\n" +
+            "            os._exit(3)\n" +
+            "        return self.INFEASIBLE if 'infeasible' in self.text else self.OPTIMAL\n" +
+            "    def Objective(self):\n" +
+            "        return FakeObjective(len(self.var_names) / 3.0)\n" +
+            "    def LookupVariable(self, name):\n" +
+            "        return FakeVariable(float('nan') if 'nan' in self.text else 1.0 / 3.0)\n" +
+            "\n" +
+            "def parse_lp_file(filename):\n" +
+            "    print('Parsing ' + filename)\n" +
+            "    with open(filename) as f:\n" +
+            "        text = f.read()\n" +
+            "    var_names = sorted(set(re.findall(r'\\bx\\w*', text)))\n" +
+            "    return {'solver': FakeSolver(text, var_names), 'var_names': var_names}\n";
+
+    private static Path workerScript;
+
+    @BeforeClass
+    public static void setupWorker() throws IOException, InterruptedException {
+        try {
+            Assume.assumeTrue(new ProcessBuilder("python", "-c", "pass").start().waitFor() == 0);
+        } catch (IOException e) {
+            Assume.assumeTrue(false);
+        }
+
+        // The worker script imports the parser from its own directory first
+        Path dir = Files.createTempDirectory("glop_worker");
+        workerScript = dir.resolve("glop_solver_worker.py");
+        Files.copy(Paths.get("external/glop_solver_worker.py"), workerScript);
+        Files.write(dir.resolve("ortoolslpparser.py"), FAKE_PARSER.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterClass
+    public static void cleanupWorker() throws IOException {
+        if (workerScript != null) {
+            Files.walkFileTree(workerScript.getParent(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    private static String program(int numVariables) {
+        StringBuilder builder = new StringBuilder("max: ");
+        for (int i = 0; i < numVariables; i++) {
+            builder.append(i == 0 ? "" : " + ").append("x").append(i);
+        }
+        return builder.append(";\n").toString();
+    }
+
+    private static void assertSolution(int numVariables, ImmutablePair<Double, Map<String, Double>> result) {
+        assertEquals(numVariables / 3.0, result.getLeft(), 0.0);
+        assertEquals(numVariables, result.getRight().size());
+        for (int i = 0; i < numVariables; i++) {
+            assertEquals(1.0 / 3.0, result.getRight().get("x" + i), 0.0);
+        }
+    }
+
+    @Test
+    public void testSolveSequence() throws IOException {
+        try (PersistentGlopLpSolver solver = new PersistentGlopLpSolver(workerScript.toString(), 1, false)) {
+            for (int n = 1; n < 50; n++) {
+                assertSolution(n, solver.solveProgram(program(n)));
+            }
+
+            // Through the file interface
+            Path file = Files.createTempFile("program", ".lp");
+            Files.write(file, program(7).getBytes(StandardCharsets.UTF_8));
+            assertSolution(7, solver.solve(file.toString(), file.toString() + ".sol"));
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testConcurrentSolves() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try (final PersistentGlopLpSolver solver = new PersistentGlopLpSolver(workerScript.toString(), 3, false)) {
+            List<Future<ImmutablePair<Double, Map<String, Double>>>> futures = new ArrayList<>();
+            for (int n = 1; n <= 60; n++) {
+                final int numVariables = n;
+                futures.add(executor.submit(new Callable<ImmutablePair<Double, Map<String, Double>>>() {
+                    @Override
+                    public ImmutablePair<Double, Map<String, Double>> call() {
+                        return solver.solveProgram(program(numVariables));
+                    }
+                }));
+            }
+            for (int n = 1; n <= 60; n++) {
+                assertSolution(n, futures.get(n - 1).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testNotSolvedKeepsWorker() {
+        try (PersistentGlopLpSolver solver = new PersistentGlopLpSolver(workerScript.toString(), 1, false)) {
+            try {
+                solver.solveProgram("max: x0; // infeasible\n");
+                fail();
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains("INFEASIBLE"));
+            }
+            assertSolution(3, solver.solveProgram(program(3)));
+        }
+    }
+
+    @Test
+    public void testFailedWorkerReplaced() {
+        try (PersistentGlopLpSolver solver = new PersistentGlopLpSolver(workerScript.toString(), 1, false)) {
+            try {
+                solver.solveProgram("max: x0; // crash\n");
+                fail();
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains("replaced"));
+            }
+            assertSolution(4, solver.solveProgram(program(4)));
+        }
+    }
+
+    @Test
+    public void testUnreadableResponseReplacesWorker() {
+        try (PersistentGlopLpSolver solver = new PersistentGlopLpSolver(workerScript.toString(), 1, false)) {
+            try {
+                solver.solveProgram("max: x0 + x1 + x2 + x3; // nan\n");
+                fail();
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains("replaced"));
+            }
+
+            // The remaining lines of the unreadable response must not be read as the next response
+            assertSolution(2, solver.solveProgram(program(2)));
+            assertSolution(5, solver.solveProgram(program(5)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNumWorkers() {
+        new PersistentGlopLpSolver(workerScript.toString(), 0, false);
+    }
+
+}
@@ -0,0 +1,448 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.ext.lputils;
+
+import ch.ethz.systems.floodns.PathTestUtility;
+import ch.ethz.systems.floodns.core.Connection;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+import ch.ethz.systems.floodns.ext.allocator.SumMaxLpAllocator;
+import ch.ethz.systems.floodns.user.network.NetworkTestHelper;
+import ch.ethz.systems.floodns.user.network.TestBody;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimplexLpSolverTest {
+
+    private static final double PRECISION = 1e-7;
+
+    @Test
+    public void testMaximize() {
+        ImmutablePair<Double, Map<String, Double>> result = new SimplexLpSolver().solveProgram(
+                "// Objective\n" +
+                "max: 3 x + 2 y;\n" +
+                "c0: x + y <= 4;\n" +
+                "c1: x + 3 y <= 6;\n" +
+                "/* bound */ c2: x <= 3;\n"
+        );
+        assertEquals(11.0, result.getLeft(), PRECISION);
+        assertEquals(3.0, result.getRight().get("x"), PRECISION);
+        assertEquals(1.0, result.getRight().get("y"), PRECISION);
+    }
+
+    @Test
+    public void testMinimizeWithPhaseOne() {
+        ImmutablePair<Double, Map<String, Double>> result = new SimplexLpSolver().solveProgram(
+                "min: 2 x + 3 y;\n" +
+                "c0: x + y >= 10;\n" +
+                "c1: x - y = 2;\n"
+        );
+        assertEquals(24.0, result.getLeft(), PRECISION);
+        assertEquals(6.0, result.getRight().get("x"), PRECISION);
+        assertEquals(4.0, result.getRight().get("y"), PRECISION);
+    }
+
+    @Test
+    public void testFreeVariableAndRange() {
+        ImmutablePair<Double, Map<String, Double>> result = new SimplexLpSolver().solveProgram(
+                "min: x + 1;\n" +
+                "c0: x + y >= -5;\n" +
+                "c1: -3 <= y - z <= 1;\n" +
+                "c2: 2 * z <= 0 + 0.5 * z;\n" +
+                "free x;\n"
+        );
+        assertEquals(-5.0, result.getLeft(), PRECISION);
+        assertEquals(-6.0, result.getRight().get("x"), PRECISION);
+        assertEquals(1.0, result.getRight().get("y"), PRECISION);
+        assertEquals(0.0, result.getRight().get("z"), PRECISION);
+    }
+
+    @Test
+    public void testDegenerateCycling() {
+        // Beale's example, which cycles with the textbook pivoting rules
+        ImmutablePair<Double, Map<String, Double>> result = new SimplexLpSolver().solveProgram(
+                "max: 0.75 x4 - 20 x5 + 0.5 x6 - 6 x7;\n" +
+                "c0: 0.25 x4 - 8 x5 - x6 + 9 x7 <= 0;\n" +
+                "c1: 0.5 x4 - 12 x5 - 0.5 x6 + 3 x7 <= 0;\n" +
+                "c2: x6 <= 1;\n"
+        );
+        assertEquals(1.25, result.getLeft(), PRECISION);
+    }
+
+    @Test
+    public void testBoundFlipToNonRepresentableBound() {
+        // The lower bound -1/3 is not representable, such that flipping x from it to its upper bound
+        // by adding the bound range (4 + 1/3) would end just short of 4
+        ImmutablePair<Double, Map<String, Double>> result = new SimplexLpSolver().solveProgram(
+                "min: -x;\n" +
+                "c0: x >= -2;\n" +
+                "c1: x <= 4;\n" +
+                "c2: -3 x <= 1;\n" +
+                "free x;\n"
+        );
+        assertEquals(-4.0, result.getLeft(), PRECISION);
+        assertEquals(4.0, result.getRight().get("x"), 0.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInfeasible() {
+        new SimplexLpSolver().solveProgram("max: x;\nc0: x + y <= 1;\nc1: x + y >= 2;\n");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInfeasibleBounds() {
+        new SimplexLpSolver().solveProgram("max: x;\nc0: x <= 1;\nc1: 2 x >= 4;\n");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnbounded() {
+        new SimplexLpSolver().solveProgram("max: x + y;\nc0: x - y <= 1;\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntegerUnsupported() {
+        new SimplexLpSolver().solveProgram("max: x;\nc0: x <= 1;\nint x;\n");
+    }
+
+    @Test
+    public void testDuals() {
+
+        // max x + y s.t. x + 2y <= 4, x <= 3 (a bound), y <= 5 (not binding)
+        LpModel model = new LpModel();
+        int x = model.addVariable("x");
+        int y = model.addVariable("y");
+        model.setMaximize(true);
+        model.setObjectiveCoefficient(x, 1.0);
+        model.setObjectiveCoefficient(y, 1.0);
+        model.addTerm(x, 1.0);
+        model.addTerm(y, 2.0);
+        int c0 = model.addConstraint(LpModel.Sense.LESS_EQUAL, 4.0);
+        model.addTerm(x, 1.0);
+        int c1 = model.addConstraint(LpModel.Sense.LESS_EQUAL, 3.0);
+        model.addTerm(y, 1.0);
+        int c2 = model.addConstraint(LpModel.Sense.LESS_EQUAL, 5.0);
+        assertEquals(3.5, new SimplexLpSolver().solve(model).getLeft(), PRECISION);
+
+        // Increasing the right-hand side of c0 or c1 by one increases the objective by a half
+        assertTrue(model.hasDuals());
+        assertEquals(0.5, model.getConstraintDual(c0), PRECISION);
+        assertEquals(0.5, model.getConstraintDual(c1), PRECISION);
+        assertEquals(0.0, model.getConstraintDual(c2), PRECISION);
+
+    }
+
+    @Test
+    public void testRandomAgainstVertexEnumeration() {
+        Random random = new Random(42);
+        for (int t = 0; t < 300; t++) {
+            int n = 3;
+            int m = 2 + random.nextInt(4);
+
+            // Constraints around a feasible point within the box [0, 10]^n
+            double[] point = new double[n];
+            for (int j = 0; j < n; j++) {
+                point[j] = 10 * random.nextDouble();
+            }
+            double[][] a = new double[m + 2 * n][n];
+            double[] b = new double[m + 2 * n];
+            int[] sense = new int[m + 2 * n];
+            StringBuilder program = new StringBuilder();
+            double[] c = new double[n];
+            program.append("max:");
+            for (int j = 0; j < n; j++) {
+                c[j] = random.nextInt(11) - 5;
+                program.append(" + ").append(c[j]).append(" x").append(j);
+            }
+            program.append(";\n");
+            for (int i = 0; i < m; i++) {
+                double lhs = 0.0;
+                program.append("c").append(i).append(":");
+                for (int j = 0; j < n; j++) {
+                    a[i][j] = random.nextInt(7) - 3;
+                    lhs += a[i][j] * point[j];
+                    program.append(" + ").append(a[i][j]).append(" x").append(j);
+                }
+                sense[i] = random.nextInt(5) - 2;
+                if (sense[i] < 0) {
+                    b[i] = Math.floor(lhs) + 1;
+                    program.append(" <= ");
+                } else if (sense[i] > 0) {
+                    b[i] = Math.floor(lhs);
+                    program.append(" >= ");
+                } else {
+                    b[i] = lhs;
+                    program.append(" = ");
+                }
+                program.append(b[i]).append(";\n");
+            }
+            for (int j = 0; j < n; j++) {
+                a[m + 2 * j][j] = 1;
+                b[m + 2 * j] = 10;
+                sense[m + 2 * j] = -1;
+                a[m + 2 * j + 1][j] = 1;
+                b[m + 2 * j + 1] = 0;
+                sense[m + 2 * j + 1] = 1;
+                program.append("b").append(j).append(": x").append(j).append(" <= 10;\n");
+            }
+
+            ImmutablePair<Double, Map<String, Double>> result = new SimplexLpSolver().solveProgram(program.toString());
+
+            // The solution must be feasible and as good as the best vertex
+            double[] solution = new double[n];
+            for (int j = 0; j < n; j++) {
+                Double value = result.getRight().get("x" + j);
+                solution[j] = value == null ? 0.0 : value;
+            }
+            assertTrue(isFeasible(a, b, sense, solution));
+            assertEquals(bestVertex(a, b, sense, c), result.getLeft(), 1e-6);
+        }
+    }
+
+    private static boolean isFeasible(double[][] a, double[] b, int[] sense, double[] x) {
+        for (int i = 0; i < a.length; i++) {
+            double lhs = 0.0;
+            for (int j = 0; j < x.length; j++) {
+                lhs += a[i][j] * x[j];
+            }
+            if ((sense[i] <= 0 && lhs > b[i] + 1e-6) || (sense[i] >= 0 && lhs < b[i] - 1e-6)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double bestVertex(double[][] a, double[] b, int[] sense, double[] c) {
+        double best = Double.NEGATIVE_INFINITY;
+        int k = a.length;
+        for (int i0 = 0; i0 < k; i0++) {
+            for (int i1 = i0 + 1; i1 < k; i1++) {
+                for (int i2 = i1 + 1; i2 < k; i2++) {
+                    double[] x = solve3(
+                            new double[][]{a[i0].clone(), a[i1].clone(), a[i2].clone()},
+                            new double[]{b[i0], b[i1], b[i2]}
+                    );
+                    if (x != null && isFeasible(a, b, sense, x)) {
+                        best = Math.max(best, c[0] * x[0] + c[1] * x[1] + c[2] * x[2]);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double[] solve3(double[][] m, double[] r) {
+        for (int col = 0; col < 3; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < 3; row++) {
+                if (Math.abs(m[row][col]) > Math.abs(m[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(m[pivot][col]) < 1e-9) {
+                return null;
+            }
+            double[] tmp = m[col];
+            m[col] = m[pivot];
+            m[pivot] = tmp;
+            double t = r[col];
+            r[col] = r[pivot];
+            r[pivot] = t;
+            for (int row = 0; row < 3; row++) {
+                if (row != col) {
+                    double f = m[row][col] / m[col][col];
+                    for (int k = col; k < 3; k++) {
+                        m[row][k] -= f * m[col][k];
+                    }
+                    r[row] -= f * r[col];
+                }
+            }
+        }
+        return new double[]{r[0] / m[0][0], r[1] / m[1][1], r[2] / m[2][2]};
+    }
+
+    @Test
+    public void testSumMaxAllocator() {
+        Simulator simulator = new Simulator(1e-4);
+        Network network = new Network(6);
+
+        //
+        // 0 - 1 - 2
+        //     |
+        //     3
+        //
+        network.addLink(0, 1, 1.0);
+        network.addLink(1, 0, 3.0);
+        network.addLink(1, 2, 7.0);
+        network.addLink(2, 1, 3.0);
+        network.addLink(1, 3, 10.0);
+        network.addLink(3, 1, 86.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+
+                // Flows
+                PathTestUtility.startSimpleFlow(simulator, network, "0-1");
+                PathTestUtility.startSimpleFlow(simulator, network, "0-1-3");
+                PathTestUtility.startSimpleFlow(simulator, network, "2-1-3");
+                PathTestUtility.startSimpleFlow(simulator, network, "1-3");
+                PathTestUtility.startSimpleFlow(simulator, network, "2-1-0");
+
+                SumMaxLpAllocator allocator = new SumMaxLpAllocator(simulator, network, new SimplexLpSolver());
+                allocator.perform();
+
+                // Check bandwidth
+                assertEquals(1.0, network.getActiveFlow(0).getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(0.0, network.getActiveFlow(1).getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(0.0, network.getActiveFlow(2).getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(10.0, network.getActiveFlow(3).getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(3.0, network.getActiveFlow(4).getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(14.0, allocator.getObjectiveZ(), simulator.getFlowPrecision());
+
+            }
+
+        });
+    }
+
+    @Test
+    public void testFullSplitMaxMinConnBw() {
+        Simulator simulator = new Simulator(1e-4);
+        Network network = new Network(5);
+
+        // 0   1
+        //  \ /
+        //   4
+        //  / \
+        // 2   3
+        network.addLink(0, 4, 100);
+        network.addLink(4, 0, 100);
+        network.addLink(1, 4, 100);
+        network.addLink(4, 1, 100);
+        network.addLink(2, 4, 100);
+        network.addLink(4, 2, 100);
+        network.addLink(3, 4, 100);
+        network.addLink(4, 3, 30);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                int[][] endpoints = {{0, 1}, {0, 1}, {0, 3}, {2, 3}, {4, 3}, {0, 3}};
+                double[] demands = {40.0, 70.0, 20.0, 50.0, 10.0, 40.0};
+                Map<Integer, Double> connToDemand = new HashMap<>();
+                for (int i = 0; i < endpoints.length; i++) {
+                    Connection connection = new Connection(
+                            simulator, network.getNode(endpoints[i][0]), network.getNode(endpoints[i][1]), 100
+                    );
+                    simulator.activateConnection(connection);
+                    connToDemand.put(connection.getConnectionId(), demands[i]);
+                }
+                FullSplitMaxMinConnBwLp lp = new FullSplitMaxMinConnBwLp(simulator, new SimplexLpSolver());
+                assertEquals(0.25, lp.calculateAlpha(connToDemand), 1e-6);
+            }
+
+        });
+    }
+
+    @Test
+    public void testFullSplitAggregationAndPaths() {
+        Simulator simulator = new Simulator(1e-4);
+        Network network = new Network(6);
+
+        // Ring of six nodes in both directions, with chords 0-3 and 1-4
+        Random random = new Random(7);
+        for (int i = 0; i < 6; i++) {
+            network.addLink(i, (i + 1) % 6, 5 + random.nextInt(20));
+            network.addLink((i + 1) % 6, i, 5 + random.nextInt(20));
+        }
+        network.addLink(0, 3, 10);
+        network.addLink(4, 1, 10);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Random random = new Random(13);
+                Map<Integer, Double> connToDemand = new HashMap<>();
+                for (int i = 0; i < 20; i++) {
+                    int src = random.nextInt(3);
+                    int dst = 3 + random.nextInt(3);
+                    Connection connection = new Connection(simulator, network.getNode(src), network.getNode(dst), 100);
+                    simulator.activateConnection(connection);
+                    connToDemand.put(connection.getConnectionId(), 1.0 + random.nextInt(10));
+                }
+
+                // Same optimum for each aggregation, with fewer variables
+                final int[] numVariables = new int[1];
+                SimplexLpSolver solver = new SimplexLpSolver() {
+                    @Override
+                    public ImmutablePair<Double, double[]> solve(LpModel model) {
+                        numVariables[0] = model.getNumVariables();
+                        return super.solve(model);
+                    }
+                };
+                double alpha = new FullSplitMaxMinConnBwLp(simulator, solver).calculateAlpha(connToDemand);
+                FullSplitSumMaxLp sumMax = new FullSplitSumMaxLp(simulator, solver);
+                double total = sumMax.calculateMaxTotalThroughput(connToDemand);
+                double k = new FullSplitEpsilonSumMaxLp(simulator, solver).calculate(0.1);
+                int numVariablesNone = numVariables[0];
+                for (CommodityAggregation aggregation : new CommodityAggregation[]{
+                        CommodityAggregation.SOURCE_DESTINATION, CommodityAggregation.SOURCE
+                }) {
+                    assertEquals(
+                            alpha,
+                            new FullSplitMaxMinConnBwLp(simulator, solver, aggregation).calculateAlpha(connToDemand),
+                            1e-6
+                    );
+                    FullSplitSumMaxLp aggregatedSumMax = new FullSplitSumMaxLp(simulator, solver, aggregation);
+                    assertEquals(total, aggregatedSumMax.calculateMaxTotalThroughput(connToDemand), 1e-6);
+                    double sum = 0.0;
+                    for (Map.Entry<Integer, Double> entry : aggregatedSumMax.getMapConnectionToThroughput().entrySet()) {
+                        assertTrue(entry.getValue() <= connToDemand.get(entry.getKey()) + 1e-6);
+                        sum += entry.getValue();
+                    }
+                    assertEquals(total, sum, 1e-6);
+                    assertEquals(k, new FullSplitEpsilonSumMaxLp(simulator, solver, aggregation).calculate(0.1), 1e-6);
+                    assertTrue(numVariables[0] < numVariablesNone);
+                }
+
+                // Same optimum path-based, starting from a single shortest path
+                assertEquals(alpha, new FullSplitMaxMinConnBwLp(simulator, solver, 1).calculateAlpha(connToDemand), 1e-6);
+                assertEquals(total, new FullSplitSumMaxLp(simulator, solver, 1).calculateMaxTotalThroughput(connToDemand), 1e-6);
+                assertEquals(k, new FullSplitEpsilonSumMaxLp(simulator, solver, 2).calculate(0.1), 1e-6);
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 snkas
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ch.ethz.systems.floodns.user.sim;
+
+import ch.ethz.systems.floodns.core.Flow;
+import ch.ethz.systems.floodns.core.Network;
+import ch.ethz.systems.floodns.core.Simulator;
+import ch.ethz.systems.floodns.user.network.NetworkTestHelper;
+import ch.ethz.systems.floodns.user.network.TestBody;
+import org.junit.Test;
+
+import static ch.ethz.systems.floodns.PathTestUtility.startSimpleFlow;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SimulatorBulkAllocationTest {
+
+    @Test
+    public void testBulkSwap() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(2);
+        network.addLink(0, 1, 10.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1");
+                Flow b = startSimpleFlow(simulator, network, "0-1");
+                simulator.allocateFlowBandwidth(a, 3.0);
+                simulator.allocateFlowBandwidth(b, 7.0);
+
+                // One at a time, allocating 7 to a first would exceed the link capacity
+                simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{7.0, 3.0}, 2);
+                assertEquals(7.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(3.0, b.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(0.0, network.getLink(0).getRemainderCapacity(), simulator.getFlowPrecision());
+                assertEquals(10.0, a.getParentConnection().getTotalBandwidth() + b.getParentConnection().getTotalBandwidth(), simulator.getFlowPrecision());
+
+                // Only the first number of flows entries are allocated
+                simulator.allocateFlowBandwidths(new Flow[]{b, a}, new double[]{1.0, 1.0}, 1);
+                assertEquals(7.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(1.0, b.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(2.0, network.getLink(0).getRemainderCapacity(), simulator.getFlowPrecision());
+            }
+
+        });
+
+    }
+
+    @Test
+    public void testBulkNegativeRejectedBeforeAllocating() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(2);
+        network.addLink(0, 1, 10.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1");
+                Flow b = startSimpleFlow(simulator, network, "0-1");
+                try {
+                    simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{5.0, -1.0}, 2);
+                    fail();
+                } catch (IllegalArgumentException e) {
+                    // Expected
+                }
+                assertEquals(0.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(10.0, network.getLink(0).getRemainderCapacity(), simulator.getFlowPrecision());
+            }
+
+        });
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkExceedsCapacity() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(3);
+        network.addLink(0, 1, 10.0);
+        network.addLink(1, 2, 10.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1-2");
+                Flow b = startSimpleFlow(simulator, network, "1-2");
+                simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{6.0, 6.0}, 2);
+            }
+
+        });
+
+    }
+
+    @Test
+    public void testBulkExceedsCapacityRejectedBeforeAllocating() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(3);
+        network.addLink(0, 1, 10.0);
+        network.addLink(1, 2, 10.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1-2");
+                Flow b = startSimpleFlow(simulator, network, "1-2");
+                simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{4.0, 4.0}, 2);
+                try {
+                    simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{6.0, 6.0}, 2);
+                    fail();
+                } catch (IllegalArgumentException e) {
+                    // Expected
+                }
+                assertEquals(4.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(4.0, b.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(6.0, network.getLink(0).getRemainderCapacity(), simulator.getFlowPrecision());
+                assertEquals(2.0, network.getLink(1).getRemainderCapacity(), simulator.getFlowPrecision());
+
+                // Link 1-2 is not exceeded if the bandwidth of b is lowered at the same time
+                simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{6.0, 4.0}, 2);
+                assertEquals(4.0, network.getLink(0).getRemainderCapacity(), simulator.getFlowPrecision());
+                assertEquals(0.0, network.getLink(1).getRemainderCapacity(), simulator.getFlowPrecision());
+            }
+
+        });
+
+    }
+
+    @Test
+    public void testBulkNaNRejectedBeforeAllocating() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(2);
+        network.addLink(0, 1, 10.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1");
+                Flow b = startSimpleFlow(simulator, network, "0-1");
+                try {
+                    simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{5.0, Double.NaN}, 2);
+                    fail();
+                } catch (IllegalArgumentException e) {
+                    // Expected
+                }
+                assertEquals(0.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(0.0, b.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(10.0, network.getLink(0).getRemainderCapacity(), simulator.getFlowPrecision());
+            }
+
+        });
+
+    }
+
+    @Test
+    public void testBulkEndedFlowRejected() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(2);
+        network.addLink(0, 1, 10.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1");
+                Flow b = startSimpleFlow(simulator, network, "0-1");
+                simulator.endFlow(b);
+                try {
+                    simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{5.0, 5.0}, 2);
+                    fail();
+                } catch (IllegalArgumentException e) {
+                    // Expected
+                }
+                assertEquals(0.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(10.0, network.getLink(0).getRemainderCapacity(), simulator.getFlowPrecision());
+            }
+
+        });
+
+    }
+
+    @Test
+    public void testBulkDuplicateLastEntryWins() {
+        Simulator simulator = new Simulator();
+        Network network = new Network(2);
+        network.addLink(0, 1, 10.0);
+
+        NetworkTestHelper.runTest(simulator, network, new TestBody(simulator, network) {
+
+            @Override
+            public void test() {
+                Flow a = startSimpleFlow(simulator, network, "0-1");
+                Flow b = startSimpleFlow(simulator, network, "0-1");
+
+                // Only the last entry of a counts towards the capacity check
+                simulator.allocateFlowBandwidths(new Flow[]{a, b, a}, new double[]{8.0, 6.0, 4.0}, 3);
+                assertEquals(4.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(6.0, b.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(0.0, network.getLink(0).getRemainderCapacity(), simulator.getFlowPrecision());
+
+                // A rejected bulk leaves no scratch state behind for the next one
+                try {
+                    simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{6.0, 6.0}, 2);
+                    fail();
+                } catch (IllegalArgumentException e) {
+                    // Expected
+                }
+                simulator.allocateFlowBandwidths(new Flow[]{a, b}, new double[]{5.0, 5.0}, 2);
+                assertEquals(5.0, a.getCurrentBandwidth(), simulator.getFlowPrecision());
+                assertEquals(5.0, b.getCurrentBandwidth(), simulator.getFlowPrecision());
+            }
+
+        });
+
+    }
+
+}